@@ -0,0 +1,75 @@
+package com.inari.firefly.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.inari.commons.geom.Easing;
+import com.inari.commons.geom.PositionF;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.physics.animation.Animation;
+import com.inari.firefly.physics.animation.AnimationSystem;
+import com.inari.firefly.physics.animation.EAnimation;
+import com.inari.firefly.physics.animation.easing.EasingAnimation;
+import com.inari.firefly.physics.animation.easing.EasingData;
+import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.external.FFTimer;
+
+/** Measures one AnimationSystem.update with one looping easing animation that is mapped to the x position of n entities */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class AnimationBenchmark {
+    
+    @Param( { "1000", "10000" } )
+    public int entities;
+    
+    private BenchmarkApp app;
+    private AnimationSystem animationSystem;
+    private FFTimer timer;
+    
+    @Setup( Level.Trial )
+    public void setup() {
+        app = new BenchmarkApp();
+        final FFContext context = app.getContext();
+        timer = context.getTimer();
+        animationSystem = context.getSystem( AnimationSystem.SYSTEM_KEY );
+        final EntitySystem entitySystem = context.getSystem( EntitySystem.SYSTEM_KEY );
+        
+        context.getComponentBuilder( Animation.TYPE_KEY, EasingAnimation.class )
+            .set( Animation.NAME, "benchmarkAnimation" )
+            .set( Animation.LOOPING, true )
+            .set( EasingAnimation.EASING_DATA, new EasingData( Easing.Type.LINEAR, 0f, 100f, 1000 ) )
+        .activate();
+        
+        for ( int i = 0; i < entities; i++ ) {
+            entitySystem.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( 0, i ) )
+                .add( EAnimation.ANIMATION_MAPPING, ETransform.AnimationAdapter.POSITION_X.createAnimationMapping( "benchmarkAnimation" ) )
+            .activate();
+        }
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        app.dispose();
+    }
+    
+    @Benchmark
+    public void update() {
+        timer.tick();
+        animationSystem.update( timer );
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.inari.firefly.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.commons.lang.aspect.Aspects;
+import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.entity.EntitySystem.EntityIterator;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.sprite.ESprite;
+import com.inari.firefly.physics.movement.EMovement;
+
+/** Measures the iteration over all active entities with a given component aspect via EntitySystem.entities( Aspects ).
+ *  Every second entity has the movement aspect that is iterated.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class AspectIterationBenchmark {
+    
+    @Param( { "1000", "10000" } )
+    public int entities;
+    
+    private BenchmarkApp app;
+    private EntityIterator iterator;
+    
+    @Setup( Level.Trial )
+    public void setup() {
+        app = new BenchmarkApp();
+        final EntitySystem entitySystem = app.getContext().getSystem( EntitySystem.SYSTEM_KEY );
+        for ( int i = 0; i < entities; i++ ) {
+            if ( i % 2 == 0 ) {
+                entitySystem.getEntityBuilder()
+                    .set( ETransform.VIEW_ID, 0 )
+                    .set( ETransform.POSITION, new PositionF( i, i ) )
+                    .set( EMovement.VELOCITY_X, 1f )
+                .activate();
+            } else {
+                entitySystem.getEntityBuilder()
+                    .set( ETransform.VIEW_ID, 0 )
+                    .set( ETransform.POSITION, new PositionF( i, i ) )
+                    .set( ESprite.SPRITE_ID, 0 )
+                .activate();
+            }
+        }
+        
+        final Aspects aspects = EntityComponent.ASPECT_GROUP.createAspects( ETransform.TYPE_KEY, EMovement.TYPE_KEY );
+        iterator = entitySystem.entities( aspects );
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        app.dispose();
+    }
+    
+    @Benchmark
+    public int iterate() {
+        int sum = 0;
+        iterator.reset();
+        while ( iterator.hasNext() ) {
+            sum += iterator.next();
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.inari.firefly.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.firefly.component.attr.AttributeMap;
+import com.inari.firefly.component.attr.ComponentAttributeMap;
+import com.inari.firefly.component.attr.IndexedAttributeMap;
+import com.inari.firefly.entity.EntityProvider;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.sprite.ESprite;
+import com.inari.firefly.physics.movement.EMovement;
+import com.inari.firefly.system.FFContext;
+
+/** Compares the LinkedHashMap based ComponentAttributeMap ("linked") with the IndexedAttributeMap ("indexed") 
+ *  on the attribute part of an entity build: the attributes of a transform, sprite and movement are put into 
+ *  a reused map, applied to the components by fromAttributes and the map is cleared again.
+ *  EntityBenchmark measures the whole build cycle that uses the IndexedAttributeMap within the EntityBuilder.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class AttributeMapBenchmark {
+    
+    @Param( { "linked", "indexed" } )
+    public String mapType;
+    
+    @Param( { "1000" } )
+    public int entities;
+    
+    private BenchmarkApp app;
+    private AttributeMap attributes;
+    private ETransform transform;
+    private ESprite sprite;
+    private EMovement movement;
+    private PositionF position;
+    
+    @Setup
+    public void setup() {
+        app = new BenchmarkApp();
+        final FFContext context = app.getContext();
+        context.getSystem( EntitySystem.SYSTEM_KEY );
+        final EntityProvider entityProvider = context.getSystem( EntityProvider.SYSTEM_KEY );
+        attributes = ( "indexed".equals( mapType ) )? new IndexedAttributeMap( context ) : new ComponentAttributeMap( context );
+        transform = entityProvider.getComponent( ETransform.TYPE_KEY );
+        sprite = entityProvider.getComponent( ESprite.TYPE_KEY );
+        movement = entityProvider.getComponent( EMovement.TYPE_KEY );
+        position = new PositionF( 10, 10 );
+    }
+    
+    @TearDown
+    public void tearDown() {
+        app.dispose();
+    }
+    
+    @Benchmark
+    public void build( Blackhole blackhole ) {
+        for ( int i = 0; i < entities; i++ ) {
+            attributes
+                .put( ETransform.VIEW_ID, 0 )
+                .put( ETransform.LAYER_ID, 0 )
+                .put( ETransform.POSITION, position )
+                .put( ETransform.SCALE_X, 1f )
+                .put( ESprite.SPRITE_ID, i )
+                .put( EMovement.VELOCITY_X, 1f )
+                .put( EMovement.VELOCITY_Y, 2f )
+                .put( EMovement.ACTIVE, true );
+            transform.fromAttributes( attributes );
+            sprite.fromAttributes( attributes );
+            movement.fromAttributes( attributes );
+            attributes.clear();
+        }
+        blackhole.consume( sprite.getSpriteId() );
+    }
+    
+    @Benchmark
+    public void toAttributes( Blackhole blackhole ) {
+        for ( int i = 0; i < entities; i++ ) {
+            transform.toAttributes( attributes );
+            sprite.toAttributes( attributes );
+            movement.toAttributes( attributes );
+            blackhole.consume( attributes.getValue( ESprite.SPRITE_ID, -1 ) );
+            attributes.clear();
+        }
+    }
+
+}
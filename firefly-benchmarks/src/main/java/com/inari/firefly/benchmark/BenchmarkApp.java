@@ -0,0 +1,21 @@
+package com.inari.firefly.benchmark;
+
+import com.inari.commons.event.EventDispatcher;
+import com.inari.firefly.system.FireFlyApp;
+import com.inari.firefly.system.external.VirtualFFTimerImpl;
+import com.inari.firefly.system.headless.HeadlessAudio;
+import com.inari.firefly.system.headless.HeadlessGraphics;
+import com.inari.firefly.system.headless.HeadlessInput;
+
+/** A FireFlyApp on the headless backends with a fixed 16ms virtual frame time and rendering enabled,
+ *  so that update and render can be measured without any lower level library.
+ */
+public final class BenchmarkApp extends FireFlyApp {
+    
+    public static final long FRAME_TIME = 16;
+    
+    public BenchmarkApp() {
+        super( new EventDispatcher(), new HeadlessGraphics(), new HeadlessAudio(), new VirtualFFTimerImpl( FRAME_TIME ), new HeadlessInput() );
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.inari.firefly.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.inari.commons.geom.Position;
+import com.inari.commons.geom.PositionF;
+import com.inari.commons.geom.Rectangle;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.firefly.component.build.ComponentBuilder;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.tile.ETile;
+import com.inari.firefly.graphics.tile.TileGrid;
+import com.inari.firefly.graphics.tile.TileGridSystem;
+import com.inari.firefly.physics.collision.CollisionQuadTree;
+import com.inari.firefly.physics.collision.CollisionSystem;
+import com.inari.firefly.physics.collision.ContactConstraint;
+import com.inari.firefly.physics.collision.ContactPool;
+import com.inari.firefly.physics.collision.ECollision;
+import com.inari.firefly.physics.movement.MoveEvent;
+import com.inari.firefly.system.FFContext;
+
+/** Measures the CollisionSystem.onMoveEvent contact scan of n moved sprite entities against a tile grid 
+ *  and against each other within a CollisionQuadTree, sequential and with the parallel contact scan.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class CollisionBenchmark {
+    
+    private static final int GRID_SIZE = 64;
+    private static final int CELL_SIZE = 16;
+    
+    @Param( { "100", "1000" } )
+    public int entities;
+    
+    @Param( { "1", "4" } )
+    public int scanThreads;
+    
+    private BenchmarkApp app;
+    private FFContext context;
+    private final IntBag movedEntityIds = new IntBag( 1000, -1 );
+    
+    @Setup( Level.Trial )
+    public void setup() {
+        app = new BenchmarkApp();
+        context = app.getContext();
+        context.setProperty( FFContext.Properties.COLLISION_SCAN_THREADS, scanThreads );
+        context.getSystem( TileGridSystem.SYSTEM_KEY );
+        context.getSystem( CollisionSystem.SYSTEM_KEY );
+        final EntitySystem entitySystem = context.getSystem( EntitySystem.SYSTEM_KEY );
+        final Rectangle worldArea = new Rectangle( 0, 0, GRID_SIZE * CELL_SIZE, GRID_SIZE * CELL_SIZE );
+        
+        context.getComponentBuilder( TileGrid.TYPE_KEY )
+            .set( TileGrid.VIEW_ID, 0 )
+            .set( TileGrid.LAYER_ID, 0 )
+            .set( TileGrid.WIDTH, GRID_SIZE )
+            .set( TileGrid.HEIGHT, GRID_SIZE )
+            .set( TileGrid.CELL_WIDTH, CELL_SIZE )
+            .set( TileGrid.CELL_HEIGHT, CELL_SIZE )
+        .build();
+        
+        context.getComponentBuilder( ContactPool.TYPE_KEY, CollisionQuadTree.class )
+            .set( CollisionQuadTree.VIEW_ID, 0 )
+            .set( CollisionQuadTree.LAYER_ID, 0 )
+            .set( CollisionQuadTree.MAX_ENTRIES_OF_AREA, 10 )
+            .set( CollisionQuadTree.MAX_LEVEL, 6 )
+            .set( CollisionQuadTree.WORLD_AREA, worldArea )
+        .build();
+        
+        final int constraintId = context.getComponentBuilder( ContactConstraint.TYPE_KEY )
+            .set( ContactConstraint.NAME, "benchmarkConstraint" )
+            .set( ContactConstraint.LAYER_ID, 0 )
+            .set( ContactConstraint.CONTACT_BOUNDS, new Rectangle( 0, 0, CELL_SIZE, CELL_SIZE ) )
+        .build();
+        
+        // one solid tile placed on a chessboard pattern over the whole grid
+        final ComponentBuilder tileBuilder = entitySystem.getEntityBuilder()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.LAYER_ID, 0 )
+            .set( ETile.SPRITE_ID, 0 )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, CELL_SIZE, CELL_SIZE ) );
+        for ( int y = 0; y < GRID_SIZE; y++ ) {
+            for ( int x = ( y % 2 ); x < GRID_SIZE; x += 2 ) {
+                tileBuilder.add( ETile.GRID_POSITIONS, new Position( x, y ) );
+            }
+        }
+        tileBuilder.activate();
+        
+        for ( int i = 0; i < entities; i++ ) {
+            movedEntityIds.add( entitySystem.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.LAYER_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( ( i * 37 ) % ( worldArea.width - CELL_SIZE ), ( i * 91 ) % ( worldArea.height - CELL_SIZE ) ) )
+                .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, CELL_SIZE, CELL_SIZE ) )
+                .add( ECollision.CONTACT_CONSTRAINT_IDS, constraintId )
+            .activate() );
+        }
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        app.dispose();
+    }
+    
+    @Benchmark
+    public void onMoveEvent() {
+        MoveEvent.notify( context, movedEntityIds );
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.inari.firefly.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.commons.geom.Rectangle;
+import com.inari.commons.lang.IntIterator;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.physics.collision.CollisionQuadTree;
+import com.inari.firefly.physics.collision.CollisionSystem;
+import com.inari.firefly.physics.collision.ContactPool;
+import com.inari.firefly.physics.collision.ECollision;
+import com.inari.firefly.system.FFContext;
+
+/** Measures add, update and region queries of the CollisionQuadTree */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class CollisionQuadTreeBenchmark {
+    
+    private static final Rectangle WORLD_AREA = new Rectangle( 0, 0, 1000, 1000 );
+    
+    @Param( { "1000", "5000" } )
+    public int entities;
+    
+    private BenchmarkApp app;
+    private CollisionQuadTree quadTree;
+    private int[] entityIds;
+    private final Rectangle scanArea = new Rectangle( 0, 0, 50, 50 );
+    
+    @Setup( Level.Trial )
+    public void setup() {
+        app = new BenchmarkApp();
+        final FFContext context = app.getContext();
+        context.getSystem( CollisionSystem.SYSTEM_KEY );
+        final EntitySystem entitySystem = context.getSystem( EntitySystem.SYSTEM_KEY );
+        
+        final int quadTreeId = context.getComponentBuilder( ContactPool.TYPE_KEY, CollisionQuadTree.class )
+            .set( CollisionQuadTree.NAME, "benchmarkQuadTree" )
+            .set( CollisionQuadTree.VIEW_ID, 1 )
+            .set( CollisionQuadTree.LAYER_ID, 0 )
+            .set( CollisionQuadTree.MAX_ENTRIES_OF_AREA, 10 )
+            .set( CollisionQuadTree.MAX_LEVEL, 6 )
+            .set( CollisionQuadTree.WORLD_AREA, WORLD_AREA )
+        .build();
+        quadTree = context.getSystemComponent( ContactPool.TYPE_KEY, quadTreeId, CollisionQuadTree.class );
+        
+        // the entities are created on view 0 so that they are not automatically registered to the quad tree
+        entityIds = new int[ entities ];
+        for ( int i = 0; i < entities; i++ ) {
+            entityIds[ i ] = entitySystem.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( ( i * 37 ) % 990, ( i * 91 ) % 990 ) )
+                .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, 10, 10 ) )
+            .activate();
+        }
+        add();
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        app.dispose();
+    }
+    
+    /** clears the tree and adds all entities. The tree is fully populated afterwards for the other benchmarks */
+    @Benchmark
+    public void add() {
+        quadTree.clear();
+        for ( int i = 0; i < entities; i++ ) {
+            quadTree.add( entityIds[ i ] );
+        }
+    }
+    
+    @Benchmark
+    public void update() {
+        for ( int i = 0; i < entities; i++ ) {
+            quadTree.update( entityIds[ i ] );
+        }
+    }
+    
+    @Benchmark
+    public int get() {
+        int found = 0;
+        for ( int y = 0; y < 1000; y += 50 ) {
+            for ( int x = 0; x < 1000; x += 50 ) {
+                scanArea.x = x;
+                scanArea.y = y;
+                final IntIterator iterator = quadTree.get( scanArea );
+                while ( iterator.hasNext() ) {
+                    found += iterator.next();
+                }
+            }
+        }
+        return found;
+    }
+
+}
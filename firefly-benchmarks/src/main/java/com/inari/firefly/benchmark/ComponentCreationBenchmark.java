@@ -0,0 +1,75 @@
+package com.inari.firefly.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.inari.commons.lang.indexed.IndexedTypeSet;
+import com.inari.firefly.entity.EntityProvider;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.sprite.ESprite;
+import com.inari.firefly.physics.movement.EMovement;
+import com.inari.firefly.system.FFContext;
+
+/** Stress test of the EntityProvider component creation with 1M short-lived entities per invocation.
+ *  createOnPoolMiss never gives components back, so every request is served by the component factories.
+ *  createAndDispose gives all components back and measures the pooled path.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class ComponentCreationBenchmark {
+
+    @Param( { "1000000" } )
+    public int entities;
+
+    private BenchmarkApp app;
+    private EntityProvider entityProvider;
+    private IndexedTypeSet componentSet;
+
+    @Setup
+    public void setup() {
+        app = new BenchmarkApp();
+        final FFContext context = app.getContext();
+        context.getSystem( EntitySystem.SYSTEM_KEY );
+        entityProvider = context.getSystem( EntityProvider.SYSTEM_KEY );
+        componentSet = entityProvider.getComponentTypeSet();
+    }
+
+    @TearDown
+    public void tearDown() {
+        app.dispose();
+    }
+
+    @Benchmark
+    public void createOnPoolMiss( Blackhole blackhole ) {
+        for ( int i = 0; i < entities; i++ ) {
+            blackhole.consume( entityProvider.getComponent( ETransform.TYPE_KEY ) );
+            blackhole.consume( entityProvider.getComponent( ESprite.TYPE_KEY ) );
+            blackhole.consume( entityProvider.getComponent( EMovement.TYPE_KEY ) );
+        }
+    }
+
+    @Benchmark
+    public void createAndDispose( Blackhole blackhole ) {
+        for ( int i = 0; i < entities; i++ ) {
+            componentSet.set( entityProvider.getComponent( ETransform.TYPE_KEY ) );
+            componentSet.set( entityProvider.getComponent( ESprite.TYPE_KEY ) );
+            componentSet.set( entityProvider.getComponent( EMovement.TYPE_KEY ) );
+            blackhole.consume( componentSet );
+            entityProvider.disposeComponentSet( componentSet );
+            componentSet = entityProvider.getComponentTypeSet();
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.inari.firefly.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.entity.prefab.EntityPrefab;
+import com.inari.firefly.entity.prefab.EntityPrefabSystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.sprite.ESprite;
+import com.inari.firefly.system.FFContext;
+
+/** Measures the build, activate and delete cycle of entities through the EntityBuilder and the EntityPrefabSystem */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class EntityBenchmark {
+    
+    @Param( { "100", "1000" } )
+    public int entities;
+    
+    private BenchmarkApp app;
+    private FFContext context;
+    private EntitySystem entitySystem;
+    private EntityPrefabSystem prefabSystem;
+    private int prefabId;
+    private int[] entityIds;
+    
+    @Setup( Level.Trial )
+    public void setup() {
+        app = new BenchmarkApp();
+        context = app.getContext();
+        entitySystem = context.getSystem( EntitySystem.SYSTEM_KEY );
+        prefabSystem = context.getSystem( EntityPrefabSystem.SYSTEM_KEY );
+        prefabId = context.getComponentBuilder( EntityPrefab.TYPE_KEY )
+            .set( EntityPrefab.NAME, "benchmarkPrefab" )
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.POSITION, new PositionF( 10, 10 ) )
+            .set( ESprite.SPRITE_ID, 0 )
+        .build();
+        entityIds = new int[ entities ];
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        app.dispose();
+    }
+    
+    @Benchmark
+    public void builderCycle( Blackhole blackhole ) {
+        for ( int i = 0; i < entities; i++ ) {
+            entityIds[ i ] = entitySystem.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( i, i ) )
+                .set( ESprite.SPRITE_ID, 0 )
+            .activate();
+        }
+        blackhole.consume( entityIds );
+        deleteAll();
+    }
+    
+    @Benchmark
+    public void prefabCycle( Blackhole blackhole ) {
+        for ( int i = 0; i < entities; i++ ) {
+            entityIds[ i ] = prefabSystem.buildOne( prefabId );
+            entitySystem.activateEntity( entityIds[ i ] );
+        }
+        blackhole.consume( entityIds );
+        deleteAll();
+    }
+    
+    private void deleteAll() {
+        for ( int i = 0; i < entities; i++ ) {
+            entitySystem.delete( entityIds[ i ] );
+        }
+    }
+
+}
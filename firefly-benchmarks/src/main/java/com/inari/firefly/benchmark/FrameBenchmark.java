@@ -0,0 +1,64 @@
+package com.inari.firefly.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.sprite.ESprite;
+import com.inari.firefly.physics.movement.EMovement;
+import com.inari.firefly.physics.movement.MovementSystem;
+import com.inari.firefly.system.FFContext;
+
+/** Measures a full FireFlyApp frame (update and render) on the headless backends with n moving sprites */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class FrameBenchmark {
+    
+    @Param( { "1000", "10000" } )
+    public int entities;
+    
+    private BenchmarkApp app;
+    
+    @Setup( Level.Trial )
+    public void setup() {
+        app = new BenchmarkApp();
+        final FFContext context = app.getContext();
+        context.getSystem( MovementSystem.SYSTEM_KEY );
+        final EntitySystem entitySystem = context.getSystem( EntitySystem.SYSTEM_KEY );
+        
+        for ( int i = 0; i < entities; i++ ) {
+            entitySystem.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( i % 800, ( i / 800 ) % 600 ) )
+                .set( ESprite.SPRITE_ID, 0 )
+                .set( EMovement.ACTIVE, true )
+                .set( EMovement.VELOCITY_X, ( i % 2 == 0 )? 1f : -1f )
+            .activate();
+        }
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        app.dispose();
+    }
+    
+    @Benchmark
+    public void frame() {
+        app.update();
+        app.render();
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.inari.firefly.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.physics.movement.EMovement;
+import com.inari.firefly.physics.movement.MovementSystem;
+import com.inari.firefly.system.external.FFTimer;
+
+/** Measures one MovementSystem.update over n active moving entities including the MoveEvent dispatch */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class MovementBenchmark {
+    
+    @Param( { "1000", "10000" } )
+    public int entities;
+    
+    private BenchmarkApp app;
+    private MovementSystem movementSystem;
+    private FFTimer timer;
+    
+    @Setup( Level.Trial )
+    public void setup() {
+        app = new BenchmarkApp();
+        timer = app.getContext().getTimer();
+        movementSystem = app.getContext().getSystem( MovementSystem.SYSTEM_KEY );
+        final EntitySystem entitySystem = app.getContext().getSystem( EntitySystem.SYSTEM_KEY );
+        for ( int i = 0; i < entities; i++ ) {
+            entitySystem.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( i % 100, i / 100 ) )
+                .set( EMovement.ACTIVE, true )
+                .set( EMovement.VELOCITY_X, 1f )
+                .set( EMovement.VELOCITY_Y, 0.5f )
+            .activate();
+        }
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        app.dispose();
+    }
+    
+    @Benchmark
+    public void update() {
+        timer.tick();
+        movementSystem.update( timer );
+    }
+
+}
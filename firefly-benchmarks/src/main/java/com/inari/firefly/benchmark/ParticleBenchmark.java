@@ -0,0 +1,76 @@
+package com.inari.firefly.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.particle.EParticleEmitter;
+import com.inari.firefly.graphics.particle.ParticleSystem;
+import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.external.FFTimer;
+
+/** Measures one ParticleSystem.update over 100k live particles of 10 emitters, sequential and on a worker pool */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class ParticleBenchmark {
+
+    private static final int EMITTERS = 10;
+    private static final int PARTICLES_PER_EMITTER = 10000;
+
+    @Param( { "1", "4" } )
+    public int updateThreads;
+
+    private BenchmarkApp app;
+    private ParticleSystem particleSystem;
+    private FFTimer timer;
+
+    @Setup( Level.Trial )
+    public void setup() {
+        app = new BenchmarkApp();
+        final FFContext context = app.getContext();
+        context.setProperty( FFContext.Properties.PARTICLE_UPDATE_THREADS, updateThreads );
+        timer = context.getTimer();
+        particleSystem = context.getSystem( ParticleSystem.SYSTEM_KEY );
+        final EntitySystem entitySystem = context.getSystem( EntitySystem.SYSTEM_KEY );
+        for ( int i = 0; i < EMITTERS; i++ ) {
+            // particles live for ever and the buffers are filled within the first update
+            entitySystem.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( i * 50, 100 ) )
+                .set( EParticleEmitter.MAX_PARTICLES, PARTICLES_PER_EMITTER )
+                .set( EParticleEmitter.SPAWN_RATE, 100000000f )
+                .set( EParticleEmitter.LIFETIME, 1000000f )
+                .set( EParticleEmitter.VELOCITY_Y, -20f )
+                .set( EParticleEmitter.VELOCITY_VARIANCE, 10f )
+                .set( EParticleEmitter.GRAVITY_Y, 9.81f )
+            .activate();
+        }
+        timer.tick();
+        particleSystem.update( timer );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        app.dispose();
+    }
+
+    @Benchmark
+    public void update() {
+        timer.tick();
+        particleSystem.update( timer );
+    }
+
+}
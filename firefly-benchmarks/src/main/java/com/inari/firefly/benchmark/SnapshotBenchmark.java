@@ -0,0 +1,95 @@
+package com.inari.firefly.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.firefly.component.attr.Attributes;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.entity.EntitySystem.Entity;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.sprite.ESprite;
+import com.inari.firefly.physics.movement.EMovement;
+import com.inari.firefly.system.FFContext;
+
+/** Measures the binary snapshot save and load of an entity world against the save by toAttributes.
+ *  The snapshot is written to and read from memory, so no file IO is measured.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class SnapshotBenchmark {
+
+    @Param( { "50000" } )
+    public int entities;
+
+    private BenchmarkApp app;
+    private FFContext context;
+    private ByteArrayOutputStream out;
+    private WritableByteChannel outChannel;
+    private byte[] snapshot;
+
+    @Setup( Level.Trial )
+    public void setup() throws IOException {
+        app = new BenchmarkApp();
+        context = app.getContext();
+        context.getSystem( EntitySystem.SYSTEM_KEY );
+        for ( int i = 0; i < entities; i++ ) {
+            context.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( i % 1000, i / 1000 ) )
+                .set( ESprite.SPRITE_ID, i % 10 )
+                .set( EMovement.VELOCITY_X, 1f )
+                .set( EMovement.VELOCITY_Y, -1f )
+                .set( EMovement.ACTIVE, true )
+            .activate();
+        }
+
+        out = new ByteArrayOutputStream( entities * 64 );
+        outChannel = Channels.newChannel( out );
+        context.toSnapshot( outChannel, Entity.ENTITY_TYPE_KEY );
+        snapshot = out.toByteArray();
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        app.dispose();
+    }
+
+    @Benchmark
+    public void toSnapshot( Blackhole blackhole ) throws IOException {
+        out.reset();
+        context.toSnapshot( outChannel, Entity.ENTITY_TYPE_KEY );
+        blackhole.consume( out.size() );
+    }
+
+    @Benchmark
+    public void fromSnapshot( Blackhole blackhole ) throws IOException {
+        context.fromSnapshot( Channels.newChannel( new ByteArrayInputStream( snapshot ) ) );
+        blackhole.consume( context );
+    }
+
+    @Benchmark
+    public void toAttributes( Blackhole blackhole ) {
+        final Attributes attributes = new Attributes();
+        context.toAttributes( attributes, Entity.ENTITY_TYPE_KEY );
+        blackhole.consume( attributes );
+    }
+
+}
@@ -2,6 +2,8 @@
 package com.inari.firefly.asset;
 
 import com.inari.commons.lang.indexed.IndexedTypeKey;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.firefly.system.FFContext;
 import com.inari.firefly.system.component.SystemComponent;
 import com.inari.firefly.system.utils.Disposable;
 import com.inari.firefly.system.utils.Loadable;
@@ -45,6 +47,8 @@ public abstract class Asset extends SystemComponent implements Loadable, Disposa
     
     protected boolean loaded = false;
     protected int dependsOn = -1;
+    int references = 0;
+    private IntBag dependencies = null;
     
     /** This should not be called directly. Instead the ComponentBuilder should be used. 
      *  See class documentation for example.
@@ -105,6 +109,74 @@ public abstract class Asset extends SystemComponent implements Loadable, Disposa
         this.dependsOn = dependsOn;
     }
 
+    /** Gives the number of Assets this Asset depends on. This is dependsOn, if defined, plus all Assets added with addDependency */
+    public final int getDependencyCount() {
+        final int additional = ( dependencies == null )? 0 : dependencies.size();
+        return ( dependsOn >= 0 )? additional + 1 : additional;
+    }
+
+    /** Gives the id of the Asset this Asset depends on at the given index within 0 - getDependencyCount().
+     *  If dependsOn is defined it is always the first dependency on index 0.
+     */
+    public final int getDependency( int index ) {
+        if ( dependsOn >= 0 ) {
+            if ( index == 0 ) {
+                return dependsOn;
+            }
+            index--;
+        }
+        return dependencies.get( index );
+    }
+
+    /** Used to add a further dependency to another Asset from implementing Classes.
+     *  The same rules as for dependsOn apply for each dependency.
+     */
+    protected final void addDependency( int assetId ) {
+        if ( assetId < 0 || assetId == dependsOn ) {
+            return;
+        }
+        if ( dependencies == null ) {
+            dependencies = new IntBag( 2, -1 );
+        }
+        if ( !dependencies.contains( assetId ) ) {
+            dependencies.add( assetId );
+        }
+    }
+
+    /** Used to remove all further dependencies added by addDependency from implementing Classes. */
+    protected final void clearDependencies() {
+        if ( dependencies != null ) {
+            dependencies.clear();
+        }
+    }
+
+    /** Gives the number of components that currently reference this Asset. An Asset that is referenced
+     *  is not disposed by the AssetSystem until the last reference is released.
+     */
+    public final int getReferences() {
+        return references;
+    }
+
+    /** Gives the estimated size in bytes this Asset occupies when loaded. This is used by the AssetSystem
+     *  to keep the cache of released Assets within the defined memory budget. Default is 0.
+     */
+    public long getMemorySize() {
+        return 0;
+    }
+
+    /** This is called by the asynchronous loading of the AssetSystem on a worker thread before the Asset gets loaded
+     *  on the main thread. Implementations can do their I/O and decoding of resources here so that only the 
+     *  registration of the prepared resources within FFGraphics or FFAudio is left for load.
+     *  <p>
+     *  This must not access FFGraphics, FFAudio or any other not thread-safe part of the FFContext.
+     *  Default implementation does nothing.
+     *  
+     * @param context the FFContext
+     */
+    protected void prepare( FFContext context ) {
+        // NOOP
+    }
+
     /** Use this to check and stop if the Asset is not already loaded.
      *  @throws IllegalStateException if the Asset is not loaded.
      */
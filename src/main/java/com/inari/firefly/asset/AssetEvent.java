@@ -28,10 +28,13 @@ public final class AssetEvent extends Event<AssetEventListener> {
         ASSET_CREATED,
         ASSET_LOADED,
         ASSET_DISPOSED,
-        ASSET_DELETED
+        ASSET_DELETED,
+        LOAD_GROUP_PROGRESS,
+        LOAD_GROUP_FINISHED
     }
     
     Asset asset;
+    AssetLoadGroup loadGroup;
     Type eventType;
 
     AssetEvent() {
@@ -47,10 +50,20 @@ public final class AssetEvent extends Event<AssetEventListener> {
     public final Asset getAsset() {
         return asset;
     }
+    
+    /** Gives the AssetLoadGroup for LOAD_GROUP_PROGRESS and LOAD_GROUP_FINISHED events or null otherwise */
+    public final AssetLoadGroup getLoadGroup() {
+        return loadGroup;
+    }
+    
+    public final Type getEventType() {
+        return eventType;
+    }
 
     @Override
     protected final void restore() {
         asset = null;
+        loadGroup = null;
         eventType = null;
         
         POOL.addLast( this );
@@ -70,14 +83,26 @@ public final class AssetEvent extends Event<AssetEventListener> {
         
         return result;
     }
+    
+    static final AssetEvent create( final Type eventType, final AssetLoadGroup loadGroup ) {
+        final AssetEvent result = create( eventType, (Asset) null );
+        result.loadGroup = loadGroup;
+        return result;
+    }
 
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
         builder.append( "AssetEvent [eventType=" );
         builder.append( eventType );
-        builder.append( ", assetId=" );
-        builder.append( asset.index() );
+        if ( asset != null ) {
+            builder.append( ", assetId=" );
+            builder.append( asset.index() );
+        }
+        if ( loadGroup != null ) {
+            builder.append( ", loadGroup=" );
+            builder.append( loadGroup );
+        }
         builder.append( "]" );
         return builder.toString();
     }
@@ -0,0 +1,12 @@
+package com.inari.firefly.asset;
+
+/** Callback for an asynchronous AssetLoadGroup. Both methods are called on the main (update) thread */
+public interface AssetLoadCallback {
+    
+    /** Called after one or more Assets of the group has been loaded within an update */
+    void onProgress( AssetLoadGroup group );
+    
+    /** Called once when all Assets of the group are loaded or the loading of the group has failed */
+    void onFinished( AssetLoadGroup group );
+
+}
@@ -0,0 +1,90 @@
+package com.inari.firefly.asset;
+
+import com.inari.commons.lang.list.IntBag;
+import com.inari.commons.lang.list.IntBagRO;
+
+/** A group of Assets that is loaded asynchronously by the AssetSystem. This works like a future on the 
+ *  loading of all the Assets of the group including all the Assets they depend on.
+ *  <p>
+ *  Use isDone() and getProgress() to poll the state of the loading or an AssetLoadCallback and/or 
+ *  AssetEventListener (LOAD_GROUP_PROGRESS and LOAD_GROUP_FINISHED) to get notified.
+ *  The state of a group is only changed on the main (update) thread.
+ */
+public final class AssetLoadGroup {
+    
+    final IntBag assetIds;
+    final IntBag waiting;
+    final AssetLoadCallback callback;
+    
+    int loaded = 0;
+    boolean done = false;
+    Throwable failure = null;
+    String failedAssetName = null;
+    
+    AssetLoadGroup( IntBag assetIds, AssetLoadCallback callback ) {
+        this.assetIds = assetIds;
+        this.callback = callback;
+        waiting = new IntBag( assetIds.size() + 1, -1 );
+        for ( int i = 0; i < assetIds.length(); i++ ) {
+            if ( !assetIds.isEmpty( i ) ) {
+                waiting.add( assetIds.get( i ) );
+            }
+        }
+    }
+    
+    /** Gives all Asset ids of this group. This includes the Assets that the requested Assets depend on */
+    public final IntBagRO getAssetIds() {
+        return assetIds;
+    }
+    
+    public final int getTotal() {
+        return assetIds.size();
+    }
+    
+    public final int getLoaded() {
+        return loaded;
+    }
+    
+    /** Gives the loading progress of this group from 0 to 1 */
+    public final float getProgress() {
+        final int total = getTotal();
+        if ( total == 0 ) {
+            return 1f;
+        }
+        return (float) loaded / total;
+    }
+    
+    public final boolean isDone() {
+        return done;
+    }
+    
+    public final boolean isFailed() {
+        return failure != null;
+    }
+
+    public final Throwable getFailure() {
+        return failure;
+    }
+
+    public final String getFailedAssetName() {
+        return failedAssetName;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append( "AssetLoadGroup [loaded=" );
+        builder.append( loaded );
+        builder.append( ", total=" );
+        builder.append( getTotal() );
+        builder.append( ", done=" );
+        builder.append( done );
+        if ( failure != null ) {
+            builder.append( ", failedAsset=" );
+            builder.append( failedAssetName );
+        }
+        builder.append( "]" );
+        return builder.toString();
+    }
+
+}
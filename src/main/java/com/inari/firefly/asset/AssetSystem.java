@@ -15,18 +15,40 @@
  ******************************************************************************/ 
 package com.inari.firefly.asset;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import com.inari.commons.JavaUtils;
+import com.inari.commons.lang.aspect.IAspects;
+import com.inari.commons.lang.list.DynArray;
 import com.inari.commons.lang.list.IntBag;
+import com.inari.commons.lang.list.IntBagRO;
+import com.inari.firefly.FFInitException;
+import com.inari.firefly.asset.archive.AssetArchive;
+import com.inari.firefly.entity.BatchedEntityActivationListener;
+import com.inari.firefly.entity.EntityActivationEvent;
+import com.inari.firefly.graphics.sprite.ESprite;
+import com.inari.firefly.graphics.text.EText;
+import com.inari.firefly.graphics.tile.ETile;
 import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.UpdateEvent;
+import com.inari.firefly.system.UpdateEventListener;
 import com.inari.firefly.system.component.ComponentSystem;
 import com.inari.firefly.system.component.SystemBuilderAdapter;
 import com.inari.firefly.system.component.SystemComponent.SystemComponentKey;
 import com.inari.firefly.system.component.SystemComponentMap.BuilderListener;
 import com.inari.firefly.system.component.SystemComponentNameMap;
+import com.inari.firefly.system.external.FFTimer;
 
-public class AssetSystem extends ComponentSystem<AssetSystem> {
+public class AssetSystem extends ComponentSystem<AssetSystem> implements UpdateEventListener, BatchedEntityActivationListener {
     
     public static final FFSystemTypeKey<AssetSystem> SYSTEM_KEY = FFSystemTypeKey.create( AssetSystem.class );
     private static final Set<SystemComponentKey<?>> SUPPORTED_COMPONENT_TYPES = JavaUtils.<SystemComponentKey<?>>unmodifiableSet( 
@@ -34,7 +56,22 @@ public class AssetSystem extends ComponentSystem<AssetSystem> {
     );
     
     final SystemComponentNameMap<Asset> assets;
-    final IntBag dependingAssetIds = new IntBag( 1, -1 );
+    final DynArray<IntBag> dependingAssets = DynArray.create( IntBag.class, 20, 10 );
+    // the ids of the Assets an active entity references, indexed by entity id
+    private final DynArray<IntBag> entityReferences = DynArray.create( IntBag.class, 100, 100 );
+    
+    private final LinkedHashSet<Asset> cache = new LinkedHashSet<Asset>();
+    private final BitSet disposePending = new BitSet();
+    private long cacheBudget = 0;
+    private long cacheSize = 0;
+    
+    private final DynArray<AssetLoadGroup> loadGroups = DynArray.create( AssetLoadGroup.class, 10, 10 );
+    private final ConcurrentLinkedQueue<PreparedAsset> preparedAssets = new ConcurrentLinkedQueue<PreparedAsset>();
+    private final BitSet preparing = new BitSet();
+    private ExecutorService loaderPool;
+    private int loadsPerUpdate = 10;
+    
+    private final DynArray<AssetArchive> archives = DynArray.create( AssetArchive.class, 5, 5 );
     
     AssetSystem() {
         super( SYSTEM_KEY );
@@ -52,6 +89,23 @@ public class AssetSystem extends ComponentSystem<AssetSystem> {
     @Override
     public void init( FFContext context ) {
         super.init( context );
+        
+        context.registerListener( UpdateEvent.TYPE_KEY, this );
+        context.registerListener( EntityActivationEvent.TYPE_KEY, this );
+        
+        final Integer cacheBudget = context.getProperty( FFContext.Properties.ASSET_CACHE_BUDGET );
+        if ( cacheBudget != null ) {
+            this.cacheBudget = cacheBudget;
+        }
+        
+        final String archive = context.getProperty( FFContext.Properties.ASSET_ARCHIVE );
+        if ( archive != null ) {
+            try {
+                addArchive( AssetArchive.open( new File( archive ) ) );
+            } catch ( IOException e ) {
+                throw new FFInitException( "Failed to open asset archive: " + archive, e );
+            }
+        }
     }
     
     public final Set<SystemComponentKey<?>> supportedComponentTypes() {
@@ -93,12 +147,419 @@ public class AssetSystem extends ComponentSystem<AssetSystem> {
         return getAssetInstanceId( assets.getId( assetName ) );
     }
 
+    /** Use this to get the ids of all loaded Assets that directly depends on the Asset with the given id.
+     * @return IntBagRO of Asset ids or null if there is no loaded Asset that depends on the given one
+     */
+    public final IntBagRO getDependingAssetIds( int assetId ) {
+        return getDependingAssets( assetId );
+    }
+    
+    /** Adds a reference to the Asset with the given id. A referenced Asset or an Asset with referenced 
+     *  depending Assets is not disposed until the last reference is released. 
+     *  If the Asset was released into the cache it is taken back from it.
+     */
+    public final void reference( int assetId ) {
+        if ( !assets.map.contains( assetId ) ) {
+            return;
+        }
+        
+        final Asset asset = assets.get( assetId );
+        asset.references++;
+        if ( asset.references == 1 && asset.loaded ) {
+            takeBack( asset );
+        }
+    }
+    
+    /** Releases a reference to the Asset with the given id. If the Asset is not referenced anymore
+     *  and there is a pending dispose on it or on an Asset it depends on, the pending dispose is performed.
+     *  See requestDispose
+     */
+    public final void release( int assetId ) {
+        if ( !assets.map.contains( assetId ) ) {
+            return;
+        }
+        
+        final Asset asset = assets.get( assetId );
+        if ( asset.references <= 0 ) {
+            return;
+        }
+        
+        asset.references--;
+        if ( asset.references == 0 && asset.loaded ) {
+            disposeIfPending( asset );
+        }
+    }
+    
+    /** Sets the memory budget in bytes for the cache of released Assets. If this is greater then 0, a disposed Asset
+     *  is kept loaded within the cache until the budget is exceeded and the least recently released 
+     *  Assets get disposed. A cached Asset that is loaded again is just taken back from the cache.
+     *  Default is 0 what means no caching.
+     */
+    public final void setCacheBudget( long cacheBudget ) {
+        this.cacheBudget = cacheBudget;
+        if ( cacheBudget <= 0 ) {
+            while ( !cache.isEmpty() ) {
+                final Asset asset = cache.iterator().next();
+                uncache( asset );
+                disposeAsset( asset );
+            }
+        } else {
+            evict();
+        }
+    }
+    
+    public final long getCacheBudget() {
+        return cacheBudget;
+    }
+    
+    /** Gives the estimated memory size in bytes of all Assets that are currently within the cache */
+    public final long getCacheSize() {
+        return cacheSize;
+    }
+    
+    public final boolean isCached( int assetId ) {
+        return assets.map.contains( assetId ) && cache.contains( assets.get( assetId ) );
+    }
+
+    /** Disposes the Asset with the given id and all loaded Assets that depends on it immediately regardless of
+     *  references, pending disposes or the cache. The Assets keep their active state and references and can be 
+     *  loaded again with loadAsset. This is used by residency managers that reload evicted Assets on demand.
+     */
+    public final void evictAsset( int assetId ) {
+        if ( !assets.map.contains( assetId ) ) {
+            return;
+        }
+        
+        final Asset asset = assets.get( assetId );
+        if ( asset.loaded ) {
+            disposeAsset( asset );
+        }
+    }
+
+    /** Adds an AssetArchive to lookup resources from. Archives added later override resources of
+     *  archives added before. The AssetSystem takes ownership and closes the archive on removal or dispose.
+     *  An archive can also be defined by its file path with FFContext.Properties.ASSET_ARCHIVE
+     */
+    public final void addArchive( AssetArchive archive ) {
+        archives.add( archive );
+    }
+
+    public final void removeArchive( AssetArchive archive ) {
+        for ( int i = 0; i < archives.capacity(); i++ ) {
+            if ( archives.get( i ) == archive ) {
+                archives.remove( i );
+                close( archive );
+                return;
+            }
+        }
+    }
+
+    /** Use this to get the content of a resource by its resource name from the added AssetArchives.
+     *  TextureAsset, FontAsset and SoundAsset use this to hand over the content of their resource to the backend
+     *  (see TextureData.getResourceData), within Asset.prepare on the worker threads of the asynchronous loading
+     *  or within load otherwise. Archives therefore must not be added or removed while Assets are loading.
+     *
+     * @param resourceName the resource name of an Asset
+     * @return the read only content of the resource or null if no added archive contains the resource
+     */
+    public final ByteBuffer getResource( String resourceName ) {
+        for ( int i = archives.capacity() - 1; i >= 0; i-- ) {
+            final AssetArchive archive = archives.get( i );
+            if ( archive != null && archive.contains( resourceName ) ) {
+                return archive.getResource( resourceName );
+            }
+        }
+
+        return null;
+    }
+
+    public final boolean match( IAspects aspects ) {
+        return aspects.contains( ESprite.TYPE_KEY ) || 
+               aspects.contains( ETile.TYPE_KEY ) || 
+               aspects.contains( EText.TYPE_KEY );
+    }
+
+    public final void entityActivated( int entityId, IAspects aspects ) {
+        updateEntityReferences( entityId, aspects, true );
+    }
+
+    public final void entityDeactivated( int entityId, IAspects aspects ) {
+        updateEntityReferences( entityId, aspects, false );
+    }
+
+    public final void entitiesActivated( IntBagRO entityIds, IAspects aspects ) {
+        final int nullValue = entityIds.getNullValue();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            final int entityId = entityIds.get( i );
+            if ( entityId != nullValue ) {
+                updateEntityReferences( entityId, aspects, true );
+            }
+        }
+    }
+
+    public final void entitiesDeactivated( IntBagRO entityIds, IAspects aspects ) {
+        final int nullValue = entityIds.getNullValue();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            final int entityId = entityIds.get( i );
+            if ( entityId != nullValue ) {
+                updateEntityReferences( entityId, aspects, false );
+            }
+        }
+    }
+
+    /** Loads the Assets with the given names asynchronously. See loadAsync( IntBagRO, AssetLoadCallback ) */
+    public final AssetLoadGroup loadAsync( AssetLoadCallback callback, String... assetNames ) {
+        final IntBag assetIds = new IntBag( assetNames.length + 1, -1 );
+        for ( String assetName : assetNames ) {
+            final int assetId = assets.getId( assetName );
+            if ( assetId < 0 ) {
+                throw new IllegalArgumentException( "No Asset with name: " + assetName + " found" );
+            }
+            assetIds.add( assetId );
+        }
+        return loadAsync( assetIds, callback );
+    }
+    
+    /** Loads the Assets with the given ids and all Assets they depend on asynchronously.
+     *  <p>
+     *  The Assets are prepared (see Asset.prepare) in parallel on a worker pool as soon as the Asset they depend on 
+     *  is loaded. The final load of a prepared Asset, that registers the resources within FFGraphics or FFAudio, is 
+     *  done on the main thread within the update in batches of ASSET_LOADS_PER_UPDATE Assets per update.
+     *  Progress is reported by AssetEvent (LOAD_GROUP_PROGRESS, LOAD_GROUP_FINISHED) and the optional callback.
+     *  
+     * @param assetIds the ids of the Assets to load
+     * @param callback optional AssetLoadCallback, may be null
+     * @return the AssetLoadGroup that gives the state of the loading
+     */
+    public final AssetLoadGroup loadAsync( IntBagRO assetIds, AssetLoadCallback callback ) {
+        final IntBag groupIds = new IntBag( assetIds.size() + 1, -1 );
+        for ( int i = 0; i < assetIds.length(); i++ ) {
+            if ( assetIds.isEmpty( i ) ) {
+                continue;
+            }
+            
+            addWithDependencies( assetIds.get( i ), groupIds );
+        }
+        
+        if ( loaderPool == null ) {
+            initLoaderPool();
+        }
+        
+        final AssetLoadGroup group = new AssetLoadGroup( groupIds, callback );
+        loadGroups.add( group );
+        scheduleLoadGroup( group );
+        return group;
+    }
+
+    private void addWithDependencies( int assetId, IntBag groupIds ) {
+        if ( groupIds.contains( assetId ) ) {
+            return;
+        }
+        
+        final Asset asset = ( assets.map.contains( assetId ) )? assets.get( assetId ) : null;
+        if ( asset == null ) {
+            throw new IllegalArgumentException( "No Asset with id: " + assetId + " found" );
+        }
+        
+        groupIds.add( assetId );
+        for ( int i = 0; i < asset.getDependencyCount(); i++ ) {
+            addWithDependencies( asset.getDependency( i ), groupIds );
+        }
+    }
+
+    public final void update( FFTimer timer ) {
+        if ( loadGroups.size() == 0 ) {
+            return;
+        }
+        
+        // load the prepared assets on the main thread
+        int loads = 0;
+        PreparedAsset prepared;
+        while ( loads < loadsPerUpdate && ( prepared = preparedAssets.poll() ) != null ) {
+            final Asset asset = prepared.asset;
+            preparing.clear( asset.index() );
+            loads++;
+            
+            if ( prepared.error != null ) {
+                failLoadGroups( asset, prepared.error );
+                continue;
+            }
+            
+            try {
+                if ( !asset.loaded ) {
+                    loadAsset( asset );
+                }
+            } catch ( RuntimeException e ) {
+                failLoadGroups( asset, e );
+            }
+        }
+        
+        for ( int i = 0; i < loadGroups.capacity(); i++ ) {
+            final AssetLoadGroup group = loadGroups.get( i );
+            if ( group == null ) {
+                continue;
+            }
+            
+            final int loadedBefore = group.loaded;
+            scheduleLoadGroup( group );
+            if ( group.loaded == group.getTotal() || group.failure != null ) {
+                loadGroups.remove( i );
+                group.done = true;
+                if ( group.callback != null ) {
+                    group.callback.onFinished( group );
+                }
+                context.notify( AssetEvent.create( AssetEvent.Type.LOAD_GROUP_FINISHED, group ) );
+            } else if ( group.loaded != loadedBefore ) {
+                if ( group.callback != null ) {
+                    group.callback.onProgress( group );
+                }
+                context.notify( AssetEvent.create( AssetEvent.Type.LOAD_GROUP_PROGRESS, group ) );
+            }
+        }
+    }
+
     public final void clearSystem() {
         assets.clear();
     }
 
     public final void dispose( FFContext context ) {
+        context.disposeListener( UpdateEvent.TYPE_KEY, this );
+        context.disposeListener( EntityActivationEvent.TYPE_KEY, this );
+        if ( loaderPool != null ) {
+            loaderPool.shutdownNow();
+            loaderPool = null;
+        }
+        loadGroups.clear();
+        preparedAssets.clear();
+        preparing.clear();
         clearSystem();
+        cache.clear();
+        cacheSize = 0;
+        disposePending.clear();
+        dependingAssets.clear();
+        closeArchives();
+    }
+    
+    private void initLoaderPool() {
+        Integer threads = context.getProperty( FFContext.Properties.ASSET_LOADER_THREADS );
+        if ( threads == null ) {
+            threads = Math.max( 1, Runtime.getRuntime().availableProcessors() - 1 );
+        }
+        Integer loads = context.getProperty( FFContext.Properties.ASSET_LOADS_PER_UPDATE );
+        if ( loads != null ) {
+            loadsPerUpdate = loads;
+        }
+        
+        loaderPool = Executors.newFixedThreadPool( threads, new ThreadFactory() {
+            private int count = 0;
+            public final Thread newThread( Runnable runnable ) {
+                final Thread thread = new Thread( runnable, "FFAssetLoader-" + count++ );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+    
+    /** Counts the already loaded Assets of the group and submits all waiting Assets for preparation 
+     *  where the Asset they depend on is loaded */
+    private void scheduleLoadGroup( final AssetLoadGroup group ) {
+        final IntBag waiting = group.waiting;
+        for ( int i = 0; i < waiting.length(); i++ ) {
+            if ( waiting.isEmpty( i ) ) {
+                continue;
+            }
+            
+            final int assetId = waiting.get( i );
+            final Asset asset = assets.get( assetId );
+            if ( asset == null ) {
+                group.failure = new IllegalStateException( "Asset with id: " + assetId + " has been deleted while loading" );
+                return;
+            }
+            
+            if ( asset.loaded ) {
+                takeBack( asset );
+                waiting.remove( assetId );
+                group.loaded++;
+                continue;
+            }
+            
+            if ( preparing.get( assetId ) ) {
+                continue;
+            }
+            
+            final int missingDependency = missingDependency( asset );
+            if ( missingDependency >= 0 ) {
+                group.failure = new FFInitException( "Dependency Asset with id: " + missingDependency + " of Asset: " + asset.getName() + " has been deleted" );
+                group.failedAssetName = asset.getName();
+                return;
+            }
+            
+            if ( !dependenciesLoaded( asset ) ) {
+                continue;
+            }
+            
+            preparing.set( assetId );
+            loaderPool.execute( new PrepareTask( asset ) );
+        }
+    }
+    
+    private int missingDependency( Asset asset ) {
+        for ( int i = 0; i < asset.getDependencyCount(); i++ ) {
+            final int dependencyId = asset.getDependency( i );
+            if ( !assets.map.contains( dependencyId ) ) {
+                return dependencyId;
+            }
+        }
+        return -1;
+    }
+    
+    private boolean dependenciesLoaded( Asset asset ) {
+        for ( int i = 0; i < asset.getDependencyCount(); i++ ) {
+            if ( !assets.get( asset.getDependency( i ) ).loaded ) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void failLoadGroups( Asset asset, Throwable error ) {
+        for ( int i = 0; i < loadGroups.capacity(); i++ ) {
+            final AssetLoadGroup group = loadGroups.get( i );
+            if ( group != null && group.failure == null && group.assetIds.contains( asset.index() ) ) {
+                group.failure = error;
+                group.failedAssetName = asset.getName();
+            }
+        }
+    }
+    
+    private final class PrepareTask implements Runnable {
+        
+        private final Asset asset;
+
+        PrepareTask( Asset asset ) {
+            this.asset = asset;
+        }
+
+        @Override
+        public final void run() {
+            try {
+                asset.prepare( context );
+                preparedAssets.add( new PreparedAsset( asset, null ) );
+            } catch ( Throwable t ) {
+                preparedAssets.add( new PreparedAsset( asset, t ) );
+            }
+        }
+    }
+    
+    private static final class PreparedAsset {
+        
+        final Asset asset;
+        final Throwable error;
+        
+        PreparedAsset( Asset asset, Throwable error ) {
+            this.asset = asset;
+            this.error = error;
+        }
     }
 
     private final void disposeAsset( int assetId ) {
@@ -111,71 +572,258 @@ public class AssetSystem extends ComponentSystem<AssetSystem> {
             return;
         }
         
-        disposeAsset( asset );
+        requestDispose( asset );
+    }
+    
+    /** Disposes the given Asset if it is not in use anymore. Otherwise the dispose is pending until the last 
+     *  reference is released. If a cache budget is defined, the Asset is kept loaded within the cache instead. */
+    private void requestDispose( Asset asset ) {
+        if ( isInUse( asset ) ) {
+            disposePending.set( asset.index() );
+            return;
+        }
+        
+        disposePending.clear( asset.index() );
+        if ( cacheBudget > 0 ) {
+            cache( asset );
+        } else {
+            disposeAsset( asset );
+        }
     }
     
-    private IntBag disposeAsset( Asset asset ) {
-        findeDependingAssets( asset.index() );
-        if ( !dependingAssetIds.isEmpty() ) {
-            for ( int i = 0; i < dependingAssetIds.length(); i++ ) {
-                if ( dependingAssetIds.isEmpty( i ) ) {
+    private boolean isInUse( Asset asset ) {
+        if ( asset.references > 0 ) {
+            return true;
+        }
+        
+        final IntBag depending = getDependingAssets( asset.index() );
+        if ( depending == null ) {
+            return false;
+        }
+        
+        for ( int i = 0; i < depending.length(); i++ ) {
+            if ( depending.isEmpty( i ) ) {
+                continue;
+            }
+            final Asset dependingAsset = assets.get( depending.get( i ) );
+            if ( dependingAsset != null && dependingAsset.loaded && isInUse( dependingAsset ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void cache( Asset asset ) {
+        if ( !cache.remove( asset ) ) {
+            cacheSize += asset.getMemorySize();
+        }
+        cache.add( asset );
+        evict();
+    }
+    
+    private void evict() {
+        // evict the least recently released Assets. Since eviction may dispose further cached Assets 
+        // that depends on the eldest, the eldest is taken from a fresh iterator each time
+        while ( cacheSize > cacheBudget && !cache.isEmpty() ) {
+            final Asset eldest = cache.iterator().next();
+            uncache( eldest );
+            if ( eldest.loaded ) {
+                disposeAsset( eldest );
+            }
+        }
+    }
+    
+    private boolean uncache( Asset asset ) {
+        if ( cache.remove( asset ) ) {
+            cacheSize -= asset.getMemorySize();
+            return true;
+        }
+        return false;
+    }
+    
+    /** References the Assets of an activated entity or releases them on deactivation. The referenced Asset ids
+     *  are recorded on activation, so a deactivation releases exactly these even if the entity changed its Assets */
+    private void updateEntityReferences( int entityId, IAspects aspects, boolean reference ) {
+        if ( !reference ) {
+            releaseEntityReferences( entityId );
+            return;
+        }
+
+        IntBag referenced = ( entityReferences.contains( entityId ) )? entityReferences.get( entityId ) : null;
+        if ( referenced == null ) {
+            referenced = new IntBag( 3, -1 );
+            entityReferences.set( entityId, referenced );
+        } else {
+            // activated twice without deactivation in between
+            releaseEntityReferences( entityId );
+        }
+
+        if ( aspects.contains( ESprite.TYPE_KEY ) ) {
+            addEntityReference( context.getEntityComponent( entityId, ESprite.TYPE_KEY ).getSpriteAssetId(), referenced );
+        }
+        if ( aspects.contains( ETile.TYPE_KEY ) ) {
+            addEntityReference( context.getEntityComponent( entityId, ETile.TYPE_KEY ).getSpriteAssetId(), referenced );
+        }
+        if ( aspects.contains( EText.TYPE_KEY ) ) {
+            addEntityReference( context.getEntityComponent( entityId, EText.TYPE_KEY ).getFontAssetId(), referenced );
+        }
+    }
+    
+    private void addEntityReference( int assetId, IntBag referenced ) {
+        if ( assetId < 0 ) {
+            return;
+        }
+        
+        reference( assetId );
+        referenced.add( assetId );
+    }
+    
+    private void releaseEntityReferences( int entityId ) {
+        if ( !entityReferences.contains( entityId ) ) {
+            return;
+        }
+        
+        final IntBag referenced = entityReferences.get( entityId );
+        for ( int i = 0; i < referenced.length(); i++ ) {
+            if ( !referenced.isEmpty( i ) ) {
+                release( referenced.get( i ) );
+            }
+        }
+        referenced.clear();
+    }
+    
+    /** Takes the given Asset and all Assets it depends on back from the cache or a pending dispose */
+    private void takeBack( Asset asset ) {
+        uncache( asset );
+        disposePending.clear( asset.index() );
+        for ( int i = 0; i < asset.getDependencyCount(); i++ ) {
+            final int dependencyId = asset.getDependency( i );
+            if ( assets.map.contains( dependencyId ) ) {
+                takeBack( assets.get( dependencyId ) );
+            }
+        }
+    }
+    
+    /** Performs a pending dispose on the given Asset and the Assets it depends on, if they are not in use anymore */
+    private void disposeIfPending( Asset asset ) {
+        if ( disposePending.get( asset.index() ) && !isInUse( asset ) ) {
+            requestDispose( asset );
+        }
+        
+        for ( int i = 0; i < asset.getDependencyCount(); i++ ) {
+            final int dependencyId = asset.getDependency( i );
+            if ( assets.map.contains( dependencyId ) ) {
+                final Asset dependency = assets.get( dependencyId );
+                if ( dependency.loaded ) {
+                    disposeIfPending( dependency );
+                }
+            }
+        }
+    }
+    
+    private IntBag getDependingAssets( int assetId ) {
+        return ( dependingAssets.contains( assetId ) )? dependingAssets.get( assetId ) : null;
+    }
+    
+    /** Disposes the given Asset and all loaded Assets that depends on it. */
+    private void disposeAsset( Asset asset ) {
+        final IntBag depending = getDependingAssets( asset.index() );
+        if ( depending != null ) {
+            // backwards because the disposal of a depending Asset removes it from this reverse index
+            for ( int i = depending.length() - 1; i >= 0; i-- ) {
+                if ( depending.isEmpty( i ) ) {
                     continue;
                 }
-                Asset toDispose = assets.get( dependingAssetIds.get( i ) );
-                if ( toDispose.loaded ) {
-                    dispose( toDispose );
+                Asset toDispose = assets.get( depending.get( i ) );
+                if ( toDispose != null && toDispose.loaded ) {
+                    disposeAsset( toDispose );
                 }
             }
         }
         
         dispose( asset );
-        return dependingAssetIds;
     }
     
     private void dispose( Asset asset ) {
+        final int assetId = asset.index();
+        uncache( asset );
+        disposePending.clear( assetId );
+        for ( int i = 0; i < asset.getDependencyCount(); i++ ) {
+            final IntBag depending = getDependingAssets( asset.getDependency( i ) );
+            if ( depending != null ) {
+                depending.remove( assetId );
+            }
+        }
+        
         asset.dispose( context );
         context.notify( AssetEvent.create( AssetEvent.Type.ASSET_DISPOSED, asset ) );
         asset.loaded = false;
     }
     
-    private void findeDependingAssets( int assetId ) {
-        dependingAssetIds.clear();
-        for ( Asset asset : assets.map ) {
-            if ( asset.dependsOn == assetId ) {
-                dependingAssetIds.add( asset.index() );
-            }
-        }
-    }
-    
     private void deleteAsset( Asset asset ) {
         if ( asset.loaded ) {
+            final IntBag depending = getDependingAssets( asset.index() );
+            IntBag toDelete = null;
+            if ( depending != null && !depending.isEmpty() ) {
+                toDelete = new IntBag( depending.size() + 1, -1 );
+                for ( int i = 0; i < depending.length(); i++ ) {
+                    if ( !depending.isEmpty( i ) ) {
+                        toDelete.add( depending.get( i ) );
+                    }
+                }
+            }
+            
             disposeAsset( asset );
-            if ( dependingAssetIds != null ) {
-                for ( int i = 0; i < dependingAssetIds.length(); i++ ) {
-                    if ( dependingAssetIds.isEmpty( i ) ) {
+            if ( toDelete != null ) {
+                for ( int i = 0; i < toDelete.length(); i++ ) {
+                    if ( toDelete.isEmpty( i ) ) {
                         continue;
                     }
 
-                    assets.delete( dependingAssetIds.get( i ) );
+                    assets.delete( toDelete.get( i ) );
                 }
             }
         }
         
+        uncache( asset );
+        disposePending.clear( asset.index() );
+        if ( dependingAssets.contains( asset.index() ) ) {
+            dependingAssets.remove( asset.index() );
+        }
         context.notify( AssetEvent.create( AssetEvent.Type.ASSET_DELETED, asset ) );
     }
 
     private void loadAsset( Asset asset ) {
-        int loadFirst = asset.dependsOn();
-        if ( loadFirst >= 0 ) {
-            Asset assetToLoadFirst = assets.get( loadFirst );
+        if ( asset.loaded && ( uncache( asset ) || disposePending.get( asset.index() ) ) ) {
+            // a cached or pending Asset is still loaded and just needs to be taken back
+            disposePending.clear( asset.index() );
+            return;
+        }
+        
+        for ( int i = 0; i < asset.getDependencyCount(); i++ ) {
+            final Asset assetToLoadFirst = assets.get( asset.getDependency( i ) );
             if ( !assetToLoadFirst.loaded ) {
                 loadAsset( assetToLoadFirst );
+            } else if ( uncache( assetToLoadFirst ) ) {
+                disposePending.clear( assetToLoadFirst.index() );
             }
         }
         
         asset.load( context );
         context.notify( AssetEvent.create( AssetEvent.Type.ASSET_LOADED, asset ) );
         asset.loaded = true;
+        
+        for ( int i = 0; i < asset.getDependencyCount(); i++ ) {
+            final int dependencyId = asset.getDependency( i );
+            IntBag depending = getDependingAssets( dependencyId );
+            if ( depending == null ) {
+                depending = new IntBag( 5, -1 );
+                dependingAssets.set( dependencyId, depending );
+            }
+            if ( !depending.contains( asset.index() ) ) {
+                depending.add( asset.index() );
+            }
+        }
     }
     
     private void build( Asset asset ) {
@@ -186,4 +834,22 @@ public class AssetSystem extends ComponentSystem<AssetSystem> {
         context.notify( AssetEvent.create( AssetEvent.Type.ASSET_CREATED, asset ) );
     }
 
+    private void closeArchives() {
+        for ( int i = 0; i < archives.capacity(); i++ ) {
+            final AssetArchive archive = archives.get( i );
+            if ( archive != null ) {
+                close( archive );
+            }
+        }
+        archives.clear();
+    }
+    
+    private void close( AssetArchive archive ) {
+        try {
+            archive.close();
+        } catch ( IOException e ) {
+            // the archive is read only, so there is nothing to lose
+        }
+    }
+
 }
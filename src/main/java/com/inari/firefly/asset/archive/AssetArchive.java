@@ -0,0 +1,170 @@
+package com.inari.firefly.asset.archive;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/** A read only archive of resources that is packed into a single file by the AssetArchivePacker.
+ *  <p>
+ *  The whole file is memory mapped on open and the header index is read into a name to entry mapping.
+ *  Uncompressed entries are given as zero-copy, read only ByteBuffer slices of the mapped file.
+ *  LZ4 compressed entries are decompressed into a new heap buffer on each request.
+ *  <p>
+ *  Archive format (little endian):
+ *  <pre>
+ *  int     magic "FFAR"
+ *  int     version
+ *  int     number of entries
+ *  int     size of the index in bytes
+ *  index   per entry: short name length, UTF-8 name, long offset, int stored size, int size, byte compression
+ *  data    entries, each starting at an offset aligned to ALIGNMENT
+ *  </pre>
+ */
+public final class AssetArchive implements Closeable {
+
+    public static final int MAGIC = 0x52414646; // "FFAR" in little endian
+    public static final int VERSION = 1;
+    public static final int ALIGNMENT = 16;
+    public static final int HEADER_SIZE = 16;
+
+    public static final byte COMPRESSION_NONE = 0;
+    public static final byte COMPRESSION_LZ4 = 1;
+
+    static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer data;
+    private final Map<String, Entry> entries;
+
+    private AssetArchive( File file, RandomAccessFile randomAccessFile, MappedByteBuffer data, Map<String, Entry> entries ) {
+        this.file = file;
+        this.randomAccessFile = randomAccessFile;
+        this.data = data;
+        this.entries = entries;
+    }
+
+    public final File getFile() {
+        return file;
+    }
+
+    public final int getEntryCount() {
+        return entries.size();
+    }
+
+    public final Set<String> getEntryNames() {
+        return Collections.unmodifiableSet( entries.keySet() );
+    }
+
+    public final boolean contains( String name ) {
+        return entries.containsKey( name );
+    }
+
+    /** Gives the uncompressed size of the entry with the given name or -1 if there is no such entry */
+    public final int getSize( String name ) {
+        final Entry entry = entries.get( name );
+        return ( entry != null )? entry.size : -1;
+    }
+
+    /** Gives the content of the entry with the given name or null if there is no such entry.
+     *  The returned buffer is read only and positioned at 0 with a limit of the size of the entry.
+     *  For an uncompressed entry this is a slice of the memory mapped file without any copy.
+     */
+    public final ByteBuffer getResource( String name ) {
+        final Entry entry = entries.get( name );
+        if ( entry == null ) {
+            return null;
+        }
+
+        final ByteBuffer slice = slice( entry );
+        if ( entry.compression == COMPRESSION_NONE ) {
+            return slice;
+        }
+
+        final byte[] result = new byte[ entry.size ];
+        LZ4Block.decompress( slice, result );
+        return ByteBuffer.wrap( result ).asReadOnlyBuffer();
+    }
+
+    /** Closes the underling file. The memory mapping itself is released when it is garbage collected */
+    public final void close() throws IOException {
+        entries.clear();
+        randomAccessFile.close();
+    }
+
+    private ByteBuffer slice( final Entry entry ) {
+        // duplicate to not change the position of the shared mapping
+        final ByteBuffer buffer = data.duplicate();
+        buffer.limit( (int) entry.offset + entry.storedSize );
+        buffer.position( (int) entry.offset );
+        return buffer.slice().asReadOnlyBuffer();
+    }
+
+    /** Opens the archive of the given file
+     * @throws IOException if the file cannot be read or is not a valid archive
+     */
+    public static final AssetArchive open( final File file ) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile( file, "r" );
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final MappedByteBuffer data = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+            data.order( ByteOrder.LITTLE_ENDIAN );
+
+            if ( data.remaining() < HEADER_SIZE || data.getInt( 0 ) != MAGIC ) {
+                throw new IOException( "Not an asset archive: " + file );
+            }
+            final int version = data.getInt( 4 );
+            if ( version != VERSION ) {
+                throw new IOException( "Unsupported asset archive version: " + version + " of: " + file );
+            }
+
+            final int entryCount = data.getInt( 8 );
+            final Map<String, Entry> entries = new HashMap<String, Entry>( entryCount * 4 / 3 + 1 );
+            final ByteBuffer index = data.duplicate().order( ByteOrder.LITTLE_ENDIAN );
+            index.position( HEADER_SIZE );
+            for ( int i = 0; i < entryCount; i++ ) {
+                final byte[] name = new byte[ index.getShort() & 0xFFFF ];
+                index.get( name );
+                final Entry entry = new Entry( index.getLong(), index.getInt(), index.getInt(), index.get() );
+                if ( entry.offset < 0 || entry.offset + entry.storedSize > data.capacity() ) {
+                    throw new IOException( "Corrupt asset archive entry: " + new String( name, UTF8 ) + " of: " + file );
+                }
+                entries.put( new String( name, UTF8 ), entry );
+            }
+
+            return new AssetArchive( file, randomAccessFile, data, entries );
+        } catch ( IOException e ) {
+            randomAccessFile.close();
+            throw e;
+        } catch ( RuntimeException e ) {
+            randomAccessFile.close();
+            throw new IOException( "Corrupt asset archive: " + file, e );
+        }
+    }
+
+    private static final class Entry {
+
+        final long offset;
+        final int storedSize;
+        final int size;
+        final byte compression;
+
+        Entry( long offset, int storedSize, int size, byte compression ) {
+            this.offset = offset;
+            this.storedSize = storedSize;
+            this.size = size;
+            this.compression = compression;
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.inari.firefly.asset.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Packs all files of a directory (recursively) into an AssetArchive. The name of each entry is the path
+ *  of the file relative to the directory with '/' as separator, what should be the resource name used by the Assets.
+ *  <p>
+ *  With compression enabled, each entry is LZ4 compressed if this saves at least an eighth of its size.
+ *  Already compressed formats like PNG or OGG are usually stored uncompressed by this rule and can be read zero-copy.
+ *  <p>
+ *  The packer can be used as command line tool, for example within a Maven build by the exec plugin:
+ *  <pre>
+ *  mvn exec:java -Dexec.mainClass=com.inari.firefly.asset.archive.AssetArchivePacker -Dexec.args="assets assets.ffar -compress"
+ *  </pre>
+ */
+public final class AssetArchivePacker {
+
+    private final boolean compress;
+
+    public AssetArchivePacker( boolean compress ) {
+        this.compress = compress;
+    }
+
+    public final boolean isCompress() {
+        return compress;
+    }
+
+    /** Packs all files of the given directory into the given archive file
+     * @return the number of packed entries
+     */
+    public final int pack( final File directory, final File archive ) throws IOException {
+        if ( !directory.isDirectory() ) {
+            throw new IOException( "Not a directory: " + directory );
+        }
+
+        final List<File> files = new ArrayList<File>();
+        collectFiles( directory, files );
+
+        final int count = files.size();
+        final byte[][] names = new byte[ count ][];
+        final byte[][] contents = new byte[ count ][];
+        final int[] storedSizes = new int[ count ];
+        final int[] sizes = new int[ count ];
+        final byte[] compressions = new byte[ count ];
+        int indexSize = 0;
+        for ( int i = 0; i < count; i++ ) {
+            final File file = files.get( i );
+            names[ i ] = entryName( directory, file ).getBytes( AssetArchive.UTF8 );
+            if ( names[ i ].length > 0xFFFF ) {
+                throw new IOException( "Entry name too long: " + file );
+            }
+            indexSize += 2 + names[ i ].length + 8 + 4 + 4 + 1;
+
+            final byte[] content = Files.readAllBytes( file.toPath() );
+            sizes[ i ] = content.length;
+            contents[ i ] = content;
+            storedSizes[ i ] = content.length;
+            compressions[ i ] = AssetArchive.COMPRESSION_NONE;
+            if ( compress && content.length > 0 ) {
+                final byte[] compressed = new byte[ LZ4Block.maxCompressedLength( content.length ) ];
+                final int compressedLength = LZ4Block.compress( content, content.length, compressed );
+                if ( compressedLength <= content.length - content.length / 8 ) {
+                    contents[ i ] = compressed;
+                    storedSizes[ i ] = compressedLength;
+                    compressions[ i ] = AssetArchive.COMPRESSION_LZ4;
+                }
+            }
+        }
+
+        final long[] offsets = new long[ count ];
+        long offset = align( AssetArchive.HEADER_SIZE + indexSize );
+        for ( int i = 0; i < count; i++ ) {
+            offsets[ i ] = offset;
+            offset = align( offset + storedSizes[ i ] );
+        }
+
+        final ByteBuffer header = ByteBuffer.allocate( AssetArchive.HEADER_SIZE + indexSize ).order( ByteOrder.LITTLE_ENDIAN );
+        header.putInt( AssetArchive.MAGIC );
+        header.putInt( AssetArchive.VERSION );
+        header.putInt( count );
+        header.putInt( indexSize );
+        for ( int i = 0; i < count; i++ ) {
+            header.putShort( (short) names[ i ].length );
+            header.put( names[ i ] );
+            header.putLong( offsets[ i ] );
+            header.putInt( storedSizes[ i ] );
+            header.putInt( sizes[ i ] );
+            header.put( compressions[ i ] );
+        }
+
+        final OutputStream out = new BufferedOutputStream( new FileOutputStream( archive ) );
+        try {
+            long position = header.capacity();
+            out.write( header.array() );
+            for ( int i = 0; i < count; i++ ) {
+                position = pad( out, position, offsets[ i ] );
+                out.write( contents[ i ], 0, storedSizes[ i ] );
+                position += storedSizes[ i ];
+            }
+        } finally {
+            out.close();
+        }
+
+        return count;
+    }
+
+    private static void collectFiles( final File directory, final List<File> files ) {
+        final File[] children = directory.listFiles();
+        if ( children == null ) {
+            return;
+        }
+
+        // sorted to get the same archive for the same content
+        Arrays.sort( children );
+        for ( File child : children ) {
+            if ( child.isDirectory() ) {
+                collectFiles( child, files );
+            } else if ( child.isFile() ) {
+                files.add( child );
+            }
+        }
+    }
+
+    private static String entryName( final File directory, final File file ) {
+        return directory.toPath().relativize( file.toPath() ).toString().replace( File.separatorChar, '/' );
+    }
+
+    private static long align( final long offset ) {
+        final long remainder = offset % AssetArchive.ALIGNMENT;
+        return ( remainder == 0 )? offset : offset + AssetArchive.ALIGNMENT - remainder;
+    }
+
+    private static long pad( final OutputStream out, long position, final long offset ) throws IOException {
+        while ( position < offset ) {
+            out.write( 0 );
+            position++;
+        }
+        return position;
+    }
+
+    /** Command line entry point. This is the only place the packer writes to the console, pack itself reports
+     *  by its return value and IOException only.
+     */
+    public static void main( String[] args ) throws IOException {
+        if ( args.length < 2 ) {
+            System.err.println( "Usage: AssetArchivePacker <sourceDirectory> <archiveFile> [-compress]" );
+            System.exit( 1 );
+        }
+
+        final boolean compress = args.length > 2 && "-compress".equals( args[ 2 ] );
+        final int count = new AssetArchivePacker( compress ).pack( new File( args[ 0 ] ), new File( args[ 1 ] ) );
+        System.out.println( "Packed " + count + " entries into: " + args[ 1 ] );
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.inari.firefly.asset.archive;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** A minimal implementation of the LZ4 block format used to compress the entries of an AssetArchive.
+ *  The compressor is a simple greedy one with a single hash table. It is fast but does not reach the
+ *  compression ratio of the reference implementation. The decompressor reads any valid LZ4 block.
+ */
+final class LZ4Block {
+
+    private static final int MIN_MATCH = 4;
+    private static final int MF_LIMIT = 12;
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_BITS = 12;
+
+    private LZ4Block() {}
+
+    static int maxCompressedLength( final int length ) {
+        return length + length / 255 + 16;
+    }
+
+    /** Compresses the given source bytes into the given destination.
+     * @return the length of the compressed block within the destination
+     */
+    static int compress( final byte[] src, final int srcLength, final byte[] dst ) {
+        final int[] table = new int[ 1 << HASH_BITS ];
+        Arrays.fill( table, -1 );
+
+        final int limit = srcLength - MF_LIMIT;
+        final int matchLimit = srcLength - LAST_LITERALS;
+        int ip = 0;
+        int anchor = 0;
+        int op = 0;
+        while ( ip < limit ) {
+            final int sequence = readInt( src, ip );
+            final int hash = ( sequence * -1640531535 ) >>> ( 32 - HASH_BITS );
+            final int ref = table[ hash ];
+            table[ hash ] = ip;
+            if ( ref < 0 || ip - ref > MAX_OFFSET || readInt( src, ref ) != sequence ) {
+                ip++;
+                continue;
+            }
+
+            int matchLength = MIN_MATCH;
+            while ( ip + matchLength < matchLimit && src[ ref + matchLength ] == src[ ip + matchLength ] ) {
+                matchLength++;
+            }
+
+            final int literals = ip - anchor;
+            final int token = op++;
+            op = writeLength( dst, op, literals );
+            System.arraycopy( src, anchor, dst, op, literals );
+            op += literals;
+
+            final int offset = ip - ref;
+            dst[ op++ ] = (byte) offset;
+            dst[ op++ ] = (byte) ( offset >>> 8 );
+            op = writeLength( dst, op, matchLength - MIN_MATCH );
+            dst[ token ] = (byte) ( ( Math.min( literals, 15 ) << 4 ) | Math.min( matchLength - MIN_MATCH, 15 ) );
+
+            ip += matchLength;
+            anchor = ip;
+        }
+
+        final int literals = srcLength - anchor;
+        dst[ op++ ] = (byte) ( Math.min( literals, 15 ) << 4 );
+        op = writeLength( dst, op, literals );
+        System.arraycopy( src, anchor, dst, op, literals );
+        return op + literals;
+    }
+
+    /** Decompresses the remaining bytes of the given source block into the given destination */
+    static void decompress( final ByteBuffer src, final byte[] dst ) {
+        int op = 0;
+        while ( src.hasRemaining() ) {
+            final int token = src.get() & 0xFF;
+            final int literals = readLength( src, token >>> 4 );
+            src.get( dst, op, literals );
+            op += literals;
+            if ( !src.hasRemaining() ) {
+                break;
+            }
+
+            final int offset = ( src.get() & 0xFF ) | ( ( src.get() & 0xFF ) << 8 );
+            final int matchLength = readLength( src, token & 0x0F ) + MIN_MATCH;
+            // byte by byte since the match may overlap the output
+            int ref = op - offset;
+            for ( int i = 0; i < matchLength; i++ ) {
+                dst[ op++ ] = dst[ ref++ ];
+            }
+        }
+
+        if ( op != dst.length ) {
+            throw new IllegalStateException( "Corrupt LZ4 block: expected length: " + dst.length + " but was: " + op );
+        }
+    }
+
+    private static int writeLength( final byte[] dst, int op, final int length ) {
+        if ( length < 15 ) {
+            return op;
+        }
+
+        int remaining = length - 15;
+        while ( remaining >= 255 ) {
+            dst[ op++ ] = (byte) 255;
+            remaining -= 255;
+        }
+        dst[ op++ ] = (byte) remaining;
+        return op;
+    }
+
+    private static int readLength( final ByteBuffer src, int length ) {
+        if ( length == 15 ) {
+            int b;
+            do {
+                b = src.get() & 0xFF;
+                length += b;
+            } while ( b == 255 );
+        }
+        return length;
+    }
+
+    private static int readInt( final byte[] src, final int index ) {
+        return ( src[ index ] & 0xFF )
+            | ( ( src[ index + 1 ] & 0xFF ) << 8 )
+            | ( ( src[ index + 2 ] & 0xFF ) << 16 )
+            | ( ( src[ index + 3 ] & 0xFF ) << 24 );
+    }
+
+}
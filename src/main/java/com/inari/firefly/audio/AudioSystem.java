@@ -19,6 +19,7 @@ import java.util.Set;
 
 import com.inari.commons.JavaUtils;
 import com.inari.firefly.asset.Asset;
+import com.inari.firefly.asset.AssetSystem;
 import com.inari.firefly.component.build.ComponentCreationException;
 import com.inari.firefly.control.Controller;
 import com.inari.firefly.system.FFContext;
@@ -47,7 +48,7 @@ public final class AudioSystem
                 public final void notifyBuild( Sound component ) { build( component ); }
                 public final void notifyActivation( int id ) { playSound( id ); }
                 public final void notifyDeactivation( int id ) { stopPlaying( id ); }
-                public final void notifyDeletion( Sound component ) {}
+                public final void notifyDeletion( Sound component ) { delete( component ); }
             }
         );
     }
@@ -145,6 +146,11 @@ public final class AudioSystem
         }
         sound.soundId = asset.getSoundId();
         sound.streaming = asset.isStreaming();
+        context.getSystem( AssetSystem.SYSTEM_KEY ).reference( asset.index() );
+    }
+    
+    private void delete( Sound sound ) {
+        context.getSystem( AssetSystem.SYSTEM_KEY ).release( sound.getSoundAssetId() );
     }
 
 }
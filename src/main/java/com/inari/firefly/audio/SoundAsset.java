@@ -15,10 +15,12 @@
  ******************************************************************************/ 
 package com.inari.firefly.audio;
 
+import java.nio.ByteBuffer;
 import java.util.Set;
 
 import com.inari.commons.JavaUtils;
 import com.inari.firefly.asset.Asset;
+import com.inari.firefly.asset.AssetSystem;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.system.FFContext;
@@ -39,6 +41,7 @@ public class SoundAsset extends Asset {
     private boolean streaming;
     
     private int soundId;
+    private ByteBuffer resourceData;
 
     SoundAsset( int id ) {
         super( id );
@@ -62,6 +65,13 @@ public class SoundAsset extends Asset {
         this.resourceName = resourceName;
     }
 
+    /** Gives the content of the resource if it has already been read, for example from an AssetArchive on
+     *  preparation, or null if the backend has to load the resource by the resource name.
+     */
+    public final ByteBuffer getResourceData() {
+        return resourceData;
+    }
+
     public final boolean isStreaming() {
         return streaming;
     }
@@ -88,13 +98,26 @@ public class SoundAsset extends Asset {
         attributes.put( STREAMING, streaming );
     }
 
+    /** Reads and decompresses the sound resource from the AssetArchives of the AssetSystem if available.
+     *  Streaming sounds are left to the backend. */
+    @Override
+    protected final void prepare( FFContext context ) {
+        if ( !streaming ) {
+            resourceData = context.getSystem( AssetSystem.SYSTEM_KEY ).getResource( resourceName );
+        }
+    }
+
     @Override
     public final Disposable load( FFContext context ) {
         if ( loaded ) {
             return this;
         }
 
+        if ( resourceData == null ) {
+            prepare( context );
+        }
         soundId = context.getAudio().createSound( this );
+        resourceData = null;
         return this;
     }
 
@@ -15,7 +15,9 @@
  ******************************************************************************/ 
 package com.inari.firefly.component.attr;
 
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.HashMap;
 
 import com.inari.commons.geom.Position;
 import com.inari.commons.geom.PositionF;
@@ -40,10 +42,15 @@ import com.inari.firefly.system.utils.Trigger;
  */
 public final class AttributeKey<T> {
     
+    private static final HashMap<AttributeKey<?>, Integer> INDEXES = new HashMap<AttributeKey<?>, Integer>();
+    private static final ArrayList<AttributeKey<?>> KEYS = new ArrayList<AttributeKey<?>>();
+    
     final String name;
     final Class<? extends Component> componentType;
     final Class<T> valueType;
     final Class<?> typedValueType;
+    final int index;
+    final int slot;
     
     private final int hashCode;
     
@@ -64,6 +71,8 @@ public final class AttributeKey<T> {
         result = prime * result + ( ( componentType == null ) ? 0 : componentType.hashCode() );
         result = prime * result + ( ( name == null ) ? 0 : name.hashCode() );
         hashCode = result;
+        index = index( this );
+        slot = IndexedAttributeMap.slotOf( valueType );
     }
     
     /** Use this to create a new AttributeKey with specified name, valueType and component type.
@@ -84,6 +93,8 @@ public final class AttributeKey<T> {
         result = prime * result + ( ( componentType == null ) ? 0 : componentType.hashCode() );
         result = prime * result + ( ( name == null ) ? 0 : name.hashCode() );
         hashCode = result;
+        index = index( this );
+        slot = IndexedAttributeMap.slotOf( valueType );
     }
 
     /** Use this to get the name of the attribute
@@ -107,6 +118,13 @@ public final class AttributeKey<T> {
         return typedValueType;
     }
 
+    /** Use this to get the dense index of this attribute. AttributeKeys that are equal share the same index.
+     * @return the dense index of this attribute
+     */
+    public final int index() {
+        return index;
+    }
+
     /** Use this to get the component type class of this attribute
      * @return the component type class of this attribute
      */
@@ -151,6 +169,32 @@ public final class AttributeKey<T> {
         return builder.toString();
     }
     
+    /** Gives the number of distinct AttributeKeys created so far. All indices are lower than this count */
+    public static final int count() {
+        synchronized ( INDEXES ) {
+            return INDEXES.size();
+        }
+    }
+    
+    /** Gives the registered AttributeKey of the given index, that is the first created key of all equal keys */
+    public static final AttributeKey<?> get( int index ) {
+        synchronized ( INDEXES ) {
+            return KEYS.get( index );
+        }
+    }
+    
+    private static int index( AttributeKey<?> key ) {
+        synchronized ( INDEXES ) {
+            Integer index = INDEXES.get( key );
+            if ( index == null ) {
+                index = INDEXES.size();
+                INDEXES.put( key, index );
+                KEYS.add( key );
+            }
+            return index;
+        }
+    }
+    
     /** Utility to create an AttributeKey with specified name, value type and componentType.
      * @param name the name of the AttributeKey
      * @param type the value Type of the AttributeKey
@@ -15,6 +15,8 @@
  ******************************************************************************/ 
 package com.inari.firefly.component.attr;
 
+import java.util.Set;
+
 import com.inari.commons.lang.list.DynArray;
 import com.inari.commons.lang.list.IntBag;
 import com.inari.firefly.component.Component;
@@ -63,6 +65,8 @@ public interface AttributeMap {
         int defaultValue 
     );
     
+    int getAssetId( AttributeKey<String> nameAttribute, int defaultValue );
+    
     IntBag getIdsForNames( 
         AttributeKey<DynArray<String>> namesAttribute, 
         AttributeKey<IntBag> idsAttribute,
@@ -73,6 +77,9 @@ public interface AttributeMap {
     void clear();
 
     boolean contains( AttributeKey<?> key );
+    
+    /** Gives the keys of all attributes within this map in insertion order */
+    Set<AttributeKey<?>> keys();
 
     FFContext getContext();
 
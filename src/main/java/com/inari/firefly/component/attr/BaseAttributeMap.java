@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2015 - 2016, Andreas Hefti, inarisoft@yahoo.de 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/ 
+package com.inari.firefly.component.attr;
+
+import com.inari.commons.lang.list.DynArray;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.firefly.asset.Asset;
+import com.inari.firefly.component.Component;
+import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.component.IComponentId;
+import com.inari.firefly.system.component.SystemComponent.SystemComponentKey;
+
+/** Base implementation of AttributeMap that implements all functionality that is independent of the value storage */
+public abstract class BaseAttributeMap implements AttributeMap {
+    
+    protected IComponentId componentId;
+    protected final FFContext context;
+    
+    protected BaseAttributeMap( FFContext context ) {
+        this.context = context;
+    }
+    
+    public final IComponentId getComponentId() {
+        return componentId;
+    }
+    
+    public void setComponentId( IComponentId componentId ) {
+        this.componentId = componentId;
+    }
+
+    public final <A> A getValue( AttributeKey<A> key, A defaultValue ) {
+        Object attributeValue = getValue( key );
+        if ( attributeValue == null ) {
+            return defaultValue;
+        }
+        
+        return key.valueType.cast( attributeValue );
+    }
+    
+    public final Object getUntypedValue( AttributeKey<?> key, Object defaultValue ) {
+        Object attributeValue = getValue( key );
+        if ( attributeValue == null ) {
+            return defaultValue;
+        }
+        
+        return attributeValue;
+    }
+    
+    public final int getIdForName( 
+        AttributeKey<String> nameAttribute, 
+        AttributeKey<Integer> idAttribute, 
+        SystemComponentKey<? extends Component> typeKey, 
+        int defaultValue 
+    ) {
+        if ( contains( idAttribute ) ) {
+           return getValue( idAttribute, defaultValue );
+        } else {
+            String name = getValue( nameAttribute, null );
+            return ( name != null )? context.getSystemComponentId( typeKey, name ) : defaultValue;
+        }
+    }
+    
+    public final IntBag getIdsForNames( 
+        AttributeKey<DynArray<String>> namesAttribute, 
+        AttributeKey<IntBag> idsAttribute,
+        SystemComponentKey<? extends Component> typeKey, 
+        IntBag defaultValue 
+    ) {
+        IntBag result = null;
+        if ( contains( idsAttribute ) ) {
+           result = getValue( idsAttribute, defaultValue );
+        } 
+        
+        if ( contains( namesAttribute ) ) {
+            DynArray<String> names = getValue( namesAttribute, null );
+            if ( result == null ) {
+                result = new IntBag( names.size(), -1 );
+            }
+            
+            for ( String name : names ) {
+                int id = context.getSystemComponentId( typeKey, name );
+                if ( !result.contains( id ) ) {
+                    result.add( id );
+                }
+            }
+        }
+        
+        return ( result != null )? result : defaultValue;
+    }
+    
+    public final int getAssetInstanceId( 
+        AttributeKey<String> nameAttribute, 
+        AttributeKey<Integer> idAttribute, 
+        int defaultValue 
+    ) {
+        if ( contains( idAttribute ) ) {
+           return getValue( idAttribute, defaultValue );
+        } else {
+            String name = getValue( nameAttribute, null );
+            return ( name != null )? context.getAssetInstanceId( name ) : defaultValue;
+        }
+    }
+    
+    public final int getAssetId( AttributeKey<String> nameAttribute, int defaultValue ) {
+        String name = getValue( nameAttribute, null );
+        return ( name != null )? context.getSystemComponentId( Asset.TYPE_KEY, name ) : defaultValue;
+    }
+
+    public final FFContext getContext() {
+        return context;
+    }
+
+}
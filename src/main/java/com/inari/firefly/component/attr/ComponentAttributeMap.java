@@ -15,34 +15,21 @@
  ******************************************************************************/ 
 package com.inari.firefly.component.attr;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
-import com.inari.commons.lang.list.DynArray;
-import com.inari.commons.lang.list.IntBag;
-import com.inari.firefly.component.Component;
 import com.inari.firefly.system.FFContext;
-import com.inari.firefly.system.component.IComponentId;
-import com.inari.firefly.system.component.SystemComponent.SystemComponentKey;
 
-public class ComponentAttributeMap implements AttributeMap {
+public class ComponentAttributeMap extends BaseAttributeMap {
 
-    protected IComponentId componentId;
     protected final HashMap<AttributeKey<?>, Object> attributes = new LinkedHashMap<AttributeKey<?>, Object>();
-    protected final FFContext context;
     
     public ComponentAttributeMap( FFContext context ) {
-        this.context = context;
-    }
-    
-    public final IComponentId getComponentId() {
-        return componentId;
-    }
-    
-    public void setComponentId( IComponentId componentId ) {
-        this.componentId = componentId;
+        super( context );
     }
 
     public final boolean isEmpty() {
@@ -63,7 +50,23 @@ public class ComponentAttributeMap implements AttributeMap {
     }
     
     public AttributeMap putAll( AttributeMap attributes ) {
-        this.attributes.putAll( ( (ComponentAttributeMap) attributes ).attributes ); 
+        if ( attributes instanceof IndexedAttributeMap ) {
+            IndexedAttributeMap other = (IndexedAttributeMap) attributes;
+            for ( int i = 0; i < other.size(); i++ ) {
+                AttributeKey<?> key = other.keyAt( i );
+                this.attributes.put( key, other.getValue( key ) );
+            }
+            return this;
+        }
+        
+        if ( attributes instanceof ComponentAttributeMap ) {
+            this.attributes.putAll( ( (ComponentAttributeMap) attributes ).attributes ); 
+            return this;
+        }
+        
+        for ( AttributeKey<?> key : attributes.keys() ) {
+            this.attributes.put( key, attributes.getValue( key ) );
+        }
         return this;
     }
     
@@ -116,79 +119,6 @@ public class ComponentAttributeMap implements AttributeMap {
         return key.valueType.cast( attributeValue );
     }
 
-    public final <A> A getValue( AttributeKey<A> key, A defaultValue ) {
-        Object attributeValue = getValue( key );
-        if ( attributeValue == null ) {
-            return defaultValue;
-        }
-        
-        return key.valueType.cast( attributeValue );
-    }
-    
-    public final Object getUntypedValue( AttributeKey<?> key, Object defaultValue ) {
-        Object attributeValue = getValue( key );
-        if ( attributeValue == null ) {
-            return defaultValue;
-        }
-        
-        return attributeValue;
-    }
-    
-    public final int getIdForName( 
-        AttributeKey<String> nameAttribute, 
-        AttributeKey<Integer> idAttribute, 
-        SystemComponentKey<? extends Component> typeKey, 
-        int defaultValue 
-    ) {
-        if ( contains( idAttribute ) ) {
-           return getValue( idAttribute, defaultValue );
-        } else {
-            String name = getValue( nameAttribute, null );
-            return ( name != null )? context.getSystemComponentId( typeKey, name ) : defaultValue;
-        }
-    }
-    
-    public final IntBag getIdsForNames( 
-        AttributeKey<DynArray<String>> namesAttribute, 
-        AttributeKey<IntBag> idsAttribute,
-        SystemComponentKey<? extends Component> typeKey, 
-        IntBag defaultValue 
-    ) {
-        IntBag result = null;
-        if ( contains( idsAttribute ) ) {
-           result = getValue( idsAttribute, defaultValue );
-        } 
-        
-        if ( contains( namesAttribute ) ) {
-            DynArray<String> names = getValue( namesAttribute, null );
-            if ( result == null ) {
-                result = new IntBag( names.size(), -1 );
-            }
-            
-            for ( String name : names ) {
-                int id = context.getSystemComponentId( typeKey, name );
-                if ( !result.contains( id ) ) {
-                    result.add( id );
-                }
-            }
-        }
-        
-        return ( result != null )? result : defaultValue;
-    }
-    
-    public final int getAssetInstanceId( 
-        AttributeKey<String> nameAttribute, 
-        AttributeKey<Integer> idAttribute, 
-        int defaultValue 
-    ) {
-        if ( contains( idAttribute ) ) {
-           return getValue( idAttribute, defaultValue );
-        } else {
-            String name = getValue( nameAttribute, null );
-            return ( name != null )? context.getAssetInstanceId( name ) : defaultValue;
-        }
-    }
-
     public final void clear() {
         attributes.clear();
     }
@@ -196,6 +126,10 @@ public class ComponentAttributeMap implements AttributeMap {
     public final boolean contains( AttributeKey<?> key ) {
         return attributes.containsKey( key );
     }
+    
+    public final Set<AttributeKey<?>> keys() {
+        return Collections.unmodifiableSet( attributes.keySet() );
+    }
 
     @Override
     public String toString() {
@@ -212,9 +146,5 @@ public class ComponentAttributeMap implements AttributeMap {
         }
         return builder.toString();
     }
-
-    public final FFContext getContext() {
-        return context;
-    }
     
 }
@@ -0,0 +1,367 @@
+/*******************************************************************************
+ * Copyright (c) 2015 - 2016, Andreas Hefti, inarisoft@yahoo.de 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/ 
+package com.inari.firefly.component.attr;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.inari.firefly.system.FFContext;
+
+/** An AttributeMap that stores the values in arrays that are indexed by the dense index of the AttributeKey.
+ *  <p>
+ *  Integer, Float, Boolean and Long values are stored unboxed within primitive slots so that the primitive 
+ *  getters of a component's fromAttributes do not need any hash lookup nor unboxing. The presence of an attribute
+ *  is tracked within a BitSet and the insertion order is kept for iteration.
+ *  The arrays grow on demand and are kept on clear, so a map that is reused by a builder does not allocate
+ *  after the first build.
+ */
+public class IndexedAttributeMap extends BaseAttributeMap {
+    
+    static final int SLOT_OBJECT = 0;
+    static final int SLOT_INT = 1;
+    static final int SLOT_FLOAT = 2;
+    static final int SLOT_BOOLEAN = 3;
+    static final int SLOT_LONG = 4;
+    
+    private AttributeKey<?>[] keys = new AttributeKey<?>[ 0 ];
+    private Object[] objects;
+    private int[] ints;
+    private float[] floats;
+    private long[] longs;
+    private final BitSet booleans = new BitSet();
+    private final BitSet present = new BitSet();
+    // primitive slots that were set with a null value
+    private final BitSet nulls = new BitSet();
+    
+    private int[] order = new int[ 16 ];
+    private int size = 0;
+
+    public IndexedAttributeMap( FFContext context ) {
+        super( context );
+    }
+
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /** Gives the number of attributes within this map */
+    public final int size() {
+        return size;
+    }
+    
+    /** Gives the AttributeKey of the attribute at the given position in insertion order */
+    public final AttributeKey<?> keyAt( int position ) {
+        return keys[ order[ position ] ];
+    }
+
+    public final boolean contains( AttributeKey<?> key ) {
+        return present.get( key.index );
+    }
+    
+    public final Set<AttributeKey<?>> keys() {
+        final Set<AttributeKey<?>> result = new LinkedHashSet<AttributeKey<?>>();
+        for ( int i = 0; i < size; i++ ) {
+            result.add( keys[ order[ i ] ] );
+        }
+        return result;
+    }
+
+    /** Indicates if the attribute of the given key was put with a null value */
+    public final boolean isNull( AttributeKey<?> key ) {
+        final int index = key.index;
+        if ( !present.get( index ) ) {
+            return false;
+        }
+        
+        return ( keys[ index ].slot == SLOT_OBJECT )? objects[ index ] == null : nulls.get( index );
+    }
+
+    public final <A> A getValue( AttributeKey<A> key ) {
+        final int index = key.index;
+        if ( !present.get( index ) ) {
+            return null;
+        }
+        
+        return key.valueType.cast( value( index ) );
+    }
+
+    public final <A> AttributeMap put( AttributeKey<A> key, A value ) {
+        set( key, value );
+        return this;
+    }
+
+    public final AttributeMap putUntyped( AttributeKey<?> key, Object value ) {
+        if ( value == null ) {
+            remove( key.index );
+            return this;
+        }
+        if ( !key.valueType.isAssignableFrom( value.getClass() ) ) {
+            throw new IllegalArgumentException( "The type of value does not match with the key valueType: " + key.valueType + " objectType: " + value.getClass() );
+        }
+        
+        set( key, value );
+        return this;
+    }
+
+    public AttributeMap putAll( AttributeMap attributes ) {
+        if ( !( attributes instanceof IndexedAttributeMap ) ) {
+            for ( AttributeKey<?> key : attributes.keys() ) {
+                set( key, attributes.getValue( key ) );
+            }
+            return this;
+        }
+        
+        final IndexedAttributeMap other = (IndexedAttributeMap) attributes;
+        for ( int i = 0; i < other.size; i++ ) {
+            final int index = other.order[ i ];
+            final AttributeKey<?> key = other.keys[ index ];
+            if ( key.slot == SLOT_OBJECT || other.nulls.get( index ) ) {
+                set( key, other.value( index ) );
+                continue;
+            }
+            
+            mark( key );
+            switch ( key.slot ) {
+                case SLOT_INT: ints()[ index ] = other.ints[ index ]; break;
+                case SLOT_FLOAT: floats()[ index ] = other.floats[ index ]; break;
+                case SLOT_BOOLEAN: booleans.set( index, other.booleans.get( index ) ); break;
+                case SLOT_LONG: longs()[ index ] = other.longs[ index ]; break;
+            }
+        }
+        return this;
+    }
+
+    public final int getValue( AttributeKey<Integer> key, int defaultValue ) {
+        final int index = key.index;
+        if ( !present.get( index ) || nulls.get( index ) ) {
+            return defaultValue;
+        }
+        if ( keys[ index ].slot == SLOT_INT ) {
+            return ints[ index ];
+        }
+        
+        final Integer value = key.valueType.cast( value( index ) );
+        return ( value != null )? value : defaultValue;
+    }
+
+    public final float getValue( AttributeKey<Float> key, float defaultValue ) {
+        final int index = key.index;
+        if ( !present.get( index ) || nulls.get( index ) ) {
+            return defaultValue;
+        }
+        if ( keys[ index ].slot == SLOT_FLOAT ) {
+            return floats[ index ];
+        }
+        
+        final Float value = key.valueType.cast( value( index ) );
+        return ( value != null )? value : defaultValue;
+    }
+
+    public final boolean getValue( AttributeKey<Boolean> key, boolean defaultValue ) {
+        final int index = key.index;
+        if ( !present.get( index ) || nulls.get( index ) ) {
+            return defaultValue;
+        }
+        if ( keys[ index ].slot == SLOT_BOOLEAN ) {
+            return booleans.get( index );
+        }
+        
+        final Boolean value = key.valueType.cast( value( index ) );
+        return ( value != null )? value : defaultValue;
+    }
+
+    public final long getValue( AttributeKey<Long> key, long defaultValue ) {
+        final int index = key.index;
+        if ( !present.get( index ) || nulls.get( index ) ) {
+            return defaultValue;
+        }
+        if ( keys[ index ].slot == SLOT_LONG ) {
+            return longs[ index ];
+        }
+        
+        final Long value = key.valueType.cast( value( index ) );
+        return ( value != null )? value : defaultValue;
+    }
+
+    public final void clear() {
+        for ( int i = 0; i < size; i++ ) {
+            final int index = order[ i ];
+            if ( objects != null ) {
+                objects[ index ] = null;
+            }
+            keys[ index ] = null;
+        }
+        present.clear();
+        nulls.clear();
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for ( int i = 0; i < size; i++ ) {
+            final int index = order[ i ];
+            builder.append( keys[ index ].toString() );
+            builder.append( "=" );
+            builder.append( String.valueOf( value( index ) ) );
+            if ( i < size - 1 ) {
+                builder.append( ", " );
+            }
+        }
+        return builder.toString();
+    }
+    
+    private Object value( final int index ) {
+        final int slot = keys[ index ].slot;
+        if ( slot == SLOT_OBJECT ) {
+            return objects[ index ];
+        }
+        if ( nulls.get( index ) ) {
+            return null;
+        }
+        
+        switch ( slot ) {
+            case SLOT_INT: return ints[ index ];
+            case SLOT_FLOAT: return floats[ index ];
+            case SLOT_BOOLEAN: return booleans.get( index );
+            default: return longs[ index ];
+        }
+    }
+    
+    private void set( final AttributeKey<?> key, final Object value ) {
+        final int index = key.index;
+        mark( key );
+        if ( key.slot == SLOT_OBJECT ) {
+            objects()[ index ] = value;
+            return;
+        }
+        if ( value == null ) {
+            nulls.set( index );
+            return;
+        }
+        
+        switch ( key.slot ) {
+            case SLOT_INT: ints()[ index ] = (Integer) value; break;
+            case SLOT_FLOAT: floats()[ index ] = (Float) value; break;
+            case SLOT_BOOLEAN: booleans.set( index, (Boolean) value ); break;
+            case SLOT_LONG: longs()[ index ] = (Long) value; break;
+        }
+    }
+    
+    private void mark( final AttributeKey<?> key ) {
+        final int index = key.index;
+        if ( index >= keys.length ) {
+            grow( index );
+        }
+        
+        if ( !present.get( index ) ) {
+            present.set( index );
+            if ( size == order.length ) {
+                order = Arrays.copyOf( order, size * 2 );
+            }
+            order[ size++ ] = index;
+        } else if ( keys[ index ].slot == SLOT_OBJECT && key.slot != SLOT_OBJECT ) {
+            objects[ index ] = null;
+        }
+        
+        keys[ index ] = key;
+        nulls.clear( index );
+    }
+    
+    private void remove( final int index ) {
+        if ( !present.get( index ) ) {
+            return;
+        }
+        
+        present.clear( index );
+        nulls.clear( index );
+        if ( objects != null ) {
+            objects[ index ] = null;
+        }
+        keys[ index ] = null;
+        for ( int i = 0; i < size; i++ ) {
+            if ( order[ i ] == index ) {
+                System.arraycopy( order, i + 1, order, i, size - i - 1 );
+                size--;
+                break;
+            }
+        }
+    }
+    
+    private void grow( final int index ) {
+        final int length = Math.max( index + 1, AttributeKey.count() );
+        keys = Arrays.copyOf( keys, length );
+        if ( objects != null ) {
+            objects = Arrays.copyOf( objects, length );
+        }
+        if ( ints != null ) {
+            ints = Arrays.copyOf( ints, length );
+        }
+        if ( floats != null ) {
+            floats = Arrays.copyOf( floats, length );
+        }
+        if ( longs != null ) {
+            longs = Arrays.copyOf( longs, length );
+        }
+    }
+    
+    private Object[] objects() {
+        if ( objects == null ) {
+            objects = new Object[ keys.length ];
+        }
+        return objects;
+    }
+    
+    private int[] ints() {
+        if ( ints == null ) {
+            ints = new int[ keys.length ];
+        }
+        return ints;
+    }
+    
+    private float[] floats() {
+        if ( floats == null ) {
+            floats = new float[ keys.length ];
+        }
+        return floats;
+    }
+    
+    private long[] longs() {
+        if ( longs == null ) {
+            longs = new long[ keys.length ];
+        }
+        return longs;
+    }
+    
+    static int slotOf( Class<?> valueType ) {
+        if ( valueType == Integer.class ) {
+            return SLOT_INT;
+        }
+        if ( valueType == Float.class ) {
+            return SLOT_FLOAT;
+        }
+        if ( valueType == Boolean.class ) {
+            return SLOT_BOOLEAN;
+        }
+        if ( valueType == Long.class ) {
+            return SLOT_LONG;
+        }
+        return SLOT_OBJECT;
+    }
+
+}
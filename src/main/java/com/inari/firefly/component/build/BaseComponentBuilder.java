@@ -53,7 +53,7 @@ public abstract class BaseComponentBuilder<C extends Component> implements Compo
     }
 
     public final BaseComponentBuilder<C> setAttributes( AttributeMap attributes ) {
-        attributes.putAll( attributes );
+        this.attributes.putAll( attributes );
         return this;
     }
 
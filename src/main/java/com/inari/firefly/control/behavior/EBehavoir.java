@@ -82,6 +82,16 @@ public final class EBehavoir extends EntityComponent {
         rootNodeId = attributes.getIdForName( ROOT_NODE_NAME, ROOT_NODE_ID, BehaviorNode.TYPE_KEY, rootNodeId );
     }
 
+    @Override
+    public final boolean copyFrom( EntityComponent component ) {
+        final EBehavoir other = (EBehavoir) component;
+        rootNodeId = other.rootNodeId;
+        actionState = EBehavoir.ActionState.SUCCESS;
+        nodeMapping.clear();
+        runningActionId = -1;
+        return true;
+    }
+
     @Override
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( ROOT_NODE_ID, rootNodeId );
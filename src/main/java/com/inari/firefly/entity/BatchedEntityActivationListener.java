@@ -0,0 +1,18 @@
+package com.inari.firefly.entity;
+
+import com.inari.commons.lang.aspect.IAspects;
+import com.inari.commons.lang.list.IntBagRO;
+
+/** An EntityActivationListener that is able to process a whole list of entity ids with the same component
+ *  aspects at once. Batched EntityActivationEvents are delivered to this callbacks while listeners that only 
+ *  implement EntityActivationListener get notified per entity id.
+ *  <p>
+ *  The given id list is only valid within the callback and may contain null values (IntBagRO.getNullValue())
+ */
+public interface BatchedEntityActivationListener extends EntityActivationListener {
+    
+    void entitiesActivated( IntBagRO entityIds, final IAspects aspects );
+    
+    void entitiesDeactivated( IntBagRO entityIds, final IAspects aspects );
+
+}
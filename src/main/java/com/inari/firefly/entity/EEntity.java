@@ -15,7 +15,9 @@ import com.inari.firefly.control.Controller;
 
 public class EEntity extends EntityComponent {
     
-    public static final EntityComponentTypeKey<EEntity> TYPE_KEY = EntityComponentTypeKey.create( EEntity.class );
+    public static final EntityComponentTypeKey<EEntity> TYPE_KEY = EntityComponentTypeKey.create( EEntity.class, new EntityComponentFactory<EEntity>() {
+        public final EEntity create() { return new EEntity(); }
+    } );
     public static final AspectGroup ENTITY_ASPECT_GROUP = new AspectGroup( "ENTITY_ASPECT_GROUP" );
     
     public static final AttributeKey<String> ENTITY_NAME = AttributeKey.createString( "entityName", EEntity.class );
@@ -131,6 +133,15 @@ public class EEntity extends EntityComponent {
         }
     }
 
+    public final boolean copyFrom( EntityComponent component ) {
+        final EEntity other = (EEntity) component;
+        entityName = other.entityName;
+        setControllerIds( other.controllerIds );
+        aspects.clear();
+        aspects.set( other.aspects );
+        return true;
+    }
+
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( ENTITY_NAME, entityName );
         attributes.put( CONTROLLER_IDS, controllerIds );
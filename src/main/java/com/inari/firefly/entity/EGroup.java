@@ -8,7 +8,9 @@ import com.inari.firefly.component.attr.AttributeMap;
 
 public final class EGroup extends EntityComponent {
     
-    public static final EntityComponentTypeKey<EGroup> TYPE_KEY = EntityComponentTypeKey.create( EGroup.class );
+    public static final EntityComponentTypeKey<EGroup> TYPE_KEY = EntityComponentTypeKey.create( EGroup.class, new EntityComponentFactory<EGroup>() {
+        public final EGroup create() { return new EGroup(); }
+    } );
     
     public static final AttributeKey<Integer> PARENT_ID = AttributeKey.createInt( "parentId", EGroup.class );
     public static final AttributeKey<Integer> POSITION_Z = AttributeKey.createInt( "positionZ", EGroup.class );
@@ -19,6 +21,7 @@ public final class EGroup extends EntityComponent {
     
     private int parentId;
     private int positionZ;
+    private ParentListener parentListener;
 
     public EGroup() {
         super( TYPE_KEY );
@@ -28,6 +31,7 @@ public final class EGroup extends EntityComponent {
     public final void resetAttributes() {
         parentId = -1;
         positionZ = 0;
+        parentChanged();
     }
 
     public final Set<AttributeKey<?>> attributeKeys() {
@@ -40,6 +44,14 @@ public final class EGroup extends EntityComponent {
 
     public final void setParentId( int parentId ) {
         this.parentId = parentId;
+        parentChanged();
+    }
+
+    /** Sets the listener that is notified whenever the parent of this group changes or null to remove it.
+     *  This is used by a system that keeps data derived from the group hierarchy.
+     */
+    public final void setParentListener( ParentListener parentListener ) {
+        this.parentListener = parentListener;
     }
 
     public final int getPositionZ() {
@@ -53,6 +65,15 @@ public final class EGroup extends EntityComponent {
     public final void fromAttributes( AttributeMap attributes ) {
         parentId = attributes.getValue( PARENT_ID, parentId );
         positionZ = attributes.getValue( POSITION_Z, positionZ );
+        parentChanged();
+    }
+
+    public final boolean copyFrom( EntityComponent component ) {
+        final EGroup other = (EGroup) component;
+        parentId = other.parentId;
+        positionZ = other.positionZ;
+        parentChanged();
+        return true;
     }
 
     public final void toAttributes( AttributeMap attributes ) {
@@ -60,4 +81,14 @@ public final class EGroup extends EntityComponent {
         attributes.put( POSITION_Z, positionZ );
     }
 
+    private void parentChanged() {
+        if ( parentListener != null ) {
+            parentListener.parentChanged();
+        }
+    }
+
+    public interface ParentListener {
+        void parentChanged();
+    }
+
 }
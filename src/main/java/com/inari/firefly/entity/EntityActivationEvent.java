@@ -19,6 +19,7 @@ import java.util.ArrayDeque;
 
 import com.inari.commons.event.AspectedEvent;
 import com.inari.commons.lang.aspect.Aspects;
+import com.inari.commons.lang.list.IntBagRO;
 
 public final class EntityActivationEvent extends AspectedEvent<EntityActivationListener> {
     
@@ -32,6 +33,8 @@ public final class EntityActivationEvent extends AspectedEvent<EntityActivationL
     }
     
     int entityId;
+    /** The ids of all entities of a batched event. This is null for a single entity event */
+    IntBagRO entityIds;
     final Aspects entityComponentAspects = EntityComponent.ASPECT_GROUP.createAspects();
     Type eventType;
     
@@ -46,6 +49,11 @@ public final class EntityActivationEvent extends AspectedEvent<EntityActivationL
 
     @Override
     protected final void notify( final EntityActivationListener listener ) {
+        if ( entityIds != null ) {
+            notifyBatch( listener );
+            return;
+        }
+        
         switch( eventType ) {
             case ENTITY_ACTIVATED: {
                 listener.entityActivated( entityId, entityComponentAspects );
@@ -56,10 +64,38 @@ public final class EntityActivationEvent extends AspectedEvent<EntityActivationL
             }
         }
     }
+    
+    private void notifyBatch( final EntityActivationListener listener ) {
+        if ( listener instanceof BatchedEntityActivationListener ) {
+            final BatchedEntityActivationListener batchedListener = (BatchedEntityActivationListener) listener;
+            if ( eventType == Type.ENTITY_ACTIVATED ) {
+                batchedListener.entitiesActivated( entityIds, entityComponentAspects );
+            } else {
+                batchedListener.entitiesDeactivated( entityIds, entityComponentAspects );
+            }
+            return;
+        }
+        
+        // per id fallback for listeners that are not aware of batched activation
+        final int nullValue = entityIds.getNullValue();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            final int id = entityIds.get( i );
+            if ( id == nullValue ) {
+                continue;
+            }
+            
+            if ( eventType == Type.ENTITY_ACTIVATED ) {
+                listener.entityActivated( id, entityComponentAspects );
+            } else {
+                listener.entityDeactivated( id, entityComponentAspects );
+            }
+        }
+    }
 
     @Override
     protected final void restore() {
         entityId = -1;
+        entityIds = null;
         eventType = null;
         entityComponentAspects.clear();
         
@@ -73,6 +109,10 @@ public final class EntityActivationEvent extends AspectedEvent<EntityActivationL
         builder.append( eventType );
         builder.append( ", entityId=" );
         builder.append( entityId );
+        if ( entityIds != null ) {
+            builder.append( ", entityIds=" );
+            builder.append( entityIds );
+        }
         builder.append( "]" );
         return builder.toString();
     }
@@ -80,8 +120,9 @@ public final class EntityActivationEvent extends AspectedEvent<EntityActivationL
     public static final EntityActivationEvent create( int entityId, Type eventType, Aspects entityComponentAspects ) {
         final EntityActivationEvent result;
         if ( POOL.isEmpty() ) {
+            // not added to the pool here, restore() adds it after dispatch. Otherwise a nested create while a
+            // batched event is dispatched would hand out the same instance
             result = new EntityActivationEvent();
-            POOL.addLast( result );
         } else {
             result = POOL.removeLast();
         }
@@ -92,5 +133,14 @@ public final class EntityActivationEvent extends AspectedEvent<EntityActivationL
         
         return result;
     }
+    
+    /** Creates a batched event that carries all ids of entities with the same component aspects.
+     *  The given id list is referenced, not copied, and must not be modified until the event has been dispatched.
+     */
+    public static final EntityActivationEvent create( IntBagRO entityIds, Type eventType, Aspects entityComponentAspects ) {
+        final EntityActivationEvent result = create( -1, eventType, entityComponentAspects );
+        result.entityIds = entityIds;
+        return result;
+    }
 
 }
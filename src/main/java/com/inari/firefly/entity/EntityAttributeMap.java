@@ -19,12 +19,11 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 import com.inari.firefly.component.Component;
-import com.inari.firefly.component.attr.AttributeKey;
-import com.inari.firefly.component.attr.ComponentAttributeMap;
+import com.inari.firefly.component.attr.IndexedAttributeMap;
 import com.inari.firefly.system.FFContext;
 import com.inari.firefly.system.component.IComponentId;
 
-public class EntityAttributeMap extends ComponentAttributeMap {
+public class EntityAttributeMap extends IndexedAttributeMap {
     
     public EntityAttributeMap( FFContext context ) {
         super( context );
@@ -42,8 +41,8 @@ public class EntityAttributeMap extends ComponentAttributeMap {
     @SuppressWarnings( "unchecked" )
     public Set<Class<? extends EntityComponent>> getEntityComponentTypes() {
         Set<Class<? extends EntityComponent>> componentTypes = new LinkedHashSet<Class<? extends EntityComponent>>();
-        for ( AttributeKey<?> attrKey : attributes.keySet() ) {
-            Class<? extends Component> componentType = attrKey.componentType();
+        for ( int i = 0; i < size(); i++ ) {
+            Class<? extends Component> componentType = keyAt( i ).componentType();
             if ( !EntityComponent.class.isAssignableFrom( componentType ) ) {
                 continue;
             }
@@ -0,0 +1,127 @@
+package com.inari.firefly.entity;
+
+import java.util.Arrays;
+
+/** Records structural entity changes (create, activate, deactivate, delete and add-components) to be played back later
+ *  by the {@link EntitySystem} at a well defined sync point within the frame. 
+ *  <p>
+ *  Recording is thread-safe and can be done from within system loops or from other threads without mutating any 
+ *  renderer lists, contact pools or other listener state while they may be iterated. On playback all deactivation 
+ *  and activation events are batched into one {@link EntityActivationEvent} per affected component aspect set.
+ *  <p>
+ *  The EntitySystem owns a default EntityCommandBuffer that is played back at the end of every update. 
+ *  Commands that are recorded while a playback is running, are played back on the next sync point.
+ */
+public final class EntityCommandBuffer {
+    
+    static final int CREATE = 0;
+    static final int CREATE_AND_ACTIVATE = 1;
+    static final int ACTIVATE = 2;
+    static final int DEACTIVATE = 3;
+    static final int DELETE = 4;
+    static final int ADD_COMPONENTS = 5;
+    
+    private Commands recording = new Commands();
+    private Commands playback = new Commands();
+    
+    EntityCommandBuffer() {}
+    
+    /** Records the creation of a new Entity from the given attributes.
+     * @param attributes the EntityAttributeMap with the component attributes of the new Entity
+     * @param activate indicates whether the new Entity should also be activated on playback or not
+     * @return this EntityCommandBuffer for chaining
+     */
+    public final EntityCommandBuffer create( EntityAttributeMap attributes, boolean activate ) {
+        if ( attributes == null ) {
+            throw new IllegalArgumentException( "Missing EntityAttributeMap for Entity creation" );
+        }
+        record( ( activate )? CREATE_AND_ACTIVATE : CREATE, -1, attributes );
+        return this;
+    }
+    
+    public final EntityCommandBuffer activate( int entityId ) {
+        record( ACTIVATE, entityId, null );
+        return this;
+    }
+    
+    public final EntityCommandBuffer deactivate( int entityId ) {
+        record( DEACTIVATE, entityId, null );
+        return this;
+    }
+    
+    public final EntityCommandBuffer delete( int entityId ) {
+        record( DELETE, entityId, null );
+        return this;
+    }
+    
+    /** Records the creation of new components for the specified Entity. The component types and values are taken
+     *  from the given attributes. If the Entity is active on playback, it gets deactivated before and activated again
+     *  after the components are added, so that all listeners get notified with the new component aspects.
+     * @param entityId the id of the Entity to add the components to
+     * @param attributes EntityAttributeMap with the attributes of the components to add
+     * @return this EntityCommandBuffer for chaining
+     */
+    public final EntityCommandBuffer addComponents( int entityId, EntityAttributeMap attributes ) {
+        if ( attributes == null ) {
+            throw new IllegalArgumentException( "Missing EntityAttributeMap for component creation" );
+        }
+        record( ADD_COMPONENTS, entityId, attributes );
+        return this;
+    }
+    
+    public final synchronized boolean isEmpty() {
+        return recording.size == 0;
+    }
+    
+    public final synchronized int size() {
+        return recording.size;
+    }
+    
+    public final synchronized void clear() {
+        recording.clear();
+    }
+    
+    private synchronized void record( int type, int entityId, EntityAttributeMap attributes ) {
+        if ( type != CREATE && type != CREATE_AND_ACTIVATE && entityId < 0 ) {
+            return;
+        }
+        recording.add( type, entityId, attributes );
+    }
+    
+    /** Swaps the recording and playback buffer and gives the recorded commands for playback.
+     *  New commands are recorded into the other buffer in the meantime */
+    final synchronized Commands swap() {
+        final Commands result = recording;
+        recording = playback;
+        playback = result;
+        return result;
+    }
+    
+    static final class Commands {
+        
+        int size = 0;
+        int[] types = new int[ 100 ];
+        int[] entityIds = new int[ 100 ];
+        EntityAttributeMap[] attributes = new EntityAttributeMap[ 100 ];
+        
+        final void add( int type, int entityId, EntityAttributeMap attributeMap ) {
+            if ( size == types.length ) {
+                final int newLength = types.length * 2;
+                types = Arrays.copyOf( types, newLength );
+                entityIds = Arrays.copyOf( entityIds, newLength );
+                attributes = Arrays.copyOf( attributes, newLength );
+            }
+            
+            types[ size ] = type;
+            entityIds[ size ] = entityId;
+            attributes[ size ] = attributeMap;
+            size++;
+        }
+        
+        final void clear() {
+            Arrays.fill( attributes, 0, size, null );
+            size = 0;
+        }
+    }
+
+}
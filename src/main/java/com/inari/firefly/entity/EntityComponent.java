@@ -43,12 +43,33 @@ public abstract class EntityComponent implements Component, IndexedType {
     }
 
     public abstract void resetAttributes();
+    
+    /** Copies the state of the given component of the same type into this component by a direct field copy.
+     *  This is used to clone prefab components without a round-trip over an attribute map and to reset recycled
+     *  components to the prefab defaults. So runtime state that is not defined by attributes must be reset
+     *  like within resetAttributes.
+     *  The default implementation copies nothing and returns false, the component is then cloned
+     *  by toAttributes and fromAttributes instead.
+     * 
+     * @param component the component of the same type to copy from
+     * @return true if the state of the given component has been copied
+     */
+    public boolean copyFrom( EntityComponent component ) {
+        return false;
+    }
 
     public static final class EntityComponentTypeKey<C extends EntityComponent> extends IndexedTypeKey {
+        
+        private EntityComponentFactory<C> factory;
 
         EntityComponentTypeKey( Class<C> indexedType ) {
             super( indexedType );
         }
+        
+        /** Gives the factory of the component type or null if the type has no factory and is created by reflection */
+        public final EntityComponentFactory<C> factory() {
+            return factory;
+        }
 
         @Override
         public final Class<EntityComponent> baseType() {
@@ -69,6 +90,13 @@ public abstract class EntityComponent implements Component, IndexedType {
         public static final <C extends EntityComponent> EntityComponentTypeKey<C> create( Class<C> type ) {
             return Indexer.createIndexedTypeKey( EntityComponentTypeKey.class, type );
         }
+        
+        /** Creates the key of the given component type with a factory that creates instances of the type without reflection */
+        public static final <C extends EntityComponent> EntityComponentTypeKey<C> create( Class<C> type, EntityComponentFactory<C> factory ) {
+            final EntityComponentTypeKey<C> key = create( type );
+            key.factory = factory;
+            return key;
+        }
     }
     
 }
@@ -0,0 +1,11 @@
+package com.inari.firefly.entity;
+
+/** A factory that creates new instances of one EntityComponent type without reflection.
+ *  A factory is defined with the EntityComponentTypeKey of the component type and used by the EntityProvider
+ *  if there is no pooled instance of the type left.
+ */
+public interface EntityComponentFactory<C extends EntityComponent> {
+
+    C create();
+
+}
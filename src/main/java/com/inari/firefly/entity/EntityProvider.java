@@ -2,6 +2,8 @@ package com.inari.firefly.entity;
 
 import java.lang.reflect.Constructor;
 import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.Set;
 
 import com.inari.commons.lang.indexed.IndexedTypeKey;
@@ -26,6 +28,10 @@ public final class EntityProvider implements FFSystem  {
     final DynArray<ArrayDeque<EntityComponent>> disposedComponents;
 
     private int componentSetCapacity = 20;
+    
+    // factories and type keys are resolved once per component type
+    private EntityComponentFactory<?>[] factories = new EntityComponentFactory<?>[ 20 ];
+    private final IdentityHashMap<Class<?>, EntityComponentTypeKey<?>> typeKeys = new IdentityHashMap<Class<?>, EntityComponentTypeKey<?>>();
 
     EntityProvider() {
         disposedComponentSets = new ArrayDeque<IndexedTypeSet>();
@@ -77,21 +83,36 @@ public final class EntityProvider implements FFSystem  {
     public final void dispose( FFContext context ) {
         disposedComponentSets.clear();
         disposedComponents.clear();
+        Arrays.fill( factories, null );
+        typeKeys.clear();
         
         context = null;
     }
     
     public <T extends EntityComponent> T getComponent( Class<T> componentType ) {
-        int componentTypeId = Indexer.createIndexedTypeKey( EntityComponentTypeKey.class, componentType ).index();
-        ArrayDeque<EntityComponent> componentsOfType = disposedComponents.get( componentTypeId );
-        T component;
-        if ( componentsOfType.isEmpty() ) {
-            component = newComponent( componentType );
-        } else {
-            component = componentType.cast( componentsOfType.pop() );
+        return componentType.cast( getComponent( getTypeKey( componentType ).index() ) );
+    }
+    
+    @SuppressWarnings( "unchecked" )
+    public <T extends EntityComponent> T getComponent( EntityComponentTypeKey<T> typeKey ) {
+        return (T) getComponent( typeKey.index() );
+    }
+    
+    /** Gives a pooled component of the type with the given type index or a new one created by the factory of the type */
+    public EntityComponent getComponent( int componentTypeId ) {
+        final ArrayDeque<EntityComponent> componentsOfType = ( disposedComponents.contains( componentTypeId ) )? 
+            disposedComponents.get( componentTypeId ) : null;
+        if ( componentsOfType == null || componentsOfType.isEmpty() ) {
+            return newComponent( componentTypeId );
         }
 
-        return component;
+        return componentsOfType.pop();
+    }
+    
+    /** Sets the factory for the component type of the given key. This overrides the factory defined by the key itself */
+    public <T extends EntityComponent> void setFactory( EntityComponentTypeKey<T> typeKey, EntityComponentFactory<T> factory ) {
+        ensureFactoryCapacity( typeKey.index() );
+        factories[ typeKey.index() ] = factory;
     }
     
     public final void createComponentSetsForLaterUse( int number ) {
@@ -106,15 +127,16 @@ public final class EntityProvider implements FFSystem  {
     }
     
     public final void createComponentsForLaterUse( int number, Class<? extends EntityComponent> componentType ) {
-        int componentTypeId = Indexer.createIndexedTypeKey( EntityComponentTypeKey.class, componentType ).index();
-        ArrayDeque<EntityComponent> componentsOfType = disposedComponents.get( componentTypeId );
+        int componentTypeId = getTypeKey( componentType ).index();
+        ArrayDeque<EntityComponent> componentsOfType = ( disposedComponents.contains( componentTypeId ) )? 
+            disposedComponents.get( componentTypeId ) : null;
         if ( componentsOfType == null ) {
             componentsOfType = new ArrayDeque<EntityComponent>();
             disposedComponents.set( componentTypeId, componentsOfType );
         }
         
         for ( int i = 0; i < number; i++ ) {
-            componentsOfType.add( newComponent( componentType ) );
+            componentsOfType.add( newComponent( componentTypeId ) );
         }
     }
 
@@ -160,6 +182,27 @@ public final class EntityProvider implements FFSystem  {
         }
     }
 
+    /** Creates a copy of all components of the source set into the target set. The copies are taken from the
+     *  component pool and filled by EntityComponent.copyFrom. Component types that do not support a direct copy
+     *  are filled by a round-trip over the given attribute map that is cleared afterwards.
+     */
+    public void copyComponents( IndexedTypeSet source, IndexedTypeSet target, EntityAttributeMap attributes ) {
+        for ( int i = 0; i < source.length(); i++ ) {
+            final EntityComponent component = source.get( i );
+            if ( component == null ) {
+                continue;
+            }
+
+            final EntityComponent copy = getComponent( i );
+            if ( !copy.copyFrom( component ) ) {
+                component.toAttributes( attributes );
+                copy.fromAttributes( attributes );
+                attributes.clear();
+            }
+            target.set( copy );
+        }
+    }
+
     public void initAttributesOnController( EntityAttributeMap attributes ) {
         if ( !attributes.contains( EEntity.CONTROLLER_IDS ) ) {
             return;
@@ -177,18 +220,81 @@ public final class EntityProvider implements FFSystem  {
         }
     }
 
-    private <C extends EntityComponent> C newComponent( Class<C> componentType ) {
+    private EntityComponentTypeKey<?> getTypeKey( Class<? extends EntityComponent> componentType ) {
+        EntityComponentTypeKey<?> typeKey = typeKeys.get( componentType );
+        if ( typeKey == null ) {
+            typeKey = Indexer.createIndexedTypeKey( EntityComponentTypeKey.class, componentType );
+            typeKeys.put( componentType, typeKey );
+        }
+        return typeKey;
+    }
+
+    private EntityComponent newComponent( int componentTypeId ) {
+        final EntityComponentFactory<?> factory = ( componentTypeId < factories.length )? factories[ componentTypeId ] : null;
+        if ( factory != null ) {
+            return factory.create();
+        }
+        
+        return resolveFactory( componentTypeId ).create();
+    }
+    
+    private EntityComponentFactory<?> resolveFactory( int componentTypeId ) {
+        final EntityComponentTypeKey<?> typeKey = Indexer.getIndexedTypeKeyForIndex( EntityComponentTypeKey.class, componentTypeId );
+        if ( typeKey == null ) {
+            throw new ComponentCreationException( "No EntityComponent type for index: " + componentTypeId );
+        }
+        
+        @SuppressWarnings( "unchecked" )
+        final Class<? extends EntityComponent> componentType = (Class<? extends EntityComponent>) typeKey.indexedType;
+        EntityComponentFactory<?> factory = typeKey.factory();
+        if ( factory == null ) {
+            // the factory is set by the static initialization of the component type that may not be done yet
+            initialize( componentType );
+            factory = typeKey.factory();
+        }
+        if ( factory == null ) {
+            factory = new ConstructorFactory( componentType );
+        }
+        
+        ensureFactoryCapacity( componentTypeId );
+        factories[ componentTypeId ] = factory;
+        return factory;
+    }
+    
+    private void ensureFactoryCapacity( int componentTypeId ) {
+        if ( componentTypeId >= factories.length ) {
+            factories = Arrays.copyOf( factories, componentTypeId + 10 );
+        }
+    }
+    
+    private static void initialize( Class<?> componentType ) {
         try {
-            return componentType.newInstance();
-        } catch ( Exception e ) {
+            Class.forName( componentType.getName(), true, componentType.getClassLoader() );
+        } catch ( ClassNotFoundException e ) {
+            throw new ComponentCreationException( "Unknwon error while Component creation: " + componentType, e );
+        }
+    }
+    
+    /** Fallback for component types without a factory. The constructor is resolved once */
+    private static final class ConstructorFactory implements EntityComponentFactory<EntityComponent> {
+        
+        private final Class<? extends EntityComponent> componentType;
+        private final Constructor<? extends EntityComponent> constructor;
+        
+        ConstructorFactory( Class<? extends EntityComponent> componentType ) {
+            this.componentType = componentType;
+            try {
+                constructor = componentType.getDeclaredConstructor();
+                constructor.setAccessible( true );
+            } catch ( Exception e ) {
+                throw new ComponentCreationException( "Unknwon error while Component creation: " + componentType, e );
+            }
+        }
+
+        public final EntityComponent create() {
             try {
-                Constructor<C> declaredConstructor = componentType.getDeclaredConstructor();
-                boolean accessible = declaredConstructor.isAccessible();
-                declaredConstructor.setAccessible( true );
-                C instance = declaredConstructor.newInstance();
-                declaredConstructor.setAccessible( accessible );
-                return instance;
-            } catch ( Exception ee ) {
+                return constructor.newInstance();
+            } catch ( Exception e ) {
                 throw new ComponentCreationException( "Unknwon error while Component creation: " + componentType, e );
             }
         }
@@ -0,0 +1,17 @@
+package com.inari.firefly.entity;
+
+import com.inari.commons.lang.indexed.IndexedTypeSet;
+
+/** A recycler takes back the component set of a deleted entity that was build from a prefab.
+ *  See EntitySystem.setRecycler and EntityBuilder.setPrefab
+ */
+public interface EntityRecycler {
+
+    /** Is called by the EntitySystem when an entity that was build from the prefab with the given id is deleted.
+     * @param prefabId the id of the prefab the entity was build from
+     * @param components the component set of the deleted entity
+     * @return true if the recycler has taken the component set, false if the EntitySystem shall dispose it
+     */
+    boolean recycle( int prefabId, IndexedTypeSet components );
+
+}
@@ -15,6 +15,10 @@
  ******************************************************************************/ 
 package com.inari.firefly.entity;
 
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -41,6 +45,8 @@ import com.inari.firefly.system.component.SystemBuilderAdapter;
 import com.inari.firefly.system.component.SystemComponent;
 import com.inari.firefly.system.component.SystemComponent.SystemComponentKey;
 import com.inari.firefly.system.component.SystemComponentBuilder;
+import com.inari.firefly.system.snapshot.SnapshotReader;
+import com.inari.firefly.system.snapshot.SnapshotWriter;
 
 public final class EntitySystem extends ComponentSystem<EntitySystem> {
     
@@ -56,12 +62,32 @@ public final class EntitySystem extends ComponentSystem<EntitySystem> {
     final BitSet activeEntities;
     final BitSet inactiveEntities;
     final DynArray<IndexedTypeSet> components;
+    private int[] prefabIds;
+    private EntityRecycler recycler;
+    
+    private final EntityCommandBuffer commandBuffer;
+    private final BitSet toActivate;
+    private final BitSet toDeactivate;
+    private final BitSet toReactivate;
+    private final BitSet toDelete;
+    private final IntBag playbackIds;
+    private final ArrayDeque<AspectGroupedIds> groupedIdsPool;
     
     EntitySystem() {
         super( SYSTEM_KEY );
         activeEntities = new BitSet( INIT_SIZE );
         inactiveEntities = new BitSet( INIT_SIZE );
         components = DynArray.create( IndexedTypeSet.class, INIT_SIZE, 100 );
+        prefabIds = new int[ INIT_SIZE ];
+        Arrays.fill( prefabIds, -1 );
+        
+        commandBuffer = new EntityCommandBuffer();
+        toActivate = new BitSet( INIT_SIZE );
+        toDeactivate = new BitSet( INIT_SIZE );
+        toReactivate = new BitSet( INIT_SIZE );
+        toDelete = new BitSet( INIT_SIZE );
+        playbackIds = new IntBag( 100, -1 );
+        groupedIdsPool = new ArrayDeque<AspectGroupedIds>();
     }
     
     @Override
@@ -82,12 +108,150 @@ public final class EntitySystem extends ComponentSystem<EntitySystem> {
     
     @Override
     public void dispose( FFContext context ) {
+        commandBuffer.clear();
         clearSystem();
     }
     
     public final EntityBuilder getEntityBuilder() {
         return new EntityBuilder();
     }
+    
+    /** Sets the EntityRecycler that takes back the component sets of deleted entities that were build from a prefab */
+    public final void setRecycler( EntityRecycler recycler ) {
+        this.recycler = recycler;
+    }
+    
+    /** Gives the id of the prefab the entity with the given id was build from or -1 if it was not build from a prefab */
+    public final int getPrefabId( int entityId ) {
+        if ( entityId < 0 || entityId >= prefabIds.length ) {
+            return -1;
+        }
+        return prefabIds[ entityId ];
+    }
+    
+    /** Sets the id of the prefab the entity with the given id is build from. This is used when the components of
+     *  an entity are rebuild from another prefab. -1 detaches the entity from any prefab
+     */
+    public final void setPrefabId( int entityId, int prefabId ) {
+        if ( entityId >= prefabIds.length ) {
+            final int oldLength = prefabIds.length;
+            prefabIds = Arrays.copyOf( prefabIds, Math.max( entityId + 1, oldLength + oldLength / 2 ) );
+            Arrays.fill( prefabIds, oldLength, prefabIds.length, -1 );
+        }
+        prefabIds[ entityId ] = prefabId;
+    }
+    
+    /** Use this to record entity changes that shall be applied deferred on the next sync point.
+     *  The FireFlyApp plays the recorded commands back after each update.
+     * @return the EntityCommandBuffer of this EntitySystem
+     */
+    public final EntityCommandBuffer getCommandBuffer() {
+        return commandBuffer;
+    }
+    
+    /** Plays back all commands that has been recorded on the EntityCommandBuffer since the last playback.
+     *  All deactivations are processed first, followed by deletion, creation and component creation in 
+     *  recorded order and at last all activations. Activation and deactivation events are batched per
+     *  component aspect set.
+     */
+    public final void playbackCommands() {
+        final EntityCommandBuffer.Commands commands = commandBuffer.swap();
+        if ( commands.size == 0 ) {
+            return;
+        }
+        
+        try {
+            // calculate the resulting activation state for all referenced entities
+            for ( int i = 0; i < commands.size; i++ ) {
+                final int entityId = commands.entityIds[ i ];
+                switch ( commands.types[ i ] ) {
+                    case EntityCommandBuffer.ACTIVATE: {
+                        toActivate.set( entityId );
+                        toDeactivate.clear( entityId );
+                        break;
+                    }
+                    case EntityCommandBuffer.DEACTIVATE: {
+                        toDeactivate.set( entityId );
+                        toActivate.clear( entityId );
+                        break;
+                    }
+                    case EntityCommandBuffer.DELETE: {
+                        toDelete.set( entityId );
+                        toActivate.clear( entityId );
+                        break;
+                    }
+                    case EntityCommandBuffer.ADD_COMPONENTS: {
+                        if ( activeEntities.get( entityId ) ) {
+                            toReactivate.set( entityId );
+                        }
+                        break;
+                    }
+                    default: 
+                }
+            }
+            
+            // explicit deactivation or deletion wins over reactivation
+            toReactivate.andNot( toDeactivate );
+            toReactivate.andNot( toDelete );
+            
+            // batched deactivation
+            toDeactivate.or( toDelete );
+            toDeactivate.or( toReactivate );
+            toDeactivate.and( activeEntities );
+            deactivateEntities( toIds( toDeactivate ) );
+            
+            // deletion
+            for ( int i = toDelete.nextSetBit( 0 ); i >= 0; i = toDelete.nextSetBit( i + 1 ) ) {
+                if ( inactiveEntities.get( i ) ) {
+                    deleteSilently( i );
+                }
+            }
+            
+            // the activations of existing entities are resolved before creation because a created entity 
+            // may get the index of an entity that has just been deleted
+            toReactivate.or( toActivate );
+            toReactivate.andNot( toDelete );
+            toReactivate.and( inactiveEntities );
+            
+            // creation and component creation in recorded order
+            for ( int i = 0; i < commands.size; i++ ) {
+                final int type = commands.types[ i ];
+                if ( type == EntityCommandBuffer.CREATE || type == EntityCommandBuffer.CREATE_AND_ACTIVATE ) {
+                    final EntityBuilder builder = getEntityBuilder();
+                    builder.getAttributes().putAll( commands.attributes[ i ] );
+                    final int entityId = builder.build();
+                    if ( type == EntityCommandBuffer.CREATE_AND_ACTIVATE ) {
+                        toReactivate.set( entityId );
+                    }
+                } else if ( type == EntityCommandBuffer.ADD_COMPONENTS ) {
+                    // recorded ids always refer to entities that existed on recording, so an id within toDelete 
+                    // belongs to the deleted entity even if a created entity got the same index meanwhile
+                    final int entityId = commands.entityIds[ i ];
+                    if ( !toDelete.get( entityId ) && components.contains( entityId ) ) {
+                        entityProvider.createComponents( components.get( entityId ), commands.attributes[ i ] );
+                    }
+                }
+            }
+            
+            // batched activation
+            activateEntities( toIds( toReactivate ) );
+        } finally {
+            toActivate.clear();
+            toDeactivate.clear();
+            toReactivate.clear();
+            toDelete.clear();
+            playbackIds.clear();
+            commands.clear();
+        }
+    }
+    
+    private IntBag toIds( BitSet entities ) {
+        playbackIds.clear();
+        for ( int i = entities.nextSetBit( 0 ); i >= 0; i = entities.nextSetBit( i + 1 ) ) {
+            playbackIds.add( i );
+        }
+        return playbackIds;
+    }
 
     public final boolean isActive( int entityId ) {
         if ( entityId < 0 ) {
@@ -144,7 +308,77 @@ public final class EntitySystem extends ComponentSystem<EntitySystem> {
         context.notify( EntityActivationEvent.create( entityId, Type.ENTITY_DEACTIVATED, getEntityComponentAspects( entityId ) ) );
     }
     
+    /** Activates all entities of the given id list that are not already active. The EntityActivationEvent for
+     *  the activated entities is batched and dispatched once per component aspect set with a list of entity ids.
+     * @param entityIds the ids of the entities to activate
+     */
+    public final void activateEntities( IntBagRO entityIds ) {
+        final AspectGroupedIds groupedIds = getGroupedIds();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            if ( entityIds.isEmpty( i ) ) {
+                continue;
+            }
+            
+            final int entityId = entityIds.get( i );
+            if ( entityId < 0 || activeEntities.get( entityId ) || !inactiveEntities.get( entityId ) ) {
+                continue;
+            }
+            
+            inactiveEntities.clear( entityId );
+            activeEntities.set( entityId );
+            final Aspects aspect = getEntityComponentAspects( entityId );
+            if ( aspect.contains( EEntity.TYPE_KEY ) ) {
+                notifyEntityController( entityId, true );
+            }
+            groupedIds.add( entityId, aspect );
+        }
+        
+        notifyGrouped( groupedIds, Type.ENTITY_ACTIVATED );
+    }
+    
+    /** Deactivates all active entities of the given id list. The EntityActivationEvent for the deactivated entities
+     *  is batched and dispatched once per component aspect set with a list of entity ids.
+     * @param entityIds the ids of the entities to deactivate
+     */
+    public final void deactivateEntities( IntBagRO entityIds ) {
+        final AspectGroupedIds groupedIds = getGroupedIds();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            if ( entityIds.isEmpty( i ) ) {
+                continue;
+            }
+            
+            final int entityId = entityIds.get( i );
+            if ( entityId < 0 || !activeEntities.get( entityId ) ) {
+                continue;
+            }
+            
+            activeEntities.clear( entityId );
+            inactiveEntities.set( entityId );
+            final Aspects aspect = getEntityComponentAspects( entityId );
+            if ( aspect.contains( EEntity.TYPE_KEY ) ) {
+                notifyEntityController( entityId, false );
+            }
+            groupedIds.add( entityId, aspect );
+        }
+        
+        notifyGrouped( groupedIds, Type.ENTITY_DEACTIVATED );
+    }
+    
+    private AspectGroupedIds getGroupedIds() {
+        final AspectGroupedIds groupedIds = groupedIdsPool.poll();
+        return ( groupedIds != null )? groupedIds : new AspectGroupedIds();
+    }
     
+    private void notifyGrouped( AspectGroupedIds groupedIds, Type type ) {
+        try {
+            for ( int i = 0; i < groupedIds.size; i++ ) {
+                context.notify( EntityActivationEvent.create( groupedIds.ids.get( i ), type, groupedIds.aspects.get( i ) ) );
+            }
+        } finally {
+            groupedIds.clear();
+            groupedIdsPool.add( groupedIds );
+        }
+    }
     
     public final void deleteEntity( int entityId ) {
         delete( entityId );
@@ -170,7 +404,13 @@ public final class EntitySystem extends ComponentSystem<EntitySystem> {
         activeEntities.clear( entityId );
         inactiveEntities.clear( entityId );
         IndexedTypeSet componentsToRestore = components.remove( entityId );
-        entityProvider.disposeComponentSet( componentsToRestore );
+        final int prefabId = getPrefabId( entityId );
+        if ( prefabId >= 0 ) {
+            prefabIds[ entityId ] = -1;
+        }
+        if ( prefabId < 0 || recycler == null || !recycler.recycle( prefabId, componentsToRestore ) ) {
+            entityProvider.disposeComponentSet( componentsToRestore );
+        }
         Indexer.disposeObjectIndex( Entity.class, entityId );
     }
     
@@ -310,6 +550,40 @@ public final class EntitySystem extends ComponentSystem<EntitySystem> {
     
     // ---- Utilities --------------------------------------------------------
     
+    private static final class AspectGroupedIds {
+        
+        private final DynArray<Aspects> aspects = DynArray.create( Aspects.class, 10, 10 );
+        private final DynArray<IntBag> ids = DynArray.create( IntBag.class, 10, 10 );
+        private int size = 0;
+        
+        final void add( int entityId, Aspects aspect ) {
+            for ( int i = 0; i < size; i++ ) {
+                final Aspects groupAspect = aspects.get( i );
+                if ( groupAspect.include( aspect ) && aspect.include( groupAspect ) ) {
+                    ids.get( i ).add( entityId );
+                    return;
+                }
+            }
+            
+            aspects.set( size, aspect );
+            IntBag groupIds = ids.get( size );
+            if ( groupIds == null ) {
+                groupIds = new IntBag( 100, -1 );
+                ids.set( size, groupIds );
+            }
+            groupIds.add( entityId );
+            size++;
+        }
+        
+        final void clear() {
+            for ( int i = 0; i < size; i++ ) {
+                aspects.remove( i );
+                ids.get( i ).clear();
+            }
+            size = 0;
+        }
+    }
+    
     private interface EntityIteratorCondition {
         
         int findNext( int currentIndex );
@@ -379,6 +653,7 @@ public final class EntitySystem extends ComponentSystem<EntitySystem> {
     public final class EntityBuilder extends SystemComponentBuilder {
         
         private IndexedTypeSet prefabComponents;
+        private int prefabId = -1;
 
         private EntityBuilder() {
             super( EntitySystem.this.context, new EntityAttributeMap( EntitySystem.this.context ) );
@@ -389,6 +664,15 @@ public final class EntitySystem extends ComponentSystem<EntitySystem> {
             return this;
         }
         
+        /** Sets the prebuild components of the prefab with the given id. The entity remembers the prefab and
+         *  the components are given to the EntityRecycler on deletion
+         */
+        public EntityBuilder setPrefab( int prefabId, IndexedTypeSet prefabComponents ) {
+            this.prefabId = prefabId;
+            this.prefabComponents = prefabComponents;
+            return this;
+        }
+        
         @Override
         public int doBuild( int componentId, Class<?> componentType, boolean activate ) {
             int entityId = componentId;
@@ -401,6 +685,13 @@ public final class EntitySystem extends ComponentSystem<EntitySystem> {
                 // if we have prefab components we use them
                 components.set( entityId, prefabComponents );
                 aspectToCheck = prefabComponents.getAspect();
+                setPrefabId( entityId, prefabId );
+                final EntityAttributeMap entityAttributes = (EntityAttributeMap) attributes;
+                if ( !entityAttributes.isEmpty() ) {
+                    for ( EntityComponent component : prefabComponents.<EntityComponent>getIterable() ) {
+                        component.fromAttributes( entityAttributes );
+                    }
+                }
             } else {
                 IndexedTypeSet componentSet = entityProvider.getComponentTypeSet();
                 components.set( entityId, componentSet );
@@ -515,6 +806,79 @@ public final class EntitySystem extends ComponentSystem<EntitySystem> {
             }
         }
         
+        @Override
+        public final void toSnapshot( SnapshotWriter writer ) throws IOException {
+            for ( int i = activeEntities.nextSetBit( 0 ); i >= 0; i = activeEntities.nextSetBit( i + 1 ) ) {
+                entityToSnapshot( writer, i, true );
+            }
+            for ( int i = inactiveEntities.nextSetBit( 0 ); i >= 0; i = inactiveEntities.nextSetBit( i + 1 ) ) {
+                entityToSnapshot( writer, i, false );
+            }
+        }
+        
+        @Override
+        public final void fromSnapshot( SnapshotReader reader, BuildType buildType ) throws IOException {
+            if ( buildType == BuildType.CLEAR_OLD ) {
+                // the snapshot contains also the inactive entities
+                deleteAllActive();
+                for ( int i = inactiveEntities.nextSetBit( 0 ); i >= 0; i = inactiveEntities.nextSetBit( i + 1 ) ) {
+                    delete( i );
+                }
+            }
+            
+            EntityBuilder entityBuilder = getEntityBuilder();
+            boolean pending = false;
+            boolean active = false;
+            int next;
+            while ( ( next = reader.next() ) != SnapshotReader.END ) {
+                if ( next == SnapshotReader.COMPONENT ) {
+                    if ( !EntityComponent.class.isAssignableFrom( reader.getComponentType() ) ) {
+                        throw new InvalidClassException( reader.getComponentType().getName(), "Not an EntityComponent" );
+                    }
+                    reader.readAttributes( entityBuilder.getAttributes() );
+                    continue;
+                }
+                
+                if ( pending ) {
+                    buildFromSnapshot( entityBuilder, active );
+                }
+                pending = true;
+                active = reader.isActive();
+                
+                int entityId = reader.getComponentId();
+                if ( buildType == BuildType.MERGE_ATTRIBUTES ) {
+                    IndexedTypeSet componentsOfEntity = getComponents( entityId );
+                    if ( componentsOfEntity != null ) {
+                        for ( EntityComponent comp : componentsOfEntity.<EntityComponent>getIterable() ) {
+                            comp.toAttributes( entityBuilder.getAttributes() );
+                        }
+                    }
+                } else if ( buildType == BuildType.OVERWRITE ) {
+                    deleteEntity( entityId );
+                }
+            }
+            
+            if ( pending ) {
+                buildFromSnapshot( entityBuilder, active );
+            }
+        }
+        
+        private void entityToSnapshot( SnapshotWriter writer, int entityId, boolean active ) throws IOException {
+            writer.writeEntity( entityId, active );
+            IndexedTypeSet components = getComponents( entityId );
+            for ( EntityComponent component : components.<EntityComponent>getIterable() ) {
+                writer.writeComponent( entityId, component );
+            }
+        }
+        
+        private void buildFromSnapshot( EntityBuilder entityBuilder, boolean active ) {
+            if ( active ) {
+                entityBuilder.activate();
+            } else {
+                entityBuilder.build();
+            }
+        }
+        
         public final int getId( String name ) {
             return getEntityId( name );
         }
@@ -1,17 +1,45 @@
 package com.inari.firefly.entity.prefab;
 
+import java.util.Set;
+
+import com.inari.commons.JavaUtils;
 import com.inari.commons.lang.indexed.IndexedTypeKey;
 import com.inari.firefly.component.attr.AttributeKey;
+import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.system.component.SystemComponent;
 
+/** An EntityPrefab defines a template of entity components from which entities can be build by the EntityPrefabSystem.
+ *  <p>
+ *  Each prefab has its own pool of prebuild component sets. Entities build from a prefab give back their component
+ *  set to the pool on deletion as long as the pool has not reached its maximum size. The pool is prewarmed up to
+ *  its minimum size and trimmed back to it, after no entity was build from the prefab for the idle trim time.
+ */
 public final class EntityPrefab extends SystemComponent {
-    
+
     public static final SystemComponentKey<EntityPrefab> TYPE_KEY = SystemComponentKey.create( EntityPrefab.class );
-    
+
     public static final AttributeKey<Integer> INITIAL_CREATE_NUMBER = AttributeKey.createInt( "createPrefab", EntityPrefab.class );
+    public static final AttributeKey<Integer> POOL_MIN_SIZE = AttributeKey.createInt( "poolMinSize", EntityPrefab.class );
+    public static final AttributeKey<Integer> POOL_MAX_SIZE = AttributeKey.createInt( "poolMaxSize", EntityPrefab.class );
+    public static final AttributeKey<Long> POOL_IDLE_TRIM_TIME = AttributeKey.createLong( "poolIdleTrimTime", EntityPrefab.class );
+    public static final Set<AttributeKey<?>> ATTRIBUTE_KEYS = JavaUtils.<AttributeKey<?>>unmodifiableSet(
+        POOL_MIN_SIZE,
+        POOL_MAX_SIZE,
+        POOL_IDLE_TRIM_TIME
+    );
+
+    private int poolMinSize;
+    private int poolMaxSize;
+    private long poolIdleTrimTime;
+
+    long lastUsed;
 
     protected EntityPrefab( int id ) {
         super( id );
+        poolMinSize = 0;
+        poolMaxSize = -1;
+        poolIdleTrimTime = -1;
+        lastUsed = 0;
     }
 
     @Override
@@ -19,4 +47,54 @@ public final class EntityPrefab extends SystemComponent {
         return TYPE_KEY;
     }
 
+    public final int getPoolMinSize() {
+        return poolMinSize;
+    }
+
+    public final void setPoolMinSize( int poolMinSize ) {
+        this.poolMinSize = poolMinSize;
+    }
+
+    /** Gives the maximum number of component sets kept within the pool of this prefab. -1 means no limit */
+    public final int getPoolMaxSize() {
+        return poolMaxSize;
+    }
+
+    public final void setPoolMaxSize( int poolMaxSize ) {
+        this.poolMaxSize = poolMaxSize;
+    }
+
+    /** Gives the time in milliseconds after which the pool is trimmed to its minimum size if no entity was build
+     *  from this prefab. -1 means the pool is never trimmed automatically */
+    public final long getPoolIdleTrimTime() {
+        return poolIdleTrimTime;
+    }
+
+    public final void setPoolIdleTrimTime( long poolIdleTrimTime ) {
+        this.poolIdleTrimTime = poolIdleTrimTime;
+    }
+
+    @Override
+    public final Set<AttributeKey<?>> attributeKeys() {
+        return JavaUtils.unmodifiableSet( super.attributeKeys(), ATTRIBUTE_KEYS );
+    }
+
+    @Override
+    public final void fromAttributes( AttributeMap attributes ) {
+        super.fromAttributes( attributes );
+
+        poolMinSize = attributes.getValue( POOL_MIN_SIZE, poolMinSize );
+        poolMaxSize = attributes.getValue( POOL_MAX_SIZE, poolMaxSize );
+        poolIdleTrimTime = attributes.getValue( POOL_IDLE_TRIM_TIME, poolIdleTrimTime );
+    }
+
+    @Override
+    public final void toAttributes( AttributeMap attributes ) {
+        super.toAttributes( attributes );
+
+        attributes.put( POOL_MIN_SIZE, poolMinSize );
+        attributes.put( POOL_MAX_SIZE, poolMaxSize );
+        attributes.put( POOL_IDLE_TRIM_TIME, poolIdleTrimTime );
+    }
+
 }
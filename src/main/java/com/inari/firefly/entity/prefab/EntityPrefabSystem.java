@@ -1,6 +1,7 @@
 package com.inari.firefly.entity.prefab;
 
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -11,14 +12,27 @@ import com.inari.firefly.FFInitException;
 import com.inari.firefly.entity.EntityAttributeMap;
 import com.inari.firefly.entity.EntityComponent;
 import com.inari.firefly.entity.EntityProvider;
+import com.inari.firefly.entity.EntityRecycler;
 import com.inari.firefly.entity.EntitySystem;
 import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.UpdateEvent;
+import com.inari.firefly.system.UpdateEventListener;
 import com.inari.firefly.system.component.ComponentSystem;
 import com.inari.firefly.system.component.SystemBuilderAdapter;
 import com.inari.firefly.system.component.SystemComponent.SystemComponentKey;
 import com.inari.firefly.system.component.SystemComponentBuilder;
+import com.inari.firefly.system.external.FFTimer;
 
-public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
+/** Builds entities from EntityPrefab templates. Each prefab has a pool of prebuild component sets from which new
+ *  entities are served. The component sets of deleted entities are recycled into the pool of their prefab
+ *  by a fast reset to the prefab defaults (EntityComponent.copyFrom) so that spawning from a warm pool does not
+ *  allocate at all.
+ *  <p>
+ *  Pools can be prewarmed in the background with prewarm. The prewarming is spread over the following updates
+ *  by building at most prewarmPerUpdate component sets per update and is meant to be used during loading screens.
+ *  Pools are bounded by the POOL_MAX_SIZE of the prefab and trimmed to POOL_MIN_SIZE when idle for POOL_IDLE_TRIM_TIME.
+ */
+public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> implements UpdateEventListener {
     
     public static final FFSystemTypeKey<EntityPrefabSystem> SYSTEM_KEY = FFSystemTypeKey.create( EntityPrefabSystem.class );
     private static final Set<SystemComponentKey<?>> SUPPORTED_COMPONENT_TYPES = JavaUtils.<SystemComponentKey<?>>unmodifiableSet( 
@@ -35,6 +49,14 @@ public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
     
     private EntityAttributeMap attributeMap;
     
+    private int[] prewarmCounts = new int[ 20 ];
+    private int prewarmPerUpdate = 10;
+    private final EntityRecycler recycler = new EntityRecycler() {
+        public final boolean recycle( int prefabId, IndexedTypeSet components ) {
+            return EntityPrefabSystem.this.recycle( prefabId, components );
+        }
+    };
+    
     EntityPrefabSystem() {
         super( SYSTEM_KEY );
     }
@@ -50,14 +72,18 @@ public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
         entitySystem = context.getSystem( EntitySystem.SYSTEM_KEY );
         entityProvider = context.getSystem( EntityProvider.SYSTEM_KEY );
         context.registerListener( EntityPrefabSystemEvent.TYPE_KEY, this );
+        context.registerListener( UpdateEvent.TYPE_KEY, this );
         attributeMap = new EntityAttributeMap( context );
+        entitySystem.setRecycler( recycler );
     }
     
     @Override
     public void dispose( FFContext context ) {
         clearSystem();
         
+        entitySystem.setRecycler( null );
         context.disposeListener( EntityPrefabSystemEvent.TYPE_KEY, this );
+        context.disposeListener( UpdateEvent.TYPE_KEY, this );
     }
     
     public final  void clearSystem() {
@@ -71,6 +97,7 @@ public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
         prefabs.clear();
         prefabComponents.clear();
         components.clear();
+        Arrays.fill( prewarmCounts, 0 );
     }
     
     public final void deletePrefab( String prefabName ) {
@@ -126,29 +153,115 @@ public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
             return;
         }
         
-        ArrayDeque<IndexedTypeSet> instanceDeque;
+        final ArrayDeque<IndexedTypeSet> pool = getPool( prefabId );
+        final IndexedTypeSet prefabComponentSet = prefabComponents.get( prefabId );
+        for ( int i = 0; i < number; i++ ) {
+            pool.add( copyComponents( prefabComponentSet ) );
+        }
+    }
+    
+    /** Gives the number of component sets that are currently within the pool of the prefab with the given id */
+    public final int getPoolSize( int prefabId ) {
         if ( !components.contains( prefabId ) ) {
-            instanceDeque = new ArrayDeque<IndexedTypeSet>();
-            components.set( prefabId, instanceDeque );
-        } else {
-            instanceDeque = components.get( prefabId );
+            return 0;
+        }
+        return components.get( prefabId ).size();
+    }
+    
+    /** Prewarms the pool of the prefab with the given id by the given number of component sets. The component sets 
+     *  are build over the next updates, at most prewarmPerUpdate per update and not beyond the maximum pool size.
+     */
+    public final void prewarm( int prefabId, int number ) {
+        if ( !prefabs.contains( prefabId ) || number <= 0 ) {
+            return;
         }
         
-        IndexedTypeSet prefabComponentSet = prefabComponents.get( prefabId );
-        for ( int i = 0; i < number; i++ ) {
-            instanceDeque.add( copyComponents( prefabComponentSet ) );
+        if ( prefabId >= prewarmCounts.length ) {
+            prewarmCounts = Arrays.copyOf( prewarmCounts, prefabId + 10 );
+        }
+        prewarmCounts[ prefabId ] += number;
+    }
+    
+    /** Gives the number of component sets that are still to prewarm for all prefabs. 0 if prewarming has finished */
+    public final int getPendingPrewarm() {
+        int result = 0;
+        for ( int i = 0; i < prewarmCounts.length; i++ ) {
+            result += prewarmCounts[ i ];
+        }
+        return result;
+    }
+    
+    public final int getPrewarmPerUpdate() {
+        return prewarmPerUpdate;
+    }
+    
+    public final void setPrewarmPerUpdate( int prewarmPerUpdate ) {
+        this.prewarmPerUpdate = prewarmPerUpdate;
+    }
+    
+    /** Trims the pool of the prefab with the given id to its minimum size. The removed component sets are disposed */
+    public final void trimPool( int prefabId ) {
+        if ( !prefabs.contains( prefabId ) || !components.contains( prefabId ) ) {
+            return;
+        }
+        
+        final ArrayDeque<IndexedTypeSet> pool = components.get( prefabId );
+        final int minSize = Math.max( 0, prefabs.get( prefabId ).getPoolMinSize() );
+        while ( pool.size() > minSize ) {
+            entityProvider.disposeComponentSet( pool.pop() );
+        }
+    }
+    
+    public final void trimPools() {
+        for ( int i = 0; i < prefabs.capacity(); i++ ) {
+            trimPool( i );
+        }
+    }
+    
+    public final void update( final FFTimer timer ) {
+        int budget = prewarmPerUpdate;
+        final long time = timer.getTime();
+        for ( int prefabId = 0; prefabId < prefabs.capacity(); prefabId++ ) {
+            final EntityPrefab prefab = prefabs.get( prefabId );
+            if ( prefab == null ) {
+                continue;
+            }
+            
+            int prewarm = ( prefabId < prewarmCounts.length )? prewarmCounts[ prefabId ] : 0;
+            if ( prewarm > 0 ) {
+                final ArrayDeque<IndexedTypeSet> pool = getPool( prefabId );
+                final int maxSize = prefab.getPoolMaxSize();
+                while ( prewarm > 0 && budget > 0 ) {
+                    if ( maxSize >= 0 && pool.size() >= maxSize ) {
+                        prewarm = 0;
+                        break;
+                    }
+                    pool.add( copyComponents( prefabComponents.get( prefabId ) ) );
+                    prewarm--;
+                    budget--;
+                }
+                prewarmCounts[ prefabId ] = prewarm;
+                prefab.lastUsed = time;
+                continue;
+            }
+            
+            final long idleTrimTime = prefab.getPoolIdleTrimTime();
+            if ( idleTrimTime >= 0 && time - prefab.lastUsed > idleTrimTime ) {
+                trimPool( prefabId );
+                prefab.lastUsed = time;
+            }
         }
     }
     
     public final int buildOne( int prefabId ) {
         return entitySystem.getEntityBuilder()
-            .setPrefabComponents( getComponents( prefabId ) )
+            .setPrefab( prefabId, getComponents( prefabId ) )
             .build();
     }
 
     public final int buildOne( final int prefabId, final EntityAttributeMap attributes ) {
         return entitySystem.getEntityBuilder()
-            .setPrefabComponents( getComponents( prefabId ) )
+            .setPrefab( prefabId, getComponents( prefabId ) )
             .setAttributes( attributes )
             .build();
     }
@@ -168,6 +281,7 @@ public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
             }
         }
 
+        entitySystem.setPrefabId( entityId, prefabId );
         if ( activation ) {
             entitySystem.activateEntity( entityId );
         }
@@ -183,6 +297,11 @@ public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
     }
 
     private IndexedTypeSet getComponents( int prefabId ) {
+        final EntityPrefab prefab = prefabs.get( prefabId );
+        if ( prefab != null ) {
+            prefab.lastUsed = context.getTimer().getTime();
+        }
+        
         ArrayDeque<IndexedTypeSet> componentsOfType = components.get( prefabId );
         if ( componentsOfType == null || componentsOfType.isEmpty() ) {
             return copyComponents( prefabComponents.get( prefabId ) );
@@ -196,14 +315,63 @@ public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
         return result;
     }
     
-    private IndexedTypeSet copyComponents( IndexedTypeSet prefabComponentSet ) {
-        IndexedTypeSet newComponents = entityProvider.getComponentTypeSet();
+    private ArrayDeque<IndexedTypeSet> getPool( int prefabId ) {
+        ArrayDeque<IndexedTypeSet> pool = ( components.contains( prefabId ) )? components.get( prefabId ) : null;
+        if ( pool == null ) {
+            pool = new ArrayDeque<IndexedTypeSet>();
+            components.set( prefabId, pool );
+        }
+        return pool;
+    }
+    
+    /** Takes back the component set of a deleted entity into the pool of its prefab if the pool is not full and 
+     *  the component set still has the same component types as the prefab. The components are reset to the prefab defaults
+     *  by copyFrom, that also resets the runtime state of a component
+     */
+    private boolean recycle( int prefabId, IndexedTypeSet componentSet ) {
+        if ( !prefabs.contains( prefabId ) ) {
+            return false;
+        }
         
-        for ( EntityComponent component : prefabComponentSet.<EntityComponent>getIterable() ) {
-            component.toAttributes( attributeMap );
+        final ArrayDeque<IndexedTypeSet> pool = getPool( prefabId );
+        final int maxSize = prefabs.get( prefabId ).getPoolMaxSize();
+        if ( maxSize >= 0 && pool.size() >= maxSize ) {
+            return false;
         }
         
-        entityProvider.createComponents( newComponents, attributeMap );
+        final IndexedTypeSet prefabComponentSet = prefabComponents.get( prefabId );
+        if ( componentSet.length() != prefabComponentSet.length() ) {
+            return false;
+        }
+        for ( int i = 0; i < prefabComponentSet.length(); i++ ) {
+            if ( ( prefabComponentSet.get( i ) == null ) != ( componentSet.get( i ) == null ) ) {
+                return false;
+            }
+        }
+        
+        for ( int i = 0; i < prefabComponentSet.length(); i++ ) {
+            final EntityComponent prefabComponent = prefabComponentSet.get( i );
+            if ( prefabComponent == null ) {
+                continue;
+            }
+            
+            final EntityComponent component = componentSet.get( i );
+            if ( !component.copyFrom( prefabComponent ) ) {
+                component.resetAttributes();
+                prefabComponent.toAttributes( attributeMap );
+                component.fromAttributes( attributeMap );
+                attributeMap.clear();
+            }
+        }
+        
+        // last in first out to reuse the most recently used components first
+        pool.push( componentSet );
+        return true;
+    }
+    
+    private IndexedTypeSet copyComponents( IndexedTypeSet prefabComponentSet ) {
+        IndexedTypeSet newComponents = entityProvider.getComponentTypeSet();
+        entityProvider.copyComponents( prefabComponentSet, newComponents, attributeMap );
         return newComponents;
     }
     
@@ -211,13 +379,18 @@ public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
         int prefabId = prefab.index();
         
         entityProvider.disposeComponentSet( prefabComponents.get( prefabId ) );
-        ArrayDeque<IndexedTypeSet> componentsOfPrefab = components.get( prefab.index() );
-        for ( IndexedTypeSet componentSet : componentsOfPrefab ) {
-            entityProvider.disposeComponentSet( componentSet );
+        ArrayDeque<IndexedTypeSet> componentsOfPrefab = ( components.contains( prefabId ) )? components.get( prefabId ) : null;
+        if ( componentsOfPrefab != null ) {
+            for ( IndexedTypeSet componentSet : componentsOfPrefab ) {
+                entityProvider.disposeComponentSet( componentSet );
+            }
+            componentsOfPrefab.clear();
         }
         
-        componentsOfPrefab.clear();
         prefabComponents.remove( prefabId );
+        if ( prefabId < prewarmCounts.length ) {
+            prewarmCounts[ prefabId ] = 0;
+        }
         prefab.dispose();
     }
     
@@ -255,6 +428,7 @@ public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
 
             EntityPrefab prefab = createSystemComponent( componentId, subType );
             checkName( prefab );
+            prefab.lastUsed = context.getTimer().getTime();
             
             int prefabId = prefab.index();
             prefabs.set( prefabId, prefab );
@@ -266,6 +440,9 @@ public class EntityPrefabSystem extends ComponentSystem<EntityPrefabSystem> {
                     attributes.getValue( EntityPrefab.INITIAL_CREATE_NUMBER ) 
                 );
             }
+            if ( getPoolSize( prefabId ) < prefab.getPoolMinSize() ) {
+                prewarm( prefabId, prefab.getPoolMinSize() - getPoolSize( prefabId ) );
+            }
             
             return prefabId;
         }
@@ -23,6 +23,7 @@ import com.inari.commons.lang.indexed.IIndexedTypeKey;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
 import com.inari.firefly.graphics.view.Layer;
 import com.inari.firefly.graphics.view.View;
 import com.inari.firefly.graphics.view.ViewAndLayerAware;
@@ -34,7 +35,9 @@ import com.inari.firefly.system.external.TransformData;
 
 public final class ETransform extends EntityComponent implements TransformData, ViewAndLayerAware {
     
-    public static final EntityComponentTypeKey<ETransform> TYPE_KEY = EntityComponentTypeKey.create( ETransform.class );
+    public static final EntityComponentTypeKey<ETransform> TYPE_KEY = EntityComponentTypeKey.create( ETransform.class, new EntityComponentFactory<ETransform>() {
+        public final ETransform create() { return new ETransform(); }
+    } );
 
     public static final AttributeKey<String> VIEW_NAME = AttributeKey.createString( "viewName", ETransform.class );
     public static final AttributeKey<Integer> VIEW_ID = AttributeKey.createInt( "viewId", ETransform.class );
@@ -66,6 +69,10 @@ public final class ETransform extends EntityComponent implements TransformData,
     private final PositionF pivotPosition;
     private float scalex, scaley;
     private float rotation;
+
+    private int version = 0;
+    // the cached world transform of this transform within its hierarchy, notified on changes
+    TransformHierarchySystem.WorldTransform worldTransform;
     
     ETransform() {
         super( TYPE_KEY );
@@ -84,8 +91,16 @@ public final class ETransform extends EntityComponent implements TransformData,
         scalex = 1;
         scaley = 1;
         rotation = 0;
+        changed();
     }
-    
+
+    /** Gives a number that changes whenever the position, pivot, scale or rotation of this transform changes.
+     *  Use this to check if data that is derived from this transform has to be updated.
+     */
+    public final int getVersion() {
+        return version;
+    }
+
     public final int getViewId() {
         return viewId;
     }
@@ -108,6 +123,7 @@ public final class ETransform extends EntityComponent implements TransformData,
 
     public final void setXpos( float xpos ) {
         position.x = xpos;
+        changed();
     }
 
     public final float getYpos() {
@@ -116,11 +132,13 @@ public final class ETransform extends EntityComponent implements TransformData,
 
     public final void setYpos( float ypos ) {
         position.y = ypos;
+        changed();
     }
     
     public final void setPosition( float xpos, float ypos ) {
         position.x = xpos;
         position.y = ypos;
+        changed();
     }
 
     public final float getPivotX() {
@@ -129,6 +147,7 @@ public final class ETransform extends EntityComponent implements TransformData,
 
     public final void setPivotX( float pivotx ) {
         pivotPosition.x = pivotx;
+        changed();
     }
 
     public final float getPivotY() {
@@ -137,16 +156,19 @@ public final class ETransform extends EntityComponent implements TransformData,
 
     public final void setPivotY( float pivoty ) {
         pivotPosition.y = pivoty;
+        changed();
     }
     
     public final void setPivot( float x, float y ) {
         pivotPosition.x = x;
         pivotPosition.y = y;
+        changed();
     }
 
     public final void move( final float dx, final float dy ) {
         position.x += dx;
         position.y += dy;
+        changed();
     }
 
     public final float getScaleX() {
@@ -155,6 +177,7 @@ public final class ETransform extends EntityComponent implements TransformData,
 
     public final void setScaleX( float scalex ) {
         this.scalex = scalex;
+        changed();
     }
 
     public final float getScaleY() {
@@ -163,11 +186,13 @@ public final class ETransform extends EntityComponent implements TransformData,
 
     public final void setScaleY( float scaley ) {
         this.scaley = scaley;
+        changed();
     }
     
     public final void setScale( float x, float y ) {
         scalex = x;
         scaley = y;
+        changed();
     }
 
     public final float getRotation() {
@@ -176,6 +201,7 @@ public final class ETransform extends EntityComponent implements TransformData,
 
     public final void setRotation( float rotation ) {
         this.rotation = rotation;
+        changed();
     }
     
     public final float getXOffset() {
@@ -221,6 +247,29 @@ public final class ETransform extends EntityComponent implements TransformData,
         scaley = attributes.getValue( SCALE_Y, scaley );
         
         rotation = attributes.getValue( ROTATION, rotation );
+        changed();
+    }
+
+    public final boolean copyFrom( EntityComponent component ) {
+        final ETransform other = (ETransform) component;
+        viewId = other.viewId;
+        layerId = other.layerId;
+        position.x = other.position.x;
+        position.y = other.position.y;
+        pivotPosition.x = other.pivotPosition.x;
+        pivotPosition.y = other.pivotPosition.y;
+        scalex = other.scalex;
+        scaley = other.scaley;
+        rotation = other.rotation;
+        changed();
+        return true;
+    }
+
+    private void changed() {
+        version++;
+        if ( worldTransform != null ) {
+            worldTransform.changed();
+        }
     }
 
     public final void toAttributes( AttributeMap attributes ) {
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2015 - 2016, Andreas Hefti, inarisoft@yahoo.de 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/ 
+package com.inari.firefly.graphics;
+
+/** A component that renders the instance of a sprite Asset. The TextureResidencySystem uses this to refresh the
+ *  instance id if the texture of the sprite Asset has been reloaded after eviction. The reload generation is 
+ *  kept per component, since every component that shares the sprite Asset has to be refreshed.
+ */
+public interface ResidentSprite {
+    
+    /** Gives the id of the sprite Asset or -1 if the sprite was not resolved by an Asset */
+    int getSpriteAssetId();
+    
+    void setSpriteId( int spriteId );
+    
+    /** Gives the reload generation of the texture the sprite id was last refreshed for */
+    int getTextureGeneration();
+    
+    void setTextureGeneration( int textureGeneration );
+
+}
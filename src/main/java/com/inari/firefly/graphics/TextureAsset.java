@@ -15,11 +15,13 @@
  ******************************************************************************/ 
 package com.inari.firefly.graphics;
 
+import java.nio.ByteBuffer;
 import java.util.Set;
 
 import com.inari.commons.JavaUtils;
 import com.inari.commons.lang.functional.IntFunction;
 import com.inari.firefly.asset.Asset;
+import com.inari.firefly.asset.AssetSystem;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.system.FFContext;
@@ -59,6 +61,7 @@ public final class TextureAsset extends Asset implements TextureData {
     private int width;
     private int height;
     private int textureId = -1;
+    private ByteBuffer resourceData;
     
     TextureAsset( int assetId ) {
         super( assetId );
@@ -90,6 +93,11 @@ public final class TextureAsset extends Asset implements TextureData {
         this.resourceName = resourceName;
     }
 
+    @Override
+    public final ByteBuffer getResourceData() {
+        return resourceData;
+    }
+
     public final boolean isMipmap() {
         return mipmap;
     }
@@ -158,6 +166,12 @@ public final class TextureAsset extends Asset implements TextureData {
         this.height = height;
     }
 
+    /** Gives the estimated size of the texture in bytes assuming four bytes per pixel */
+    @Override
+    public final long getMemorySize() {
+        return ( width > 0 && height > 0 )? (long) width * height * 4 : 0;
+    }
+
     @Override
     public final Set<AttributeKey<?>> attributeKeys() {
         return JavaUtils.unmodifiableSet( super.attributeKeys(), ATTRIBUTE_KEYS );
@@ -187,14 +201,24 @@ public final class TextureAsset extends Asset implements TextureData {
         attributes.put( COLOR_CONVERTER, colorConverter );
     }
 
+    /** Reads and decompresses the texture resource from the AssetArchives of the AssetSystem if available */
+    @Override
+    protected final void prepare( FFContext context ) {
+        resourceData = context.getSystem( AssetSystem.SYSTEM_KEY ).getResource( resourceName );
+    }
+
     @Override
     public final Disposable load( FFContext context ) {
         if ( loaded ) {
             return this;
         }
         
+        if ( resourceData == null ) {
+            prepare( context );
+        }
         FFGraphics graphics = context.getGraphics();
         textureId = graphics.createTexture( this );
+        resourceData = null;
         return this;
     }
 
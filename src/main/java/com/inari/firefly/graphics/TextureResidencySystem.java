@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2015 - 2016, Andreas Hefti, inarisoft@yahoo.de 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/ 
+package com.inari.firefly.graphics;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.inari.commons.lang.indexed.IIndexedTypeKey;
+import com.inari.commons.lang.list.DynArray;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.commons.lang.list.IntBagRO;
+import com.inari.firefly.asset.Asset;
+import com.inari.firefly.asset.AssetEvent;
+import com.inari.firefly.asset.AssetEventListener;
+import com.inari.firefly.asset.AssetSystem;
+import com.inari.firefly.graphics.sprite.TextureAtlasAsset;
+import com.inari.firefly.graphics.text.FontAsset;
+import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.FFSystem;
+import com.inari.firefly.system.UpdateEvent;
+import com.inari.firefly.system.UpdateEventListener;
+import com.inari.firefly.system.external.FFTimer;
+
+/** Keeps the estimated memory of all loaded textures (TextureAsset, FontAsset and TextureAtlasAsset) within a configurable budget.
+ *  <p>
+ *  Renderers mark the textures they use within a frame by calling use with the id of the rendered Asset
+ *  (the texture itself or an Asset that depends on a texture like a SpriteAsset). This just sets a frame stamp
+ *  for the texture. If the budget is exceeded, the least recently rendered textures that were not rendered within
+ *  the last frame are evicted together with all Assets depending on them. An evicted texture is transparently
+ *  reloaded, with its depending Assets, the next time a renderer uses it. Since the instance ids of reloaded
+ *  Assets may change, each texture has a reload generation and use( ResidentSprite ) refreshes the sprite id
+ *  of every component whose generation is behind.
+ *  <p>
+ *  Only textures that have been used by a renderer at least once are evicted. Sprites that are referenced by
+ *  instance id only (not by Asset name) are not tracked and their textures must not be used with a budget.
+ *  <p>
+ *  The budget is defined in bytes by FFContext.Properties.TEXTURE_MEMORY_BUDGET or setBudget.
+ *  Default is 0 what means no budget and no tracking of usage.
+ */
+public final class TextureResidencySystem implements FFSystem, UpdateEventListener, AssetEventListener {
+
+    public static final FFSystemTypeKey<TextureResidencySystem> SYSTEM_KEY = FFSystemTypeKey.create( TextureResidencySystem.class );
+
+    private static final int NOT_USED = -1;
+
+    private FFContext context;
+    private AssetSystem assetSystem;
+
+    private final BitSet textures = new BitSet();
+    private final BitSet evicted = new BitSet();
+    private final DynArray<IntBag> evictedDependents = DynArray.create( IntBag.class, 20, 10 );
+    private int[] textureOfAsset = new int[ 0 ];
+    private int[] frameStamps = new int[ 0 ];
+    private long[] textureBytes = new long[ 0 ];
+    private int[] generations = new int[ 0 ];
+
+    private long budget = 0;
+    private long residentBytes = 0;
+    private int frame = 0;
+
+    public final IIndexedTypeKey indexedTypeKey() {
+        return SYSTEM_KEY;
+    }
+
+    public final FFSystemTypeKey<TextureResidencySystem> systemTypeKey() {
+        return SYSTEM_KEY;
+    }
+
+    public final void init( FFContext context ) {
+        this.context = context;
+        assetSystem = context.getSystem( AssetSystem.SYSTEM_KEY );
+
+        final Integer budget = context.getProperty( FFContext.Properties.TEXTURE_MEMORY_BUDGET );
+        if ( budget != null ) {
+            this.budget = budget;
+        }
+
+        context.registerListener( AssetEvent.TYPE_KEY, this );
+        context.registerListener( UpdateEvent.TYPE_KEY, this );
+    }
+
+    public final void dispose( FFContext context ) {
+        context.disposeListener( AssetEvent.TYPE_KEY, this );
+        context.disposeListener( UpdateEvent.TYPE_KEY, this );
+
+        textures.clear();
+        evicted.clear();
+        evictedDependents.clear();
+        residentBytes = 0;
+    }
+
+    public final long getBudget() {
+        return budget;
+    }
+
+    /** Sets the texture memory budget in bytes. 0 means no budget */
+    public final void setBudget( long budget ) {
+        this.budget = budget;
+    }
+
+    /** Gives the estimated bytes of all currently loaded textures */
+    public final long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public final boolean isEvicted( int textureAssetId ) {
+        return evicted.get( textureAssetId );
+    }
+
+    /** Marks the texture of the Asset with the given id as used within the current frame. If the texture was evicted
+     *  it is reloaded together with all Assets depending on it.
+     *
+     * @param assetId the id of a texture Asset or of an Asset that depends on a texture Asset
+     * @return true if the texture has been reloaded and the instance id of the given Asset may have changed
+     */
+    public final boolean use( final int assetId ) {
+        if ( budget <= 0 || assetId < 0 || assetId >= textureOfAsset.length ) {
+            return false;
+        }
+
+        final int textureId = textureOfAsset[ assetId ];
+        if ( textureId < 0 ) {
+            return false;
+        }
+
+        frameStamps[ textureId ] = frame;
+        if ( !evicted.get( textureId ) ) {
+            return false;
+        }
+
+        reload( textureId );
+        return true;
+    }
+
+    /** Marks the texture of the sprite Asset of the given component as used within the current frame and 
+     *  refreshes the sprite id of the component if the texture has been reloaded since the last refresh.
+     */
+    public final void use( final ResidentSprite sprite ) {
+        final int spriteAssetId = sprite.getSpriteAssetId();
+        use( spriteAssetId );
+        if ( budget <= 0 || spriteAssetId < 0 || spriteAssetId >= textureOfAsset.length ) {
+            return;
+        }
+
+        final int textureId = textureOfAsset[ spriteAssetId ];
+        if ( textureId < 0 || sprite.getTextureGeneration() == generations[ textureId ] ) {
+            return;
+        }
+
+        sprite.setSpriteId( context.getAssetInstanceId( spriteAssetId ) );
+        sprite.setTextureGeneration( generations[ textureId ] );
+    }
+
+    public final void update( final FFTimer timer ) {
+        frame++;
+        if ( budget <= 0 ) {
+            return;
+        }
+
+        while ( residentBytes > budget ) {
+            // only textures that were not rendered within the last frame are candidates
+            int leastRecentlyUsed = -1;
+            int leastStamp = frame - 1;
+            for ( int i = textures.nextSetBit( 0 ); i >= 0; i = textures.nextSetBit( i + 1 ) ) {
+                final int stamp = frameStamps[ i ];
+                if ( stamp != NOT_USED && stamp < leastStamp ) {
+                    leastRecentlyUsed = i;
+                    leastStamp = stamp;
+                }
+            }
+
+            if ( leastRecentlyUsed < 0 ) {
+                return;
+            }
+
+            evict( leastRecentlyUsed );
+        }
+    }
+
+    public final void onAssetEvent( final AssetEvent event ) {
+        final Asset asset = event.getAsset();
+        if ( asset == null ) {
+            return;
+        }
+
+        final int assetId = asset.index();
+        switch ( event.getEventType() ) {
+            case ASSET_LOADED: {
+                ensureCapacity( assetId );
+                if ( isTexture( asset ) ) {
+                    textureOfAsset[ assetId ] = assetId;
+                    textures.set( assetId );
+                    // the size is kept since a texture may loose its size information on dispose
+                    textureBytes[ assetId ] = asset.getMemorySize();
+                    residentBytes += textureBytes[ assetId ];
+                } else {
+                    textureOfAsset[ assetId ] = findTexture( asset );
+                }
+                break;
+            }
+            case ASSET_DISPOSED: {
+                if ( textures.get( assetId ) ) {
+                    textures.clear( assetId );
+                    residentBytes -= textureBytes[ assetId ];
+                    textureBytes[ assetId ] = 0;
+                }
+                break;
+            }
+            case ASSET_DELETED: {
+                if ( assetId < textureOfAsset.length ) {
+                    textureOfAsset[ assetId ] = -1;
+                    frameStamps[ assetId ] = NOT_USED;
+                }
+                evicted.clear( assetId );
+                if ( evictedDependents.contains( assetId ) ) {
+                    evictedDependents.remove( assetId );
+                }
+                break;
+            }
+            default: {}
+        }
+    }
+
+    private void evict( final int textureId ) {
+        IntBag dependents = ( evictedDependents.contains( textureId ) )? evictedDependents.get( textureId ) : null;
+        if ( dependents == null ) {
+            dependents = new IntBag( 10, -1 );
+            evictedDependents.set( textureId, dependents );
+        }
+        dependents.clear();
+        collectDependents( textureId, dependents );
+
+        assetSystem.evictAsset( textureId );
+        evicted.set( textureId );
+    }
+
+    private void reload( final int textureId ) {
+        evicted.clear( textureId );
+        generations[ textureId ]++;
+        assetSystem.loadAsset( textureId );
+
+        if ( !evictedDependents.contains( textureId ) ) {
+            return;
+        }
+
+        // dependents are collected parents first, so dependencies are always loaded before
+        final IntBag dependents = evictedDependents.get( textureId );
+        for ( int i = 0; i < dependents.length(); i++ ) {
+            if ( dependents.isEmpty( i ) ) {
+                continue;
+            }
+
+            final Asset dependent = context.getSystemComponent( Asset.TYPE_KEY, dependents.get( i ) );
+            if ( dependent != null && !dependent.isLoaded() ) {
+                assetSystem.loadAsset( dependent.index() );
+            }
+        }
+        dependents.clear();
+    }
+
+    private void collectDependents( final int assetId, final IntBag dependents ) {
+        final IntBagRO depending = assetSystem.getDependingAssetIds( assetId );
+        if ( depending == null ) {
+            return;
+        }
+
+        final int nullValue = depending.getNullValue();
+        for ( int i = 0; i < depending.length(); i++ ) {
+            final int dependentId = depending.get( i );
+            if ( dependentId != nullValue && !dependents.contains( dependentId ) ) {
+                dependents.add( dependentId );
+                collectDependents( dependentId, dependents );
+            }
+        }
+    }
+
+    private int findTexture( final Asset asset ) {
+        for ( int i = 0; i < asset.getDependencyCount(); i++ ) {
+            final Asset dependency = context.getSystemComponent( Asset.TYPE_KEY, asset.getDependency( i ) );
+            if ( dependency != null && isTexture( dependency ) ) {
+                return dependency.index();
+            }
+        }
+        return -1;
+    }
+
+    private void ensureCapacity( final int assetId ) {
+        if ( assetId < textureOfAsset.length ) {
+            return;
+        }
+
+        final int oldLength = textureOfAsset.length;
+        final int newLength = Math.max( assetId + 1, oldLength + oldLength / 2 + 10 );
+        textureOfAsset = Arrays.copyOf( textureOfAsset, newLength );
+        frameStamps = Arrays.copyOf( frameStamps, newLength );
+        textureBytes = Arrays.copyOf( textureBytes, newLength );
+        generations = Arrays.copyOf( generations, newLength );
+        Arrays.fill( textureOfAsset, oldLength, newLength, -1 );
+        Arrays.fill( frameStamps, oldLength, newLength, NOT_USED );
+    }
+
+    private static boolean isTexture( final Asset asset ) {
+        return asset instanceof TextureAsset || asset instanceof FontAsset || asset instanceof TextureAtlasAsset;
+    }
+
+}
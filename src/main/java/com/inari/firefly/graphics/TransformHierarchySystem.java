@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2015 - 2016, Andreas Hefti, inarisoft@yahoo.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.inari.firefly.graphics;
+
+import com.inari.commons.lang.aspect.IAspects;
+import com.inari.commons.lang.indexed.IIndexedTypeKey;
+import com.inari.commons.lang.list.DynArray;
+import com.inari.firefly.entity.EGroup;
+import com.inari.firefly.entity.EntityActivationEvent;
+import com.inari.firefly.entity.EntityActivationListener;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.FFSystem;
+import com.inari.firefly.system.external.TransformData;
+
+/** Keeps the world transforms of active entities within an EGroup hierarchy.
+ *  <p>
+ *  The world transform of an entity is its ETransform added to the world transform of its parent (EGroup.PARENT_ID)
+ *  in the same way a renderer adds up transforms. World transforms are cached and are only calculated again if the
+ *  ETransform or the parent of the entity or the world transform of the parent has changed. The ETransform and EGroup
+ *  of a cached entity notify the root of its hierarchy about changes, so as long as nothing has changed within a
+ *  hierarchy, a cached world transform is given with one compare. Otherwise each world transform of the hierarchy
+ *  is validated at most once between changes, parents always before their children.
+ *  <p>
+ *  A parent that is not active is not part of a hierarchy. So an entity with an inactive parent is the root of its
+ *  own hierarchy and its world transform is just its ETransform.
+ */
+public final class TransformHierarchySystem implements FFSystem, EntityActivationListener {
+
+    public static final FFSystemTypeKey<TransformHierarchySystem> SYSTEM_KEY = FFSystemTypeKey.create( TransformHierarchySystem.class );
+
+    private EntitySystem entitySystem;
+
+    private final DynArray<WorldTransform> worldTransforms = DynArray.create( WorldTransform.class, 100, 100 );
+    // number of cached roots that have a parent that was not active on last validation
+    private int orphans = 0;
+
+    TransformHierarchySystem() {}
+
+    public final IIndexedTypeKey indexedTypeKey() {
+        return SYSTEM_KEY;
+    }
+
+    public final FFSystemTypeKey<TransformHierarchySystem> systemTypeKey() {
+        return SYSTEM_KEY;
+    }
+
+    public final void init( FFContext context ) {
+        entitySystem = context.getSystem( EntitySystem.SYSTEM_KEY );
+
+        context.registerListener( EntityActivationEvent.TYPE_KEY, this );
+    }
+
+    public final void dispose( FFContext context ) {
+        context.disposeListener( EntityActivationEvent.TYPE_KEY, this );
+
+        for ( int i = 0; i < worldTransforms.capacity(); i++ ) {
+            if ( worldTransforms.contains( i ) ) {
+                worldTransforms.get( i ).dispose();
+            }
+        }
+        worldTransforms.clear();
+        orphans = 0;
+    }
+
+    public final boolean match( final IAspects aspects ) {
+        return aspects.contains( ETransform.TYPE_KEY );
+    }
+
+    public final void entityActivated( int entityId, final IAspects aspects ) {
+        // world transforms are created lazily on first request, but cached children of the activated entity
+        // have to join its hierarchy
+        if ( orphans == 0 ) {
+            return;
+        }
+
+        for ( int i = 0; i < worldTransforms.capacity(); i++ ) {
+            if ( !worldTransforms.contains( i ) ) {
+                continue;
+            }
+            final WorldTransform worldTransform = worldTransforms.get( i );
+            if ( worldTransform.orphan && worldTransform.group.getParentId() == entityId ) {
+                worldTransform.changes++;
+            }
+        }
+    }
+
+    public final void entityDeactivated( int entityId, final IAspects aspects ) {
+        if ( !worldTransforms.contains( entityId ) ) {
+            return;
+        }
+
+        final WorldTransform worldTransform = worldTransforms.get( entityId );
+        worldTransforms.remove( entityId );
+        if ( worldTransform.orphan ) {
+            orphans--;
+        }
+        worldTransform.dispose();
+    }
+
+    /** Gives the world transform of the specified entity. The given TransformData is valid until the next change
+     *  within the hierarchy of the entity and must not be kept.
+     *  <p>
+     *  If the entity is not active, null is given, also for the parent of an entity. So unlike a renderer that adds
+     *  up the transforms of all parents, an inactive parent does not add its ETransform to the world transform of
+     *  its children.
+     *
+     * @param entityId the id of the entity
+     * @return the world transform of the specified entity or null if the entity is not active or has no ETransform
+     */
+    public final TransformData getWorldTransform( int entityId ) {
+        return get( entityId );
+    }
+
+    private WorldTransform get( final int entityId ) {
+        if ( entityId < 0 ) {
+            return null;
+        }
+
+        WorldTransform worldTransform = ( worldTransforms.contains( entityId ) )? worldTransforms.get( entityId ) : null;
+        if ( worldTransform == null ) {
+            if ( !entitySystem.isActive( entityId ) ) {
+                return null;
+            }
+
+            final ETransform transform = entitySystem.getComponent( entityId, ETransform.TYPE_KEY );
+            if ( transform == null ) {
+                return null;
+            }
+
+            worldTransform = new WorldTransform( transform, entitySystem.getComponent( entityId, EGroup.TYPE_KEY ) );
+            worldTransforms.set( entityId, worldTransform );
+        } else if ( worldTransform.stamp == worldTransform.root.changes ) {
+            return worldTransform;
+        }
+
+        validate( worldTransform );
+        return worldTransform;
+    }
+
+    private void validate( final WorldTransform worldTransform ) {
+        final EGroup group = worldTransform.group;
+        final WorldTransform parent = ( group != null )? get( group.getParentId() ) : null;
+
+        if ( worldTransform.transformVersion != worldTransform.transform.getVersion() ||
+             worldTransform.parent != parent ||
+             ( parent != null && worldTransform.parentVersion != parent.version ) ) {
+
+            worldTransform.update( parent );
+        }
+
+        final boolean orphan = ( parent == null && group != null && group.getParentId() >= 0 );
+        if ( orphan != worldTransform.orphan ) {
+            worldTransform.orphan = orphan;
+            orphans += ( orphan )? 1 : -1;
+        }
+        worldTransform.root = ( parent != null )? parent.root : worldTransform;
+        worldTransform.stamp = worldTransform.root.changes;
+    }
+
+    static final class WorldTransform implements TransformData, EGroup.ParentListener {
+
+        final ETransform transform;
+        final EGroup group;
+
+        WorldTransform parent;
+        WorldTransform root;
+        boolean orphan = false;
+        int transformVersion;
+        int parentVersion;
+        int version = 0;
+        // counts the changes within the hierarchy if this is a root
+        int changes = 0;
+        // the changes of the root on last validation
+        int stamp;
+
+        float xpos, ypos;
+        float pivotx, pivoty;
+        float scalex, scaley;
+        float rotation;
+
+        WorldTransform( ETransform transform, EGroup group ) {
+            this.transform = transform;
+            this.group = group;
+            // forces the calculation on first validation
+            transformVersion = transform.getVersion() - 1;
+            root = this;
+
+            transform.worldTransform = this;
+            if ( group != null ) {
+                group.setParentListener( this );
+            }
+        }
+
+        /** Called by the ETransform of this on changes */
+        final void changed() {
+            root.changes++;
+        }
+
+        public final void parentChanged() {
+            root.changes++;
+        }
+
+        final void dispose() {
+            // invalidates all cached children of this
+            root.changes++;
+            transform.worldTransform = null;
+            if ( group != null ) {
+                group.setParentListener( null );
+            }
+        }
+
+        final void update( final WorldTransform parent ) {
+            xpos = transform.getXOffset();
+            ypos = transform.getYOffset();
+            pivotx = transform.getPivotX();
+            pivoty = transform.getPivotY();
+            scalex = transform.getScaleX();
+            scaley = transform.getScaleY();
+            rotation = transform.getRotation();
+
+            if ( parent != null ) {
+                xpos += parent.xpos;
+                ypos += parent.ypos;
+                pivotx += parent.pivotx;
+                pivoty += parent.pivoty;
+                scalex *= parent.scalex;
+                scaley *= parent.scaley;
+                rotation += parent.rotation;
+                parentVersion = parent.version;
+            }
+
+            this.parent = parent;
+            transformVersion = transform.getVersion();
+            version++;
+        }
+
+        public final float getXOffset() {
+            return xpos;
+        }
+
+        public final float getYOffset() {
+            return ypos;
+        }
+
+        public final float getScaleX() {
+            return scalex;
+        }
+
+        public final float getScaleY() {
+            return scaley;
+        }
+
+        public final float getPivotX() {
+            return pivotx;
+        }
+
+        public final float getPivotY() {
+            return pivoty;
+        }
+
+        public final float getRotation() {
+            return rotation;
+        }
+
+        public final boolean hasRotation() {
+            return rotation != 0f;
+        }
+
+        public final boolean hasScale() {
+            return scalex != 1 || scaley != 1;
+        }
+    }
+
+}
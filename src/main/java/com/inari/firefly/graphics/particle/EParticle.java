@@ -9,12 +9,15 @@ import com.inari.commons.lang.list.DynArrayRO;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
 import com.inari.firefly.graphics.BlendMode;
 import com.inari.firefly.graphics.rendering.RenderingChain.RendererKey;
 
 public final class EParticle extends EntityComponent {
     
-    public static final EntityComponentTypeKey<EParticle> TYPE_KEY = EntityComponentTypeKey.create( EParticle.class );
+    public static final EntityComponentTypeKey<EParticle> TYPE_KEY = EntityComponentTypeKey.create( EParticle.class, new EntityComponentFactory<EParticle>() {
+        public final EParticle create() { return new EParticle(); }
+    } );
     
     public static final AttributeKey<RendererKey> RENDERER_KEY = new AttributeKey<>( "rendererKey", RendererKey.class, EParticle.class );
     public static final AttributeKey<DynArray<Particle>> PARTICLE = AttributeKey.createDynArray( "particle", EParticle.class, Particle.class );
@@ -76,6 +79,14 @@ public final class EParticle extends EntityComponent {
         }
     }
 
+    public final boolean copyFrom( EntityComponent component ) {
+        final EParticle other = (EParticle) component;
+        rendererKey = other.rendererKey;
+        particle.clear();
+        particle.addAll( other.particle );
+        return true;
+    }
+
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( RENDERER_KEY, rendererKey );
         attributes.put( PARTICLE, particle );
@@ -0,0 +1,337 @@
+package com.inari.firefly.graphics.particle;
+
+import java.util.Set;
+
+import com.inari.commons.JavaUtils;
+import com.inari.commons.graphics.RGBColor;
+import com.inari.firefly.component.attr.AttributeKey;
+import com.inari.firefly.component.attr.AttributeMap;
+import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
+import com.inari.firefly.graphics.BlendMode;
+import com.inari.firefly.graphics.ResidentSprite;
+
+/** An emitter that spawns sprite particles at the position of the ETransform of its entity.
+ *  <p>
+ *  The ParticleSystem spawns SPAWN_RATE particles per second while the emitter is emitting, up to MAX_PARTICLES
+ *  live particles. Each particle lives for LIFETIME seconds (plus/minus LIFETIME_VARIANCE), starts with the velocity
+ *  VELOCITY_X/VELOCITY_Y (plus/minus VELOCITY_VARIANCE on each axis) and is accelerated by GRAVITY_X/GRAVITY_Y.
+ *  Over its life the tint color of a particle goes linear from START_COLOR to END_COLOR and its scale from
+ *  START_SCALE to END_SCALE. Positions and velocities are in pixel and pixel per second in world coordinates.
+ */
+public final class EParticleEmitter extends EntityComponent implements ResidentSprite {
+
+    public static final EntityComponentTypeKey<EParticleEmitter> TYPE_KEY = EntityComponentTypeKey.create( EParticleEmitter.class, new EntityComponentFactory<EParticleEmitter>() {
+        public final EParticleEmitter create() { return new EParticleEmitter(); }
+    } );
+
+    public static final AttributeKey<String> SPRITE_ASSET_NAME = AttributeKey.createString( "spriteAssetName", EParticleEmitter.class );
+    public static final AttributeKey<Integer> SPRITE_ID = AttributeKey.createInt( "spriteId", EParticleEmitter.class );
+    public static final AttributeKey<BlendMode> BLEND_MODE = AttributeKey.createBlendMode( "blendMode", EParticleEmitter.class );
+    public static final AttributeKey<Boolean> EMITTING = AttributeKey.createBoolean( "emitting", EParticleEmitter.class );
+    public static final AttributeKey<Integer> MAX_PARTICLES = AttributeKey.createInt( "maxParticles", EParticleEmitter.class );
+    public static final AttributeKey<Float> SPAWN_RATE = AttributeKey.createFloat( "spawnRate", EParticleEmitter.class );
+    public static final AttributeKey<Float> LIFETIME = AttributeKey.createFloat( "lifetime", EParticleEmitter.class );
+    public static final AttributeKey<Float> LIFETIME_VARIANCE = AttributeKey.createFloat( "lifetimeVariance", EParticleEmitter.class );
+    public static final AttributeKey<Float> VELOCITY_X = AttributeKey.createFloat( "velocityX", EParticleEmitter.class );
+    public static final AttributeKey<Float> VELOCITY_Y = AttributeKey.createFloat( "velocityY", EParticleEmitter.class );
+    public static final AttributeKey<Float> VELOCITY_VARIANCE = AttributeKey.createFloat( "velocityVariance", EParticleEmitter.class );
+    public static final AttributeKey<Float> GRAVITY_X = AttributeKey.createFloat( "gravityX", EParticleEmitter.class );
+    public static final AttributeKey<Float> GRAVITY_Y = AttributeKey.createFloat( "gravityY", EParticleEmitter.class );
+    public static final AttributeKey<RGBColor> START_COLOR = AttributeKey.createColor( "startColor", EParticleEmitter.class );
+    public static final AttributeKey<RGBColor> END_COLOR = AttributeKey.createColor( "endColor", EParticleEmitter.class );
+    public static final AttributeKey<Float> START_SCALE = AttributeKey.createFloat( "startScale", EParticleEmitter.class );
+    public static final AttributeKey<Float> END_SCALE = AttributeKey.createFloat( "endScale", EParticleEmitter.class );
+    public static final Set<AttributeKey<?>> ATTRIBUTE_KEYS = JavaUtils.<AttributeKey<?>>unmodifiableSet(
+        SPRITE_ID,
+        BLEND_MODE,
+        EMITTING,
+        MAX_PARTICLES,
+        SPAWN_RATE,
+        LIFETIME,
+        LIFETIME_VARIANCE,
+        VELOCITY_X,
+        VELOCITY_Y,
+        VELOCITY_VARIANCE,
+        GRAVITY_X,
+        GRAVITY_Y,
+        START_COLOR,
+        END_COLOR,
+        START_SCALE,
+        END_SCALE
+    );
+
+    private int spriteId;
+    private int spriteAssetId;
+    private int textureGeneration;
+    private BlendMode blendMode;
+    boolean emitting;
+    float spawnRate;
+    float lifetime;
+    float lifetimeVariance;
+    float velocityX, velocityY;
+    float velocityVariance;
+    float gravityX, gravityY;
+    final RGBColor startColor = new RGBColor();
+    final RGBColor endColor = new RGBColor();
+    float startScale, endScale;
+
+    final ParticleBuffer particles = new ParticleBuffer( 0 );
+    // the fraction of a particle that was not spawned within the last update
+    float spawnCarry;
+
+    EParticleEmitter() {
+        super( TYPE_KEY );
+        resetAttributes();
+    }
+
+    public final void resetAttributes() {
+        spriteId = -1;
+        spriteAssetId = -1;
+        textureGeneration = 0;
+        blendMode = BlendMode.NONE;
+        emitting = true;
+        particles.clear();
+        particles.setCapacity( 1000 );
+        spawnRate = 0f;
+        lifetime = 1f;
+        lifetimeVariance = 0f;
+        velocityX = 0f;
+        velocityY = 0f;
+        velocityVariance = 0f;
+        gravityX = 0f;
+        gravityY = 0f;
+        setStartColor( new RGBColor( 1, 1, 1, 1 ) );
+        setEndColor( new RGBColor( 1, 1, 1, 1 ) );
+        startScale = 1f;
+        endScale = 1f;
+        spawnCarry = 0f;
+    }
+
+    public final int getSpriteId() {
+        return spriteId;
+    }
+
+    public final void setSpriteId( int spriteId ) {
+        this.spriteId = spriteId;
+    }
+
+    /** Gives the id of the sprite Asset if the sprite was resolved by SPRITE_ASSET_NAME or -1 otherwise */
+    public final int getSpriteAssetId() {
+        return spriteAssetId;
+    }
+
+    public final int getTextureGeneration() {
+        return textureGeneration;
+    }
+
+    public final void setTextureGeneration( int textureGeneration ) {
+        this.textureGeneration = textureGeneration;
+    }
+
+    public final BlendMode getBlendMode() {
+        return blendMode;
+    }
+
+    public final void setBlendMode( BlendMode blendMode ) {
+        this.blendMode = blendMode;
+    }
+
+    public final boolean isEmitting() {
+        return emitting;
+    }
+
+    public final void setEmitting( boolean emitting ) {
+        this.emitting = emitting;
+    }
+
+    public final int getMaxParticles() {
+        return particles.capacity();
+    }
+
+    public final void setMaxParticles( int maxParticles ) {
+        particles.setCapacity( maxParticles );
+    }
+
+    public final float getSpawnRate() {
+        return spawnRate;
+    }
+
+    public final void setSpawnRate( float spawnRate ) {
+        this.spawnRate = spawnRate;
+    }
+
+    public final float getLifetime() {
+        return lifetime;
+    }
+
+    public final void setLifetime( float lifetime ) {
+        this.lifetime = lifetime;
+    }
+
+    public final float getLifetimeVariance() {
+        return lifetimeVariance;
+    }
+
+    public final void setLifetimeVariance( float lifetimeVariance ) {
+        this.lifetimeVariance = lifetimeVariance;
+    }
+
+    public final float getVelocityX() {
+        return velocityX;
+    }
+
+    public final void setVelocityX( float velocityX ) {
+        this.velocityX = velocityX;
+    }
+
+    public final float getVelocityY() {
+        return velocityY;
+    }
+
+    public final void setVelocityY( float velocityY ) {
+        this.velocityY = velocityY;
+    }
+
+    public final float getVelocityVariance() {
+        return velocityVariance;
+    }
+
+    public final void setVelocityVariance( float velocityVariance ) {
+        this.velocityVariance = velocityVariance;
+    }
+
+    public final float getGravityX() {
+        return gravityX;
+    }
+
+    public final void setGravityX( float gravityX ) {
+        this.gravityX = gravityX;
+    }
+
+    public final float getGravityY() {
+        return gravityY;
+    }
+
+    public final void setGravityY( float gravityY ) {
+        this.gravityY = gravityY;
+    }
+
+    public final RGBColor getStartColor() {
+        return startColor;
+    }
+
+    public final void setStartColor( RGBColor color ) {
+        startColor.r = color.r;
+        startColor.g = color.g;
+        startColor.b = color.b;
+        startColor.a = color.a;
+    }
+
+    public final RGBColor getEndColor() {
+        return endColor;
+    }
+
+    public final void setEndColor( RGBColor color ) {
+        endColor.r = color.r;
+        endColor.g = color.g;
+        endColor.b = color.b;
+        endColor.a = color.a;
+    }
+
+    public final float getStartScale() {
+        return startScale;
+    }
+
+    public final void setStartScale( float startScale ) {
+        this.startScale = startScale;
+    }
+
+    public final float getEndScale() {
+        return endScale;
+    }
+
+    public final void setEndScale( float endScale ) {
+        this.endScale = endScale;
+    }
+
+    /** Gives the live particles of this emitter. The buffer is updated by the ParticleSystem */
+    public final ParticleBuffer getParticles() {
+        return particles;
+    }
+
+    /** Removes all live particles */
+    public final void clearParticles() {
+        particles.clear();
+        spawnCarry = 0f;
+    }
+
+    public final Set<AttributeKey<?>> attributeKeys() {
+        return ATTRIBUTE_KEYS;
+    }
+
+    public final void fromAttributes( AttributeMap attributes ) {
+        spriteAssetId = attributes.getAssetId( SPRITE_ASSET_NAME, spriteAssetId );
+        spriteId = attributes.getAssetInstanceId( SPRITE_ASSET_NAME, SPRITE_ID, spriteId );
+        blendMode = attributes.getValue( BLEND_MODE, blendMode );
+        emitting = attributes.getValue( EMITTING, emitting );
+        particles.setCapacity( attributes.getValue( MAX_PARTICLES, particles.capacity() ) );
+        spawnRate = attributes.getValue( SPAWN_RATE, spawnRate );
+        lifetime = attributes.getValue( LIFETIME, lifetime );
+        lifetimeVariance = attributes.getValue( LIFETIME_VARIANCE, lifetimeVariance );
+        velocityX = attributes.getValue( VELOCITY_X, velocityX );
+        velocityY = attributes.getValue( VELOCITY_Y, velocityY );
+        velocityVariance = attributes.getValue( VELOCITY_VARIANCE, velocityVariance );
+        gravityX = attributes.getValue( GRAVITY_X, gravityX );
+        gravityY = attributes.getValue( GRAVITY_Y, gravityY );
+        setStartColor( attributes.getValue( START_COLOR, startColor ) );
+        setEndColor( attributes.getValue( END_COLOR, endColor ) );
+        startScale = attributes.getValue( START_SCALE, startScale );
+        endScale = attributes.getValue( END_SCALE, endScale );
+    }
+
+    public final boolean copyFrom( EntityComponent component ) {
+        final EParticleEmitter other = (EParticleEmitter) component;
+        spriteId = other.spriteId;
+        spriteAssetId = other.spriteAssetId;
+        textureGeneration = other.textureGeneration;
+        blendMode = other.blendMode;
+        emitting = other.emitting;
+        particles.clear();
+        particles.setCapacity( other.particles.capacity() );
+        spawnRate = other.spawnRate;
+        lifetime = other.lifetime;
+        lifetimeVariance = other.lifetimeVariance;
+        velocityX = other.velocityX;
+        velocityY = other.velocityY;
+        velocityVariance = other.velocityVariance;
+        gravityX = other.gravityX;
+        gravityY = other.gravityY;
+        setStartColor( other.startColor );
+        setEndColor( other.endColor );
+        startScale = other.startScale;
+        endScale = other.endScale;
+        spawnCarry = 0f;
+        return true;
+    }
+
+    public final void toAttributes( AttributeMap attributes ) {
+        attributes.put( SPRITE_ID, spriteId );
+        attributes.put( BLEND_MODE, blendMode );
+        attributes.put( EMITTING, emitting );
+        attributes.put( MAX_PARTICLES, particles.capacity() );
+        attributes.put( SPAWN_RATE, spawnRate );
+        attributes.put( LIFETIME, lifetime );
+        attributes.put( LIFETIME_VARIANCE, lifetimeVariance );
+        attributes.put( VELOCITY_X, velocityX );
+        attributes.put( VELOCITY_Y, velocityY );
+        attributes.put( VELOCITY_VARIANCE, velocityVariance );
+        attributes.put( GRAVITY_X, gravityX );
+        attributes.put( GRAVITY_Y, gravityY );
+        attributes.put( START_COLOR, new RGBColor( startColor ) );
+        attributes.put( END_COLOR, new RGBColor( endColor ) );
+        attributes.put( START_SCALE, startScale );
+        attributes.put( END_SCALE, endScale );
+    }
+
+}
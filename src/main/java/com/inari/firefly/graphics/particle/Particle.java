@@ -119,7 +119,7 @@ public class Particle implements SpriteRenderable, TransformData {
     
     public final void move() {
         data[ 0 ] += data[ 7 ];
-        data[ 1 ] += data[ 9 ];
+        data[ 1 ] += data[ 8 ];
     }
 
 }
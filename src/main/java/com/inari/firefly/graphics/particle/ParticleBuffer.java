@@ -0,0 +1,141 @@
+package com.inari.firefly.graphics.particle;
+
+/** The live particles of one EParticleEmitter, kept as structure of arrays in primitive arrays.
+ *  <p>
+ *  Particles are stored densely from index 0 to size - 1. A dead particle is removed by moving the last particle
+ *  to its index, so the order of particles is not kept.
+ */
+public final class ParticleBuffer {
+
+    float[] xpos;
+    float[] ypos;
+    float[] velocityX;
+    float[] velocityY;
+    float[] age;
+    float[] lifetime;
+    int size = 0;
+
+    ParticleBuffer( int capacity ) {
+        allocate( capacity );
+    }
+
+    public final int size() {
+        return size;
+    }
+
+    public final int capacity() {
+        return xpos.length;
+    }
+
+    public final float getXpos( int index ) {
+        return xpos[ index ];
+    }
+
+    public final float getYpos( int index ) {
+        return ypos[ index ];
+    }
+
+    public final float getVelocityX( int index ) {
+        return velocityX[ index ];
+    }
+
+    public final float getVelocityY( int index ) {
+        return velocityY[ index ];
+    }
+
+    /** Gives the age of the particle in relation to its lifetime from 0 (spawned) to 1 (dead) */
+    public final float getLife( int index ) {
+        return age[ index ] / lifetime[ index ];
+    }
+
+    /** Adds a particle if the buffer is not full
+     *  @return true if the particle was added
+     */
+    final boolean spawn( float x, float y, float vx, float vy, float lifetime ) {
+        if ( size == xpos.length ) {
+            return false;
+        }
+
+        xpos[ size ] = x;
+        ypos[ size ] = y;
+        velocityX[ size ] = vx;
+        velocityY[ size ] = vy;
+        age[ size ] = 0f;
+        this.lifetime[ size ] = lifetime;
+        size++;
+        return true;
+    }
+
+    /** Integrates the particles from index (inclusive) to index (exclusive) by the given time step and gravity.
+     *  Particles of different ranges are independent, so ranges can be integrated on different threads.
+     */
+    final void integrate( final int from, final int to, final float delta, final float gravityX, final float gravityY ) {
+        final float dvx = gravityX * delta;
+        final float dvy = gravityY * delta;
+        // one plain loop over primitive arrays without branches that the JIT is able to unroll and vectorize
+        for ( int i = from; i < to; i++ ) {
+            velocityX[ i ] += dvx;
+            velocityY[ i ] += dvy;
+            xpos[ i ] += velocityX[ i ] * delta;
+            ypos[ i ] += velocityY[ i ] * delta;
+            age[ i ] += delta;
+        }
+    }
+
+    /** Removes all particles that have reached their lifetime */
+    final void removeDead() {
+        int i = 0;
+        while ( i < size ) {
+            if ( age[ i ] < lifetime[ i ] ) {
+                i++;
+                continue;
+            }
+
+            size--;
+            xpos[ i ] = xpos[ size ];
+            ypos[ i ] = ypos[ size ];
+            velocityX[ i ] = velocityX[ size ];
+            velocityY[ i ] = velocityY[ size ];
+            age[ i ] = age[ size ];
+            lifetime[ i ] = lifetime[ size ];
+        }
+    }
+
+    final void clear() {
+        size = 0;
+    }
+
+    /** Sets the maximum number of particles. Live particles beyond the new capacity are dropped */
+    final void setCapacity( int capacity ) {
+        if ( capacity == xpos.length ) {
+            return;
+        }
+
+        final float[] oldXpos = xpos;
+        final float[] oldYpos = ypos;
+        final float[] oldVelocityX = velocityX;
+        final float[] oldVelocityY = velocityY;
+        final float[] oldAge = age;
+        final float[] oldLifetime = lifetime;
+        allocate( capacity );
+
+        size = Math.min( size, xpos.length );
+        System.arraycopy( oldXpos, 0, xpos, 0, size );
+        System.arraycopy( oldYpos, 0, ypos, 0, size );
+        System.arraycopy( oldVelocityX, 0, velocityX, 0, size );
+        System.arraycopy( oldVelocityY, 0, velocityY, 0, size );
+        System.arraycopy( oldAge, 0, age, 0, size );
+        System.arraycopy( oldLifetime, 0, lifetime, 0, size );
+    }
+
+    private void allocate( int capacity ) {
+        capacity = Math.max( capacity, 0 );
+        xpos = new float[ capacity ];
+        ypos = new float[ capacity ];
+        velocityX = new float[ capacity ];
+        velocityY = new float[ capacity ];
+        age = new float[ capacity ];
+        lifetime = new float[ capacity ];
+    }
+
+}
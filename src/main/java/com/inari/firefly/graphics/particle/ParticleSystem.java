@@ -0,0 +1,277 @@
+package com.inari.firefly.graphics.particle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.inari.commons.lang.aspect.IAspects;
+import com.inari.commons.lang.indexed.IIndexedTypeKey;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.firefly.entity.EntityActivationEvent;
+import com.inari.firefly.entity.EntityActivationListener;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.FFSystem;
+import com.inari.firefly.system.UpdateEvent;
+import com.inari.firefly.system.UpdateEventListener;
+import com.inari.firefly.system.external.FFTimer;
+
+/** Spawns, moves and removes the particles of all active entities with an EParticleEmitter on each update.
+ *  <p>
+ *  The particles of an emitter are integrated in one loop over the primitive arrays of its ParticleBuffer.
+ *  If the property PARTICLE_UPDATE_THREADS is set to more than one thread and there are at least MIN_PARALLEL_PARTICLES
+ *  live particles, the particles are integrated in chunks of PARALLEL_CHUNK_SIZE on a worker pool. Spawning and
+ *  removing dead particles are always done on the calling thread.
+ *  <p>
+ *  The ParticleSystem is not loaded by default, load it with <code>context.loadSystem( ParticleSystem.SYSTEM_KEY )</code>
+ */
+public final class ParticleSystem implements FFSystem, UpdateEventListener, EntityActivationListener {
+
+    public static final FFSystemTypeKey<ParticleSystem> SYSTEM_KEY = FFSystemTypeKey.create( ParticleSystem.class );
+
+    public static final int MIN_PARALLEL_PARTICLES = 10000;
+    public static final int PARALLEL_CHUNK_SIZE = 4096;
+
+    private FFContext context;
+    private final IntBag entityIds = new IntBag( 50, -1 );
+    private final Random random = new Random();
+
+    private int updateThreads = 1;
+    private ExecutorService updatePool;
+    private Integrator[] integrators;
+    private final List<Future<Void>> updateFutures = new ArrayList<Future<Void>>();
+
+    // the chunks of particles to integrate in parallel
+    private final AtomicInteger nextChunk = new AtomicInteger( 0 );
+    private EParticleEmitter[] chunkEmitters = new EParticleEmitter[ 64 ];
+    private int[] chunkStarts = new int[ 64 ];
+    private int chunkCount = 0;
+    private float delta;
+
+    ParticleSystem() {}
+
+    public final IIndexedTypeKey indexedTypeKey() {
+        return SYSTEM_KEY;
+    }
+
+    public final FFSystemTypeKey<ParticleSystem> systemTypeKey() {
+        return SYSTEM_KEY;
+    }
+
+    public final void init( FFContext context ) {
+        this.context = context;
+
+        final Integer threads = context.getProperty( FFContext.Properties.PARTICLE_UPDATE_THREADS );
+        if ( threads != null ) {
+            updateThreads = Math.max( 1, threads );
+        }
+
+        context.registerListener( UpdateEvent.TYPE_KEY, this );
+        context.registerListener( EntityActivationEvent.TYPE_KEY, this );
+    }
+
+    public final void dispose( FFContext context ) {
+        context.disposeListener( UpdateEvent.TYPE_KEY, this );
+        context.disposeListener( EntityActivationEvent.TYPE_KEY, this );
+
+        entityIds.clear();
+        if ( updatePool != null ) {
+            updatePool.shutdownNow();
+            updatePool = null;
+        }
+    }
+
+    public final boolean match( final IAspects aspects ) {
+        return aspects.contains( EParticleEmitter.TYPE_KEY );
+    }
+
+    public final void entityActivated( int entityId, final IAspects aspects ) {
+        entityIds.add( entityId );
+    }
+
+    public final void entityDeactivated( int entityId, final IAspects aspects ) {
+        entityIds.remove( entityId );
+        context.getEntityComponent( entityId, EParticleEmitter.TYPE_KEY ).clearParticles();
+    }
+
+    public final void update( final FFTimer timer ) {
+        delta = context.getTimeElapsed() / 1000f;
+        if ( delta <= 0f ) {
+            return;
+        }
+
+        final int nullValue = entityIds.getNullValue();
+        int liveParticles = 0;
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            final int entityId = entityIds.get( i );
+            if ( entityId == nullValue ) {
+                continue;
+            }
+
+            final EParticleEmitter emitter = context.getEntityComponent( entityId, EParticleEmitter.TYPE_KEY );
+            emit( emitter, context.getEntityComponent( entityId, ETransform.TYPE_KEY ) );
+            liveParticles += emitter.particles.size;
+        }
+
+        if ( updateThreads > 1 && liveParticles >= MIN_PARALLEL_PARTICLES ) {
+            integrateParallel();
+        } else {
+            for ( int i = 0; i < entityIds.length(); i++ ) {
+                final int entityId = entityIds.get( i );
+                if ( entityId == nullValue ) {
+                    continue;
+                }
+
+                final EParticleEmitter emitter = context.getEntityComponent( entityId, EParticleEmitter.TYPE_KEY );
+                emitter.particles.integrate( 0, emitter.particles.size, delta, emitter.gravityX, emitter.gravityY );
+            }
+        }
+
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            final int entityId = entityIds.get( i );
+            if ( entityId != nullValue ) {
+                context.getEntityComponent( entityId, EParticleEmitter.TYPE_KEY ).particles.removeDead();
+            }
+        }
+    }
+
+    private void emit( final EParticleEmitter emitter, final ETransform transform ) {
+        if ( !emitter.emitting || emitter.spawnRate <= 0f ) {
+            emitter.spawnCarry = 0f;
+            return;
+        }
+
+        emitter.spawnCarry += emitter.spawnRate * delta;
+        final int count = (int) emitter.spawnCarry;
+        emitter.spawnCarry -= count;
+
+        final ParticleBuffer particles = emitter.particles;
+        final float x = transform.getXpos();
+        final float y = transform.getYpos();
+        for ( int i = 0; i < count && particles.size < particles.capacity(); i++ ) {
+            final float lifetime = emitter.lifetime + emitter.lifetimeVariance * variance();
+            final float vx = emitter.velocityX + emitter.velocityVariance * variance();
+            final float vy = emitter.velocityY + emitter.velocityVariance * variance();
+            if ( lifetime > 0f ) {
+                particles.spawn( x, y, vx, vy, lifetime );
+            }
+        }
+    }
+
+    // a random value between -1 and 1
+    private float variance() {
+        return random.nextFloat() * 2f - 1f;
+    }
+
+    private void integrateParallel() {
+        if ( updatePool == null ) {
+            initUpdatePool();
+        }
+
+        chunkCount = 0;
+        final int nullValue = entityIds.getNullValue();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            final int entityId = entityIds.get( i );
+            if ( entityId == nullValue ) {
+                continue;
+            }
+
+            final EParticleEmitter emitter = context.getEntityComponent( entityId, EParticleEmitter.TYPE_KEY );
+            for ( int start = 0; start < emitter.particles.size; start += PARALLEL_CHUNK_SIZE ) {
+                addChunk( emitter, start );
+            }
+        }
+
+        nextChunk.set( 0 );
+        updateFutures.clear();
+        for ( int i = 0; i < integrators.length; i++ ) {
+            updateFutures.add( updatePool.submit( integrators[ i ] ) );
+        }
+
+        RuntimeException failure = null;
+        try {
+            integrateChunks();
+        } catch ( RuntimeException e ) {
+            failure = e;
+        }
+
+        // all workers must be finished before dead particles are removed
+        for ( int i = 0; i < updateFutures.size(); i++ ) {
+            try {
+                updateFutures.get( i ).get();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                failure = new IllegalStateException( "Interrupted while updating particles", e );
+            } catch ( ExecutionException e ) {
+                failure = new IllegalStateException( "Failed to update particles", e.getCause() );
+            }
+        }
+        updateFutures.clear();
+
+        for ( int i = 0; i < chunkCount; i++ ) {
+            chunkEmitters[ i ] = null;
+        }
+
+        if ( failure != null ) {
+            throw failure;
+        }
+    }
+
+    private void addChunk( final EParticleEmitter emitter, final int start ) {
+        if ( chunkCount == chunkStarts.length ) {
+            final EParticleEmitter[] newChunkEmitters = new EParticleEmitter[ chunkCount * 2 ];
+            final int[] newChunkStarts = new int[ chunkCount * 2 ];
+            System.arraycopy( chunkEmitters, 0, newChunkEmitters, 0, chunkCount );
+            System.arraycopy( chunkStarts, 0, newChunkStarts, 0, chunkCount );
+            chunkEmitters = newChunkEmitters;
+            chunkStarts = newChunkStarts;
+        }
+
+        chunkEmitters[ chunkCount ] = emitter;
+        chunkStarts[ chunkCount ] = start;
+        chunkCount++;
+    }
+
+    /** Integrates the collected chunks until there is no one left */
+    private void integrateChunks() {
+        int index = nextChunk.getAndIncrement();
+        while ( index < chunkCount ) {
+            final EParticleEmitter emitter = chunkEmitters[ index ];
+            final int start = chunkStarts[ index ];
+            final int end = Math.min( start + PARALLEL_CHUNK_SIZE, emitter.particles.size );
+            emitter.particles.integrate( start, end, delta, emitter.gravityX, emitter.gravityY );
+            index = nextChunk.getAndIncrement();
+        }
+    }
+
+    private void initUpdatePool() {
+        integrators = new Integrator[ updateThreads - 1 ];
+        for ( int i = 0; i < integrators.length; i++ ) {
+            integrators[ i ] = new Integrator();
+        }
+
+        updatePool = Executors.newFixedThreadPool( integrators.length, new ThreadFactory() {
+            private int count = 0;
+            public final Thread newThread( Runnable runnable ) {
+                final Thread thread = new Thread( runnable, "FFParticleUpdate-" + count++ );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+    private final class Integrator implements Callable<Void> {
+        public final Void call() {
+            integrateChunks();
+            return null;
+        }
+    }
+
+}
@@ -8,7 +8,7 @@ import com.inari.firefly.entity.EntityComponent;
 import com.inari.firefly.graphics.ETransform;
 import com.inari.firefly.graphics.tile.ETile;
 import com.inari.firefly.graphics.tile.TileGrid;
-import com.inari.firefly.graphics.tile.TileGrid.TileGridIterator;
+import com.inari.firefly.graphics.tile.TileGridCursor;
 import com.inari.firefly.graphics.tile.TileGridSystem;
 import com.inari.firefly.system.component.SystemComponentType;
 import com.inari.firefly.system.external.FFTimer;
@@ -22,6 +22,7 @@ public final class FullTileGridRenderer extends Renderer {
         ETile.TYPE_KEY 
     );
     
+    private final TileGridCursor cursor = new TileGridCursor();
     private TileGridSystem tileGridSystem;
 
     protected FullTileGridRenderer( int index ) {
@@ -49,15 +50,16 @@ public final class FullTileGridRenderer extends Renderer {
             return;
         }
         
-        TileGridIterator tileGridIterator = tileGrid.getTileGridIterator( clip );
-        while( tileGridIterator.hasNext() ) {
-            int entityId = tileGridIterator.next();
+        tileGrid.getCursor( clip, cursor );
+        while( cursor.next() ) {
+            int entityId = cursor.getEntityId();
             ETile tile = entitySystem.getComponent( entityId, ETile.TYPE_KEY );
             ETransform transform = entitySystem.getComponent( entityId, ETransform.TYPE_KEY );
             
             transformCollector.set( transform );
-            transformCollector.addOffset( tileGridIterator.getWorldXPos(), tileGridIterator.getWorldYPos() );
+            transformCollector.addOffset( cursor.getWorldXPos(), cursor.getWorldYPos() );
             
+            markUsed( tile );
             graphics.renderSprite( tile, transformCollector );
         }
     }
@@ -50,6 +50,7 @@ public final class MultiPositionSpriteRenderer extends Renderer {
             final ETransform transform = components.get( ETransform.TYPE_KEY );
             final ESpriteMultiplier multiplier = components.get( ESpriteMultiplier.TYPE_KEY );
             final DynArrayRO<PositionF> positions = multiplier.getPositions();
+            markUsed( sprite );
             
             for ( int p = 0; p < positions.capacity(); p++ ) {
                 PositionF pos = positions.get( p );
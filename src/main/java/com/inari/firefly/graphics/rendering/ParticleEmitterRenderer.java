@@ -0,0 +1,113 @@
+package com.inari.firefly.graphics.rendering;
+
+import com.inari.commons.geom.Rectangle;
+import com.inari.commons.graphics.RGBColor;
+import com.inari.commons.lang.aspect.Aspects;
+import com.inari.commons.lang.aspect.IAspects;
+import com.inari.commons.lang.indexed.IndexedTypeSet;
+import com.inari.commons.lang.list.DynArrayRO;
+import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.graphics.BlendMode;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.particle.EParticleEmitter;
+import com.inari.firefly.graphics.particle.ParticleBuffer;
+import com.inari.firefly.system.component.SystemComponentType;
+import com.inari.firefly.system.external.FFTimer;
+
+/** Renders the live particles of EParticleEmitter at their world position with the tint color and scale
+ *  of their age. All particles of an emitter are submitted through one reused SpriteRenderable without
+ *  any transform composition per particle.
+ */
+public final class ParticleEmitterRenderer extends Renderer {
+
+    public static final SystemComponentType COMPONENT_TYPE = new SystemComponentType( Renderer.TYPE_KEY, ParticleEmitterRenderer.class );
+    public static final RenderingChain.RendererKey CHAIN_KEY = new RenderingChain.RendererKey( "ParticleEmitterRenderer", ParticleEmitterRenderer.class );
+    public static final Aspects MATCHING_ASPECTS = EntityComponent.ASPECT_GROUP.createAspects(
+        ETransform.TYPE_KEY,
+        EParticleEmitter.TYPE_KEY
+    );
+
+    private final ParticleSprite particleSprite = new ParticleSprite();
+
+    protected ParticleEmitterRenderer( int index ) {
+        super( index );
+        setName( CHAIN_KEY.name );
+    }
+
+    @Override
+    public final boolean match( IAspects aspects ) {
+        return aspects.include( MATCHING_ASPECTS );
+    }
+
+    @Override
+    public final void render( int viewId, int layerId, final Rectangle clip, final FFTimer timer ) {
+        final DynArrayRO<IndexedTypeSet> emittersToRender = getEntites( viewId, layerId, false );
+        if ( emittersToRender == null ) {
+            return;
+        }
+
+        for ( int i = 0; i < emittersToRender.capacity(); i++ ) {
+            final IndexedTypeSet components = emittersToRender.get( i );
+            if ( components == null ) {
+                continue;
+            }
+
+            final EParticleEmitter emitter = components.get( EParticleEmitter.TYPE_KEY );
+            final ParticleBuffer particles = emitter.getParticles();
+            if ( particles.size() == 0 ) {
+                continue;
+            }
+
+            markUsed( emitter );
+            particleSprite.spriteId = emitter.getSpriteId();
+            particleSprite.blendMode = emitter.getBlendMode();
+
+            final RGBColor start = emitter.getStartColor();
+            final RGBColor end = emitter.getEndColor();
+            final float startScale = emitter.getStartScale();
+            final float scaleRange = emitter.getEndScale() - startScale;
+            final RGBColor tint = particleSprite.tintColor;
+            for ( int ip = 0; ip < particles.size(); ip++ ) {
+                final float life = particles.getLife( ip );
+                tint.r = start.r + ( end.r - start.r ) * life;
+                tint.g = start.g + ( end.g - start.g ) * life;
+                tint.b = start.b + ( end.b - start.b ) * life;
+                tint.a = start.a + ( end.a - start.a ) * life;
+                graphics.renderSprite(
+                    particleSprite,
+                    particles.getXpos( ip ),
+                    particles.getYpos( ip ),
+                    startScale + scaleRange * life
+                );
+            }
+        }
+    }
+
+    private static final class ParticleSprite implements SpriteRenderable {
+
+        int spriteId;
+        final RGBColor tintColor = new RGBColor( 1, 1, 1, 1 );
+        BlendMode blendMode;
+
+        @Override
+        public final int getSpriteId() {
+            return spriteId;
+        }
+
+        @Override
+        public final RGBColor getTintColor() {
+            return tintColor;
+        }
+
+        @Override
+        public final BlendMode getBlendMode() {
+            return blendMode;
+        }
+
+        @Override
+        public final int getShaderId() {
+            return -1;
+        }
+    }
+
+}
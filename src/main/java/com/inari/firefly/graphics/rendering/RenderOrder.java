@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2015 - 2016, Andreas Hefti, inarisoft@yahoo.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.inari.firefly.graphics.rendering;
+
+import com.inari.commons.lang.indexed.IndexedTypeSet;
+import com.inari.firefly.entity.EGroup;
+import com.inari.firefly.graphics.ETransform;
+
+/** Keeps the renderables of one layer of a Renderer in ascending order of a SortKey.
+ *  <p>
+ *  A new renderable is inserted at its position by binary search, after all renderables with the same key.
+ *  The keys are cached and refreshed once per frame by update. Changed keys are restored in one insertion sort
+ *  that only moves the changed renderables, so a frame without changes costs one key compare per renderable.
+ */
+public final class RenderOrder {
+
+    /** Gives the sort key of a renderable. Renderables with a lower key are rendered first */
+    public interface SortKey {
+        float of( IndexedTypeSet components );
+    }
+
+    /** Orders by EGroup.POSITION_Z */
+    public static final SortKey GROUP_Z = new SortKey() {
+        @Override
+        public final float of( IndexedTypeSet components ) {
+            return components.<EGroup>get( EGroup.TYPE_KEY ).getPositionZ();
+        }
+    };
+
+    /** Orders by the y position of the ETransform, so that renderables further down are rendered on top */
+    public static final SortKey Y_POSITION = new SortKey() {
+        @Override
+        public final float of( IndexedTypeSet components ) {
+            return components.<ETransform>get( ETransform.TYPE_KEY ).getYpos();
+        }
+    };
+
+    private final SortKey sortKey;
+
+    private IndexedTypeSet[] renderables = new IndexedTypeSet[ 100 ];
+    private float[] keys = new float[ 100 ];
+    private int size = 0;
+
+    RenderOrder( SortKey sortKey ) {
+        this.sortKey = sortKey;
+    }
+
+    public final int size() {
+        return size;
+    }
+
+    public final IndexedTypeSet get( int index ) {
+        return renderables[ index ];
+    }
+
+    final void add( final IndexedTypeSet components ) {
+        if ( size == renderables.length ) {
+            grow();
+        }
+
+        final float key = sortKey.of( components );
+        int low = 0;
+        int high = size;
+        while ( low < high ) {
+            final int mid = ( low + high ) >>> 1;
+            if ( keys[ mid ] <= key ) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        System.arraycopy( renderables, low, renderables, low + 1, size - low );
+        System.arraycopy( keys, low, keys, low + 1, size - low );
+        renderables[ low ] = components;
+        keys[ low ] = key;
+        size++;
+    }
+
+    final void remove( final IndexedTypeSet components ) {
+        for ( int i = 0; i < size; i++ ) {
+            if ( renderables[ i ] == components ) {
+                System.arraycopy( renderables, i + 1, renderables, i, size - i - 1 );
+                System.arraycopy( keys, i + 1, keys, i, size - i - 1 );
+                size--;
+                renderables[ size ] = null;
+                return;
+            }
+        }
+    }
+
+    /** Refreshes the cached keys and restores the order if any key has changed since the last update */
+    final void update() {
+        boolean changed = false;
+        for ( int i = 0; i < size; i++ ) {
+            final float key = sortKey.of( renderables[ i ] );
+            if ( key != keys[ i ] ) {
+                keys[ i ] = key;
+                changed = true;
+            }
+        }
+
+        if ( !changed ) {
+            return;
+        }
+
+        // the order is nearly kept from the last frame, so a stable insertion sort only moves the changed renderables
+        for ( int i = 1; i < size; i++ ) {
+            final IndexedTypeSet components = renderables[ i ];
+            final float key = keys[ i ];
+            int j = i - 1;
+            while ( j >= 0 && keys[ j ] > key ) {
+                renderables[ j + 1 ] = renderables[ j ];
+                keys[ j + 1 ] = keys[ j ];
+                j--;
+            }
+            renderables[ j + 1 ] = components;
+            keys[ j + 1 ] = key;
+        }
+    }
+
+    private void grow() {
+        final int capacity = renderables.length * 2;
+        final IndexedTypeSet[] newRenderables = new IndexedTypeSet[ capacity ];
+        final float[] newKeys = new float[ capacity ];
+        System.arraycopy( renderables, 0, newRenderables, 0, size );
+        System.arraycopy( keys, 0, newKeys, 0, size );
+        renderables = newRenderables;
+        keys = newKeys;
+    }
+
+}
@@ -9,6 +9,8 @@ import com.inari.commons.lang.list.DynArrayRO;
 import com.inari.firefly.FFInitException;
 import com.inari.firefly.entity.EntitySystem;
 import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.ResidentSprite;
+import com.inari.firefly.graphics.TextureResidencySystem;
 import com.inari.firefly.system.component.SystemComponent;
 import com.inari.firefly.system.external.FFGraphics;
 import com.inari.firefly.system.external.FFTimer;
@@ -22,11 +24,16 @@ public abstract class Renderer extends SystemComponent {
     
     protected EntitySystem entitySystem;
     protected FFGraphics graphics;
+    protected TextureResidencySystem textureResidency;
     protected final DynArray<DynArray<DynArray<IndexedTypeSet>>> spritesPerViewAndLayer;
     
+    private RenderOrder.SortKey sortKey = null;
+    private final DynArray<DynArray<RenderOrder>> ordersPerViewAndLayer;
+    
     protected Renderer( int index ) {
         super( index );
         spritesPerViewAndLayer = DynArray.createTyped( DynArray.class, 20, 10 );
+        ordersPerViewAndLayer = DynArray.createTyped( DynArray.class, 20, 10 );
     }
     
     @Override
@@ -35,6 +42,7 @@ public abstract class Renderer extends SystemComponent {
         
         entitySystem = context.getSystem( EntitySystem.SYSTEM_KEY );
         graphics = context.getGraphics();
+        textureResidency = context.getSystem( TextureResidencySystem.SYSTEM_KEY );
     }
     
     @Override
@@ -48,6 +56,9 @@ public abstract class Renderer extends SystemComponent {
             final ETransform transform = components.get( ETransform.TYPE_KEY );
             final DynArray<IndexedTypeSet> renderablesOfView = _getEntites( transform.getViewId(), transform.getLayerId(), true );
             renderablesOfView.add( components );
+            if ( sortKey != null ) {
+                getOrder( transform.getViewId(), transform.getLayerId(), true ).add( components );
+            }
             accepted( entityId, aspects, renderablesOfView );
             return true;
         } 
@@ -63,9 +74,49 @@ public abstract class Renderer extends SystemComponent {
             if ( renderablesOfView != null ) {
                 renderablesOfView.remove( components );
             }
+            final RenderOrder order = getOrder( transform.getViewId(), transform.getLayerId(), false );
+            if ( order != null ) {
+                order.remove( components );
+            }
+        }
+    }
+    
+    /** Sets the SortKey to keep the renderables of each layer ordered by, or null to keep no order.
+     *  The renderables that are already accepted are ordered immediately.
+     */
+    protected final void setSortKey( RenderOrder.SortKey sortKey ) {
+        this.sortKey = sortKey;
+        ordersPerViewAndLayer.clear();
+        if ( sortKey == null ) {
+            return;
+        }
+        
+        for ( int viewId = 0; viewId < spritesPerViewAndLayer.capacity(); viewId++ ) {
+            final DynArray<DynArray<IndexedTypeSet>> spritesPerLayer = spritesPerViewAndLayer.get( viewId );
+            if ( spritesPerLayer == null ) {
+                continue;
+            }
+            
+            for ( int layerId = 0; layerId < spritesPerLayer.capacity(); layerId++ ) {
+                final DynArray<IndexedTypeSet> spritesOfLayer = spritesPerLayer.get( layerId );
+                if ( spritesOfLayer == null ) {
+                    continue;
+                }
+                
+                for ( int i = 0; i < spritesOfLayer.capacity(); i++ ) {
+                    final IndexedTypeSet components = spritesOfLayer.get( i );
+                    if ( components != null ) {
+                        getOrder( viewId, layerId, true ).add( components );
+                    }
+                }
+            }
         }
     }
     
+    protected final RenderOrder.SortKey getSortKey() {
+        return sortKey;
+    }
+    
     protected void accepted( int entityId, final IAspects aspects, final DynArray<IndexedTypeSet> renderablesOfView ) {
         // NOOP
     }
@@ -74,6 +125,23 @@ public abstract class Renderer extends SystemComponent {
         return true;
     }
     
+    /** Marks the texture of the sprite as used within the current frame and refreshes the sprite id 
+     *  if the texture was evicted and has been reloaded by the TextureResidencySystem */
+    protected final void markUsed( final ResidentSprite sprite ) {
+        textureResidency.use( sprite );
+    }
+    
+    /** Gives the renderables of the specified layer in the order of the SortKey or null if there are none.
+     *  Call this once per frame and layer since it restores the order of renderables whose key has changed.
+     */
+    protected final RenderOrder getOrderedEntities( int viewId, int layerId ) {
+        final RenderOrder order = getOrder( viewId, layerId, false );
+        if ( order != null ) {
+            order.update();
+        }
+        return order;
+    }
+    
     protected final DynArrayRO<IndexedTypeSet> getEntites( int viewId, int layerId, boolean createNew ) {
         return _getEntites( viewId, layerId, createNew );
     }
@@ -102,6 +170,30 @@ public abstract class Renderer extends SystemComponent {
         return spritesOfLayer;
     }
     
+    private RenderOrder getOrder( int viewId, int layerId, boolean createNew ) {
+        DynArray<RenderOrder> ordersPerLayer = null;
+        if ( ordersPerViewAndLayer.contains( viewId ) ) { 
+            ordersPerLayer = ordersPerViewAndLayer.get( viewId );
+        } else if ( createNew ) {
+            ordersPerLayer = DynArray.create( RenderOrder.class, 20, 10 );
+            ordersPerViewAndLayer.set( viewId, ordersPerLayer );
+        }
+        
+        if ( ordersPerLayer == null ) {
+            return null;
+        }
+        
+        RenderOrder order = null;
+        if ( ordersPerLayer.contains( layerId ) ) { 
+            order = ordersPerLayer.get( layerId );
+        } else if ( createNew ) {
+            order = new RenderOrder( sortKey );
+            ordersPerLayer.set( layerId, order );
+        }
+        
+        return order;
+    }
+    
     public abstract boolean match( final IAspects aspects );
     
     
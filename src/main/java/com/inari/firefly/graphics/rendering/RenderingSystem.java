@@ -1,11 +1,15 @@
 package com.inari.firefly.graphics.rendering;
 
+import java.util.ArrayDeque;
+
 import com.inari.commons.geom.Rectangle;
 import com.inari.commons.lang.aspect.IAspects;
 import com.inari.commons.lang.indexed.IIndexedTypeKey;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.commons.lang.list.IntBagRO;
 import com.inari.firefly.FFInitException;
+import com.inari.firefly.entity.BatchedEntityActivationListener;
 import com.inari.firefly.entity.EntityActivationEvent;
-import com.inari.firefly.entity.EntityActivationListener;
 import com.inari.firefly.system.FFContext;
 import com.inari.firefly.system.FFSystem;
 import com.inari.firefly.system.RenderEvent;
@@ -13,14 +17,16 @@ import com.inari.firefly.system.RenderEventListener;
 import com.inari.firefly.system.component.SystemComponent.SystemComponentKey;
 import com.inari.firefly.system.component.SystemComponentBuilder;
 import com.inari.firefly.system.external.FFTimer;
+import com.inari.firefly.system.info.FrameProfiler;
 
-public final class RenderingSystem implements FFSystem, RenderEventListener, EntityActivationListener {
+public final class RenderingSystem implements FFSystem, RenderEventListener, BatchedEntityActivationListener, FrameProfiler.SelfProfiling {
     
     public static final RenderingChain DEFAULT_RENDERING_CHAIN = new RenderingChain()
         .addElement( SimpleTileGridRenderer.CHAIN_KEY )
         .addElement( MultiPositionSpriteRenderer.CHAIN_KEY )
         .addElement( SimpleSpriteRenderer.CHAIN_KEY )
         .addElement( SpriteParticleRenderer.CHAIN_KEY )
+        .addElement( ParticleEmitterRenderer.CHAIN_KEY )
         .addElement( SimpleShapeRenderer.CHAIN_KEY )
         .addElement( SimpleTextRenderer.CHAIN_KEY )
         .build();
@@ -28,14 +34,18 @@ public final class RenderingSystem implements FFSystem, RenderEventListener, Ent
     public static final FFSystemTypeKey<RenderingSystem> SYSTEM_KEY = FFSystemTypeKey.create( RenderingSystem.class );
 
     private FFContext context;
+    private FrameProfiler profiler;
     private boolean allowMultipleAcceptance = false;
     private RenderingChain renderingChain;
+    // a renderer may activate or deactivate entities within a batch, so each batch takes its own bag from the pool
+    private final ArrayDeque<IntBag> matchingElementsPool = new ArrayDeque<IntBag>();
     
 
     RenderingSystem() {}
 
     public void init( FFContext context ) throws FFInitException {
         this.context = context;
+        profiler = context.getFrameProfiler();
         
         context.registerListener( RenderEvent.TYPE_KEY, this );
         context.registerListener( EntityActivationEvent.TYPE_KEY, this );
@@ -95,6 +105,66 @@ public final class RenderingSystem implements FFSystem, RenderEventListener, Ent
         }
     }
 
+    public final void entitiesActivated( final IntBagRO entityIds, final IAspects aspects ) {
+        // all entities of the batch have the same aspects so the matching renderer are resolved only once
+        final IntBag matching = matchingElements( aspects );
+        final int nullValue = entityIds.getNullValue();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            final int entityId = entityIds.get( i );
+            if ( entityId == nullValue ) {
+                continue;
+            }
+            
+            for ( int j = 0; j < matching.length(); j++ ) {
+                final Renderer renderer = renderingChain.elements.get( matching.get( j ) ).renderer;
+                if ( renderer.accept( entityId, aspects ) && !allowMultipleAcceptance ) {
+                    break;
+                }
+            }
+        }
+        disposeMatchingElements( matching );
+    }
+
+    public final void entitiesDeactivated( final IntBagRO entityIds, final IAspects aspects ) {
+        final IntBag matching = matchingElements( aspects );
+        final int nullValue = entityIds.getNullValue();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            final int entityId = entityIds.get( i );
+            if ( entityId == nullValue ) {
+                continue;
+            }
+            
+            for ( int j = 0; j < matching.length(); j++ ) {
+                renderingChain.elements.get( matching.get( j ) ).renderer.dispose( entityId, aspects );
+            }
+        }
+        disposeMatchingElements( matching );
+    }
+    
+    private IntBag matchingElements( final IAspects aspects ) {
+        IntBag matchingElements = matchingElementsPool.poll();
+        if ( matchingElements == null ) {
+            matchingElements = new IntBag( 10, -1 );
+        }
+        
+        for ( int i = 0; i < renderingChain.elements.capacity(); i++ ) {
+            RenderingChain.Element element = renderingChain.elements.get( i );
+            if ( element == null || element.renderer == null ) {
+                continue;
+            }
+            
+            if ( element.renderer.match( aspects ) ) {
+                matchingElements.add( i );
+            }
+        }
+        return matchingElements;
+    }
+    
+    private void disposeMatchingElements( final IntBag matchingElements ) {
+        matchingElements.clear();
+        matchingElementsPool.add( matchingElements );
+    }
+
     public final void render( int viewId, int layerId, final Rectangle clip, final FFTimer timer ) {
         for ( int i = 0; i < renderingChain.elements.capacity(); i++ ) {
             RenderingChain.Element element = renderingChain.elements.get( i );
@@ -102,6 +172,13 @@ public final class RenderingSystem implements FFSystem, RenderEventListener, Ent
                 continue;
             }
             
+            if ( profiler.isEnabled() ) {
+                final long start = System.nanoTime();
+                element.renderer.render( viewId, layerId, clip, timer );
+                profiler.record( element.renderer, System.nanoTime() - start );
+                continue;
+            }
+            
             element.renderer.render( viewId, layerId, clip, timer );
         }
     }
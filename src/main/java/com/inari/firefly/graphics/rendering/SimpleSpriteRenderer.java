@@ -1,10 +1,15 @@
 package com.inari.firefly.graphics.rendering;
 
+import java.util.Set;
+
+import com.inari.commons.JavaUtils;
 import com.inari.commons.geom.Rectangle;
 import com.inari.commons.lang.aspect.Aspects;
 import com.inari.commons.lang.aspect.IAspects;
 import com.inari.commons.lang.indexed.IndexedTypeSet;
 import com.inari.commons.lang.list.DynArrayRO;
+import com.inari.firefly.component.attr.AttributeKey;
+import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EGroup;
 import com.inari.firefly.entity.EntityComponent;
 import com.inari.firefly.graphics.ETransform;
@@ -25,6 +30,12 @@ public final class SimpleSpriteRenderer extends Renderer {
         EGroup.TYPE_KEY, 
         ETile.TYPE_KEY
     );
+    
+    /** Renders the sprites of a layer ordered by the y position of their ETransform, for top-down views */
+    public static final AttributeKey<Boolean> Y_SORT = AttributeKey.createBoolean( "ySort", SimpleSpriteRenderer.class );
+    public static final Set<AttributeKey<?>> ATTRIBUTE_KEYS = JavaUtils.<AttributeKey<?>>unmodifiableSet( 
+        Y_SORT
+    );
 
     protected SimpleSpriteRenderer( int index ) {
         super( index );
@@ -37,8 +48,40 @@ public final class SimpleSpriteRenderer extends Renderer {
                aspects.exclude( NONE_MATCHING_ASPECTS );
     }
 
+    public final boolean isYSort() {
+        return getSortKey() == RenderOrder.Y_POSITION;
+    }
+
+    public final void setYSort( boolean ySort ) {
+        setSortKey( ( ySort )? RenderOrder.Y_POSITION : null );
+    }
+
+    @Override
+    public final Set<AttributeKey<?>> attributeKeys() {
+        return JavaUtils.unmodifiableSet( super.attributeKeys(), ATTRIBUTE_KEYS );
+    }
+
+    @Override
+    public final void fromAttributes( AttributeMap attributes ) {
+        super.fromAttributes( attributes );
+        
+        setYSort( attributes.getValue( Y_SORT, isYSort() ) );
+    }
+
+    @Override
+    public final void toAttributes( AttributeMap attributes ) {
+        super.toAttributes( attributes );
+        
+        attributes.put( Y_SORT, isYSort() );
+    }
+
     @Override
     public final void render( int viewId, int layerId, final Rectangle clip, final FFTimer timer ) {
+        if ( isYSort() ) {
+            renderOrdered( viewId, layerId );
+            return;
+        }
+        
         final DynArrayRO<IndexedTypeSet> spritesToRender = getEntites( viewId, layerId, false );
         if ( spritesToRender == null ) {
             return;
@@ -50,8 +93,27 @@ public final class SimpleSpriteRenderer extends Renderer {
                 continue;
             }
 
+            final ESprite sprite = components.get( ESprite.TYPE_KEY );
+            markUsed( sprite );
+            graphics.renderSprite( 
+                sprite, 
+                components.<ETransform>get( ETransform.TYPE_KEY ) 
+            );
+        }
+    }
+    
+    private void renderOrdered( int viewId, int layerId ) {
+        final RenderOrder spritesToRender = getOrderedEntities( viewId, layerId );
+        if ( spritesToRender == null ) {
+            return;
+        }
+        
+        for ( int i = 0; i < spritesToRender.size(); i++ ) {
+            final IndexedTypeSet components = spritesToRender.get( i );
+            final ESprite sprite = components.get( ESprite.TYPE_KEY );
+            markUsed( sprite );
             graphics.renderSprite( 
-                components.<ESprite>get( ESprite.TYPE_KEY ), 
+                sprite, 
                 components.<ETransform>get( ETransform.TYPE_KEY ) 
             );
         }
@@ -50,6 +50,7 @@ public final class SimpleTextRenderer extends Renderer {
             
             EText text = components.get( EText.TYPE_KEY );
             ETransform transform = components.get( ETransform.TYPE_KEY );
+            textureResidency.use( text.getFontAssetId() );
             FontAsset font = context.getSystemComponent( Asset.TYPE_KEY, text.getFontAssetId(), FontAsset.class );
             
             char[] chars = text.getText().toCharArray();
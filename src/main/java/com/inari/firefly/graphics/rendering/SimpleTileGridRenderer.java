@@ -8,7 +8,7 @@ import com.inari.firefly.entity.EntityComponent;
 import com.inari.firefly.graphics.ETransform;
 import com.inari.firefly.graphics.tile.ETile;
 import com.inari.firefly.graphics.tile.TileGrid;
-import com.inari.firefly.graphics.tile.TileGrid.TileGridIterator;
+import com.inari.firefly.graphics.tile.TileGridCursor;
 import com.inari.firefly.graphics.tile.TileGridSystem;
 import com.inari.firefly.system.component.SystemComponentType;
 import com.inari.firefly.system.external.FFTimer;
@@ -22,6 +22,7 @@ public final class SimpleTileGridRenderer extends Renderer {
         ETile.TYPE_KEY 
     );
     
+    private final TileGridCursor cursor = new TileGridCursor();
     private TileGridSystem tileGridSystem;
 
     protected SimpleTileGridRenderer( int index ) {
@@ -47,10 +48,11 @@ public final class SimpleTileGridRenderer extends Renderer {
             return;
         }
         
-        final TileGridIterator tileGridIterator = tileGrid.getTileGridIterator( clip );
-        while( tileGridIterator.hasNext() ) {
-            ETile tile = entitySystem.getComponent( tileGridIterator.next(), ETile.TYPE_KEY );
-            graphics.renderSprite( tile, tileGridIterator.getWorldXPos(), tileGridIterator.getWorldYPos() );
+        tileGrid.getCursor( clip, cursor );
+        while( cursor.next() ) {
+            ETile tile = entitySystem.getComponent( cursor.getEntityId(), ETile.TYPE_KEY );
+            markUsed( tile );
+            graphics.renderSprite( tile, cursor.getWorldXPos(), cursor.getWorldYPos() );
         }
     }
 
@@ -1,19 +1,18 @@
 package com.inari.firefly.graphics.rendering;
 
-import java.util.Comparator;
-
 import com.inari.commons.geom.Rectangle;
 import com.inari.commons.lang.aspect.Aspects;
 import com.inari.commons.lang.aspect.IAspects;
 import com.inari.commons.lang.indexed.IndexedTypeSet;
-import com.inari.commons.lang.list.DynArray;
-import com.inari.commons.lang.list.DynArrayRO;
+import com.inari.firefly.FFInitException;
 import com.inari.firefly.entity.EGroup;
 import com.inari.firefly.entity.EntityComponent;
 import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.TransformHierarchySystem;
 import com.inari.firefly.graphics.sprite.ESprite;
 import com.inari.firefly.system.component.SystemComponentType;
 import com.inari.firefly.system.external.FFTimer;
+import com.inari.firefly.system.external.TransformData;
 
 public final class SpriteGroupRenderer extends Renderer {
     
@@ -24,83 +23,49 @@ public final class SpriteGroupRenderer extends Renderer {
         ESprite.TYPE_KEY,
         EGroup.TYPE_KEY
     );
+    
+    private TransformHierarchySystem transformHierarchy;
 
     public SpriteGroupRenderer( int index ) {
         super( index );
         setName( CHAIN_KEY.name );
+        setSortKey( RenderOrder.GROUP_Z );
     }
     
     @Override
-    public final boolean match( IAspects aspects ) {
-        return aspects.include( MATCHING_ASPECTS );
+    protected final void init() throws FFInitException {
+        super.init();
+        transformHierarchy = context.getSystem( TransformHierarchySystem.SYSTEM_KEY );
     }
-
+    
     @Override
-    protected final void accepted( int entityId, final IAspects aspects, final DynArray<IndexedTypeSet> renderablesOfView ) {
-        renderablesOfView.sort( RENDERABLE_COMPARATOR );
+    public final boolean match( IAspects aspects ) {
+        return aspects.include( MATCHING_ASPECTS );
     }
 
     @Override
     public final void render( int viewId, int layerId, final Rectangle clip, final FFTimer timer ) {
-        final DynArrayRO<IndexedTypeSet> spritesToRender = getEntites( viewId, layerId, false );
+        final RenderOrder spritesToRender = getOrderedEntities( viewId, layerId );
         if ( spritesToRender == null ) {
             return;
         }
         
-        for ( int i = 0; i < spritesToRender.capacity(); i++ ) {
+        for ( int i = 0; i < spritesToRender.size(); i++ ) {
             final IndexedTypeSet components = spritesToRender.get( i );
-            if ( components == null ) {
-                continue;
-            }
-
             final ESprite sprite = components.get( ESprite.TYPE_KEY );
             final ETransform transform = components.get( ETransform.TYPE_KEY );
             final EGroup group = components.get( EGroup.TYPE_KEY );
             
             transformCollector.set( transform );
-            collectTransformData( group.getParentId(), transformCollector );
-            graphics.renderSprite( sprite, transformCollector );
-        }
-    }
-    
-    private void collectTransformData( final int parentId, final TransformDataCollector transformCollector ) {
-        if ( parentId < 0 ) {
-            return;
-        }
-        
-        final ETransform parentTransform = entitySystem.getComponent( parentId, ETransform.TYPE_KEY );
-        final EGroup group = entitySystem.getComponent( parentId, EGroup.TYPE_KEY );
-        if ( parentTransform != null ) {
-            transformCollector.add( parentTransform );
-            if ( group != null ) {
-                collectTransformData( group.getParentId(), transformCollector );
+            // the world transform of the parent is cached and only calculated again when the hierarchy has changed.
+            // An inactive parent has no world transform, so the sprite is rendered with its own transform only
+            final TransformData parentTransform = transformHierarchy.getWorldTransform( group.getParentId() );
+            if ( parentTransform != null ) {
+                transformCollector.add( parentTransform );
             }
+            markUsed( sprite );
+            graphics.renderSprite( sprite, transformCollector );
         }
     }
-    
-    final Comparator<IndexedTypeSet> RENDERABLE_COMPARATOR = new Comparator<IndexedTypeSet>() {
-        
-        @Override
-        public final int compare( IndexedTypeSet its1, IndexedTypeSet its2 ) {
-            if ( its1 == null && its2 == null ) {
-                return 0;
-            }
-            if ( its1 == null ) {
-                return 1;
-            }
-            if ( its2 == null ) {
-                return -1;
-            }
-            EGroup gr1 = its1.get( EGroup.TYPE_KEY );
-            EGroup gr2 = its2.get( EGroup.TYPE_KEY );
-            int o1 = gr1.getPositionZ();
-            int o2 = gr2.getPositionZ();
-            if ( o1 == o2 ) {
-                return 0;
-            }
-            
-            return ( o1 < o2 )? -1 : 1;
-        }
-    };
 
 }
@@ -9,12 +9,15 @@ import com.inari.commons.lang.list.DynArrayRO;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
 import com.inari.firefly.graphics.BlendMode;
 import com.inari.firefly.system.external.ShapeData;
 
 public class EShape extends EntityComponent implements ShapeData {
 
-    public static final EntityComponentTypeKey<EShape> TYPE_KEY = EntityComponentTypeKey.create( EShape.class );
+    public static final EntityComponentTypeKey<EShape> TYPE_KEY = EntityComponentTypeKey.create( EShape.class, new EntityComponentFactory<EShape>() {
+        public final EShape create() { return new EShape(); }
+    } );
 
     public static final AttributeKey<Type> SHAPE_TYPE = AttributeKey.create( "shapeType", Type.class, EShape.class );
     public static final AttributeKey<float[]> VERTICES = AttributeKey.create( "vertices", float[].class, EShape.class );
@@ -126,6 +129,19 @@ public class EShape extends EntityComponent implements ShapeData {
         shaderId = attributes.getAssetInstanceId( SHADER_ASSET_NAME, SHADER_ID, shaderId );
     }
 
+    public final boolean copyFrom( EntityComponent component ) {
+        final EShape other = (EShape) component;
+        shapeType = other.shapeType;
+        vertices = other.vertices;
+        colors.clear();
+        colors.addAll( other.colors );
+        segments = other.segments;
+        fill = other.fill;
+        blendMode = other.blendMode;
+        shaderId = other.shaderId;
+        return true;
+    }
+
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( SHAPE_TYPE, shapeType );
         attributes.put( VERTICES, vertices );
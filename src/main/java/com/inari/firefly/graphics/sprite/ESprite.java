@@ -23,7 +23,9 @@ import com.inari.commons.lang.indexed.IIndexedTypeKey;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
 import com.inari.firefly.graphics.BlendMode;
+import com.inari.firefly.graphics.ResidentSprite;
 import com.inari.firefly.graphics.rendering.SpriteRenderable;
 import com.inari.firefly.physics.animation.AttributeAnimationAdapter.AttributeAnimationAdapterKey;
 import com.inari.firefly.physics.animation.EntityFloatAnimationAdapter;
@@ -34,9 +36,11 @@ import com.inari.firefly.physics.animation.IntAnimation;
 import com.inari.firefly.physics.animation.ValueAnimation;
 import com.inari.firefly.system.FFContext;
 
-public final class ESprite extends EntityComponent implements SpriteRenderable {
+public final class ESprite extends EntityComponent implements SpriteRenderable, ResidentSprite {
     
-    public static final EntityComponentTypeKey<ESprite> TYPE_KEY = EntityComponentTypeKey.create( ESprite.class );
+    public static final EntityComponentTypeKey<ESprite> TYPE_KEY = EntityComponentTypeKey.create( ESprite.class, new EntityComponentFactory<ESprite>() {
+        public final ESprite create() { return new ESprite(); }
+    } );
 
     public static final AttributeKey<String> SPRITE_ASSET_NAME = AttributeKey.createString( "spriteAssetName", ESprite.class );
     public static final AttributeKey<Integer> SPRITE_ID = AttributeKey.createInt( "spriteId", ESprite.class );
@@ -52,6 +56,8 @@ public final class ESprite extends EntityComponent implements SpriteRenderable {
     );
 
     private int spriteId;
+    private int spriteAssetId;
+    private int textureGeneration;
     private final RGBColor tintColor;
     private BlendMode blendMode;
     private int shaderId;
@@ -65,6 +71,8 @@ public final class ESprite extends EntityComponent implements SpriteRenderable {
 
     public final void resetAttributes() {
         spriteId = -1;
+        spriteAssetId = -1;
+        textureGeneration = 0;
         setTintColor( new RGBColor( 1, 1, 1, 1 ) );
         blendMode = BlendMode.NONE;
         shaderId = -1;
@@ -78,6 +86,19 @@ public final class ESprite extends EntityComponent implements SpriteRenderable {
         this.spriteId = spriteId;
     }
 
+    /** Gives the id of the sprite Asset if the sprite was resolved by SPRITE_ASSET_NAME or -1 otherwise */
+    public final int getSpriteAssetId() {
+        return spriteAssetId;
+    }
+
+    public final int getTextureGeneration() {
+        return textureGeneration;
+    }
+
+    public final void setTextureGeneration( int textureGeneration ) {
+        this.textureGeneration = textureGeneration;
+    }
+
     public final RGBColor getTintColor() {
         return tintColor;
     }
@@ -110,12 +131,24 @@ public final class ESprite extends EntityComponent implements SpriteRenderable {
     }
 
     public final void fromAttributes( AttributeMap attributes ) {
+        spriteAssetId = attributes.getAssetId( SPRITE_ASSET_NAME, spriteAssetId );
         spriteId = attributes.getAssetInstanceId( SPRITE_ASSET_NAME, SPRITE_ID, spriteId );
         setTintColor( attributes.getValue( TINT_COLOR, tintColor ) );
         blendMode = attributes.getValue( BLEND_MODE, blendMode );
         shaderId = attributes.getAssetInstanceId( SHADER_ASSET_NAME, SHADER_ID, shaderId );
     }
 
+    public final boolean copyFrom( EntityComponent component ) {
+        final ESprite other = (ESprite) component;
+        spriteId = other.spriteId;
+        spriteAssetId = other.spriteAssetId;
+        textureGeneration = other.textureGeneration;
+        setTintColor( other.tintColor );
+        blendMode = other.blendMode;
+        shaderId = other.shaderId;
+        return true;
+    }
+
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( SPRITE_ID, spriteId );
         attributes.put( TINT_COLOR, new RGBColor( tintColor ) );
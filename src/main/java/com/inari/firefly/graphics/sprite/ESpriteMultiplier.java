@@ -9,10 +9,13 @@ import com.inari.commons.lang.list.DynArrayRO;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
 
 public final class ESpriteMultiplier extends EntityComponent {
     
-    public static final EntityComponentTypeKey<ESpriteMultiplier> TYPE_KEY = EntityComponentTypeKey.create( ESpriteMultiplier.class );
+    public static final EntityComponentTypeKey<ESpriteMultiplier> TYPE_KEY = EntityComponentTypeKey.create( ESpriteMultiplier.class, new EntityComponentFactory<ESpriteMultiplier>() {
+        public final ESpriteMultiplier create() { return new ESpriteMultiplier(); }
+    } );
     
     public static final AttributeKey<DynArray<PositionF>> MULTI_POSITIONS = AttributeKey.createDynArray( "positions", ESpriteMultiplier.class, PositionF.class );
     public static final Set<AttributeKey<?>> ATTRIBUTE_KEYS = JavaUtils.<AttributeKey<?>>unmodifiableSet(
@@ -45,6 +48,13 @@ public final class ESpriteMultiplier extends EntityComponent {
         }
     }
 
+    public final boolean copyFrom( EntityComponent component ) {
+        final ESpriteMultiplier other = (ESpriteMultiplier) component;
+        positions.clear();
+        positions.addAll( other.positions );
+        return true;
+    }
+
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( MULTI_POSITIONS, positions );
     }
@@ -0,0 +1,472 @@
+package com.inari.firefly.graphics.sprite;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import com.inari.commons.JavaUtils;
+import com.inari.commons.geom.Rectangle;
+import com.inari.commons.lang.functional.IntFunction;
+import com.inari.commons.lang.list.DynArray;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.firefly.asset.Asset;
+import com.inari.firefly.component.attr.AttributeKey;
+import com.inari.firefly.component.attr.AttributeMap;
+import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.component.SystemComponentType;
+import com.inari.firefly.system.external.FFGraphics;
+import com.inari.firefly.system.external.SpriteData;
+import com.inari.firefly.system.external.TextureAtlasData;
+import com.inari.firefly.system.utils.Disposable;
+
+/** An Asset that packs the regions of many source images into one or more atlas textures (pages) on load
+ *  and creates a sprite for each region within the atlas. This reduces texture switches on rendering a scene
+ *  that is made of many small images.
+ *  <p>
+ *  The sprites are defined like the sprites of a SpriteSetAsset, with the resource name of the source image
+ *  and the region within the source image, and can be accessed in the same way by name or index.
+ *  The pages are created by the backend from a TextureAtlasData that defines the regions to copy.
+ *  <p>
+ *  If a LAYOUT_CACHE_PATH is defined, the packed layout is stored within a file in this directory and reused
+ *  on next load as long as the definition of the atlas (page size, padding and all sprite sources and regions)
+ *  has not changed.
+ */
+public final class TextureAtlasAsset extends Asset {
+
+    public static final SystemComponentType COMPONENT_TYPE = new SystemComponentType( Asset.TYPE_KEY, TextureAtlasAsset.class );
+    public static final AttributeKey<Integer> PAGE_WIDTH = AttributeKey.createInt( "pageWidth", TextureAtlasAsset.class );
+    public static final AttributeKey<Integer> PAGE_HEIGHT = AttributeKey.createInt( "pageHeight", TextureAtlasAsset.class );
+    public static final AttributeKey<Integer> PADDING = AttributeKey.createInt( "padding", TextureAtlasAsset.class );
+    public static final AttributeKey<String> LAYOUT_CACHE_PATH = AttributeKey.createString( "layoutCachePath", TextureAtlasAsset.class );
+    public static final AttributeKey<DynArray<AtlasSprite>> SPRITE_DATA = AttributeKey.createDynArray( "spriteData", TextureAtlasAsset.class, AtlasSprite.class );
+    public static final Set<AttributeKey<?>> ATTRIBUTE_KEYS = JavaUtils.<AttributeKey<?>>unmodifiableSet(
+        PAGE_WIDTH,
+        PAGE_HEIGHT,
+        PADDING,
+        LAYOUT_CACHE_PATH,
+        SPRITE_DATA
+    );
+
+    private static final String LAYOUT_FILE_EXTENSION = ".atlas";
+
+    private int pageWidth;
+    private int pageHeight;
+    private int padding;
+    private String layoutCachePath;
+    private final DynArray<AtlasSprite> spriteData = DynArray.create( AtlasSprite.class, 30 );
+
+    private final IntBag pageTextureIds = new IntBag( 2, -1 );
+    private final AtlasPageData pageData = new AtlasPageData();
+    private final SpriteDataContainer spriteDataContainer = new SpriteDataContainer();
+    private int pages = 0;
+
+    TextureAtlasAsset( int assetIntId ) {
+        super( assetIntId );
+        pageWidth = 1024;
+        pageHeight = 1024;
+        padding = 1;
+        layoutCachePath = null;
+    }
+
+    public final int getPageWidth() {
+        return pageWidth;
+    }
+
+    public final void setPageWidth( int pageWidth ) {
+        checkNotAlreadyLoaded();
+        this.pageWidth = pageWidth;
+    }
+
+    public final int getPageHeight() {
+        return pageHeight;
+    }
+
+    public final void setPageHeight( int pageHeight ) {
+        checkNotAlreadyLoaded();
+        this.pageHeight = pageHeight;
+    }
+
+    public final int getPadding() {
+        return padding;
+    }
+
+    public final void setPadding( int padding ) {
+        checkNotAlreadyLoaded();
+        this.padding = padding;
+    }
+
+    public final String getLayoutCachePath() {
+        return layoutCachePath;
+    }
+
+    public final void setLayoutCachePath( String layoutCachePath ) {
+        this.layoutCachePath = layoutCachePath;
+    }
+
+    /** Gives the number of atlas pages. This is only valid if the atlas is loaded */
+    public final int getPageCount() {
+        return pages;
+    }
+
+    /** Gives the texture id of the atlas page with the given index or -1 if not loaded */
+    public final int getPageTextureId( int page ) {
+        if ( !loaded || page < 0 || page >= pages ) {
+            return -1;
+        }
+        return pageTextureIds.get( page );
+    }
+
+    public final int getInstanceId( AtlasSprite sprite ) {
+        return sprite.instanceId;
+    }
+
+    @Override
+    public final int getInstanceId( int index ) {
+        if ( !loaded ) {
+            return -1;
+        }
+
+        return spriteData.get( index ).instanceId;
+    }
+
+    public final int getInstanceId( String name ) {
+        if ( name == null ) {
+            return -1;
+        }
+
+        for ( int i = 0; i < spriteData.capacity(); i++ ) {
+            AtlasSprite sprite = spriteData.get( i );
+            if ( sprite == null ) {
+                continue;
+            }
+
+            if ( name.equals( sprite.name ) ) {
+                return sprite.instanceId;
+            }
+        }
+
+        return -1;
+    }
+
+    /** Gives the estimated size of all atlas pages in bytes assuming four bytes per pixel */
+    @Override
+    public final long getMemorySize() {
+        return (long) pages * pageWidth * pageHeight * 4;
+    }
+
+    @Override
+    public final Set<AttributeKey<?>> attributeKeys() {
+        return JavaUtils.unmodifiableSet( super.attributeKeys(), ATTRIBUTE_KEYS );
+    }
+
+    @Override
+    public final void fromAttributes( AttributeMap attributes ) {
+        checkNotAlreadyLoaded();
+        super.fromAttributes( attributes );
+
+        pageWidth = attributes.getValue( PAGE_WIDTH, pageWidth );
+        pageHeight = attributes.getValue( PAGE_HEIGHT, pageHeight );
+        padding = attributes.getValue( PADDING, padding );
+        layoutCachePath = attributes.getValue( LAYOUT_CACHE_PATH, layoutCachePath );
+        spriteData.clear();
+        if ( attributes.contains( SPRITE_DATA ) ) {
+            spriteData.addAll( attributes.getValue( SPRITE_DATA ) );
+        }
+    }
+
+    @Override
+    public final void toAttributes( AttributeMap attributes ) {
+        super.toAttributes( attributes );
+        attributes.put( PAGE_WIDTH, pageWidth );
+        attributes.put( PAGE_HEIGHT, pageHeight );
+        attributes.put( PADDING, padding );
+        attributes.put( LAYOUT_CACHE_PATH, layoutCachePath );
+        DynArray<AtlasSprite> _spriteData = DynArray.create( AtlasSprite.class, spriteData.capacity() );
+        _spriteData.addAll( spriteData );
+        attributes.put( SPRITE_DATA, _spriteData );
+    }
+
+    @Override
+    public final Disposable load( FFContext context ) {
+        if ( loaded ) {
+            return this;
+        }
+
+        final String layoutKey = layoutKey();
+        if ( !readLayout( layoutKey ) ) {
+            pack();
+            writeLayout( layoutKey );
+        }
+
+        final FFGraphics graphics = context.getGraphics();
+        pageTextureIds.clear();
+        for ( int page = 0; page < pages; page++ ) {
+            pageData.setPage( page );
+            pageTextureIds.add( graphics.createTexture( pageData ) );
+        }
+
+        for ( int i = 0; i < spriteData.capacity(); i++ ) {
+            AtlasSprite sprite = spriteData.get( i );
+            if ( sprite == null ) {
+                continue;
+            }
+
+            spriteDataContainer.textureId = pageTextureIds.get( sprite.page );
+            spriteDataContainer.spriteData = sprite;
+            sprite.instanceId = graphics.createSprite( spriteDataContainer );
+        }
+
+        return this;
+    }
+
+    @Override
+    public final void dispose( FFContext context ) {
+        if ( !loaded ) {
+            return;
+        }
+
+        final FFGraphics graphics = context.getGraphics();
+        for ( int i = 0; i < spriteData.capacity(); i++ ) {
+            AtlasSprite sprite = spriteData.get( i );
+            if ( sprite == null ) {
+                continue;
+            }
+            graphics.disposeSprite( sprite.instanceId );
+            sprite.instanceId = -1;
+        }
+
+        for ( int i = 0; i < pageTextureIds.length(); i++ ) {
+            if ( !pageTextureIds.isEmpty( i ) ) {
+                graphics.disposeTexture( pageTextureIds.get( i ) );
+            }
+        }
+        pageTextureIds.clear();
+    }
+
+    private void pack() {
+        final int count = spriteData.size();
+        final Rectangle[] regions = new Rectangle[ count ];
+        final Rectangle[] result = new Rectangle[ count ];
+        final int[] resultPages = new int[ count ];
+        int index = 0;
+        for ( int i = 0; i < spriteData.capacity(); i++ ) {
+            AtlasSprite sprite = spriteData.get( i );
+            if ( sprite != null ) {
+                regions[ index++ ] = sprite.sourceRegion;
+            }
+        }
+
+        pages = new TextureAtlasPacker( pageWidth, pageHeight, padding ).pack( regions, result, resultPages );
+
+        index = 0;
+        for ( int i = 0; i < spriteData.capacity(); i++ ) {
+            AtlasSprite sprite = spriteData.get( i );
+            if ( sprite != null ) {
+                sprite.page = resultPages[ index ];
+                sprite.atlasRegion.x = result[ index ].x;
+                sprite.atlasRegion.y = result[ index ].y;
+                sprite.atlasRegion.width = result[ index ].width;
+                sprite.atlasRegion.height = result[ index ].height;
+                index++;
+            }
+        }
+    }
+
+    /** Creates a key that identifies the definition of this atlas. The key changes if the page size,
+     *  the padding or any sprite source or region changes */
+    private String layoutKey() {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash( hash, pageWidth + "x" + pageHeight + ":" + padding );
+        for ( int i = 0; i < spriteData.capacity(); i++ ) {
+            AtlasSprite sprite = spriteData.get( i );
+            if ( sprite == null ) {
+                continue;
+            }
+            final Rectangle region = sprite.sourceRegion;
+            hash = hash( hash, sprite.resourceName + ":" + region.x + "," + region.y + "," + region.width + "," + region.height );
+        }
+        return Long.toHexString( hash );
+    }
+
+    private static long hash( long hash, String value ) {
+        // FNV-1a 64 bit
+        for ( int i = 0; i < value.length(); i++ ) {
+            hash ^= value.charAt( i );
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private File layoutFile() {
+        if ( layoutCachePath == null ) {
+            return null;
+        }
+        return new File( layoutCachePath, getName() + LAYOUT_FILE_EXTENSION );
+    }
+
+    private boolean readLayout( String layoutKey ) {
+        final File file = layoutFile();
+        if ( file == null || !file.exists() ) {
+            return false;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader( new FileReader( file ) );
+            if ( !layoutKey.equals( reader.readLine() ) ) {
+                return false;
+            }
+
+            final int readPages = Integer.parseInt( reader.readLine().trim() );
+            for ( int i = 0; i < spriteData.capacity(); i++ ) {
+                AtlasSprite sprite = spriteData.get( i );
+                if ( sprite == null ) {
+                    continue;
+                }
+
+                final String[] values = reader.readLine().trim().split( " " );
+                sprite.page = Integer.parseInt( values[ 0 ] );
+                sprite.atlasRegion.x = Integer.parseInt( values[ 1 ] );
+                sprite.atlasRegion.y = Integer.parseInt( values[ 2 ] );
+                sprite.atlasRegion.width = sprite.sourceRegion.width;
+                sprite.atlasRegion.height = sprite.sourceRegion.height;
+            }
+            pages = readPages;
+            return true;
+        } catch ( Exception e ) {
+            // an unreadable or outdated layout file is just ignored and the atlas is packed again
+            return false;
+        } finally {
+            close( reader );
+        }
+    }
+
+    private void writeLayout( String layoutKey ) {
+        final File file = layoutFile();
+        if ( file == null ) {
+            return;
+        }
+
+        BufferedWriter writer = null;
+        try {
+            file.getParentFile().mkdirs();
+            writer = new BufferedWriter( new FileWriter( file ) );
+            writer.write( layoutKey );
+            writer.newLine();
+            writer.write( String.valueOf( pages ) );
+            writer.newLine();
+            for ( int i = 0; i < spriteData.capacity(); i++ ) {
+                AtlasSprite sprite = spriteData.get( i );
+                if ( sprite == null ) {
+                    continue;
+                }
+
+                writer.write( sprite.page + " " + sprite.atlasRegion.x + " " + sprite.atlasRegion.y );
+                writer.newLine();
+            }
+        } catch ( IOException e ) {
+            // the layout cache is optional, the atlas is just packed again on next load
+        } finally {
+            close( writer );
+        }
+    }
+
+    private static void close( Closeable closeable ) {
+        if ( closeable == null ) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch ( IOException e ) {
+            // ignore
+        }
+    }
+
+    public static final class AtlasSprite {
+
+        public final String name;
+        public final String resourceName;
+        public final Rectangle sourceRegion;
+        public final boolean flipHorizontal, flipVertical;
+
+        final Rectangle atlasRegion = new Rectangle();
+        int page = -1;
+        int instanceId = -1;
+
+        public AtlasSprite( String resourceName, int x, int y, int width, int height, String name ) {
+            this( resourceName, x, y, width, height, false, false, name );
+        }
+
+        public AtlasSprite( String resourceName, int x, int y, int width, int height, boolean flipHorizontal, boolean flipVertical, String name ) {
+            this.name = name;
+            this.resourceName = resourceName;
+            this.sourceRegion = new Rectangle( x, y, width, height );
+            this.flipHorizontal = flipHorizontal;
+            this.flipVertical = flipVertical;
+        }
+
+        public final int getInstanceId() {
+            return instanceId;
+        }
+
+        /** Gives the index of the atlas page of this sprite or -1 if the atlas was not loaded yet */
+        public final int getPage() {
+            return page;
+        }
+
+        /** Gives the region of this sprite within its atlas page */
+        public final Rectangle getAtlasRegion() {
+            return atlasRegion;
+        }
+    }
+
+    private final class AtlasPageData implements TextureAtlasData {
+
+        private final IntBag regionIndexes = new IntBag( 30, -1 );
+        private int page;
+
+        final void setPage( int page ) {
+            this.page = page;
+            regionIndexes.clear();
+            for ( int i = 0; i < spriteData.capacity(); i++ ) {
+                AtlasSprite sprite = spriteData.get( i );
+                if ( sprite != null && sprite.page == page ) {
+                    regionIndexes.add( i );
+                }
+            }
+        }
+
+        public final String getResourceName() { return getName() + "_page_" + page; }
+        public final ByteBuffer getResourceData() { return null; }
+        public final boolean isMipmap() { return false; }
+        public final IntFunction getColorConverter() { return null; }
+        public final void setTextureWidth( int width ) {}
+        public final void setTextureHeight( int height ) {}
+        public final int getWrapS() { return -1; }
+        public final int getWrapT() { return -1; }
+        public final int getMinFilter() { return -1; }
+        public final int getMagFilter() { return -1; }
+        public final int getPageWidth() { return pageWidth; }
+        public final int getPageHeight() { return pageHeight; }
+        public final int getRegionCount() { return regionIndexes.size(); }
+        public final String getSourceResourceName( int index ) { return spriteData.get( regionIndexes.get( index ) ).resourceName; }
+        public final Rectangle getSourceRegion( int index ) { return spriteData.get( regionIndexes.get( index ) ).sourceRegion; }
+        public final Rectangle getTargetRegion( int index ) { return spriteData.get( regionIndexes.get( index ) ).atlasRegion; }
+    }
+
+    private final class SpriteDataContainer implements SpriteData {
+        int textureId;
+        AtlasSprite spriteData;
+        public final int getTextureId() { return textureId; }
+        public final Rectangle getTextureRegion() { return spriteData.atlasRegion; }
+        public final boolean isHorizontalFlip() { return spriteData.flipHorizontal; }
+        public final boolean isVerticalFlip() { return spriteData.flipVertical; }
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.inari.firefly.graphics.sprite;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.inari.commons.geom.Rectangle;
+
+/** Packs rectangular regions into one or more pages of fixed size by using the skyline bottom-left algorithm.
+ *  <p>
+ *  The regions are packed ordered by descending height. Each region is placed at the lowest possible position
+ *  of the skyline of the current page and if there is none, the region is placed in the next page.
+ *  A padding is added to the right and bottom of each region to prevent texture bleeding. The padding is only needed
+ *  between regions, so it is cut at the right and bottom edge of a page.
+ */
+public final class TextureAtlasPacker {
+
+    private final int pageWidth;
+    private final int pageHeight;
+    private final int padding;
+
+    // skyline segments of the current page
+    private int[] segX = new int[ 16 ];
+    private int[] segY = new int[ 16 ];
+    private int[] segWidth = new int[ 16 ];
+    private int segments;
+
+    public TextureAtlasPacker( int pageWidth, int pageHeight, int padding ) {
+        if ( pageWidth <= 0 || pageHeight <= 0 || padding < 0 ) {
+            throw new IllegalArgumentException( "Invalid page size: " + pageWidth + "x" + pageHeight + " or padding: " + padding );
+        }
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.padding = padding;
+    }
+
+    public final int getPageWidth() {
+        return pageWidth;
+    }
+
+    public final int getPageHeight() {
+        return pageHeight;
+    }
+
+    public final int getPadding() {
+        return padding;
+    }
+
+    /** Packs the given regions. Only width and height of the regions are used.
+     *
+     * @param regions the regions to pack
+     * @param result the target array for the packed position and size of each region within its page.
+     *        Rectangles are created if null
+     * @param pages the target array for the page index of each region
+     * @return the number of pages used
+     * @throws IllegalArgumentException if a region does not fit into a page
+     */
+    public final int pack( final Rectangle[] regions, final Rectangle[] result, final int[] pages ) {
+        final int count = regions.length;
+        final Integer[] order = new Integer[ count ];
+        for ( int i = 0; i < count; i++ ) {
+            final Rectangle region = regions[ i ];
+            if ( region.width > pageWidth || region.height > pageHeight ) {
+                throw new IllegalArgumentException( "Region: " + region + " does not fit into a page of size: " + pageWidth + "x" + pageHeight );
+            }
+            order[ i ] = i;
+        }
+
+        Arrays.sort( order, new Comparator<Integer>() {
+            public final int compare( Integer i1, Integer i2 ) {
+                final int diff = regions[ i2 ].height - regions[ i1 ].height;
+                return ( diff != 0 )? diff : regions[ i2 ].width - regions[ i1 ].width;
+            }
+        } );
+
+        int page = 0;
+        reset();
+        for ( int n = 0; n < count; n++ ) {
+            final int index = order[ n ];
+            final Rectangle region = regions[ index ];
+            final int width = region.width;
+            final int height = region.height;
+
+            int segment = findPosition( width, height );
+            if ( segment < 0 ) {
+                page++;
+                reset();
+                segment = findPosition( width, height );
+            }
+
+            final int x = segX[ segment ];
+            final int paddedWidth = paddedWidth( x, width );
+            final int y = skylineY( segment, paddedWidth );
+            place( segment, x, Math.min( y + height + padding, pageHeight ), paddedWidth );
+
+            if ( result[ index ] == null ) {
+                result[ index ] = new Rectangle( x, y, region.width, region.height );
+            } else {
+                result[ index ].x = x;
+                result[ index ].y = y;
+                result[ index ].width = region.width;
+                result[ index ].height = region.height;
+            }
+            pages[ index ] = page;
+        }
+
+        return ( count > 0 )? page + 1 : 0;
+    }
+
+    private void reset() {
+        segments = 1;
+        segX[ 0 ] = 0;
+        segY[ 0 ] = 0;
+        segWidth[ 0 ] = pageWidth;
+    }
+
+    /** Gives the index of the segment where a region of given size is placed with the lowest y position
+     *  or -1 if the region does not fit into the current page */
+    private int findPosition( final int width, final int height ) {
+        int bestSegment = -1;
+        int bestY = Integer.MAX_VALUE;
+        for ( int i = 0; i < segments; i++ ) {
+            if ( segX[ i ] + width > pageWidth ) {
+                break;
+            }
+
+            final int y = skylineY( i, paddedWidth( segX[ i ], width ) );
+            if ( y + height <= pageHeight && y < bestY ) {
+                bestSegment = i;
+                bestY = y;
+            }
+        }
+        return bestSegment;
+    }
+
+    private int paddedWidth( final int x, final int width ) {
+        return Math.min( width + padding, pageWidth - x );
+    }
+
+    /** Gives the highest y of all segments that are covered by a region of given width starting at given segment */
+    private int skylineY( final int segment, final int width ) {
+        int y = 0;
+        int remaining = width;
+        for ( int i = segment; i < segments && remaining > 0; i++ ) {
+            y = Math.max( y, segY[ i ] );
+            remaining -= segWidth[ i ];
+        }
+        return y;
+    }
+
+    private void place( final int segment, final int x, final int y, final int width ) {
+        insert( segment, x, y, width );
+
+        // shrink or remove the segments that are covered by the new one
+        final int right = x + width;
+        int i = segment + 1;
+        while ( i < segments && segX[ i ] < right ) {
+            final int segRight = segX[ i ] + segWidth[ i ];
+            if ( segRight <= right ) {
+                remove( i );
+            } else {
+                segWidth[ i ] = segRight - right;
+                segX[ i ] = right;
+                break;
+            }
+        }
+
+        // merge neighbors with the same height
+        i = 0;
+        while ( i < segments - 1 ) {
+            if ( segY[ i ] == segY[ i + 1 ] ) {
+                segWidth[ i ] += segWidth[ i + 1 ];
+                remove( i + 1 );
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private void insert( final int index, final int x, final int y, final int width ) {
+        if ( segments == segX.length ) {
+            final int newLength = segX.length * 2;
+            segX = Arrays.copyOf( segX, newLength );
+            segY = Arrays.copyOf( segY, newLength );
+            segWidth = Arrays.copyOf( segWidth, newLength );
+        }
+        System.arraycopy( segX, index, segX, index + 1, segments - index );
+        System.arraycopy( segY, index, segY, index + 1, segments - index );
+        System.arraycopy( segWidth, index, segWidth, index + 1, segments - index );
+        segX[ index ] = x;
+        segY[ index ] = y;
+        segWidth[ index ] = width;
+        segments++;
+    }
+
+    private void remove( final int index ) {
+        System.arraycopy( segX, index + 1, segX, index, segments - index - 1 );
+        System.arraycopy( segY, index + 1, segY, index, segments - index - 1 );
+        System.arraycopy( segWidth, index + 1, segWidth, index, segments - index - 1 );
+        segments--;
+    }
+
+}
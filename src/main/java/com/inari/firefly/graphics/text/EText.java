@@ -8,12 +8,15 @@ import com.inari.firefly.asset.Asset;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
 import com.inari.firefly.graphics.BlendMode;
 import com.inari.firefly.graphics.rendering.RenderingChain.RendererKey;
 
 public class EText extends EntityComponent {
     
-    public static final EntityComponentTypeKey<EText> TYPE_KEY = EntityComponentTypeKey.create( EText.class );
+    public static final EntityComponentTypeKey<EText> TYPE_KEY = EntityComponentTypeKey.create( EText.class, new EntityComponentFactory<EText>() {
+        public final EText create() { return new EText(); }
+    } );
     
     public static final AttributeKey<RendererKey> RENDERER_KEY = new AttributeKey<>( "rendererKey", RendererKey.class, EText.class );
     public static final AttributeKey<String> FONT_ASSET_NAME = AttributeKey.createString( "fontAssetName", EText.class );
@@ -131,6 +134,18 @@ public class EText extends EntityComponent {
         shaderId = attributes.getValue( SHADER_ID, shaderId );
     }
 
+    public final boolean copyFrom( EntityComponent component ) {
+        final EText other = (EText) component;
+        rendererKey = other.rendererKey;
+        fontAssetId = other.fontAssetId;
+        textBuffer.setLength( 0 );
+        textBuffer.append( other.textBuffer );
+        setTintColor( other.tintColor );
+        blendMode = other.blendMode;
+        shaderId = other.shaderId;
+        return true;
+    }
+
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( RENDERER_KEY, rendererKey );
         attributes.put( FONT_ASSET_ID, fontAssetId );
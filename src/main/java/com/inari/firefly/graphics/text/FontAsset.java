@@ -1,5 +1,6 @@
 package com.inari.firefly.graphics.text;
 
+import java.nio.ByteBuffer;
 import java.util.Set;
 
 import com.inari.commons.JavaUtils;
@@ -8,6 +9,7 @@ import com.inari.commons.lang.IntIterator;
 import com.inari.commons.lang.functional.IntFunction;
 import com.inari.commons.lang.list.IntBag;
 import com.inari.firefly.asset.Asset;
+import com.inari.firefly.asset.AssetSystem;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.graphics.TextureAsset;
@@ -69,6 +71,7 @@ public final class FontAsset extends Asset implements TextureData {
     
     private IntBag charSpriteMap;
     private int textureId = -1;
+    private ByteBuffer resourceData;
     
     FontAsset( int id ) {
         super( id );
@@ -106,6 +109,11 @@ public final class FontAsset extends Asset implements TextureData {
         return textureResourceName;
     }
 
+    @Override
+    public final ByteBuffer getResourceData() {
+        return resourceData;
+    }
+
     public final String getTextureResourceName() {
         return textureResourceName;
     }
@@ -180,6 +188,12 @@ public final class FontAsset extends Asset implements TextureData {
         this.textureHeight = textureHeight;
     }
 
+    /** Gives the estimated size of the font texture in bytes assuming four bytes per pixel */
+    @Override
+    public final long getMemorySize() {
+        return ( textureWidth > 0 && textureHeight > 0 )? (long) textureWidth * textureHeight * 4 : 0;
+    }
+
     public final char[][] getCharTextureMap() {
         return charTextureMap;
     }
@@ -271,15 +285,25 @@ public final class FontAsset extends Asset implements TextureData {
         attributes.put( COLOR_CONVERTER, colorConverter );
     }
 
+    /** Reads and decompresses the texture resource from the AssetArchives of the AssetSystem if available */
+    @Override
+    protected final void prepare( FFContext context ) {
+        resourceData = context.getSystem( AssetSystem.SYSTEM_KEY ).getResource( textureResourceName );
+    }
+
     @Override
     public final Disposable load( FFContext context ) {
         if ( loaded ) {
             return this;
         }
         
+        if ( resourceData == null ) {
+            prepare( context );
+        }
         FFGraphics graphics = context.getGraphics();
         
         textureId = graphics.createTexture( this );
+        resourceData = null;
         Rectangle textureRegion = new Rectangle( 0, 0, getCharWidth(), getCharHeight() );
         InternalSpriteData spriteData = new InternalSpriteData( this, textureRegion );
         
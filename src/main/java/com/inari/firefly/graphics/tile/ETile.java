@@ -22,11 +22,12 @@ import com.inari.commons.geom.Position;
 import com.inari.commons.graphics.RGBColor;
 import com.inari.commons.lang.indexed.IIndexedTypeKey;
 import com.inari.commons.lang.list.DynArray;
-import com.inari.commons.lang.list.DynArrayRO;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
 import com.inari.firefly.graphics.BlendMode;
+import com.inari.firefly.graphics.ResidentSprite;
 import com.inari.firefly.graphics.rendering.SpriteRenderable;
 import com.inari.firefly.physics.animation.AttributeAnimationAdapter.AttributeAnimationAdapterKey;
 import com.inari.firefly.physics.animation.EntityFloatAnimationAdapter;
@@ -37,9 +38,11 @@ import com.inari.firefly.physics.animation.IntAnimation;
 import com.inari.firefly.physics.animation.ValueAnimation;
 import com.inari.firefly.system.FFContext;
 
-public final class ETile extends EntityComponent implements SpriteRenderable {
+public final class ETile extends EntityComponent implements SpriteRenderable, ResidentSprite {
     
-    public static final EntityComponentTypeKey<ETile> TYPE_KEY = EntityComponentTypeKey.create( ETile.class );
+    public static final EntityComponentTypeKey<ETile> TYPE_KEY = EntityComponentTypeKey.create( ETile.class, new EntityComponentFactory<ETile>() {
+        public final ETile create() { return new ETile(); }
+    } );
     
     public static final AttributeKey<String> SPRITE_ASSET_NAME = AttributeKey.createString( "spriteAssetName", ETile.class );
     public static final AttributeKey<Integer> SPRITE_ID = AttributeKey.createInt( "spriteId", ETile.class ); 
@@ -57,20 +60,24 @@ public final class ETile extends EntityComponent implements SpriteRenderable {
     );
     
     private int spriteId;
+    private int spriteAssetId;
+    private int textureGeneration;
     private final RGBColor tintColor = new RGBColor();
     private BlendMode blendMode;
     private int shaderId;
-    private final DynArray<Position> gridPositions;
+    private final GridPositions gridPositions;
 
     public ETile() {
         super( TYPE_KEY );
-        gridPositions = DynArray.create( Position.class, 100, 20 );
+        gridPositions = new GridPositions();
         resetAttributes();
         
     }
 
     public final void resetAttributes() {
         spriteId = -1;
+        spriteAssetId = -1;
+        textureGeneration = 0;
         setTintColor( new RGBColor( 1, 1, 1, 1 ) );
         blendMode = BlendMode.NONE;
         shaderId = -1;
@@ -85,6 +92,19 @@ public final class ETile extends EntityComponent implements SpriteRenderable {
         this.spriteId = spriteId;
     }
 
+    /** Gives the id of the sprite Asset if the sprite was resolved by SPRITE_ASSET_NAME or -1 otherwise */
+    public final int getSpriteAssetId() {
+        return spriteAssetId;
+    }
+
+    public final int getTextureGeneration() {
+        return textureGeneration;
+    }
+
+    public final void setTextureGeneration( int textureGeneration ) {
+        this.textureGeneration = textureGeneration;
+    }
+
     public final RGBColor getTintColor() {
         return tintColor;
     }
@@ -113,26 +133,27 @@ public final class ETile extends EntityComponent implements SpriteRenderable {
     }
     
     public final ETile addGridPosition( Position pos ) {
-        gridPositions.add( pos );
+        gridPositions.add( pos.x, pos.y );
         return this;
     }
     
     public final ETile addGridPosition( int xpos, int ypos ) {
-        gridPositions.add( new Position( xpos, ypos ) );
+        gridPositions.add( xpos, ypos );
         return this;
     }
     
     public final ETile removeGridPosition( Position pos ) {
-        gridPositions.removeAll( pos );
+        gridPositions.remove( pos.x, pos.y );
         return this;
     }
     
     public final ETile removeGridPosition( int xpos, int ypos ) {
-        gridPositions.removeAll( new Position( xpos, ypos ) );
+        gridPositions.remove( xpos, ypos );
         return this;
     }
 
-    public final DynArrayRO<Position> getGridPositions() {
+    /** Gives the grid positions of this tile. A position is contained at most once */
+    public final GridPositions getGridPositions() {
         return gridPositions;
     }
 
@@ -141,6 +162,7 @@ public final class ETile extends EntityComponent implements SpriteRenderable {
     }
 
     public final void fromAttributes( AttributeMap attributes ) {
+        spriteAssetId = attributes.getAssetId( SPRITE_ASSET_NAME, spriteAssetId );
         spriteId = attributes.getAssetInstanceId( SPRITE_ASSET_NAME, SPRITE_ID, spriteId );
         setTintColor( attributes.getValue( TINT_COLOR, tintColor ) );
         blendMode = attributes.getValue( BLEND_MODE, blendMode );
@@ -148,16 +170,39 @@ public final class ETile extends EntityComponent implements SpriteRenderable {
         
         gridPositions.clear();
         if ( attributes.contains( GRID_POSITIONS ) ) {
-            gridPositions.addAll( attributes.getValue( GRID_POSITIONS ) );
+            final DynArray<Position> positions = attributes.getValue( GRID_POSITIONS );
+            for ( int i = 0; i < positions.capacity(); i++ ) {
+                final Position position = positions.get( i );
+                if ( position != null ) {
+                    gridPositions.add( position.x, position.y );
+                }
+            }
         }
     }
 
+    public final boolean copyFrom( EntityComponent component ) {
+        final ETile other = (ETile) component;
+        spriteId = other.spriteId;
+        spriteAssetId = other.spriteAssetId;
+        textureGeneration = other.textureGeneration;
+        setTintColor( other.tintColor );
+        blendMode = other.blendMode;
+        shaderId = other.shaderId;
+        gridPositions.clear();
+        gridPositions.addAll( other.gridPositions );
+        return true;
+    }
+
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( SPRITE_ID, spriteId );
         attributes.put( TINT_COLOR, new RGBColor( tintColor ) );
         attributes.put( BLEND_MODE, blendMode );
         attributes.put( SHADER_ID, shaderId );
-        attributes.put( GRID_POSITIONS, gridPositions );
+        final DynArray<Position> positions = DynArray.create( Position.class, gridPositions.size() + 1, 20 );
+        for ( int i = 0; i < gridPositions.size(); i++ ) {
+            positions.add( new Position( gridPositions.getX( i ), gridPositions.getY( i ) ) );
+        }
+        attributes.put( GRID_POSITIONS, positions );
     }
     
     public interface AnimationAdapter {
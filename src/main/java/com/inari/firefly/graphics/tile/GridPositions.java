@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2015 - 2016, Andreas Hefti, inarisoft@yahoo.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.inari.firefly.graphics.tile;
+
+import java.util.Arrays;
+
+/** A set of grid positions packed into a primitive long array.
+ *  <p>
+ *  The positions are stored densely from index 0 to size - 1 in no particular order. An open addressing hash
+ *  table over the indexes gives add, remove and contains in constant time. A removed position is replaced
+ *  by the last position.
+ */
+public final class GridPositions {
+
+    private static final int EMPTY = -1;
+
+    private long[] positions;
+    private int size = 0;
+    // the index of a position within positions, at the slot of its hash, or EMPTY
+    private int[] table;
+    private int mask;
+
+    public GridPositions() {
+        this( 16 );
+    }
+
+    public GridPositions( int capacity ) {
+        positions = new long[ Math.max( capacity, 1 ) ];
+        allocateTable( positions.length );
+    }
+
+    public final int size() {
+        return size;
+    }
+
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    public final int getX( int index ) {
+        return (int) ( positions[ index ] >> 32 );
+    }
+
+    public final int getY( int index ) {
+        return (int) positions[ index ];
+    }
+
+    public final boolean contains( int x, int y ) {
+        return table[ slotOf( pack( x, y ) ) ] != EMPTY;
+    }
+
+    /** Adds the given position if it is not already in this set
+     *  @return true if the position was added
+     */
+    public final boolean add( int x, int y ) {
+        final long position = pack( x, y );
+        final int slot = slotOf( position );
+        if ( table[ slot ] != EMPTY ) {
+            return false;
+        }
+
+        if ( size == positions.length ) {
+            positions = Arrays.copyOf( positions, size * 2 );
+        }
+        positions[ size ] = position;
+        table[ slot ] = size;
+        size++;
+
+        // keep the load of the table at most one half
+        if ( size * 2 > table.length ) {
+            allocateTable( table.length );
+            rehash();
+        }
+        return true;
+    }
+
+    /** Removes the given position
+     *  @return true if the position was in this set
+     */
+    public final boolean remove( int x, int y ) {
+        final int slot = slotOf( pack( x, y ) );
+        final int index = table[ slot ];
+        if ( index == EMPTY ) {
+            return false;
+        }
+
+        removeSlot( slot );
+        size--;
+        if ( index != size ) {
+            // move the last position into the gap
+            final long last = positions[ size ];
+            positions[ index ] = last;
+            table[ slotOf( last ) ] = index;
+        }
+        return true;
+    }
+
+    public final void addAll( final GridPositions other ) {
+        for ( int i = 0; i < other.size; i++ ) {
+            add( other.getX( i ), other.getY( i ) );
+        }
+    }
+
+    public final void clear() {
+        Arrays.fill( table, EMPTY );
+        size = 0;
+    }
+
+    private int slotOf( final long position ) {
+        int slot = hash( position ) & mask;
+        while ( table[ slot ] != EMPTY && positions[ table[ slot ] ] != position ) {
+            slot = ( slot + 1 ) & mask;
+        }
+        return slot;
+    }
+
+    // backward shift deletion keeps all probe sequences intact without tombstones
+    private void removeSlot( int slot ) {
+        int next = ( slot + 1 ) & mask;
+        while ( table[ next ] != EMPTY ) {
+            final int home = hash( positions[ table[ next ] ] ) & mask;
+            if ( ( ( next - home ) & mask ) >= ( ( next - slot ) & mask ) ) {
+                table[ slot ] = table[ next ];
+                slot = next;
+            }
+            next = ( next + 1 ) & mask;
+        }
+        table[ slot ] = EMPTY;
+    }
+
+    private void allocateTable( int capacity ) {
+        int tableSize = 16;
+        while ( tableSize < capacity * 2 ) {
+            tableSize <<= 1;
+        }
+        table = new int[ tableSize ];
+        Arrays.fill( table, EMPTY );
+        mask = tableSize - 1;
+    }
+
+    private void rehash() {
+        for ( int i = 0; i < size; i++ ) {
+            table[ slotOf( positions[ i ] ) ] = i;
+        }
+    }
+
+    private static long pack( int x, int y ) {
+        return ( (long) x << 32 ) | ( y & 0xFFFFFFFFL );
+    }
+
+    private static int hash( long position ) {
+        final long h = position * 0x9E3779B97F4A7C15L;
+        return (int) ( h ^ ( h >>> 32 ) );
+    }
+
+    @Override
+    public final String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append( "GridPositions [" );
+        for ( int i = 0; i < size; i++ ) {
+            if ( i > 0 ) {
+                builder.append( ", " );
+            }
+            builder.append( getX( i ) ).append( "," ).append( getY( i ) );
+        }
+        builder.append( "]" );
+        return builder.toString();
+    }
+
+}
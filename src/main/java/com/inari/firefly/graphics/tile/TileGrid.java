@@ -15,16 +15,14 @@
  ******************************************************************************/ 
 package com.inari.firefly.graphics.tile;
 
-import java.util.ArrayDeque;
 import java.util.Set;
 
-import com.inari.commons.GeomUtils;
 import com.inari.commons.JavaUtils;
 import com.inari.commons.geom.Direction;
 import com.inari.commons.geom.Position;
 import com.inari.commons.geom.Rectangle;
-import com.inari.commons.geom.Vector2f;
 import com.inari.commons.lang.IntIterator;
+import com.inari.commons.lang.aspect.Aspects;
 import com.inari.commons.lang.indexed.IndexedTypeKey;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
@@ -32,8 +30,21 @@ import com.inari.firefly.graphics.rendering.RenderingChain.RendererKey;
 import com.inari.firefly.graphics.view.Layer;
 import com.inari.firefly.graphics.view.View;
 import com.inari.firefly.graphics.view.ViewAndLayerAware;
+import com.inari.firefly.physics.collision.CollisionSystem;
+import com.inari.firefly.physics.collision.ECollision;
+import com.inari.firefly.physics.collision.TileCollisionShapes;
 import com.inari.firefly.system.component.SystemComponent;
 
+/** A grid of tile entity ids of one view and layer.
+ *  <p>
+ *  Beside the entity ids the grid keeps a parallel collision layer with the index of the collision shape of the tile
+ *  of each cell within the TileCollisionShapes of the TileGridSystem, or TileCollisionShapes.NO_SHAPE if the tile has
+ *  no ECollision. The collision layer is updated on set and reset. If the ECollision of a tile that is already set
+ *  changes, updateCollisionLayer has to be called.
+ *  <p>
+ *  The grid also keeps the union of the material types of all tiles with collision, so the CollisionSystem can skip 
+ *  the whole grid for ContactConstraints that match none of them.
+ */
 public final class TileGrid extends SystemComponent implements ViewAndLayerAware {
     
     public static final SystemComponentKey<TileGrid> TYPE_KEY = SystemComponentKey.create( TileGrid.class );
@@ -78,6 +89,12 @@ public final class TileGrid extends SystemComponent implements ViewAndLayerAware
     private boolean spherical;
     
     int[][] grid;
+    int[][] collisionGrid;
+    // one bit per cell that is set if the cell is not NULL_VALUE, per row
+    long[][] occupancy;
+    private TileCollisionShapes collisionShapes;
+    // not reduced on reset, only rebuild by updateCollisionLayer
+    private final Aspects collisionMaterialTypes = CollisionSystem.MATERIAL_ASPECT_GROUP.createAspects();
     
     final Rectangle normalisedWorldBounds = new Rectangle( 0, 0, 0, 0 );
 
@@ -238,6 +255,29 @@ public final class TileGrid extends SystemComponent implements ViewAndLayerAware
         return grid[ ypos ][ xpos ];
     }
     
+    /** Gives the union of the material types of the tiles with collision that are or has been set since the last 
+     *  updateCollisionLayer. This may contain material types of tiles that has been reset since then.
+     */
+    public final Aspects getCollisionMaterialTypes() {
+        return collisionMaterialTypes;
+    }
+    
+    /** Gives the index of the collision shape of the tile at the given grid position within the TileCollisionShapes 
+     *  of the TileGridSystem or TileCollisionShapes.NO_SHAPE if there is no tile with collision
+     */
+    public final int getCollisionShape( int xpos, int ypos ) {
+        if ( spherical ) {
+            xpos = xpos % width;
+            ypos = ypos % height;
+        }
+        
+        if ( xpos < 0 || xpos >= width || ypos < 0 || ypos >= height ) {
+            return TileCollisionShapes.NO_SHAPE;
+        }
+        
+        return collisionGrid[ ypos ][ xpos ];
+    }
+    
     public final int getTileAt( final Position worldPos ) {
         int x = (int) Math.floor( (double) ( worldPos.x - worldXPos ) / cellWidth );
         int y = (int) Math.floor( (double) ( worldPos.y - worldYPos ) / cellHeight );
@@ -262,6 +302,24 @@ public final class TileGrid extends SystemComponent implements ViewAndLayerAware
             ypos = ypos % height;
         }
         grid[ ypos ][ xpos ] = entityId;
+        collisionGrid[ ypos ][ xpos ] = collisionShapeOf( entityId );
+        setOccupied( xpos, ypos, entityId != NULL_VALUE );
+    }
+    
+    /** Sets the given entity at all given grid positions. The collision shape of the entity is resolved only once */
+    public final void set( final int entityId, final GridPositions positions ) {
+        final int collisionShape = collisionShapeOf( entityId );
+        for ( int i = 0; i < positions.size(); i++ ) {
+            int xpos = positions.getX( i );
+            int ypos = positions.getY( i );
+            if ( spherical ) {
+                xpos = xpos % width;
+                ypos = ypos % height;
+            }
+            grid[ ypos ][ xpos ] = entityId;
+            collisionGrid[ ypos ][ xpos ] = collisionShape;
+            setOccupied( xpos, ypos, entityId != NULL_VALUE );
+        }
     }
     
     public final int reset( int xpos, int ypos ) {
@@ -271,6 +329,8 @@ public final class TileGrid extends SystemComponent implements ViewAndLayerAware
         }
         int old = grid[ ypos ][ xpos ];
         grid[ ypos ][ xpos ] = NULL_VALUE;
+        collisionGrid[ ypos ][ xpos ] = TileCollisionShapes.NO_SHAPE;
+        setOccupied( xpos, ypos, false );
         return old;
     }
     
@@ -285,6 +345,15 @@ public final class TileGrid extends SystemComponent implements ViewAndLayerAware
         }
         if ( grid[ ypos ][ xpos ] == entityId ) {
             grid[ ypos ][ xpos ] = NULL_VALUE;
+            collisionGrid[ ypos ][ xpos ] = TileCollisionShapes.NO_SHAPE;
+            setOccupied( xpos, ypos, false );
+        }
+    }
+    
+    /** Resets all given grid positions that are set to the given entity */
+    public final void resetIfMatch( final int entityId, final GridPositions positions ) {
+        for ( int i = 0; i < positions.size(); i++ ) {
+            resetIfMatch( entityId, positions.getX( i ), positions.getY( i ) );
         }
     }
     
@@ -319,6 +388,38 @@ public final class TileGrid extends SystemComponent implements ViewAndLayerAware
         return get( xpos, ypos );
     }
     
+    /** Updates the collision layer for all cells of this grid from the ECollision of the tiles */
+    public final void updateCollisionLayer() {
+        collisionMaterialTypes.clear();
+        for ( int y = 0; y < height; y++ ) {
+            for ( int x = 0; x < width; x++ ) {
+                collisionGrid[ y ][ x ] = collisionShapeOf( grid[ y ][ x ] );
+            }
+        }
+    }
+    
+    /** Maps the given world clip to the clip of grid cells it covers, cut to the bounds of this grid */
+    public final void mapWorldClipToTileGridClip( final Rectangle worldClip, final Rectangle result ) {
+        final int x1 = (int) Math.floor( ( (double) worldClip.x - worldXPos ) / cellWidth );
+        final int y1 = (int) Math.floor( ( (double) worldClip.y - worldYPos ) / cellHeight );
+        final int x2 = (int) Math.ceil( ( (double) worldClip.x - worldXPos + worldClip.width ) / cellWidth );
+        final int y2 = (int) Math.ceil( ( (double) worldClip.y - worldYPos + worldClip.height ) / cellHeight );
+        result.x = Math.max( x1, 0 );
+        result.y = Math.max( y1, 0 );
+        result.width = Math.max( Math.min( x2, width ) - result.x, 0 );
+        result.height = Math.max( Math.min( y2, height ) - result.y, 0 );
+    }
+    
+    /** Sets the given cursor before the first non empty cell of this grid */
+    public final TileGridCursor getCursor( final TileGridCursor cursor ) {
+        return cursor.reset( this );
+    }
+    
+    /** Sets the given cursor before the first non empty cell of this grid within the given world clip */
+    public final TileGridCursor getCursor( final Rectangle worldClip, final TileGridCursor cursor ) {
+        return cursor.reset( this, worldClip );
+    }
+    
     public final TileGridIterator getTileGridIterator() {
         return TileGridIterator.getInstance( this );
     }
@@ -327,13 +428,52 @@ public final class TileGrid extends SystemComponent implements ViewAndLayerAware
         return TileGridIterator.getInstance( worldClip, this );
     }
 
+    private int collisionShapeOf( int entityId ) {
+        if ( entityId == NULL_VALUE || context == null ) {
+            return TileCollisionShapes.NO_SHAPE;
+        }
+        if ( !context.getEntityComponentAspects( entityId ).contains( ECollision.TYPE_KEY ) ) {
+            return TileCollisionShapes.NO_SHAPE;
+        }
+        
+        if ( collisionShapes == null ) {
+            collisionShapes = context.getSystem( TileGridSystem.SYSTEM_KEY ).getCollisionShapes();
+        }
+        final ECollision collision = context.getEntityComponent( entityId, ECollision.TYPE_KEY );
+        if ( collision.getMaterialType() != null ) {
+            collisionMaterialTypes.set( collision.getMaterialType() );
+        }
+        return collisionShapes.indexOf( collision );
+    }
+
     private void createGrid() {
-        int[][] old = grid;
-        grid = new int[ height ][ width ];
+        grid = createLayer( grid, NULL_VALUE );
+        collisionGrid = createLayer( collisionGrid, TileCollisionShapes.NO_SHAPE );
+        occupancy = new long[ height ][ ( width + 63 ) >>> 6 ];
+        for ( int y = 0; y < height; y++ ) {
+            for ( int x = 0; x < width; x++ ) {
+                setOccupied( x, y, grid[ y ][ x ] != NULL_VALUE );
+            }
+        }
+        
+        normalisedWorldBounds.width = width;
+        normalisedWorldBounds.height = height;
+    }
+    
+    private void setOccupied( final int xpos, final int ypos, final boolean occupied ) {
+        if ( occupied ) {
+            occupancy[ ypos ][ xpos >>> 6 ] |= 1L << xpos;
+        } else {
+            occupancy[ ypos ][ xpos >>> 6 ] &= ~( 1L << xpos );
+        }
+    }
+    
+    private int[][] createLayer( final int[][] old, final int nullValue ) {
+        final int[][] layer = new int[ height ][ width ];
         
         for ( int y = 0; y < height; y++ ) {
             for ( int x = 0; x < width; x++ ) {
-                grid[ y ][ x ] = NULL_VALUE;
+                layer[ y ][ x ] = nullValue;
             }
         }
         
@@ -341,28 +481,22 @@ public final class TileGrid extends SystemComponent implements ViewAndLayerAware
             int lowerHeight = ( old.length < height )? old.length : height;
             int lowerWidth = ( old[ 0 ].length < width )? old[ 0 ].length : width;
             for ( int y = 0; y < lowerHeight; y++ ) {
-                System.arraycopy( old[ y ], 0, grid[ y ], 0, lowerWidth );
+                System.arraycopy( old[ y ], 0, layer[ y ], 0, lowerWidth );
             }
         }
         
-        normalisedWorldBounds.width = width;
-        normalisedWorldBounds.height = height;
+        return layer;
     }
     
     
+    /** An IntIterator over the non empty cells of a TileGrid. A new TileGridIterator is created on each call
+     *  of getTileGridIterator; use a caller owned TileGridCursor to iterate without allocation.
+     */
     public final static class TileGridIterator implements IntIterator {
         
-        private static final ArrayDeque<TileGridIterator> POOL = new ArrayDeque<TileGridIterator>( 5 );
-    
-        private final Rectangle tmpClip = new Rectangle();
-        private final Vector2f worldPosition = new Vector2f();
-        private final Rectangle clip = new Rectangle();
-        
-        private int xorig;
-        private int xsize;
-        private int ysize;
-        private TileGrid tileGrid;
-    
+        private final TileGridCursor cursor = new TileGridCursor();
+        private float worldXPos;
+        private float worldYPos;
         private boolean hasNext;
         
         private TileGridIterator() {}
@@ -374,110 +508,36 @@ public final class TileGrid extends SystemComponent implements ViewAndLayerAware
     
         @Override
         public final int next() {
-            int result = tileGrid.grid[ clip.y ][ clip.x ];
-            calcWorldPosition();
-            clip.x++;
-            findNext();
+            final int result = cursor.getEntityId();
+            worldXPos = cursor.getWorldXPos();
+            worldYPos = cursor.getWorldYPos();
+            hasNext = cursor.next();
             return result;
         }
     
         public final float getWorldXPos() {
-            return worldPosition.dx;
+            return worldXPos;
         }
         
         public final float getWorldYPos() {
-            return worldPosition.dy;
-        }
-        
-        private final void reset( final TileGrid tileGrid ) {
-            clip.x = 0;
-            clip.y = 0;
-            clip.width = tileGrid.getWidth();
-            clip.height = tileGrid.getHeight();
-            init( tileGrid );
-        }
-        
-        private final void reset( final Rectangle clip, final TileGrid tileGrid ) {
-            mapWorldClipToTileGridClip( clip, tileGrid, this.clip );
-            init( tileGrid );
-        }
-    
-        private void init( final TileGrid tileGrid ) {
-            xorig = clip.x;
-            xsize = clip.x + clip.width;
-            ysize = clip.y + clip.height;
-    
-            this.tileGrid = tileGrid;
-            
-            findNext();
+            return worldYPos;
         }
         
         final void mapWorldClipToTileGridClip( final Rectangle worldClip, TileGrid tileGrid, Rectangle result ) {
-            tmpClip.x = (int) Math.floor( ( (double) worldClip.x - tileGrid.worldXPos ) / tileGrid.cellWidth );
-            tmpClip.y = (int) Math.floor( ( (double) worldClip.y - tileGrid.worldYPos ) / tileGrid.cellHeight );
-            int x2 = (int) Math.ceil( ( (double) worldClip.x - tileGrid.worldXPos + worldClip.width ) / tileGrid.cellWidth );
-            int y2 = (int) Math.ceil( ( (double) worldClip.y - tileGrid.worldYPos + worldClip.height ) / tileGrid.cellHeight );
-            tmpClip.width = x2 - tmpClip.x;
-            tmpClip.height = y2 - tmpClip.y;
-            GeomUtils.intersection( tmpClip, tileGrid.normalisedWorldBounds, result );
-        }
-    
-        private void findNext() {
-            while ( clip.y < ysize ) {
-                while( clip.x < xsize ) {
-                    if ( tileGrid.grid[ clip.y ][ clip.x ] != TileGrid.NULL_VALUE ) {
-                        hasNext = true;
-                        return;
-                    }
-                    clip.x++;
-                }
-                clip.x = xorig;
-                clip.y++;
-            }
-            
-            dispose();
-        }
-        
-        private void dispose() {
-            hasNext = false;
-            tileGrid = null;
-            xorig = -1;
-            xsize = -1;
-            ysize = -1;
-            POOL.add( this );
-        }
-
-        private void calcWorldPosition() {
-            worldPosition.dx = tileGrid.worldXPos + ( clip.x * tileGrid.cellWidth );
-            worldPosition.dy = tileGrid.worldYPos + ( clip.y * tileGrid.cellHeight );
+            tileGrid.mapWorldClipToTileGridClip( worldClip, result );
         }
         
         static final TileGridIterator getInstance( final Rectangle clip, final TileGrid tileGrid ) {
-            TileGridIterator instance = getInstance();
-            
-            instance.reset( clip, tileGrid );
+            final TileGridIterator instance = new TileGridIterator();
+            instance.hasNext = instance.cursor.reset( tileGrid, clip ).next();
             return instance;
         }
 
         static final TileGridIterator getInstance( final TileGrid tileGrid ) {
-            TileGridIterator instance = getInstance();
-            
-            instance.reset( tileGrid );
-            return instance;
-        }
-        
-        static final private TileGridIterator getInstance() {
-            TileGridIterator instance;
-            if ( POOL.isEmpty() ) {
-                instance = new TileGridIterator();
-            } else {
-                instance = POOL.pollLast();
-            }
+            final TileGridIterator instance = new TileGridIterator();
+            instance.hasNext = instance.cursor.reset( tileGrid ).next();
             return instance;
         }
     }
 
-
-    
-
 }
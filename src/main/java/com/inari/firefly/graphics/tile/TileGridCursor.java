@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2015 - 2016, Andreas Hefti, inarisoft@yahoo.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.inari.firefly.graphics.tile;
+
+import com.inari.commons.geom.Rectangle;
+
+/** A caller owned cursor over the non empty cells of a TileGrid, row by row from top left.
+ *  <p>
+ *  The cursor skips empty cells by the occupancy bits of each row of the TileGrid and does not allocate
+ *  anything while iterating. Each thread needs its own cursor; a TileGrid must not be changed while a cursor
+ *  is iterating over it.
+ *  <pre>
+ *  tileGrid.getCursor( worldClip, cursor );
+ *  while ( cursor.next() ) {
+ *      render( cursor.getEntityId(), cursor.getWorldXPos(), cursor.getWorldYPos() );
+ *  }
+ *  </pre>
+ */
+public final class TileGridCursor {
+
+    private final Rectangle clip = new Rectangle();
+
+    private TileGrid tileGrid;
+    private int xEnd;
+    private int yEnd;
+    private int x;
+    private int y;
+    private int[] row;
+    private long[] rowOccupancy;
+    private float rowWorldYPos;
+
+    /** Sets this cursor before the first non empty cell of the given TileGrid */
+    public final TileGridCursor reset( final TileGrid tileGrid ) {
+        clip.x = 0;
+        clip.y = 0;
+        clip.width = tileGrid.getWidth();
+        clip.height = tileGrid.getHeight();
+        return init( tileGrid );
+    }
+
+    /** Sets this cursor before the first non empty cell of the given TileGrid within the given world clip */
+    public final TileGridCursor reset( final TileGrid tileGrid, final Rectangle worldClip ) {
+        tileGrid.mapWorldClipToTileGridClip( worldClip, clip );
+        return init( tileGrid );
+    }
+
+    /** Moves this cursor to the next non empty cell
+     *  @return true if there is one, false if the end of the clip is reached
+     */
+    public final boolean next() {
+        x++;
+        while ( y < yEnd ) {
+            if ( x < xEnd ) {
+                x = nextOccupied( x );
+                if ( x < xEnd ) {
+                    return true;
+                }
+            }
+
+            y++;
+            x = clip.x;
+            if ( y < yEnd ) {
+                loadRow();
+            }
+        }
+
+        row = null;
+        rowOccupancy = null;
+        tileGrid = null;
+        return false;
+    }
+
+    public final int getEntityId() {
+        return row[ x ];
+    }
+
+    public final int getCollisionShape() {
+        return tileGrid.collisionGrid[ y ][ x ];
+    }
+
+    public final int getGridXPos() {
+        return x;
+    }
+
+    public final int getGridYPos() {
+        return y;
+    }
+
+    public final float getWorldXPos() {
+        return tileGrid.worldXPos + x * tileGrid.cellWidth;
+    }
+
+    public final float getWorldYPos() {
+        return rowWorldYPos;
+    }
+
+    private TileGridCursor init( final TileGrid tileGrid ) {
+        this.tileGrid = tileGrid;
+        xEnd = clip.x + clip.width;
+        yEnd = clip.y + clip.height;
+        x = clip.x - 1;
+        y = clip.y;
+        if ( y < yEnd ) {
+            loadRow();
+        }
+        return this;
+    }
+
+    private void loadRow() {
+        row = tileGrid.grid[ y ];
+        rowOccupancy = tileGrid.occupancy[ y ];
+        rowWorldYPos = tileGrid.worldYPos + y * tileGrid.cellHeight;
+    }
+
+    // gives the first occupied cell of the current row from the given one or a value >= xEnd if there is none
+    private int nextOccupied( final int from ) {
+        int word = from >>> 6;
+        long bits = rowOccupancy[ word ] & ( -1L << from );
+        while ( bits == 0 ) {
+            word++;
+            if ( word << 6 >= xEnd ) {
+                return xEnd;
+            }
+            bits = rowOccupancy[ word ];
+        }
+        return ( word << 6 ) + Long.numberOfTrailingZeros( bits );
+    }
+
+}
@@ -20,7 +20,6 @@ import java.util.Set;
 import com.inari.commons.JavaUtils;
 import com.inari.commons.geom.Position;
 import com.inari.commons.lang.aspect.IAspects;
-import com.inari.commons.lang.list.DynArrayRO;
 import com.inari.firefly.entity.EntityActivationEvent;
 import com.inari.firefly.entity.EntityActivationListener;
 import com.inari.firefly.entity.EntitySystem;
@@ -28,6 +27,7 @@ import com.inari.firefly.graphics.ETransform;
 import com.inari.firefly.graphics.view.ViewEvent;
 import com.inari.firefly.graphics.view.ViewEvent.Type;
 import com.inari.firefly.graphics.view.ViewEventListener;
+import com.inari.firefly.physics.collision.TileCollisionShapes;
 import com.inari.firefly.system.FFContext;
 import com.inari.firefly.system.component.ComponentSystem;
 import com.inari.firefly.system.component.SystemBuilderAdapter;
@@ -49,6 +49,7 @@ public final class TileGridSystem
     private EntitySystem entitySystem;
     
     final SystemComponentViewLayerMap<TileGrid> tileGrids;
+    private final TileCollisionShapes collisionShapes = new TileCollisionShapes();
     
     public TileGridSystem() {
         super( SYSTEM_KEY );
@@ -93,30 +94,14 @@ public final class TileGridSystem
         final ETransform transform = entitySystem.getComponent( entityId, ETransform.TYPE_KEY );
         final ETile tile = entitySystem.getComponent( entityId, ETile.TYPE_KEY );
         final TileGrid tileGrid = getTileGrid( transform.getViewId(), transform.getLayerId() );
-        final DynArrayRO<Position> gridPositions = tile.getGridPositions();
-        
-        for ( int i = 0; i < gridPositions.capacity(); i++ ) {
-            if ( !gridPositions.contains( i ) ) {
-                continue;
-            }
-
-            tileGrid.set( entityId, gridPositions.get( i ) );
-        }
+        tileGrid.set( entityId, tile.getGridPositions() );
     }
     
     public final void entityDeactivated( int entityId, final IAspects aspects ) {
         final ETransform transform = entitySystem.getComponent( entityId, ETransform.TYPE_KEY );
         final ETile tile = entitySystem.getComponent( entityId, ETile.TYPE_KEY );
         final TileGrid tileGrid = getTileGrid( transform.getViewId(), transform.getLayerId() );
-        final DynArrayRO<Position> gridPositions = tile.getGridPositions();
-        
-        for ( int i = 0; i < gridPositions.capacity(); i++ ) {
-            if ( !gridPositions.contains( i ) ) {
-                continue;
-            }
-            
-            tileGrid.resetIfMatch( entityId, gridPositions.get( i ) );
-        }
+        tileGrid.resetIfMatch( entityId, tile.getGridPositions() );
     }
     
     public final void onViewEvent( ViewEvent event ) {
@@ -138,6 +123,11 @@ public final class TileGridSystem
         return tileGrids.get( viewId, layerId );
     }
     
+    /** Gives the collision shapes of the tiles of all TileGrids of this system */
+    public final TileCollisionShapes getCollisionShapes() {
+        return collisionShapes;
+    }
+    
     public final int getTile( int viewId, int layerId, final Position position ) {
         TileGrid tileGrid = getTileGrid( viewId, layerId );
         if ( tileGrid == null ) {
@@ -166,6 +156,7 @@ public final class TileGridSystem
 
     public final void clearSystem() {
         tileGrids.clear();
+        collisionShapes.clear();
     }
 
 }
@@ -15,14 +15,16 @@
  ******************************************************************************/ 
 package com.inari.firefly.physics.animation;
 
+import java.util.BitSet;
 import java.util.Set;
 
 import com.inari.commons.JavaUtils;
 import com.inari.commons.lang.aspect.IAspects;
 import com.inari.commons.lang.list.DynArray;
 import com.inari.commons.lang.list.DynArrayRO;
+import com.inari.commons.lang.list.IntBagRO;
+import com.inari.firefly.entity.BatchedEntityActivationListener;
 import com.inari.firefly.entity.EntityActivationEvent;
-import com.inari.firefly.entity.EntityActivationListener;
 import com.inari.firefly.system.FFContext;
 import com.inari.firefly.system.UpdateEvent;
 import com.inari.firefly.system.UpdateEventListener;
@@ -38,7 +40,7 @@ public final class AnimationSystem
         ComponentSystem<AnimationSystem>
     implements
         UpdateEventListener,
-        EntityActivationListener {
+        BatchedEntityActivationListener {
     
     public static final FFSystemTypeKey<AnimationSystem> SYSTEM_KEY = FFSystemTypeKey.create( AnimationSystem.class );
     private static final Set<SystemComponentKey<?>> SUPPORTED_COMPONENT_TYPES = JavaUtils.<SystemComponentKey<?>>unmodifiableSet( 
@@ -47,6 +49,7 @@ public final class AnimationSystem
 
     final SystemComponentMap<Animation> animations;
     final DynArray<AnimationMapping> activeMappings;
+    private final BitSet deactivatedEntities = new BitSet();
 
     AnimationSystem() {
         super( SYSTEM_KEY );
@@ -118,6 +121,40 @@ public final class AnimationSystem
         }
     }
 
+    public final void entitiesActivated( IntBagRO entityIds, IAspects aspects ) {
+        final int nullValue = entityIds.getNullValue();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            final int entityId = entityIds.get( i );
+            if ( entityId != nullValue ) {
+                entityActivated( entityId, aspects );
+            }
+        }
+    }
+
+    public final void entitiesDeactivated( IntBagRO entityIds, IAspects aspects ) {
+        // removes the mappings of all deactivated entities within one single pass over the active mappings
+        final int nullValue = entityIds.getNullValue();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            final int entityId = entityIds.get( i );
+            if ( entityId != nullValue ) {
+                deactivatedEntities.set( entityId );
+            }
+        }
+        
+        for ( int i = 0; i < activeMappings.capacity(); i++ ) {
+            AnimationMapping animationMapping = activeMappings.get( i );
+            if ( animationMapping == null ) {
+                continue;
+            }
+            
+            if ( animationMapping.entityId >= 0 && deactivatedEntities.get( animationMapping.entityId ) ) {
+                activeMappings.remove( i );
+            }
+        }
+        
+        deactivatedEntities.clear();
+    }
+
     final void onAnimationEvent( AnimationSystemEvent event ) {
         if ( !animations.map.contains( event.animationId ) ) {
             return;
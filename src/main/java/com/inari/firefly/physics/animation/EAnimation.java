@@ -8,10 +8,13 @@ import com.inari.commons.lang.list.DynArrayRO;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
 
 public class EAnimation extends EntityComponent {
     
-    public static final EntityComponentTypeKey<EAnimation> TYPE_KEY = EntityComponentTypeKey.create( EAnimation.class );
+    public static final EntityComponentTypeKey<EAnimation> TYPE_KEY = EntityComponentTypeKey.create( EAnimation.class, new EntityComponentFactory<EAnimation>() {
+        public final EAnimation create() { return new EAnimation(); }
+    } );
     
     public static final AttributeKey<DynArray<AnimationMapping>> ANIMATION_MAPPING = AttributeKey.createDynArray( "animationMapping", EAnimation.class, AnimationMapping.class );
     public static final Set<AttributeKey<?>> ATTRIBUTE_KEYS = JavaUtils.<AttributeKey<?>>unmodifiableSet(
@@ -44,6 +47,13 @@ public class EAnimation extends EntityComponent {
         }
     }
 
+    public final boolean copyFrom( EntityComponent component ) {
+        final EAnimation other = (EAnimation) component;
+        animationMapping.clear();
+        animationMapping.addAll( other.animationMapping );
+        return true;
+    }
+
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( ANIMATION_MAPPING, animationMapping );
     }
@@ -6,6 +6,8 @@ import com.inari.commons.GeomUtils;
 import com.inari.commons.JavaUtils;
 import com.inari.commons.geom.Rectangle;
 import com.inari.commons.lang.IntIterator;
+import com.inari.commons.lang.aspect.Aspect;
+import com.inari.commons.lang.aspect.Aspects;
 import com.inari.commons.lang.list.DynArray;
 import com.inari.commons.lang.list.IntBag;
 import com.inari.firefly.component.attr.AttributeKey;
@@ -13,7 +15,7 @@ import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.graphics.ETransform;
 import com.inari.firefly.system.component.SystemComponentType;
 
-public final class CollisionQuadTree extends ContactPool {
+public final class CollisionQuadTree extends ContactPool implements RaycastContactPool {
     
     public static final SystemComponentType COMPONENT_TYPE = new SystemComponentType( ContactPool.TYPE_KEY, CollisionQuadTree.class );
     public static final AttributeKey<Rectangle> WORLD_AREA = AttributeKey.createRectangle( "world_area", CollisionQuadTree.class );
@@ -140,6 +142,33 @@ public final class CollisionQuadTree extends ContactPool {
         return matchingIterator;
     }
     
+    @Override
+    public final void get( Rectangle scanBounds, IntBag result ) {
+        get( scanBounds, null, result );
+    }
+    
+    /** Skips all nodes that contain no entity with a material type that matches the given ContactConstraint */
+    @Override
+    public final void get( Rectangle scanBounds, ContactConstraint constraint, IntBag result ) {
+        if ( rootNode == null || !GeomUtils.intersect( rootNode.area, scanBounds ) ) {
+            return;
+        }
+        
+        if ( constraint != null && !constraint.isFiltering() ) {
+            constraint = null;
+        }
+        rootNode.get( scanBounds, constraint, result );
+    }
+    
+    @Override
+    public final void raycast( float x, float y, float dirX, float dirY, float maxDistance, IntBag result ) {
+        if ( rootNode == null ) {
+            return;
+        }
+        
+        rootNode.raycast( x, y, dirX, dirY, maxDistance, result );
+    }
+    
     @Override
     public void clear() {
         matching.clear();
@@ -165,12 +194,16 @@ public final class CollisionQuadTree extends ContactPool {
         final Rectangle area;
         final IntBag entities;
         final Node[] nodes;
+        // the union of the material types of all entities that has been added to this node and its sub nodes.
+        // This is not reduced on remove, so it may contain more material types than the node actually has
+        final Aspects materialTypes;
         
         public Node( int level, Rectangle area ) {
             this.level = level;
             this.area = area;
             entities = new IntBag( maxEntities + 1, -1 );
             nodes = new Node[ 4 ];
+            materialTypes = CollisionSystem.MATERIAL_ASPECT_GROUP.createAspects();
         }
         
         final void remove( int entityId ) {
@@ -202,7 +235,63 @@ public final class CollisionQuadTree extends ContactPool {
             } 
         }
         
+        // same as get( bounds ) but adds the entity id's to the result instead of changing the matching iterators.
+        // If there is a constraint, nodes without a matching material type are skipped
+        final void get( Rectangle bounds, ContactConstraint constraint, IntBag result ) {
+            if ( constraint != null && !constraint.matchAny( materialTypes ) ) {
+                return;
+            }
+            
+            Node node = getMatchingNode( bounds );
+            if ( node != null ) {
+                node.get( bounds, constraint, result );
+            } else {
+                if ( nodes[ 0 ] == null ) {
+                    addAll( entities, constraint, result );
+                } else {
+                    for ( int i = 0; i < nodes.length; i++ ) {
+                        if ( GeomUtils.intersect( bounds, nodes[ i ].area ) && 
+                             ( constraint == null || constraint.matchAny( nodes[ i ].materialTypes ) ) ) {
+                            addAll( nodes[ i ].entities, constraint, result );
+                        }
+                    }
+                }
+            } 
+        }
+        
+        // adds the entities of this node and of all sub nodes whose area is passed by the ray
+        final void raycast( float x, float y, float dirX, float dirY, float maxDistance, IntBag result ) {
+            addAll( entities, null, result );
+            if ( nodes[ 0 ] == null ) {
+                return;
+            }
+            
+            for ( int i = 0; i < nodes.length; i++ ) {
+                if ( Raycast.intersects( nodes[ i ].area, x, y, dirX, dirY, maxDistance ) ) {
+                    nodes[ i ].raycast( x, y, dirX, dirY, maxDistance, result );
+                }
+            }
+        }
+        
+        private final void addAll( IntBag entities, ContactConstraint constraint, IntBag result ) {
+            for ( int i = 0; i < entities.length(); i++ ) {
+                if ( entities.isEmpty( i ) ) {
+                    continue;
+                }
+                
+                final int entityId = entities.get( i );
+                if ( constraint == null || constraint.match( getMaterialType( entityId ) ) ) {
+                    result.add( entityId );
+                }
+            }
+        }
+        
         final void add( int entityId, Rectangle bounds ) {
+            final Aspect materialType = getMaterialType( entityId );
+            if ( materialType != null ) {
+                materialTypes.set( materialType );
+            }
+            
             if ( nodes[ 0 ] != null ) {
                 Node node = getMatchingNode( bounds );
                 
@@ -1,30 +1,39 @@
 package com.inari.firefly.physics.collision;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.inari.commons.GeomUtils;
 import com.inari.commons.JavaUtils;
 import com.inari.commons.geom.BitMask;
 import com.inari.commons.geom.Rectangle;
-import com.inari.commons.lang.IntIterator;
 import com.inari.commons.lang.Named;
 import com.inari.commons.lang.aspect.Aspect;
 import com.inari.commons.lang.aspect.AspectGroup;
 import com.inari.commons.lang.aspect.Aspects;
 import com.inari.commons.lang.aspect.IAspects;
 import com.inari.commons.lang.indexed.Indexed;
+import com.inari.commons.lang.list.IntBag;
 import com.inari.commons.lang.list.IntBagRO;
 import com.inari.firefly.entity.EntityActivationEvent;
 import com.inari.firefly.entity.EntityActivationListener;
 import com.inari.firefly.graphics.ETransform;
 import com.inari.firefly.graphics.tile.ETile;
 import com.inari.firefly.graphics.tile.TileGrid;
-import com.inari.firefly.graphics.tile.TileGrid.TileGridIterator;
 import com.inari.firefly.graphics.tile.TileGridSystem;
 import com.inari.firefly.graphics.view.ViewEvent;
 import com.inari.firefly.graphics.view.ViewEvent.Type;
 import com.inari.firefly.graphics.view.ViewEventListener;
+import com.inari.firefly.physics.collision.TileCollisionShapes.Shape;
 import com.inari.firefly.physics.movement.EMovement;
 import com.inari.firefly.physics.movement.MoveEvent;
 import com.inari.firefly.physics.movement.MoveEventListener;
@@ -52,16 +61,33 @@ public final class CollisionSystem
         ContactConstraint.TYPE_KEY
     );
     
-    private static final ArrayDeque<Contact> CONTACTS_POOL = new ArrayDeque<Contact>();
+    /** The minimum number of moved entities with collision to scan the contacts in parallel */
+    public static final int MIN_PARALLEL_SCANS = 32;
+    
+    // a pool per thread, so contacts can be created and disposed while scanning in parallel
+    private static final ThreadLocal<ArrayDeque<Contact>> CONTACTS_POOL = new ThreadLocal<ArrayDeque<Contact>>() {
+        @Override
+        protected final ArrayDeque<Contact> initialValue() {
+            return new ArrayDeque<Contact>();
+        }
+    };
     
     private final SystemComponentViewLayerMap<ContactPool> contactPools;
     private final SystemComponentMap<CollisionResolver> collisionResolvers;
     private final SystemComponentMap<ContactConstraint> contactConstraints;
     
     private TileGridSystem tileGridSystem;
-    private final Rectangle checkPivot = new Rectangle( 0, 0, 0, 0 );
-    
-    
+    private final ContactScanner scanner = new ContactScanner();
+    private Raycast raycast;
+    private final RaycastResult sweepResult = new RaycastResult( 1 );
+    
+    private int scanThreads = 1;
+    private ExecutorService scanPool;
+    private ContactScanner[] scanners;
+    private final List<Future<Void>> scanFutures = new ArrayList<Future<Void>>();
+    private final AtomicInteger nextScan = new AtomicInteger( 0 );
+    private int[] scanEntityIds = new int[ 0 ];
+    private int scanCount = 0;
     
     CollisionSystem() {
         super( SYSTEM_KEY );
@@ -79,6 +105,12 @@ public final class CollisionSystem
         context.registerListener( MoveEvent.TYPE_KEY, this );
         
         tileGridSystem = context.getSystem( TileGridSystem.SYSTEM_KEY );
+        raycast = new Raycast( context, contactConstraints.map );
+        
+        final Integer threads = context.getProperty( FFContext.Properties.COLLISION_SCAN_THREADS );
+        if ( threads != null ) {
+            scanThreads = Math.max( 1, threads );
+        }
     }
     
     public final Set<SystemComponentKey<?>> supportedComponentTypes() {
@@ -109,6 +141,7 @@ public final class CollisionSystem
     public final void entityActivated( int entityId, final IAspects aspects ) {
         final ContactPool pool = contactPools.get( context.getEntityComponent( entityId, ETransform.TYPE_KEY ) );
         if ( pool != null ) {
+            pool.updateMaterialType( entityId );
             pool.add( entityId );
         }
     }
@@ -117,13 +150,33 @@ public final class CollisionSystem
         final ContactPool pool = contactPools.get( context.getEntityComponent( entityId, ETransform.TYPE_KEY ) );
         if ( pool != null ) {
             pool.remove( entityId );
+            pool.removeMaterialType( entityId );
         }
     }
     
+    /** Scans the contacts of all moved entities, resolves them and notifies the contacts.
+     *  <p>
+     *  If the property COLLISION_SCAN_THREADS is set to more than one thread and at least MIN_PARALLEL_SCANS entities
+     *  with collision has moved, this runs in two phases. First the contacts of all moved entities are scanned
+     *  in parallel, then the CollisionResolvers, ContactEvents and ContactPool updates are processed sequentially in 
+     *  the order of the moved entities. In this mode the contacts of an entity are scanned against the positions 
+     *  before the collision of any other entity of the same move event is resolved.
+     *  <p>
+     *  Entities with swept collision (ECollision.SWEEP) are moved back to where they first hit a tile or an other entity 
+     *  along their last movement step, before any contacts are scanned.
+     */
     public final void onMoveEvent( final MoveEvent event ) {
         final IntBagRO movedEntityIds = event.movedEntityIds();
         final int nullValue = movedEntityIds.getNullValue();
         
+        final boolean parallel = scanThreads > 1 && collectScans( movedEntityIds ) >= MIN_PARALLEL_SCANS;
+        if ( parallel ) {
+            for ( int i = 0; i < scanCount; i++ ) {
+                sweep( scanEntityIds[ i ] );
+            }
+            scanParallel();
+        }
+        
         for ( int i = 0; i < movedEntityIds.length(); i++ ) {
             final int entityId = movedEntityIds.get( i );
             if ( entityId == nullValue || !context.getEntityComponentAspects( entityId ).contains( ECollision.TYPE_KEY ) ) {
@@ -139,7 +192,10 @@ public final class CollisionSystem
             final ETransform transform = context.getEntityComponent( entityId, ETransform.TYPE_KEY );
             final int collisionResolverId = collision.getCollisionResolverId();
             
-            scanContacts( entityId, collision );
+            if ( !parallel ) {
+                sweep( entityId );
+                scanner.scanContacts( entityId, collision );
+            }
             
             if ( collisionResolverId >= 0 ) {
                 collisionResolvers.get( collisionResolverId ).resolve( entityId );
@@ -152,6 +208,7 @@ public final class CollisionSystem
             // update the contact pool if there is one for the moved entity
             final ContactPool contactPool = contactPools.get( transform );
             if ( contactPool != null ) {
+                contactPool.updateMaterialType( entityId );
                 contactPool.update( entityId );
             }
         }
@@ -184,7 +241,7 @@ public final class CollisionSystem
     
     public final void updateContacts( int entityId ) {
         final ECollision collision = context.getEntityComponent( entityId, ECollision.TYPE_KEY );
-        scanContacts( entityId, collision );
+        scanner.scanContacts( entityId, collision );
     }
     
     public final void updateContacts( Indexed indexed ) {
@@ -227,7 +284,7 @@ public final class CollisionSystem
     }
     
     public final void updateContacts( int entityId, Contacts contacts ) {
-        _updateContacts( entityId, contacts );
+        scanner.updateContacts( entityId, contacts );
     }
     
     public final void updateContacts( Indexed indexed, Contacts constraint ) {
@@ -241,6 +298,98 @@ public final class CollisionSystem
     public final void updateContacts( Named entityName, Contacts constraint ) {
         updateContacts( context.getEntityId( entityName ), constraint );
     }
+    
+    /** Sets the material type of the ECollision of the specified entity. If the entity is active, the material type 
+     *  kept by its ContactPool is updated immediately, also if the entity doesn't move.
+     *  
+     * @param entityId the id of the entity
+     * @param materialType the new material type or null for no material type
+     */
+    public final void setMaterialType( int entityId, Aspect materialType ) {
+        final ECollision collision = context.getEntityComponent( entityId, ECollision.TYPE_KEY );
+        collision.setMaterialType( materialType );
+        if ( !context.isEntityActive( entityId ) ) {
+            return;
+        }
+        
+        final ContactPool pool = contactPools.get( context.getEntityComponent( entityId, ETransform.TYPE_KEY ) );
+        if ( pool != null ) {
+            pool.updateMaterialType( entityId );
+            pool.update( entityId );
+        }
+    }
+    
+    /** Casts a ray against the tiles of the TileGrid and the entities of the ContactPool of the given view and layer
+     *  and gives the first hit into the given result.
+     *  
+     * @param viewId the id of the view
+     * @param layerId the id of the layer
+     * @param x the x coordinate of the origin of the ray in world coordinates
+     * @param y the y coordinate of the origin of the ray in world coordinates
+     * @param dirX the x component of the direction of the ray
+     * @param dirY the y component of the direction of the ray
+     * @param maxDistance the length of the ray
+     * @param contactConstraintId the id of the ContactConstraint to filter the hits by material type or -1 for no filter
+     * @param result the RaycastResult to give the hit into
+     * @return true if the ray hits something
+     */
+    public final boolean raycast( 
+        int viewId, int layerId, float x, float y, float dirX, float dirY, float maxDistance, 
+        int contactConstraintId, final RaycastResult result 
+    ) {
+        return cast( viewId, layerId, x, y, dirX, dirY, maxDistance, contactConstraintId, false, result ) > 0;
+    }
+    
+    /** Casts a ray against the tiles of the TileGrid and the entities of the ContactPool of the given view and layer
+     *  and gives all hits sorted by distance into the given result.
+     *  
+     * @return the number of hits
+     * @see #raycast(int, int, float, float, float, float, float, int, RaycastResult)
+     */
+    public final int raycastAll( 
+        int viewId, int layerId, float x, float y, float dirX, float dirY, float maxDistance, 
+        int contactConstraintId, final RaycastResult result 
+    ) {
+        return cast( viewId, layerId, x, y, dirX, dirY, maxDistance, contactConstraintId, true, result );
+    }
+    
+    /** Casts the segment from x1/y1 to x2/y2 and gives the first hit into the given result.
+     *  @return true if the segment hits something
+     *  @see #raycast(int, int, float, float, float, float, float, int, RaycastResult)
+     */
+    public final boolean segmentcast( 
+        int viewId, int layerId, float x1, float y1, float x2, float y2, 
+        int contactConstraintId, final RaycastResult result 
+    ) {
+        return raycast( viewId, layerId, x1, y1, x2 - x1, y2 - y1, length( x2 - x1, y2 - y1 ), contactConstraintId, result );
+    }
+    
+    /** Casts the segment from x1/y1 to x2/y2 and gives all hits sorted by distance into the given result.
+     *  @return the number of hits
+     *  @see #raycast(int, int, float, float, float, float, float, int, RaycastResult)
+     */
+    public final int segmentcastAll( 
+        int viewId, int layerId, float x1, float y1, float x2, float y2, 
+        int contactConstraintId, final RaycastResult result 
+    ) {
+        return raycastAll( viewId, layerId, x1, y1, x2 - x1, y2 - y1, length( x2 - x1, y2 - y1 ), contactConstraintId, result );
+    }
+    
+    private static float length( float x, float y ) {
+        return (float) Math.sqrt( x * x + y * y );
+    }
+    
+    private int cast( 
+        int viewId, int layerId, float x, float y, float dirX, float dirY, float maxDistance, 
+        int contactConstraintId, boolean allHits, final RaycastResult result 
+    ) {
+        final ContactConstraint constraint = ( contactConstraintId >= 0 )? contactConstraints.map.get( contactConstraintId ) : null;
+        final TileGrid tileGrid = tileGridSystem.getTileGrid( viewId, layerId );
+        return raycast.cast( 
+            tileGrid, tileGridSystem.getCollisionShapes(), contactPools.get( viewId, layerId ), 
+            x, y, dirX, dirY, maxDistance, constraint, allHits, result 
+        );
+    }
 
     public final void clearSystem() {
         contactPools.clear();
@@ -253,173 +402,353 @@ public final class CollisionSystem
         context.disposeListener( EntityActivationEvent.TYPE_KEY, this );
         context.disposeListener( ViewEvent.TYPE_KEY, this );
         context.disposeListener( MoveEvent.TYPE_KEY, this );
-    }
-
-    private void scanContacts( int entityId, ECollision collision ) {
-        final Aspects aspects = context.getEntityComponentAspects( entityId );
-        if ( !aspects.contains( ECollision.TYPE_KEY ) ) {
-            return;
-        }
-
-        for ( int i = 0; i < collision.contactScan.contacts.capacity(); i++ ) {
-            final Contacts contacts = collision.contactScan.contacts.get( i );
-            if ( contacts == null ) {
-                continue;
-            }
-            
-            _updateContacts( entityId, contacts );
+        
+        if ( scanPool != null ) {
+            scanPool.shutdownNow();
+            scanPool = null;
+            scanners = null;
         }
     }
     
-    private final void _updateContacts( int entityId, Contacts contacts ) {
-        final ContactConstraint constraint = contactConstraints.get( contacts.constraintId );
-        final ETransform transform = context.getEntityComponent( entityId, ETransform.TYPE_KEY );
-        final EMovement movement = context.getEntityComponent( entityId, EMovement.TYPE_KEY );
-        final int viewId = transform.getViewId();
-        
-        int layerId = constraint.layerId;
-        if ( layerId < 0 ) {
-            layerId = transform.getLayerId();
+    // moves an entity with swept collision back to where it first hits a tile or an other entity along its last movement 
+    // step and one pixel into it on the side it hits, so the contact scan finds the contact that stopped the entity
+    private void sweep( final int entityId ) {
+        final ECollision collision = context.getEntityComponent( entityId, ECollision.TYPE_KEY );
+        if ( !collision.sweep || !context.getEntityComponentAspects( entityId ).contains( EMovement.TYPE_KEY ) ) {
+            return;
         }
-
-        contacts.update( 
-            constraint.contactBounds,
-            transform.getXpos(),
-            transform.getYpos(),
-            movement.getVelocityX(),
-            movement.getVelocityY()
-        );
         
-        scanTileContacts( entityId, viewId, layerId, contacts );
-        scanSpriteContacts( entityId, viewId, layerId, contacts );
-    }
-    
-    private void scanSpriteContacts( final int entityId, final int viewId, final int layerId, final Contacts contacts ) {
-        final ContactPool pool = contactPools.get( viewId, layerId );
-        if ( pool == null ) {
+        final EMovement movement = context.getEntityComponent( entityId, EMovement.TYPE_KEY );
+        final float stepX = movement.getLastStepX();
+        final float stepY = movement.getLastStepY();
+        if ( stepX == 0f && stepY == 0f ) {
             return;
         }
         
-        final IntIterator entityIterator = pool.get( contacts.worldBounds );
-        if ( entityIterator == null || !entityIterator.hasNext() ) {
+        final ETransform transform = context.getEntityComponent( entityId, ETransform.TYPE_KEY );
+        final int viewId = transform.getViewId();
+        final int layerId = transform.getLayerId();
+        final Rectangle bounds = collision.collisionBounds;
+        sweepResult.setIgnoredEntityId( entityId );
+        final int hits = raycast.sweep( 
+            tileGridSystem.getTileGrid( viewId, layerId ), tileGridSystem.getCollisionShapes(), contactPools.get( viewId, layerId ), 
+            collision.contactScan,
+            transform.getXpos() - stepX + bounds.x, transform.getYpos() - stepY + bounds.y, bounds.width, bounds.height, 
+            stepX, stepY, sweepResult 
+        );
+        if ( hits == 0 ) {
             return;
         }
         
-        while ( entityIterator.hasNext() ) {
-            final int entityId2 = entityIterator.next();
-            if ( entityId == entityId2 ) {
-                continue;
-            }
-            
-            final ETransform transform = context.getEntityComponent( entityId2, ETransform.TYPE_KEY );
-            scanContact( contacts, entityId2, transform.getXpos(), transform.getYpos() );
+        float x = sweepResult.getXpos( 0 );
+        float y = sweepResult.getYpos( 0 );
+        if ( sweepResult.getNormalX( 0 ) != 0 ) {
+            x = Math.round( x ) - sweepResult.getNormalX( 0 );
+        } else if ( sweepResult.getNormalY( 0 ) != 0 ) {
+            y = Math.round( y ) - sweepResult.getNormalY( 0 );
         }
+        transform.setXpos( x - bounds.x );
+        transform.setYpos( y - bounds.y );
     }
-
-    private final void scanTileContacts( final int entityId, final int viewId, final int layerId, final Contacts contacts ) {
-        TileGrid tileGrid = tileGridSystem.getTileGrid( viewId, layerId );
-        if ( tileGrid == null ) {
-            return;
+    
+    // collects the ids of the moved entities with collision for the parallel scan
+    private int collectScans( final IntBagRO movedEntityIds ) {
+        final int nullValue = movedEntityIds.getNullValue();
+        if ( scanEntityIds.length < movedEntityIds.size() ) {
+            scanEntityIds = new int[ movedEntityIds.size() * 2 ];
         }
         
-        TileGridIterator tileGridIterator = tileGrid.getTileGridIterator( contacts.worldBounds );
-        while ( tileGridIterator.hasNext() ) {
-            final int entityId2 = tileGridIterator.next();
-            if ( entityId == entityId2 ) {
+        scanCount = 0;
+        for ( int i = 0; i < movedEntityIds.length(); i++ ) {
+            final int entityId = movedEntityIds.get( i );
+            if ( entityId == nullValue || !context.getEntityComponentAspects( entityId ).contains( ECollision.TYPE_KEY ) ) {
                 continue;
             }
             
-            scanContact( contacts, entityId2, tileGridIterator.getWorldXPos(), tileGridIterator.getWorldYPos() );
+            scanEntityIds[ scanCount++ ] = entityId;
         }
+        return scanCount;
     }
     
-    private void scanContact( final Contacts contacts, final int entityId, final float xpos, final float ypos ) {
-        if ( entityId < 0 || !context.getEntityComponentAspects( entityId ).contains( ECollision.TYPE_KEY ) ) {
-            return;
+    // scans the contacts of the collected entities on the scan pool and the calling thread
+    private void scanParallel() {
+        if ( scanPool == null ) {
+            initScanPool();
         }
         
-        final ECollision collision = context.getEntityComponent( entityId, ECollision.TYPE_KEY );
-        final ContactConstraint constraint = contactConstraints.map.get( contacts.constraintId );
-        if ( !constraint.match( collision.materialType ) ) {
-            return;
+        nextScan.set( 0 );
+        scanFutures.clear();
+        for ( int i = 0; i < scanners.length; i++ ) {
+            scanFutures.add( scanPool.submit( scanners[ i ] ) );
         }
         
-        final Rectangle collisionBounds = collision.getCollisionBounds();
-        final Contact contact = createContact(
-            entityId,
-            collision.getMaterialType(),
-            collision.getContactType(),
-            (int) Math.floor( xpos ) + collisionBounds.x,
-            (int) Math.floor( ypos ) + collisionBounds.y,
-            collisionBounds.width,
-            collisionBounds.height
-        );
-        
-        final Rectangle constraintWorldBounds = contacts.worldBounds;
-        final Rectangle contactWorldBounds = contact.worldBounds();
-        final Rectangle intersectionBounds = contact.intersectionBounds();
-        final BitMask intersectionMask = contact.intersectionMask();
+        RuntimeException failure = null;
+        try {
+            scanner.call();
+        } catch ( RuntimeException e ) {
+            failure = e;
+        }
         
-        GeomUtils.intersection( 
-            constraintWorldBounds, 
-            contactWorldBounds, 
-            intersectionBounds 
-        );
+        // all workers must be finished before the contacts are resolved
+        for ( int i = 0; i < scanFutures.size(); i++ ) {
+            try {
+                scanFutures.get( i ).get();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                failure = new IllegalStateException( "Interrupted while scanning contacts", e );
+            } catch ( ExecutionException e ) {
+                failure = new IllegalStateException( "Failed to scan contacts", e.getCause() );
+            }
+        }
+        scanFutures.clear();
         
-        if ( intersectionBounds.area() <= 0 ) {
-            disposeContact( contact );
-            return;
+        if ( failure != null ) {
+            throw failure;
+        }
+    }
+    
+    private void initScanPool() {
+        scanners = new ContactScanner[ scanThreads - 1 ];
+        for ( int i = 0; i < scanners.length; i++ ) {
+            scanners[ i ] = new ContactScanner();
         }
         
-        // normalize the intersection to origin of coordinate system
-        intersectionBounds.x = intersectionBounds.x - constraintWorldBounds.x;
-        intersectionBounds.y = intersectionBounds.y - constraintWorldBounds.y;
+        scanPool = Executors.newFixedThreadPool( scanners.length, new ThreadFactory() {
+            private int count = 0;
+            public final Thread newThread( Runnable runnable ) {
+                final Thread thread = new Thread( runnable, "FFContactScan-" + count++ );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+    /** Scans the contacts of entities. Each thread that scans contacts uses its own ContactScanner */
+    private final class ContactScanner implements Callable<Void> {
+        
+        private final Rectangle checkPivot = new Rectangle( 0, 0, 0, 0 );
+        private final Rectangle tileClip = new Rectangle( 0, 0, 0, 0 );
+        private final IntBag poolEntityIds = new IntBag( 50, -1 );
         
-        final BitMask bitmask2 = collision.getCollisionMask();
-        if ( bitmask2 == null ) {
-            addContact( contacts, contact );
-            return;
+        /** Scans the contacts of the collected entities until there is no one left to scan */
+        public final Void call() {
+            int index = nextScan.getAndIncrement();
+            while ( index < scanCount ) {
+                final int entityId = scanEntityIds[ index ];
+                scanContacts( entityId, context.getEntityComponent( entityId, ECollision.TYPE_KEY ) );
+                index = nextScan.getAndIncrement();
+            }
+            return null;
         }
-        
-        checkPivot.x = constraintWorldBounds.x - contactWorldBounds.x;
-        checkPivot.y = constraintWorldBounds.y - contactWorldBounds.y;
-        checkPivot.width = constraintWorldBounds.width;
-        checkPivot.height = constraintWorldBounds.height;
 
-        if ( bitmask2 != null && BitMask.createIntersectionMask( checkPivot, bitmask2, intersectionMask, true ) ) {
-            addContact( contacts, contact );
-            return;
+        final void scanContacts( int entityId, ECollision collision ) {
+            final Aspects aspects = context.getEntityComponentAspects( entityId );
+            if ( !aspects.contains( ECollision.TYPE_KEY ) ) {
+                return;
+            }
+
+            for ( int i = 0; i < collision.contactScan.contacts.capacity(); i++ ) {
+                final Contacts contacts = collision.contactScan.contacts.get( i );
+                if ( contacts == null ) {
+                    continue;
+                }
+            
+                updateContacts( entityId, contacts );
+            }
         }
-        
-        disposeContact( contact );
-    }
     
-    private final boolean addContact( final Contacts constraint, final Contact contact ) {
-        if ( contact == null ) { 
-            return false;
-        }
+        final void updateContacts( int entityId, Contacts contacts ) {
+            final ContactConstraint constraint = contactConstraints.get( contacts.constraintId );
+            final ETransform transform = context.getEntityComponent( entityId, ETransform.TYPE_KEY );
+            final EMovement movement = context.getEntityComponent( entityId, EMovement.TYPE_KEY );
+            final int viewId = transform.getViewId();
+        
+            int layerId = constraint.layerId;
+            if ( layerId < 0 ) {
+                layerId = transform.getLayerId();
+            }
 
-        if ( !GeomUtils.intersect( contact.intersectionBounds(), constraint.normalizedContactBounds ) ) {
-            return false;
+            contacts.update( 
+                constraint.contactBounds,
+                transform.getXpos(),
+                transform.getYpos(),
+                movement.getVelocityX(),
+                movement.getVelocityY()
+            );
+        
+            scanTileContacts( entityId, viewId, layerId, constraint, contacts );
+            scanSpriteContacts( entityId, viewId, layerId, constraint, contacts );
+        }
+    
+        // the pool gives only entities with a material type that matches the constraint
+        private void scanSpriteContacts( 
+            final int entityId, final int viewId, final int layerId, final ContactConstraint constraint, final Contacts contacts 
+        ) {
+            final ContactPool pool = contactPools.get( viewId, layerId );
+            if ( pool == null ) {
+                return;
+            }
+        
+            poolEntityIds.clear();
+            pool.get( contacts.worldBounds, constraint, poolEntityIds );
+            for ( int i = 0; i < poolEntityIds.length(); i++ ) {
+                final int entityId2 = poolEntityIds.get( i );
+                if ( entityId == entityId2 || poolEntityIds.isEmpty( i ) ) {
+                    continue;
+                }
+            
+                final ETransform transform = context.getEntityComponent( entityId2, ETransform.TYPE_KEY );
+                scanContact( contacts, entityId2, transform.getXpos(), transform.getYpos() );
+            }
         }
 
-        BitMask intersectionMask = contact.intersectionMask();
-        if ( intersectionMask != null && !intersectionMask.isEmpty() ) {
-            constraint.intersectionMask.or( intersectionMask );
-        } else {
-            Rectangle intersectionBounds = contact.intersectionBounds();
-            constraint.intersectionMask.setRegion( intersectionBounds, true );
+        // scans the collision layer of the tile grid, the tile entity is only touched for tiles that intersect
+        private final void scanTileContacts( 
+            final int entityId, final int viewId, final int layerId, final ContactConstraint constraint, final Contacts contacts 
+        ) {
+            final TileGrid tileGrid = tileGridSystem.getTileGrid( viewId, layerId );
+            if ( tileGrid == null || !constraint.matchAny( tileGrid.getCollisionMaterialTypes() ) ) {
+                return;
+            }
+        
+            final TileCollisionShapes shapes = tileGridSystem.getCollisionShapes();
+            final Rectangle worldBounds = contacts.worldBounds;
+            final int cellWidth = tileGrid.getCellWidth();
+            final int cellHeight = tileGrid.getCellHeight();
+            final float worldXPos = tileGrid.getWorldXPos();
+            final float worldYPos = tileGrid.getWorldYPos();
+        
+            tileGrid.mapWorldClipToTileGridClip( worldBounds, tileClip );
+            final int xEnd = tileClip.x + tileClip.width;
+            final int yEnd = tileClip.y + tileClip.height;
+            for ( int y = tileClip.y; y < yEnd; y++ ) {
+                for ( int x = tileClip.x; x < xEnd; x++ ) {
+                    final int shapeIndex = tileGrid.getCollisionShape( x, y );
+                    if ( shapeIndex < 0 ) {
+                        continue;
+                    }
+                
+                    final Shape shape = shapes.get( shapeIndex );
+                    if ( !constraint.match( shape.materialType ) ) {
+                        continue;
+                    }
+                
+                    final Rectangle bounds = shape.bounds;
+                    final int contactX = (int) Math.floor( worldXPos + x * cellWidth ) + bounds.x;
+                    final int contactY = (int) Math.floor( worldYPos + y * cellHeight ) + bounds.y;
+                    if ( contactX >= worldBounds.x + worldBounds.width || contactX + bounds.width <= worldBounds.x ||
+                         contactY >= worldBounds.y + worldBounds.height || contactY + bounds.height <= worldBounds.y ) {
+                        continue;
+                    }
+                
+                    final int entityId2 = tileGrid.get( x, y );
+                    if ( entityId == entityId2 ) {
+                        continue;
+                    }
+                
+                    scanContact( contacts, entityId2, contactX, contactY, bounds, shape.mask, shape.materialType, shape.contactType );
+                }
+            }
         }
+    
+        private void scanContact( final Contacts contacts, final int entityId, final float xpos, final float ypos ) {
+            if ( entityId < 0 || !context.getEntityComponentAspects( entityId ).contains( ECollision.TYPE_KEY ) ) {
+                return;
+            }
         
-        if ( contact.contactType != null ) {
-            constraint.contactTypes.set( contact.contactType );
+            final ECollision collision = context.getEntityComponent( entityId, ECollision.TYPE_KEY );
+            final Rectangle collisionBounds = collision.getCollisionBounds();
+            scanContact( 
+                contacts, 
+                entityId, 
+                (int) Math.floor( xpos ) + collisionBounds.x, 
+                (int) Math.floor( ypos ) + collisionBounds.y, 
+                collisionBounds, 
+                collision.getCollisionMask(), 
+                collision.getMaterialType(), 
+                collision.getContactType() 
+            );
         }
-        if ( contact.materialType != null ) {
-            constraint.materialTypes.set( contact.materialType );
+    
+        private void scanContact( 
+            final Contacts contacts, final int entityId, final int x, final int y, final Rectangle collisionBounds, 
+            final BitMask bitmask2, final Aspect materialType, final Aspect contactType 
+        ) {
+            final Contact contact = createContact(
+                entityId,
+                materialType,
+                contactType,
+                x,
+                y,
+                collisionBounds.width,
+                collisionBounds.height
+            );
+        
+            final Rectangle constraintWorldBounds = contacts.worldBounds;
+            final Rectangle contactWorldBounds = contact.worldBounds();
+            final Rectangle intersectionBounds = contact.intersectionBounds();
+            final BitMask intersectionMask = contact.intersectionMask();
+        
+            GeomUtils.intersection( 
+                constraintWorldBounds, 
+                contactWorldBounds, 
+                intersectionBounds 
+            );
+        
+            if ( intersectionBounds.area() <= 0 ) {
+                disposeContact( contact );
+                return;
+            }
+        
+            // normalize the intersection to origin of coordinate system
+            intersectionBounds.x = intersectionBounds.x - constraintWorldBounds.x;
+            intersectionBounds.y = intersectionBounds.y - constraintWorldBounds.y;
+        
+            if ( bitmask2 == null ) {
+                addContact( contacts, contact );
+                return;
+            }
+        
+            checkPivot.x = constraintWorldBounds.x - contactWorldBounds.x;
+            checkPivot.y = constraintWorldBounds.y - contactWorldBounds.y;
+            checkPivot.width = constraintWorldBounds.width;
+            checkPivot.height = constraintWorldBounds.height;
+
+            if ( bitmask2 != null && BitMask.createIntersectionMask( checkPivot, bitmask2, intersectionMask, true ) ) {
+                addContact( contacts, contact );
+                return;
+            }
+        
+            disposeContact( contact );
         }
+    
+        private final boolean addContact( final Contacts constraint, final Contact contact ) {
+            if ( contact == null ) { 
+                return false;
+            }
+
+            if ( !GeomUtils.intersect( contact.intersectionBounds(), constraint.normalizedContactBounds ) ) {
+                return false;
+            }
+
+            BitMask intersectionMask = contact.intersectionMask();
+            if ( intersectionMask != null && !intersectionMask.isEmpty() ) {
+                constraint.intersectionMask.or( intersectionMask );
+            } else {
+                Rectangle intersectionBounds = contact.intersectionBounds();
+                constraint.intersectionMask.setRegion( intersectionBounds, true );
+            }
         
-        constraint.contacts.add( contact );
-        return true;
+            if ( contact.contactType != null ) {
+                constraint.contactTypes.set( contact.contactType );
+            }
+            if ( contact.materialType != null ) {
+                constraint.materialTypes.set( contact.materialType );
+            }
+        
+            constraint.contacts.add( contact );
+            return true;
+        }
     }
 
     final static void disposeContact( final Contact contact ) {
@@ -429,7 +758,7 @@ public final class CollisionSystem
         contact.contactType = null;
         contact.materialType = null;
         contact.intersectionBounds.clear();
-        CONTACTS_POOL.add( contact );
+        CONTACTS_POOL.get().add( contact );
     }
     
     final static Contact createContact( int entityId, Aspect materialType, Aspect contactType, int x, int y, int width, int height ) {
@@ -447,8 +776,9 @@ public final class CollisionSystem
     }
 
     private static Contact getContactFromPool() {
-        return ( !CONTACTS_POOL.isEmpty() )? 
-            CONTACTS_POOL.pollFirst() :
+        final ArrayDeque<Contact> pool = CONTACTS_POOL.get();
+        return ( !pool.isEmpty() )? 
+            pool.pollFirst() :
                 new Contact();
     }
 
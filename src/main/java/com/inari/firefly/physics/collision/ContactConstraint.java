@@ -88,6 +88,17 @@ public final class ContactConstraint extends SystemComponent {
         }
     }
     
+    /** Indicates if any of the given material types matches the material type filter of this constraint.
+     *  This is used to skip whole areas of a ContactPool or TileGrid with the union of the material types they contain.
+     */
+    public final boolean matchAny( final Aspects materialTypes ) {
+        if ( !isFiltering() ) {
+            return true;
+        } else {
+            return materialTypes.intersects( materialTypeFilter );
+        }
+    }
+    
     public final Set<AttributeKey<?>> attributeKeys() {
         return ATTRIBUTE_KEYS;
     }
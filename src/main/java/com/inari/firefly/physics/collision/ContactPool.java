@@ -5,7 +5,10 @@ import java.util.Set;
 import com.inari.commons.JavaUtils;
 import com.inari.commons.geom.Rectangle;
 import com.inari.commons.lang.IntIterator;
+import com.inari.commons.lang.aspect.Aspect;
 import com.inari.commons.lang.aspect.Aspects;
+import com.inari.commons.lang.list.DynArray;
+import com.inari.commons.lang.list.IntBag;
 import com.inari.commons.lang.indexed.IIndexedTypeKey;
 import com.inari.firefly.FFInitException;
 import com.inari.firefly.component.attr.AttributeKey;
@@ -60,6 +63,10 @@ public abstract class ContactPool extends SystemComponent implements ViewAndLaye
     protected int viewId;
     protected int layerId;
     
+    // the material type of each entity of the pool by entity id. This is kept by the CollisionSystem, so contacts
+    // can be filtered by material type without looking up the ECollision of each entity
+    private final DynArray<Aspect> materialTypes = DynArray.create( Aspect.class, 50, 50 );
+    
     protected EntitySystem entitySystem;
 
     protected ContactPool( int index ) {
@@ -138,9 +145,33 @@ public abstract class ContactPool extends SystemComponent implements ViewAndLaye
             return;
         }
         
+        updateMaterialType( entityId );
         add( entityId );
     }
     
+    /** Gives the material type of an entity of this pool without looking up its ECollision.
+     *  The material type is updated when the entity is added to the pool, has moved or its material type has been set
+     *  by CollisionSystem.setMaterialType.
+     *  
+     * @param entityId the Entity id
+     * @return the material type of the entity or null if it has no material type or is not within this pool
+     */
+    public final Aspect getMaterialType( int entityId ) {
+        if ( !materialTypes.contains( entityId ) ) {
+            return null;
+        }
+        return materialTypes.get( entityId );
+    }
+    
+    final void updateMaterialType( int entityId ) {
+        final ECollision collision = context.getEntityComponent( entityId, ECollision.TYPE_KEY );
+        materialTypes.set( entityId, collision.materialType );
+    }
+    
+    final void removeMaterialType( int entityId ) {
+        materialTypes.remove( entityId );
+    }
+    
     /** Implements the adding of an specific Entity id after all checks has passed. 
      *  This is called by the CollisionSystem on entity activation event and should not be called directly
      *  If you have to add a entity id directly to a pool, use register that also do the necessary checks before adding.
@@ -171,6 +202,50 @@ public abstract class ContactPool extends SystemComponent implements ViewAndLaye
      */
     public abstract IntIterator get( Rectangle region );
     
+    /** Adds the entity id's of all entities that most possibly has a collision within the given region to the given IntBag.
+     *  In contrast to get( region ) this must not change the state of the pool, so that it can be called by different
+     *  threads at the same time, as long as the pool itself is not changed. This is used by the CollisionSystem to scan
+     *  contacts in parallel.
+     *  
+     *  The default implementation synchronizes on the pool and collects the result of get( region ). Implementations 
+     *  should override this with a lock free query.
+     *  
+     * @param region The contact or collision region to check collision entity collisions against.
+     * @param result The IntBag to add the entity id's to
+     */
+    public void get( Rectangle region, IntBag result ) {
+        synchronized ( this ) {
+            final IntIterator iterator = get( region );
+            while ( iterator != null && iterator.hasNext() ) {
+                result.add( iterator.next() );
+            }
+        }
+    }
+    
+    /** Same as get( region, result ) but only adds the entity id's of entities with a material type that matches the 
+     *  material type filter of the given ContactConstraint. So the CollisionSystem can skip all other entities before 
+     *  any of their components are looked up.
+     *  
+     *  The default implementation filters the result of get( region, result ) by the material types of the entities. 
+     *  Implementations should skip whole areas that contain no matching material type.
+     *  
+     * @param region The contact or collision region to check collision entity collisions against.
+     * @param constraint The ContactConstraint to filter the entities with or null for no filter
+     * @param result The IntBag to add the entity id's to
+     */
+    public void get( Rectangle region, ContactConstraint constraint, IntBag result ) {
+        get( region, result );
+        if ( constraint == null || !constraint.isFiltering() ) {
+            return;
+        }
+        
+        for ( int i = 0; i < result.length(); i++ ) {
+            if ( !result.isEmpty( i ) && !constraint.match( getMaterialType( result.get( i ) ) ) ) {
+                result.removeAt( i );
+            }
+        }
+    }
+    
     /** Use this to clear all entity id's form a specified pool instance */
     public abstract void clear();
 
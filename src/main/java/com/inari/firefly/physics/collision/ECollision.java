@@ -11,10 +11,13 @@ import com.inari.commons.lang.list.IntBag;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
 
 public final class ECollision extends EntityComponent {
     
-    public static final EntityComponentTypeKey<ECollision> TYPE_KEY = EntityComponentTypeKey.create( ECollision.class );
+    public static final EntityComponentTypeKey<ECollision> TYPE_KEY = EntityComponentTypeKey.create( ECollision.class, new EntityComponentFactory<ECollision>() {
+        public final ECollision create() { return new ECollision(); }
+    } );
     
     public static final AttributeKey<Rectangle> COLLISION_BOUNDS = AttributeKey.createRectangle( "collisionBounds", ECollision.class );
     public static final AttributeKey<BitMask> COLLISION_MASK = AttributeKey.create( "collisionMask", BitMask.class, ECollision.class );
@@ -24,6 +27,7 @@ public final class ECollision extends EntityComponent {
     public static final AttributeKey<Aspect> CONTACT_TYPE = AttributeKey.createAspect( "contactType", ECollision.class );
     public static final AttributeKey<IntBag> CONTACT_CONSTRAINT_IDS = AttributeKey.createIntBag( "constraintIds", ECollision.class );
     public static final AttributeKey<DynArray<String>> CONTACT_CONSTRAINT_NAMES = AttributeKey.createDynArray( "constraintNames", ECollision.class, String.class );
+    public static final AttributeKey<Boolean> SWEEP = AttributeKey.createBoolean( "sweep", ECollision.class );
     public static final Set<AttributeKey<?>> ATTRIBUTE_KEYS = JavaUtils.<AttributeKey<?>>unmodifiableSet(
         COLLISION_BOUNDS,
         COLLISION_MASK,
@@ -31,7 +35,8 @@ public final class ECollision extends EntityComponent {
         MATERIAL_TYPE,
         CONTACT_TYPE,
         CONTACT_CONSTRAINT_IDS,
-        CONTACT_CONSTRAINT_NAMES
+        CONTACT_CONSTRAINT_NAMES,
+        SWEEP
     );
     
     final Rectangle collisionBounds;
@@ -39,6 +44,7 @@ public final class ECollision extends EntityComponent {
     int collisionResolverId;
     Aspect materialType;
     Aspect contactType;
+    boolean sweep;
     
     final ContactScan contactScan;
 
@@ -54,6 +60,7 @@ public final class ECollision extends EntityComponent {
         collisionResolverId = -1;
         contactType = null;
         materialType = null;
+        sweep = false;
         contactScan.clear();
     }
 
@@ -96,6 +103,9 @@ public final class ECollision extends EntityComponent {
         return materialType;
     }
 
+    /** Sets the material type. Use CollisionSystem.setMaterialType for active entities, otherwise the ContactPool of 
+     *  the entity keeps the old material type until the entity moves.
+     */
     public final void setMaterialType( Aspect materialType ) {
         this.materialType = materialType;
     }
@@ -108,6 +118,18 @@ public final class ECollision extends EntityComponent {
         this.contactType = contactType;
     }
     
+    public final boolean isSweep() {
+        return sweep;
+    }
+
+    /** Sets the swept collision mode. If set, the CollisionSystem moves the entity back to where it first hits 
+     *  a tile or an other entity along its last movement step before the contacts are scanned. 
+     *  So a fast moving entity can not pass through thin obstacles within one step.
+     */
+    public final void setSweep( boolean sweep ) {
+        this.sweep = sweep;
+    }
+    
     public final ECollision addContactConstraint( int contactConstraintId ) {
         contactScan.contacts.set( contactConstraintId, new Contacts( contactConstraintId ) );
         return this;
@@ -149,6 +171,7 @@ public final class ECollision extends EntityComponent {
         collisionResolverId = attributes.getIdForName( COLLISION_RESOLVER_NAME, COLLISION_RESOLVER_ID, CollisionResolver.TYPE_KEY, collisionResolverId );
         materialType = attributes.getValue( MATERIAL_TYPE, materialType );
         contactType = attributes.getValue( CONTACT_TYPE, contactType );
+        sweep = attributes.getValue( SWEEP, sweep );
 
         clearContactConstraints();
         final IntBag constraintIds = attributes.getIdsForNames( CONTACT_CONSTRAINT_NAMES, CONTACT_CONSTRAINT_IDS, ContactConstraint.TYPE_KEY, null );
@@ -162,12 +185,30 @@ public final class ECollision extends EntityComponent {
         }
     }
 
+    public final boolean copyFrom( EntityComponent component ) {
+        final ECollision other = (ECollision) component;
+        setCollisionBounds( other.collisionBounds );
+        collisionMask = other.collisionMask;
+        collisionResolverId = other.collisionResolverId;
+        materialType = other.materialType;
+        contactType = other.contactType;
+        sweep = other.sweep;
+        clearContactConstraints();
+        for ( int i = 0; i < other.contactScan.contacts.capacity(); i++ ) {
+            if ( other.contactScan.contacts.get( i ) != null ) {
+                addContactConstraint( i );
+            }
+        }
+        return true;
+    }
+
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( COLLISION_BOUNDS, collisionBounds );
         attributes.put( COLLISION_MASK, collisionMask );
         attributes.put( COLLISION_RESOLVER_ID, collisionResolverId );
         attributes.put( MATERIAL_TYPE, materialType );
         attributes.put( CONTACT_TYPE, contactType );
+        attributes.put( SWEEP, sweep );
         
         IntBag constraintIds = new IntBag( contactScan.contacts.size() );
         for ( int i = 0; i < contactScan.contacts.capacity(); i++ ) {
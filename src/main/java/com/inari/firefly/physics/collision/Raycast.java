@@ -0,0 +1,417 @@
+package com.inari.firefly.physics.collision;
+
+import com.inari.commons.geom.BitMask;
+import com.inari.commons.geom.Rectangle;
+import com.inari.commons.lang.aspect.Aspect;
+import com.inari.commons.lang.list.DynArrayRO;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.tile.TileGrid;
+import com.inari.firefly.physics.collision.TileCollisionShapes.Shape;
+import com.inari.firefly.system.FFContext;
+
+/** Implements the raycast queries of the CollisionSystem.
+ *  <p>
+ *  The cells of a TileGrid are traversed along the ray with a DDA (one cell after another in order of distance)
+ *  over the collision layer of the grid. The entities of a ContactPool are taken from a RaycastContactPool
+ *  or from the bounding box of the ray. Each candidate is tested by the ray against its collision bounds and,
+ *  if there is one, its collision mask.
+ *  <p>
+ *  A sweep moves a box along a movement step and gives the first tile or entity it hits. This is the same as casting 
+ *  a ray from the top left corner of the box against the collision bounds of the candidates expanded by the size of
+ *  the box. The candidates are taken from the bounds of the whole step and collision masks are not taken into account.
+ *  Unlike a raycast, a sweep does not hit what it only touches or what it already overlaps at the start.
+ */
+final class Raycast {
+
+    // step length in pixel to test the ray against a collision mask
+    private static final float MASK_STEP = 0.5f;
+
+    private final FFContext context;
+    private final DynArrayRO<ContactConstraint> contactConstraints;
+    private final IntBag candidates = new IntBag( 50, -1 );
+    private final Rectangle rayBounds = new Rectangle();
+    private final Rectangle tileClip = new Rectangle();
+
+    private float ox;
+    private float oy;
+    private float dx;
+    private float dy;
+    private float maxDistance;
+    private float tExit;
+    private int normalX;
+    private int normalY;
+    private boolean allHits;
+    private ContactConstraint constraint;
+    private RaycastResult result;
+    
+    private boolean sweep;
+    private int extentWidth;
+    private int extentHeight;
+    private ContactScan sweepScan;
+
+    Raycast( FFContext context, DynArrayRO<ContactConstraint> contactConstraints ) {
+        this.context = context;
+        this.contactConstraints = contactConstraints;
+    }
+
+    final int cast(
+        final TileGrid tileGrid, final TileCollisionShapes shapes, final ContactPool pool,
+        float x, float y, float dirX, float dirY, float maxDistance,
+        final ContactConstraint constraint, boolean allHits, final RaycastResult result
+    ) {
+        result.clear();
+        final float length = (float) Math.sqrt( dirX * dirX + dirY * dirY );
+        if ( length == 0f || maxDistance <= 0f ) {
+            return 0;
+        }
+
+        ox = x;
+        oy = y;
+        dx = dirX / length;
+        dy = dirY / length;
+        this.maxDistance = maxDistance;
+        this.allHits = allHits;
+        this.constraint = constraint;
+        this.result = result;
+
+        if ( tileGrid != null ) {
+            castTiles( tileGrid, shapes );
+        }
+        if ( pool != null ) {
+            castPool( pool );
+        }
+        if ( allHits ) {
+            result.sort();
+        }
+
+        this.constraint = null;
+        this.result = null;
+        return result.size();
+    }
+    
+    /** Sweeps the box at x/y with the given size along the given step and gives the first hit into the result.
+     *  The position of the hit is the position of the top left corner of the box when it hits.
+     *  Only tiles and entities with a material type that matches one of the ContactConstraints of the given
+     *  ContactScan are hit, or all if the ContactScan has no ContactConstraint.
+     */
+    final int sweep(
+        final TileGrid tileGrid, final TileCollisionShapes shapes, final ContactPool pool, final ContactScan contactScan,
+        float x, float y, int width, int height, float stepX, float stepY, final RaycastResult result
+    ) {
+        result.clear();
+        final float length = (float) Math.sqrt( stepX * stepX + stepY * stepY );
+        if ( length == 0f ) {
+            return 0;
+        }
+        
+        ox = x;
+        oy = y;
+        dx = stepX / length;
+        dy = stepY / length;
+        maxDistance = length;
+        allHits = false;
+        constraint = null;
+        this.result = result;
+        sweep = true;
+        extentWidth = width;
+        extentHeight = height;
+        sweepScan = contactScan;
+        
+        rayBounds.x = (int) Math.floor( Math.min( x, x + stepX ) );
+        rayBounds.y = (int) Math.floor( Math.min( y, y + stepY ) );
+        rayBounds.width = (int) Math.ceil( Math.max( x, x + stepX ) + width ) - rayBounds.x;
+        rayBounds.height = (int) Math.ceil( Math.max( y, y + stepY ) + height ) - rayBounds.y;
+        
+        if ( tileGrid != null ) {
+            tileGrid.mapWorldClipToTileGridClip( rayBounds, tileClip );
+            final int xEnd = tileClip.x + tileClip.width;
+            final int yEnd = tileClip.y + tileClip.height;
+            for ( int cy = tileClip.y; cy < yEnd; cy++ ) {
+                for ( int cx = tileClip.x; cx < xEnd; cx++ ) {
+                    hitTile( tileGrid, shapes, cx, cy );
+                }
+            }
+        }
+        if ( pool != null ) {
+            candidates.clear();
+            pool.get( rayBounds, candidates );
+            hitCandidates();
+        }
+        
+        sweep = false;
+        extentWidth = 0;
+        extentHeight = 0;
+        sweepScan = null;
+        this.result = null;
+        return result.size();
+    }
+
+    /** Indicates if the given ray passes the given area within the given distance */
+    static final boolean intersects( Rectangle area, float x, float y, float dirX, float dirY, float maxDistance ) {
+        float tNear = 0f;
+        float tFar = maxDistance;
+        if ( dirX == 0f ) {
+            if ( x < area.x || x >= area.x + area.width ) {
+                return false;
+            }
+        } else {
+            final float t1 = ( area.x - x ) / dirX;
+            final float t2 = ( area.x + area.width - x ) / dirX;
+            tNear = Math.max( tNear, Math.min( t1, t2 ) );
+            tFar = Math.min( tFar, Math.max( t1, t2 ) );
+        }
+        if ( dirY == 0f ) {
+            if ( y < area.y || y >= area.y + area.height ) {
+                return false;
+            }
+        } else {
+            final float t1 = ( area.y - y ) / dirY;
+            final float t2 = ( area.y + area.height - y ) / dirY;
+            tNear = Math.max( tNear, Math.min( t1, t2 ) );
+            tFar = Math.min( tFar, Math.max( t1, t2 ) );
+        }
+        return tNear <= tFar;
+    }
+
+    private void castTiles( final TileGrid tileGrid, final TileCollisionShapes shapes ) {
+        final int cellWidth = tileGrid.getCellWidth();
+        final int cellHeight = tileGrid.getCellHeight();
+        final int width = tileGrid.getWidth();
+        final int height = tileGrid.getHeight();
+        if ( cellWidth <= 0 || cellHeight <= 0 || width <= 0 || height <= 0 ) {
+            return;
+        }
+
+        // clip the ray to the grid
+        final float gridX = tileGrid.getWorldXPos();
+        final float gridY = tileGrid.getWorldYPos();
+        float tCell = intersect( gridX, gridY, width * cellWidth, height * cellHeight, maxDistance );
+        if ( tCell < 0f ) {
+            return;
+        }
+        final float tEnd = tExit;
+
+        int cx = clamp( (int) Math.floor( ( ox + dx * tCell - gridX ) / cellWidth ), width );
+        int cy = clamp( (int) Math.floor( ( oy + dy * tCell - gridY ) / cellHeight ), height );
+        final int stepX = ( dx > 0f )? 1 : ( dx < 0f )? -1 : 0;
+        final int stepY = ( dy > 0f )? 1 : ( dy < 0f )? -1 : 0;
+        final float tDeltaX = ( stepX != 0 )? cellWidth / Math.abs( dx ) : Float.MAX_VALUE;
+        final float tDeltaY = ( stepY != 0 )? cellHeight / Math.abs( dy ) : Float.MAX_VALUE;
+        float tMaxX = ( stepX > 0 )? ( gridX + ( cx + 1 ) * cellWidth - ox ) / dx :
+                      ( stepX < 0 )? ( gridX + cx * cellWidth - ox ) / dx : Float.MAX_VALUE;
+        float tMaxY = ( stepY > 0 )? ( gridY + ( cy + 1 ) * cellHeight - oy ) / dy :
+                      ( stepY < 0 )? ( gridY + cy * cellHeight - oy ) / dy : Float.MAX_VALUE;
+
+        while ( cx >= 0 && cx < width && cy >= 0 && cy < height && tCell <= Math.min( tEnd, limit() ) ) {
+            hitTile( tileGrid, shapes, cx, cy );
+            if ( tMaxX < tMaxY ) {
+                tCell = tMaxX;
+                tMaxX += tDeltaX;
+                cx += stepX;
+            } else {
+                tCell = tMaxY;
+                tMaxY += tDeltaY;
+                cy += stepY;
+            }
+        }
+    }
+
+    private void hitTile( final TileGrid tileGrid, final TileCollisionShapes shapes, int cx, int cy ) {
+        final int shapeIndex = tileGrid.getCollisionShape( cx, cy );
+        if ( shapeIndex < 0 ) {
+            return;
+        }
+        
+        final Shape shape = shapes.get( shapeIndex );
+        final int entityId = tileGrid.get( cx, cy );
+        if ( !match( entityId, shape.materialType ) ) {
+            return;
+        }
+        
+        final Rectangle bounds = shape.bounds;
+        hit(
+            entityId,
+            (float) Math.floor( tileGrid.getWorldXPos() + cx * tileGrid.getCellWidth() ) + bounds.x,
+            (float) Math.floor( tileGrid.getWorldYPos() + cy * tileGrid.getCellHeight() ) + bounds.y,
+            bounds.width,
+            bounds.height,
+            shape.mask,
+            shape.materialType
+        );
+    }
+
+    private void castPool( final ContactPool pool ) {
+        final float distance = limit();
+        candidates.clear();
+        if ( pool instanceof RaycastContactPool ) {
+            ( (RaycastContactPool) pool ).raycast( ox, oy, dx, dy, distance, candidates );
+        } else {
+            // only the fallback query filters by the constraint, a RaycastContactPool gives the entities along the ray
+            final float x2 = ox + dx * distance;
+            final float y2 = oy + dy * distance;
+            rayBounds.x = (int) Math.floor( Math.min( ox, x2 ) );
+            rayBounds.y = (int) Math.floor( Math.min( oy, y2 ) );
+            rayBounds.width = (int) Math.ceil( Math.max( ox, x2 ) ) - rayBounds.x + 1;
+            rayBounds.height = (int) Math.ceil( Math.max( oy, y2 ) ) - rayBounds.y + 1;
+            pool.get( rayBounds, constraint, candidates );
+        }
+        hitCandidates();
+    }
+    
+    private void hitCandidates() {
+        for ( int i = 0; i < candidates.length(); i++ ) {
+            if ( candidates.isEmpty( i ) ) {
+                continue;
+            }
+
+            final int entityId = candidates.get( i );
+            if ( !context.getEntityComponentAspects( entityId ).contains( ECollision.TYPE_KEY ) ) {
+                continue;
+            }
+
+            final ECollision collision = context.getEntityComponent( entityId, ECollision.TYPE_KEY );
+            if ( !match( entityId, collision.materialType ) ) {
+                continue;
+            }
+
+            final ETransform transform = context.getEntityComponent( entityId, ETransform.TYPE_KEY );
+            final Rectangle bounds = collision.collisionBounds;
+            hit(
+                entityId,
+                (float) Math.floor( transform.getXpos() ) + bounds.x,
+                (float) Math.floor( transform.getYpos() ) + bounds.y,
+                bounds.width,
+                bounds.height,
+                collision.collisionMask,
+                collision.materialType
+            );
+        }
+    }
+
+    private boolean match( int entityId, Aspect materialType ) {
+        if ( entityId < 0 || entityId == result.getIgnoredEntityId() ) {
+            return false;
+        }
+        if ( sweepScan != null ) {
+            return matchSweep( materialType );
+        }
+        return constraint == null || constraint.match( materialType );
+    }
+    
+    private boolean matchSweep( Aspect materialType ) {
+        boolean hasConstraint = false;
+        for ( int i = 0; i < sweepScan.contacts.capacity(); i++ ) {
+            if ( sweepScan.contacts.get( i ) == null ) {
+                continue;
+            }
+            
+            hasConstraint = true;
+            if ( contactConstraints.contains( i ) && contactConstraints.get( i ).match( materialType ) ) {
+                return true;
+            }
+        }
+        return !hasConstraint;
+    }
+
+    // the distance up to which hits are of interest
+    private float limit() {
+        return ( !allHits && !result.isEmpty() )? result.getDistance( 0 ) : maxDistance;
+    }
+
+    private void hit( int entityId, float x, float y, int width, int height, BitMask mask, Aspect materialType ) {
+        float t = intersect( x, y, width, height, limit() );
+        if ( t < 0f ) {
+            return;
+        }
+        final int hitNormalX = normalX;
+        final int hitNormalY = normalY;
+        if ( mask != null && !sweep ) {
+            t = intersectMask( mask, x, y, width, height, t );
+            if ( t < 0f ) {
+                return;
+            }
+        }
+
+        if ( allHits || result.isEmpty() ) {
+            result.add( entityId, t, ox + dx * t, oy + dy * t, hitNormalX, hitNormalY, materialType );
+        } else if ( t < result.getDistance( 0 ) ) {
+            result.set( 0, entityId, t, ox + dx * t, oy + dy * t, hitNormalX, hitNormalY, materialType );
+        }
+    }
+
+    // gives the distance at which the ray enters the given box or -1 if it misses the box within the given distance.
+    // The distance is 0 if the origin of the ray is within the box. The distance at which the ray leaves the box is kept
+    // in tExit and the normal of the side where the ray enters the box in normalX/normalY
+    private float intersect( float x, float y, float width, float height, float distance ) {
+        // a swept box hits where its top left corner hits the box expanded by the size of the swept box
+        x -= extentWidth;
+        y -= extentHeight;
+        width += extentWidth;
+        height += extentHeight;
+        
+        float tNear = -Float.MAX_VALUE;
+        float tFar = distance;
+        normalX = 0;
+        normalY = 0;
+        if ( dx == 0f ) {
+            if ( ox < x || ox >= x + width || ( sweep && ox == x ) ) {
+                return -1f;
+            }
+        } else {
+            final float t1 = ( x - ox ) / dx;
+            final float t2 = ( x + width - ox ) / dx;
+            tNear = Math.min( t1, t2 );
+            tFar = Math.min( tFar, Math.max( t1, t2 ) );
+            normalX = ( dx > 0f )? -1 : 1;
+        }
+        if ( dy == 0f ) {
+            if ( oy < y || oy >= y + height || ( sweep && oy == y ) ) {
+                return -1f;
+            }
+        } else {
+            final float t1 = ( y - oy ) / dy;
+            final float t2 = ( y + height - oy ) / dy;
+            final float tEnter = Math.min( t1, t2 );
+            if ( tEnter > tNear ) {
+                tNear = tEnter;
+                normalX = 0;
+                normalY = ( dy > 0f )? -1 : 1;
+            }
+            tFar = Math.min( tFar, Math.max( t1, t2 ) );
+        }
+        
+        if ( tNear < 0f ) {
+            // a sweep leaves what it already overlaps at the start to the contact scan
+            if ( sweep ) {
+                return -1f;
+            }
+            tNear = 0f;
+            normalX = 0;
+            normalY = 0;
+        }
+        if ( tNear > tFar || ( sweep && tNear == tFar ) ) {
+            return -1f;
+        }
+        tExit = tFar;
+        return tNear;
+    }
+
+    // steps the ray through the box from tEnter to tExit and gives the distance of the first set bit of the mask
+    private float intersectMask( BitMask mask, float x, float y, int width, int height, float tEnter ) {
+        final float tEnd = tExit;
+        for ( float t = tEnter; t <= tEnd; t += MASK_STEP ) {
+            final int px = (int) Math.floor( ox + dx * t - x );
+            final int py = (int) Math.floor( oy + dy * t - y );
+            if ( px >= 0 && px < width && py >= 0 && py < height && mask.getBit( px, py ) ) {
+                return t;
+            }
+        }
+        return -1f;
+    }
+
+    private static int clamp( int value, int size ) {
+        return ( value < 0 )? 0 : ( value >= size )? size - 1 : value;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.inari.firefly.physics.collision;
+
+import com.inari.commons.lang.list.IntBag;
+
+/** A ContactPool that is able to give the entities along a ray, used by the raycast queries of the CollisionSystem.
+ *  For ContactPools that do not implement this, the CollisionSystem queries the bounding box of the ray.
+ */
+public interface RaycastContactPool {
+
+    /** Adds the entity id's of all entities that most possibly are hit by the given ray to the result
+     *
+     * @param x the x coordinate of the origin of the ray in world coordinates
+     * @param y the y coordinate of the origin of the ray in world coordinates
+     * @param dirX the x component of the normalized direction of the ray
+     * @param dirY the y component of the normalized direction of the ray
+     * @param maxDistance the length of the ray
+     * @param result the IntBag to add the entity id's to
+     */
+    void raycast( float x, float y, float dirX, float dirY, float maxDistance, IntBag result );
+
+}
@@ -0,0 +1,176 @@
+package com.inari.firefly.physics.collision;
+
+import com.inari.commons.lang.aspect.Aspect;
+
+/** A reusable buffer for the hits of a raycast or segment query of the CollisionSystem.
+ *  The hits are sorted by distance from the origin of the ray. A query that only looks for the first hit
+ *  gives at most one hit.
+ *  <p>
+ *  The ignored entity (for example the entity that casts the ray) is kept over queries and clear.
+ */
+public final class RaycastResult {
+
+    private int ignoredEntityId = -1;
+
+    private int size = 0;
+    private int[] entityIds;
+    private float[] distances;
+    private float[] xpos;
+    private float[] ypos;
+    private int[] normalsX;
+    private int[] normalsY;
+    private Aspect[] materialTypes;
+
+    public RaycastResult() {
+        this( 10 );
+    }
+
+    public RaycastResult( int capacity ) {
+        capacity = Math.max( capacity, 1 );
+        entityIds = new int[ capacity ];
+        distances = new float[ capacity ];
+        xpos = new float[ capacity ];
+        ypos = new float[ capacity ];
+        normalsX = new int[ capacity ];
+        normalsY = new int[ capacity ];
+        materialTypes = new Aspect[ capacity ];
+    }
+
+    public final int getIgnoredEntityId() {
+        return ignoredEntityId;
+    }
+
+    /** Sets the id of an entity that is never reported as a hit. -1 to ignore no entity */
+    public final void setIgnoredEntityId( int ignoredEntityId ) {
+        this.ignoredEntityId = ignoredEntityId;
+    }
+
+    public final int size() {
+        return size;
+    }
+
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    public final int getEntityId( int index ) {
+        return entityIds[ index ];
+    }
+
+    /** Gives the distance of the hit from the origin of the ray */
+    public final float getDistance( int index ) {
+        return distances[ index ];
+    }
+
+    /** Gives the x coordinate of the point where the ray enters the collision bounds of the hit entity */
+    public final float getXpos( int index ) {
+        return xpos[ index ];
+    }
+
+    /** Gives the y coordinate of the point where the ray enters the collision bounds of the hit entity */
+    public final float getYpos( int index ) {
+        return ypos[ index ];
+    }
+
+    /** Gives the x component of the normal of the side where the ray enters the collision bounds of the hit entity.
+     *  This is -1, 1 or 0 if the ray enters on the top or bottom side or starts within the collision bounds
+     */
+    public final int getNormalX( int index ) {
+        return normalsX[ index ];
+    }
+    
+    /** Gives the y component of the normal of the side where the ray enters the collision bounds of the hit entity.
+     *  This is -1, 1 or 0 if the ray enters on the left or right side or starts within the collision bounds
+     */
+    public final int getNormalY( int index ) {
+        return normalsY[ index ];
+    }
+    
+    public final Aspect getMaterialType( int index ) {
+        return materialTypes[ index ];
+    }
+
+    public final void clear() {
+        for ( int i = 0; i < size; i++ ) {
+            materialTypes[ i ] = null;
+        }
+        size = 0;
+    }
+
+    final void add( int entityId, float distance, float x, float y, int normalX, int normalY, Aspect materialType ) {
+        if ( size == entityIds.length ) {
+            grow();
+        }
+        set( size, entityId, distance, x, y, normalX, normalY, materialType );
+        size++;
+    }
+
+    final void set( int index, int entityId, float distance, float x, float y, int normalX, int normalY, Aspect materialType ) {
+        entityIds[ index ] = entityId;
+        distances[ index ] = distance;
+        xpos[ index ] = x;
+        ypos[ index ] = y;
+        normalsX[ index ] = normalX;
+        normalsY[ index ] = normalY;
+        materialTypes[ index ] = materialType;
+    }
+
+    // insertion sort, there are usually only a few hits
+    final void sort() {
+        for ( int i = 1; i < size; i++ ) {
+            final int entityId = entityIds[ i ];
+            final float distance = distances[ i ];
+            final float x = xpos[ i ];
+            final float y = ypos[ i ];
+            final int normalX = normalsX[ i ];
+            final int normalY = normalsY[ i ];
+            final Aspect materialType = materialTypes[ i ];
+            int j = i - 1;
+            while ( j >= 0 && distances[ j ] > distance ) {
+                set( j + 1, entityIds[ j ], distances[ j ], xpos[ j ], ypos[ j ], normalsX[ j ], normalsY[ j ], materialTypes[ j ] );
+                j--;
+            }
+            set( j + 1, entityId, distance, x, y, normalX, normalY, materialType );
+        }
+    }
+
+    private void grow() {
+        final int capacity = entityIds.length * 2;
+        final int[] newEntityIds = new int[ capacity ];
+        final float[] newDistances = new float[ capacity ];
+        final float[] newXpos = new float[ capacity ];
+        final float[] newYpos = new float[ capacity ];
+        final int[] newNormalsX = new int[ capacity ];
+        final int[] newNormalsY = new int[ capacity ];
+        final Aspect[] newMaterialTypes = new Aspect[ capacity ];
+        System.arraycopy( entityIds, 0, newEntityIds, 0, size );
+        System.arraycopy( distances, 0, newDistances, 0, size );
+        System.arraycopy( xpos, 0, newXpos, 0, size );
+        System.arraycopy( ypos, 0, newYpos, 0, size );
+        System.arraycopy( normalsX, 0, newNormalsX, 0, size );
+        System.arraycopy( normalsY, 0, newNormalsY, 0, size );
+        System.arraycopy( materialTypes, 0, newMaterialTypes, 0, size );
+        entityIds = newEntityIds;
+        distances = newDistances;
+        xpos = newXpos;
+        ypos = newYpos;
+        normalsX = newNormalsX;
+        normalsY = newNormalsY;
+        materialTypes = newMaterialTypes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append( "RaycastResult [hits=[" );
+        for ( int i = 0; i < size; i++ ) {
+            if ( i > 0 ) {
+                builder.append( ", " );
+            }
+            builder.append( entityIds[ i ] ).append( "@" ).append( distances[ i ] );
+        }
+        builder.append( "]]" );
+        return builder.toString();
+    }
+
+}
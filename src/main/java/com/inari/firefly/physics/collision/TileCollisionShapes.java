@@ -0,0 +1,96 @@
+package com.inari.firefly.physics.collision;
+
+import com.inari.commons.geom.BitMask;
+import com.inari.commons.geom.Rectangle;
+import com.inari.commons.lang.aspect.Aspect;
+import com.inari.commons.lang.list.DynArray;
+
+/** Shared table of the collision shapes of tiles.
+ *  <p>
+ *  A shape is the collision bounds, collision mask, material type and contact type of an ECollision. Tiles with
+ *  the same shape share the same index, so a TileGrid can keep the collision of each cell as a primitive int and
+ *  the CollisionSystem can scan tile contacts without looking up the ECollision of each tile.
+ *  Shapes are never removed from the table until it is cleared.
+ */
+public final class TileCollisionShapes {
+
+    public static final int NO_SHAPE = -1;
+
+    private final DynArray<Shape> shapes = DynArray.create( Shape.class, 20, 10 );
+
+    /** Gives the index of the shape of the given ECollision. A new shape is added to the table if there is no equal one.
+     *  @return the index of the shape or NO_SHAPE if the given ECollision is null
+     */
+    public final int indexOf( final ECollision collision ) {
+        if ( collision == null ) {
+            return NO_SHAPE;
+        }
+
+        final Rectangle bounds = collision.collisionBounds;
+        for ( int i = 0; i < shapes.size(); i++ ) {
+            final Shape shape = shapes.get( i );
+            if ( shape != null && shape.matches( bounds, collision.collisionMask, collision.materialType, collision.contactType ) ) {
+                return i;
+            }
+        }
+
+        // shapes are never removed, so the size is the next free index
+        final int index = shapes.size();
+        shapes.set( index, new Shape( bounds, collision.collisionMask, collision.materialType, collision.contactType ) );
+        return index;
+    }
+
+    public final Shape get( int index ) {
+        return shapes.get( index );
+    }
+
+    public final int size() {
+        return shapes.size();
+    }
+
+    public final void clear() {
+        shapes.clear();
+    }
+
+    public static final class Shape {
+
+        final Rectangle bounds;
+        final BitMask mask;
+        final Aspect materialType;
+        final Aspect contactType;
+
+        Shape( Rectangle bounds, BitMask mask, Aspect materialType, Aspect contactType ) {
+            this.bounds = new Rectangle( bounds );
+            this.mask = mask;
+            this.materialType = materialType;
+            this.contactType = contactType;
+        }
+
+        public final Rectangle getBounds() {
+            return bounds;
+        }
+
+        public final BitMask getMask() {
+            return mask;
+        }
+
+        public final Aspect getMaterialType() {
+            return materialType;
+        }
+
+        public final Aspect getContactType() {
+            return contactType;
+        }
+
+        final boolean matches( Rectangle bounds, BitMask mask, Aspect materialType, Aspect contactType ) {
+            return this.mask == mask &&
+                   this.materialType == materialType &&
+                   this.contactType == contactType &&
+                   this.bounds.x == bounds.x &&
+                   this.bounds.y == bounds.y &&
+                   this.bounds.width == bounds.width &&
+                   this.bounds.height == bounds.height;
+        }
+    }
+
+}
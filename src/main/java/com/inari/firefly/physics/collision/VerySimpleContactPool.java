@@ -4,6 +4,8 @@ import java.util.ArrayDeque;
 
 import com.inari.commons.geom.Rectangle;
 import com.inari.commons.lang.IntIterator;
+import com.inari.commons.lang.aspect.Aspect;
+import com.inari.commons.lang.aspect.Aspects;
 import com.inari.commons.lang.list.IntBag;
 import com.inari.firefly.system.component.SystemComponentType;
 
@@ -19,6 +21,8 @@ public final class VerySimpleContactPool extends ContactPool {
     public static final SystemComponentType COMPONENT_TYPE = new SystemComponentType( ContactPool.TYPE_KEY, VerySimpleContactPool.class );
     
     private final IntBag entities = new IntBag( 50, -1 );
+    // the union of the material types of all entities that has been added since the last clear
+    private final Aspects materialTypes = CollisionSystem.MATERIAL_ASPECT_GROUP.createAspects();
     
     private final ArrayDeque<EntityIdIterator> iteratorPool;
 
@@ -35,6 +39,11 @@ public final class VerySimpleContactPool extends ContactPool {
         if ( !entities.contains( entityId ) ) {
             entities.add( entityId );
         }
+        
+        final Aspect materialType = getMaterialType( entityId );
+        if ( materialType != null ) {
+            materialTypes.set( materialType );
+        }
     }
 
     @Override
@@ -42,10 +51,13 @@ public final class VerySimpleContactPool extends ContactPool {
         entities.remove( entityId );
     }
 
-    /** This does nothing for this implementation of ContactPool */
+    /** This only updates the material types of the pool for this implementation of ContactPool */
     @Override
     public final void update( int entityId ) {
-        // not needed here
+        final Aspect materialType = getMaterialType( entityId );
+        if ( materialType != null ) {
+            materialTypes.set( materialType );
+        }
     }
 
     /** Get an IntIterator of all registered entity id's */
@@ -60,9 +72,38 @@ public final class VerySimpleContactPool extends ContactPool {
         return it;
     }
 
+    /** Adds all registered entity id's to the result */
+    @Override
+    public final void get( Rectangle region, IntBag result ) {
+        for ( int i = 0; i < entities.length(); i++ ) {
+            if ( !entities.isEmpty( i ) ) {
+                result.add( entities.get( i ) );
+            }
+        }
+    }
+
+    /** Adds all registered entity id's with a material type that matches the given ContactConstraint to the result */
+    @Override
+    public final void get( Rectangle region, ContactConstraint constraint, IntBag result ) {
+        if ( constraint == null || !constraint.isFiltering() ) {
+            get( region, result );
+            return;
+        }
+        if ( !constraint.matchAny( materialTypes ) ) {
+            return;
+        }
+        
+        for ( int i = 0; i < entities.length(); i++ ) {
+            if ( !entities.isEmpty( i ) && constraint.match( getMaterialType( entities.get( i ) ) ) ) {
+                result.add( entities.get( i ) );
+            }
+        }
+    }
+
     @Override
     public final void clear() {
         entities.clear();
+        materialTypes.clear();
     }
     
     private final class EntityIdIterator implements IntIterator {
@@ -22,13 +22,16 @@ import com.inari.commons.geom.Vector2f;
 import com.inari.firefly.component.attr.AttributeKey;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.entity.EntityComponent;
+import com.inari.firefly.entity.EntityComponentFactory;
 import com.inari.firefly.system.component.Activatable;
 import com.inari.firefly.system.external.FFTimer;
 import com.inari.firefly.system.external.FFTimer.UpdateScheduler;
 
 public final class EMovement extends EntityComponent implements Activatable {
     
-    public static final EntityComponentTypeKey<EMovement> TYPE_KEY = EntityComponentTypeKey.create( EMovement.class );
+    public static final EntityComponentTypeKey<EMovement> TYPE_KEY = EntityComponentTypeKey.create( EMovement.class, new EntityComponentFactory<EMovement>() {
+        public final EMovement create() { return new EMovement(); }
+    } );
     
     public static final AttributeKey<Boolean> ACTIVE = AttributeKey.createBoolean( "active", EMovement.class );
     public static final AttributeKey<Float> VELOCITY_X = AttributeKey.createFloat( "dx", EMovement.class );
@@ -56,6 +59,7 @@ public final class EMovement extends EntityComponent implements Activatable {
     
     final Vector2f velocity = new Vector2f( 0, 0 );
     final Vector2f acceleration = new Vector2f( 0, 0 );
+    final Vector2f lastStep = new Vector2f( 0, 0 );
     float mass;
     float massFactor;
     float maxGravityVelocity;
@@ -77,6 +81,8 @@ public final class EMovement extends EntityComponent implements Activatable {
         setVelocityY( 0f );
         setAccelerationX( 0f );
         setAccelerationY( 0f );
+        lastStep.dx = 0f;
+        lastStep.dy = 0f;
         updateResolution = -1;
         updateScheduler = null;
         mass = 0f;
@@ -139,6 +145,16 @@ public final class EMovement extends EntityComponent implements Activatable {
         acceleration.dy = accY;
     }
     
+    /** Gives the x distance the entity was moved by the integrator within the last update of the MovementSystem */
+    public final float getLastStepX() {
+        return lastStep.dx;
+    }
+    
+    /** Gives the y distance the entity was moved by the integrator within the last update of the MovementSystem */
+    public final float getLastStepY() {
+        return lastStep.dy;
+    }
+    
     public final float getMass() {
         return mass;
     }
@@ -212,6 +228,23 @@ public final class EMovement extends EntityComponent implements Activatable {
         setUpdateResolution( attributes.getValue( UPDATE_RESOLUTION, updateResolution ) );
     }
 
+    public final boolean copyFrom( EntityComponent component ) {
+        final EMovement other = (EMovement) component;
+        active = other.active;
+        velocity.dx = other.velocity.dx;
+        velocity.dy = other.velocity.dy;
+        acceleration.dx = other.acceleration.dx;
+        acceleration.dy = other.acceleration.dy;
+        lastStep.dx = 0f;
+        lastStep.dy = 0f;
+        mass = other.mass;
+        massFactor = other.massFactor;
+        maxGravityVelocity = other.maxGravityVelocity;
+        onGround = other.onGround;
+        setUpdateResolution( other.updateResolution );
+        return true;
+    }
+
     public final void toAttributes( AttributeMap attributes ) {
         attributes.put( ACTIVE, active );
         attributes.put( VELOCITY_X, velocity.dx );
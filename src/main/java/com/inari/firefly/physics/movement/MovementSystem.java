@@ -92,8 +92,15 @@ public final class MovementSystem implements FFSystem, UpdateEventListener {
             final float deltaTimeInSeconds = context.getTimeElapsed() / 1000f;
 
             if ( movement.velocity.dx != 0f || movement.velocity.dy != 0f ) {
+                final float xpos = transform.getXpos();
+                final float ypos = transform.getYpos();
                 integrator.step( movement, transform, deltaTimeInSeconds );
+                movement.lastStep.dx = transform.getXpos() - xpos;
+                movement.lastStep.dy = transform.getYpos() - ypos;
                 entityIds.add( entityId );
+            } else {
+                movement.lastStep.dx = 0f;
+                movement.lastStep.dy = 0f;
             }
 
             integrator.integrate( movement, transform, deltaTimeInSeconds );
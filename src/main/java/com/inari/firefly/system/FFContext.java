@@ -1,7 +1,10 @@
 package com.inari.firefly.system;
 
 import java.awt.Font;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -23,6 +26,7 @@ import com.inari.commons.lang.aspect.Aspects;
 import com.inari.commons.lang.indexed.IIndexedTypeKey;
 import com.inari.commons.lang.indexed.Indexed;
 import com.inari.commons.lang.list.DynArray;
+import com.inari.commons.lang.list.IntBagRO;
 import com.inari.firefly.FFInitException;
 import com.inari.firefly.asset.Asset;
 import com.inari.firefly.component.Component;
@@ -50,7 +54,10 @@ import com.inari.firefly.system.external.FFGraphics;
 import com.inari.firefly.system.external.FFInput;
 import com.inari.firefly.system.external.FFTimer;
 import com.inari.firefly.system.info.SystemInfo;
+import com.inari.firefly.system.info.FrameProfiler;
 import com.inari.firefly.system.info.SystemInfoDisplay;
+import com.inari.firefly.system.snapshot.SnapshotReader;
+import com.inari.firefly.system.snapshot.SnapshotWriter;
 
 /** This is the main access point of the firefly-engine API. A FFContext is a singleton instance and created by the application
  *  initializer. FFContext ususally is available in Systems, Components and Controllers. All this types get injected on 
@@ -70,6 +77,7 @@ import com.inari.firefly.system.info.SystemInfoDisplay;
  *  - Register / Dispose an event-listener for a specifed {@link Events}
  *  - Notify an {@link Event} of specified types to the internal event dispatcher
  *  - Serialize / Load one or many {@link Component} from {@link Attributes}
+ *  - Save / Load a binary snapshot of one or many {@link Component} to / from a channel
  *  - ...
  *  </pre>
  * 
@@ -92,6 +100,13 @@ public final class FFContext {
         public static final TypedKey<Integer> ENTITY_MAP_CAPACITY = TypedKey.create( "FF_ENTITY_MAP_CAPACITY", Integer.class );
         public static final TypedKey<Integer> ENTITY_COMPONENT_SET_CAPACITY = TypedKey.create( "FF_ENTITY_COMPONENT_SET_CAPACITY", Integer.class );
         public static final TypedKey<Integer> ENTITY_BEANS_CACHE_SIZE = TypedKey.create( "FF_ENTITY_BEANS_CACHE_SIZE", Integer.class );
+        public static final TypedKey<Integer> ASSET_LOADER_THREADS = TypedKey.create( "FF_ASSET_LOADER_THREADS", Integer.class );
+        public static final TypedKey<Integer> ASSET_LOADS_PER_UPDATE = TypedKey.create( "FF_ASSET_LOADS_PER_UPDATE", Integer.class );
+        public static final TypedKey<Integer> ASSET_CACHE_BUDGET = TypedKey.create( "FF_ASSET_CACHE_BUDGET", Integer.class );
+        public static final TypedKey<Integer> TEXTURE_MEMORY_BUDGET = TypedKey.create( "FF_TEXTURE_MEMORY_BUDGET", Integer.class );
+        public static final TypedKey<String> ASSET_ARCHIVE = TypedKey.create( "FF_ASSET_ARCHIVE", String.class );
+        public static final TypedKey<Integer> COLLISION_SCAN_THREADS = TypedKey.create( "FF_COLLISION_SCAN_THREADS", Integer.class );
+        public static final TypedKey<Integer> PARTICLE_UPDATE_THREADS = TypedKey.create( "FF_PARTICLE_UPDATE_THREADS", Integer.class );
     }
     
     private final Map<TypedKey<?>, Object> properties =  new LinkedHashMap<TypedKey<?>, Object>();
@@ -106,6 +121,7 @@ public final class FFContext {
     private final FFTimer timer;
     private final FFInput input;
     private final SystemInfoDisplay systemInfoDisplay;
+    private final FrameProfiler frameProfiler;
     
     private EntitySystem entitySystem;
     boolean exit = false;
@@ -126,6 +142,7 @@ public final class FFContext {
         this.timer = timer;
         this.input = input;
         systemInfoDisplay = new SystemInfoDisplayImpl( this );
+        frameProfiler = new FrameProfiler();
     }
 
     /** Use this to get the underling {@link IEventDispatcher} implementation. 
@@ -180,6 +197,14 @@ public final class FFContext {
     public final SystemInfoDisplay getSystemInfoDisplay() {
         return systemInfoDisplay;
     }
+    
+    /** Use this to get the {@link FrameProfiler} that measures the time each update and render listener and each 
+     *  Renderer consumes per frame. The profiler is disabled by default.
+     * @return the {@link FrameProfiler} of this context
+     */
+    public final FrameProfiler getFrameProfiler() {
+        return frameProfiler;
+    }
 
     /** Use this to get a {@link FFSystem} for a specified {@link FFSystemTypeKey}.<p>
      *  The key normally is provided within a static reference within the implementing {@link FFSystem} class.
@@ -735,6 +760,11 @@ public final class FFContext {
         return this;
     }
     
+    public final FFContext activateEntities( IntBagRO entityIds ) {
+        entitySystem.activateEntities( entityIds );
+        return this;
+    }
+    
     public final FFContext activateEntity( Named named ) {
         entitySystem.activateEntity( entitySystem.getEntityId( named.name() ) );
         return this;
@@ -776,6 +806,11 @@ public final class FFContext {
         return this;
     }
     
+    public final FFContext deactivateEntities( IntBagRO entityIds ) {
+        entitySystem.deactivateEntities( entityIds );
+        return this;
+    }
+    
     public final FFContext deleteEntity( int entityId ) {
         entitySystem.delete( entityId );
         return this;
@@ -891,6 +926,59 @@ public final class FFContext {
         return this;
     }
 
+    /** Writes a binary snapshot of all components to the given channel. The channel is not closed */
+    public final FFContext toSnapshot( WritableByteChannel channel ) throws IOException {
+        final SnapshotWriter writer = new SnapshotWriter( channel );
+        for ( SystemBuilderAdapter<?> builderAdapter : systemBuilderAdapter ) {
+            toSnapshot( writer, builderAdapter );
+        }
+        writer.close();
+        return this;
+    }
+    
+    /** Writes a binary snapshot of all components of the given types to the given channel. The channel is not closed */
+    public final FFContext toSnapshot( WritableByteChannel channel, SystemComponentKey<?>... componentKeys ) throws IOException {
+        final SnapshotWriter writer = new SnapshotWriter( channel );
+        for ( SystemComponentKey<?> componentKey : componentKeys ) {
+            toSnapshot( writer, systemBuilderAdapter.get( componentKey.index() ) );
+        }
+        writer.close();
+        return this;
+    }
+    
+    public final FFContext fromSnapshot( ReadableByteChannel channel ) throws IOException {
+        return fromSnapshot( channel, BuildType.CLEAR_OLD );
+    }
+    
+    /** Builds the components of a binary snapshot read from the given channel. Sections of component types that 
+     *  are not supported within this context are skipped. The channel is not closed 
+     */
+    public final FFContext fromSnapshot( ReadableByteChannel channel, BuildType buildType ) throws IOException {
+        final SnapshotReader reader = new SnapshotReader( channel );
+        while ( reader.nextSection() ) {
+            final SystemBuilderAdapter<?> builderAdapter = getBuilderAdapter( reader.getSectionType() );
+            if ( builderAdapter != null ) {
+                builderAdapter.fromSnapshot( reader, buildType );
+            }
+        }
+        return this;
+    }
+    
+    private void toSnapshot( final SnapshotWriter writer, final SystemBuilderAdapter<?> builderAdapter ) throws IOException {
+        writer.beginSection( builderAdapter.componentTypeKey() );
+        builderAdapter.toSnapshot( writer );
+        writer.endSection();
+    }
+    
+    private SystemBuilderAdapter<?> getBuilderAdapter( final String componentTypeName ) {
+        for ( SystemBuilderAdapter<?> builderAdapter : systemBuilderAdapter ) {
+            if ( builderAdapter.componentTypeKey().type().getName().equals( componentTypeName ) ) {
+                return builderAdapter;
+            }
+        }
+        return null;
+    }
+
     public final int getScreenWidth() {
         return graphics.getScreenWidth();
     }
@@ -27,6 +27,7 @@ import com.inari.firefly.control.ControllerSystem;
 import com.inari.firefly.control.task.TaskSystem;
 import com.inari.firefly.entity.EntitySystem;
 import com.inari.firefly.entity.prefab.EntityPrefabSystem;
+import com.inari.firefly.graphics.TextureResidencySystem;
 import com.inari.firefly.graphics.rendering.RenderingSystem;
 import com.inari.firefly.graphics.view.Layer;
 import com.inari.firefly.graphics.view.View;
@@ -44,12 +45,14 @@ public abstract class FireFlyApp {
     
     protected FFGraphics graphics;
     protected ViewSystem viewSystem;
+    protected EntitySystem entitySystem;
 
     private final UpdateEvent updateEvent;
     private final RenderEvent renderEvent;
     private final PostRenderEvent postRenderEvent;
 
     private boolean disposed = false;
+    private boolean renderingEnabled = true;
 
     protected FireFlyApp( 
             IEventDispatcher eventDispatcher, 
@@ -64,14 +67,16 @@ public abstract class FireFlyApp {
         viewSystem = context.getSystem( ViewSystem.SYSTEM_KEY );
         
         context.loadSystem( AssetSystem.SYSTEM_KEY );
+        context.loadSystem( TextureResidencySystem.SYSTEM_KEY );
         context.loadSystem( EntitySystem.SYSTEM_KEY );
         context.loadSystem( EntityPrefabSystem.SYSTEM_KEY );
         context.loadSystem( ControllerSystem.SYSTEM_KEY );
         context.loadSystem( RenderingSystem.SYSTEM_KEY );
         context.loadSystem( TaskSystem.SYSTEM_KEY );
+        entitySystem = context.getSystem( EntitySystem.SYSTEM_KEY );
         
-        updateEvent = new UpdateEvent( timer );
-        renderEvent = new RenderEvent( timer );
+        updateEvent = new UpdateEvent( timer, context.getFrameProfiler() );
+        renderEvent = new RenderEvent( timer, context.getFrameProfiler() );
         postRenderEvent = new PostRenderEvent( context );
     }
     
@@ -88,14 +93,29 @@ public abstract class FireFlyApp {
         return context;
     }
     
+    public final boolean isRenderingEnabled() {
+        return renderingEnabled;
+    }
+    
+    /** Use this to enable or disable the render phase. If disabled, a call to render() returns immediately
+     *  and no RenderEvent or PostRenderEvent is dispatched. This is used for headless simulation.
+     */
+    protected final void setRenderingEnabled( boolean renderingEnabled ) {
+        this.renderingEnabled = renderingEnabled;
+    }
+    
     public final void update() {
+        // closes the profiling of the last frame. This is a no-op if the profiler is disabled
+        context.getFrameProfiler().nextFrame();
         updateEvent.timer.tick();
         context.notify( updateEvent );
+        // sync point: play back all entity changes recorded within the update
+        entitySystem.playbackCommands();
         updateEvent.timer.updateSchedulers();
     }
     
     public final void render() {
-        if ( disposed ) {
+        if ( disposed || !renderingEnabled ) {
             return;
         }
         View baseView = viewSystem.getView( ViewSystem.BASE_VIEW_ID );
@@ -18,6 +18,7 @@ package com.inari.firefly.system;
 import com.inari.commons.event.Event;
 import com.inari.commons.geom.Rectangle;
 import com.inari.firefly.system.external.FFTimer;
+import com.inari.firefly.system.info.FrameProfiler;
 
 public final class RenderEvent extends Event<RenderEventListener> {
     
@@ -31,13 +32,23 @@ public final class RenderEvent extends Event<RenderEventListener> {
     /** Defines a clipping area */
     final Rectangle clip = new Rectangle();
     
-    RenderEvent( FFTimer timer ) {
+    private final FrameProfiler profiler;
+    
+    RenderEvent( FFTimer timer, FrameProfiler profiler ) {
         super( TYPE_KEY );
         this.timer = timer;
+        this.profiler = profiler;
     }
 
     @Override
     protected final void notify( RenderEventListener listener ) {
+        if ( profiler.isEnabled() && !( listener instanceof FrameProfiler.SelfProfiling ) ) {
+            final long start = System.nanoTime();
+            listener.render( viewId, layerId, clip, timer );
+            profiler.record( listener, System.nanoTime() - start );
+            return;
+        }
+        
         listener.render( viewId, layerId, clip, timer );
     }
 
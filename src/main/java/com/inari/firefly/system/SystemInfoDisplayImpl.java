@@ -12,6 +12,7 @@ import com.inari.firefly.graphics.view.View;
 import com.inari.firefly.graphics.view.ViewSystem;
 import com.inari.firefly.system.external.FFGraphics;
 import com.inari.firefly.system.external.ShapeData;
+import com.inari.firefly.system.info.FrameProfilerInfo;
 import com.inari.firefly.system.info.SystemInfo;
 import com.inari.firefly.system.info.SystemInfoDisplay;
 
@@ -34,6 +35,7 @@ final class SystemInfoDisplayImpl implements SystemInfoDisplay, PostRenderEventL
     SystemInfoDisplayImpl( FFContext context ) {
         this.context = context;
         graphics = context.getGraphics();
+        addSystemInfo( new FrameProfilerInfo() );
     }
 
     @Override
@@ -17,20 +17,30 @@ package com.inari.firefly.system;
 
 import com.inari.commons.event.Event;
 import com.inari.firefly.system.external.FFTimer;
+import com.inari.firefly.system.info.FrameProfiler;
 
 public final class UpdateEvent extends Event<UpdateEventListener> {
     
     public static final EventTypeKey TYPE_KEY = createTypeKey( UpdateEvent.class );
 
     public final FFTimer timer;
+    private final FrameProfiler profiler;
 
-    UpdateEvent( FFTimer timer ) {
+    UpdateEvent( FFTimer timer, FrameProfiler profiler ) {
         super( TYPE_KEY );
         this.timer = timer;
+        this.profiler = profiler;
     }
 
     @Override
     protected final void notify( final UpdateEventListener listener ) {
+        if ( profiler.isEnabled() && !( listener instanceof FrameProfiler.SelfProfiling ) ) {
+            final long start = System.nanoTime();
+            listener.update( timer );
+            profiler.record( listener, System.nanoTime() - start );
+            return;
+        }
+        
         listener.update( timer );
     }
 
@@ -15,6 +15,8 @@
  ******************************************************************************/ 
 package com.inari.firefly.system.component;
 
+import java.io.IOException;
+import java.io.InvalidClassException;
 import java.util.Iterator;
 
 import com.inari.firefly.component.attr.AttributeMap;
@@ -23,6 +25,8 @@ import com.inari.firefly.component.attr.ComponentAttributeMap;
 import com.inari.firefly.system.FFContext;
 import com.inari.firefly.system.component.ComponentSystem.BuildType;
 import com.inari.firefly.system.component.SystemComponent.SystemComponentKey;
+import com.inari.firefly.system.snapshot.SnapshotReader;
+import com.inari.firefly.system.snapshot.SnapshotWriter;
 
 public abstract class SystemBuilderAdapter<C extends SystemComponent> implements ComponentSystemAdapter<C> {
 
@@ -89,6 +93,54 @@ public abstract class SystemBuilderAdapter<C extends SystemComponent> implements
         }
     }
 
+    /** Writes all components of this adapter to the given snapshot section */
+    public void toSnapshot( SnapshotWriter writer ) throws IOException {
+        Iterator<C> all = getAll();
+        while ( all.hasNext() ) {
+            C component = all.next();
+            writer.writeComponent( component.index(), component );
+        }
+    }
+    
+    /** Builds the components of the current snapshot section the same way as fromAttributes does */
+    @SuppressWarnings( "unchecked" )
+    public void fromSnapshot( SnapshotReader reader, BuildType buildType ) throws IOException {
+        if ( buildType == BuildType.CLEAR_OLD ) {
+            getSystem().clearSystem();
+        }
+        
+        Class<?> builderType = null;
+        SystemComponentBuilder componentBuilder = null;
+        int next;
+        while ( ( next = reader.next() ) != SnapshotReader.END ) {
+            if ( next != SnapshotReader.COMPONENT ) {
+                continue;
+            }
+            
+            if ( reader.getComponentType() != builderType ) {
+                builderType = reader.getComponentType();
+                if ( !componentTypeKey().baseComponentType().isAssignableFrom( builderType ) ) {
+                    throw new InvalidClassException( builderType.getName(), "Not a " + componentTypeKey() );
+                }
+                componentBuilder = createComponentBuilder( (Class<? extends C>) builderType );
+            }
+            
+            int componentId = reader.getComponentId();
+            if ( buildType == BuildType.MERGE_ATTRIBUTES ) {
+                C component = get( componentId );
+                if ( component != null ) {
+                    component.toAttributes( componentBuilder.getAttributes() );
+                }
+            } else if ( buildType == BuildType.OVERWRITE ) {
+                delete( componentId );
+            }
+            reader.readAttributes( componentBuilder.getAttributes() );
+            componentBuilder
+                .buildAndNext()
+                .clear();
+        }
+    }
+
     public abstract SystemComponentBuilder createComponentBuilder( Class<? extends C> componentType );
     public abstract Iterator<C> getAll();
 
@@ -5,7 +5,7 @@ import java.util.Iterator;
 import com.inari.firefly.FFInitException;
 import com.inari.firefly.component.ComponentId;
 import com.inari.firefly.component.attr.AttributeMap;
-import com.inari.firefly.component.attr.ComponentAttributeMap;
+import com.inari.firefly.component.attr.IndexedAttributeMap;
 import com.inari.firefly.component.build.BaseComponentBuilder;
 import com.inari.firefly.component.build.ComponentConsumer;
 import com.inari.firefly.component.build.Singleton;
@@ -16,11 +16,11 @@ public abstract class SystemComponentBuilder extends BaseComponentBuilder<System
     
     @SuppressWarnings( "unchecked" )
     protected SystemComponentBuilder( FFContext context, Class<?> componentType ) {
-        super( context, new ComponentAttributeMap( context ), (Class<SystemComponent>) componentType );
+        super( context, new IndexedAttributeMap( context ), (Class<SystemComponent>) componentType );
     }
     
     protected SystemComponentBuilder( FFContext context ) {
-        super( context, new ComponentAttributeMap( context ), null );
+        super( context, new IndexedAttributeMap( context ), null );
     }
     
     protected SystemComponentBuilder( FFContext context, AttributeMap attributes ) {
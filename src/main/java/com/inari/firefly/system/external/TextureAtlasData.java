@@ -0,0 +1,25 @@
+package com.inari.firefly.system.external;
+
+import com.inari.commons.geom.Rectangle;
+
+/** TextureData of one page of a texture atlas. 
+ *  <p>
+ *  If FFGraphics.createTexture gets a TextureAtlasData, the backend has to create an empty texture of 
+ *  the page size and copy each source region of the given source resources into the given target region 
+ *  of the page instead of loading the resource given by getResourceName.
+ */
+public interface TextureAtlasData extends TextureData {
+    
+    int getPageWidth();
+    
+    int getPageHeight();
+    
+    int getRegionCount();
+    
+    String getSourceResourceName( int index );
+    
+    Rectangle getSourceRegion( int index );
+    
+    Rectangle getTargetRegion( int index );
+
+}
@@ -1,11 +1,18 @@
 package com.inari.firefly.system.external;
 
+import java.nio.ByteBuffer;
+
 import com.inari.commons.lang.functional.IntFunction;
 
 public interface TextureData {
 
     String getResourceName();
     
+    /** Gives the content of the resource if it has already been read, for example from an AssetArchive on
+     *  preparation, or null if the backend has to load the resource by the resource name.
+     */
+    ByteBuffer getResourceData();
+    
     boolean isMipmap();
     
     IntFunction getColorConverter();
@@ -0,0 +1,31 @@
+package com.inari.firefly.system.external;
+
+/** A FFTimer implementation that is not bound to the wall-clock. Every tick advances the time 
+ *  by a fixed delta (milliseconds), no matter how long the update actually took.
+ *  <p>
+ *  This is used for headless simulations and soak tests where the game loop should run as fast as 
+ *  the CPU allows while the game logic still sees a constant and deterministic time step.
+ */
+public final class VirtualFFTimerImpl extends FFTimer {
+    
+    private final long fixedDelta;
+    
+    public VirtualFFTimerImpl( long fixedDelta ) {
+        if ( fixedDelta <= 0 ) {
+            throw new IllegalArgumentException( "The fixed delta must be a positive number of milliseconds: " + fixedDelta );
+        }
+        this.fixedDelta = fixedDelta;
+    }
+    
+    public final long getFixedDelta() {
+        return fixedDelta;
+    }
+
+    @Override
+    public final void tick() {
+        time += timeElapsed;
+        timeElapsed = fixedDelta;
+        lastUpdateTime += fixedDelta;
+    }
+
+}
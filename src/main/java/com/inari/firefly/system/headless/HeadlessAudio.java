@@ -0,0 +1,66 @@
+package com.inari.firefly.system.headless;
+
+import com.inari.firefly.audio.SoundAsset;
+import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.external.FFAudio;
+
+/** A no-op {@link FFAudio} implementation for running firefly without any lower level audio API.
+ *  Sound creation just hands out unique identifiers, all playback calls are ignored.
+ */
+public final class HeadlessAudio implements FFAudio {
+    
+    private int nextSoundId = 0;
+    private long nextInstanceId = 0;
+
+    @Override
+    public final void init( FFContext context ) {
+        // NOOP
+    }
+
+    @Override
+    public final void dispose( FFContext context ) {
+        nextSoundId = 0;
+        nextInstanceId = 0;
+    }
+
+    @Override
+    public final int createSound( SoundAsset asset ) {
+        return nextSoundId++;
+    }
+
+    @Override
+    public final void disposeSound( SoundAsset asset ) {
+        // NOOP
+    }
+
+    @Override
+    public final long playSound( int soundId, int channel, boolean looping, float volume, float pitch, float pan ) {
+        return nextInstanceId++;
+    }
+
+    @Override
+    public final void changeSound( int soundId, long instanceId, float volume, float pitch, float pan ) {
+        // NOOP
+    }
+
+    @Override
+    public final void stopSound( int soundId, long instanceId ) {
+        // NOOP
+    }
+
+    @Override
+    public final void playMusic( int soundId, boolean looping, float volume, float pan ) {
+        // NOOP
+    }
+
+    @Override
+    public final void changeMusic( int soundId, float volume, float pan ) {
+        // NOOP
+    }
+
+    @Override
+    public final void stopMusic( int soundId ) {
+        // NOOP
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.inari.firefly.system.headless;
+
+import com.inari.commons.event.IEventDispatcher;
+import com.inari.firefly.system.FireFlyApp;
+import com.inari.firefly.system.external.FFInput;
+import com.inari.firefly.system.external.VirtualFFTimerImpl;
+
+/** A FireFlyApp that runs without any lower level graphics, audio or input implementation and without wall-clock time.
+ *  <p>
+ *  The render phase is disabled entirely, so no RenderEvent is ever dispatched. Time is driven by a {@link VirtualFFTimerImpl}
+ *  that advances by a fixed delta on every update, so simulate( ... ) runs the update loop as fast as the CPU allows.
+ *  <p>
+ *  To track throughput, the app measures the wall time spent within simulate calls and provides the simulation rate 
+ *  as simulated seconds per wall-clock second.
+ */
+public class HeadlessFireFlyApp extends FireFlyApp {
+    
+    private final VirtualFFTimerImpl virtualTimer;
+    
+    private long simulatedMillis = 0;
+    private long wallNanos = 0;
+    private long frames = 0;
+
+    public HeadlessFireFlyApp( IEventDispatcher eventDispatcher, long fixedDelta ) {
+        this( eventDispatcher, new VirtualFFTimerImpl( fixedDelta ), new HeadlessInput() );
+    }
+    
+    public HeadlessFireFlyApp( IEventDispatcher eventDispatcher, VirtualFFTimerImpl timer, FFInput input ) {
+        super( eventDispatcher, new HeadlessGraphics(), new HeadlessAudio(), timer, input );
+        virtualTimer = timer;
+        setRenderingEnabled( false );
+    }
+    
+    public final VirtualFFTimerImpl getTimer() {
+        return virtualTimer;
+    }
+
+    /** Runs the update loop for the specified number of frames or until the context exits.
+     * @param frameNumber the number of frames to simulate
+     * @return the number of frames that actually has been simulated
+     */
+    public final int simulateFrames( int frameNumber ) {
+        final long start = System.nanoTime();
+        int i = 0;
+        while ( i < frameNumber && !exit() ) {
+            update();
+            i++;
+        }
+        
+        wallNanos += System.nanoTime() - start;
+        simulatedMillis += i * virtualTimer.getFixedDelta();
+        frames += i;
+        return i;
+    }
+    
+    /** Runs the update loop until the specified amount of simulated time has passed or until the context exits.
+     * @param millis the simulated time to run in milliseconds
+     * @return the number of frames that has been simulated
+     */
+    public final int simulate( long millis ) {
+        final long delta = virtualTimer.getFixedDelta();
+        return simulateFrames( (int) ( ( millis + delta - 1 ) / delta ) );
+    }
+    
+    public final long getSimulatedFrames() {
+        return frames;
+    }
+    
+    public final long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+    
+    public final long getWallNanos() {
+        return wallNanos;
+    }
+    
+    /** Gives the throughput of the simulation since creation or last reset as simulated seconds per wall-clock second
+     * @return simulated seconds per wall-clock second or 0 if nothing has been simulated yet
+     */
+    public final double getSimulationRate() {
+        if ( wallNanos <= 0 ) {
+            return 0d;
+        }
+        
+        return ( simulatedMillis / 1000d ) / ( wallNanos / 1000000000d );
+    }
+    
+    public final void resetStatistics() {
+        simulatedMillis = 0;
+        wallNanos = 0;
+        frames = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append( "HeadlessFireFlyApp [frames=" );
+        builder.append( frames );
+        builder.append( ", simulatedMillis=" );
+        builder.append( simulatedMillis );
+        builder.append( ", wallNanos=" );
+        builder.append( wallNanos );
+        builder.append( ", simulationRate=" );
+        builder.append( getSimulationRate() );
+        builder.append( "]" );
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.inari.firefly.system.headless;
+
+import com.inari.commons.geom.Rectangle;
+import com.inari.commons.lang.list.DynArrayRO;
+import com.inari.firefly.graphics.ShaderAsset;
+import com.inari.firefly.graphics.rendering.SpriteRenderable;
+import com.inari.firefly.graphics.view.View;
+import com.inari.firefly.graphics.view.ViewEvent;
+import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.external.FFGraphics;
+import com.inari.firefly.system.external.ShapeData;
+import com.inari.firefly.system.external.SpriteData;
+import com.inari.firefly.system.external.TextureData;
+import com.inari.firefly.system.external.TransformData;
+
+/** A no-op {@link FFGraphics} implementation for running firefly without any lower level graphics API.
+ *  Creation of textures, sprites and shaders just hands out unique identifiers, all rendering calls are ignored.
+ */
+public final class HeadlessGraphics implements FFGraphics {
+    
+    private final int screenWidth;
+    private final int screenHeight;
+    
+    private int nextTextureId = 0;
+    private int nextSpriteId = 0;
+    private int nextShaderId = 0;
+    
+    public HeadlessGraphics() {
+        this( 800, 600 );
+    }
+    
+    public HeadlessGraphics( int screenWidth, int screenHeight ) {
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+    }
+
+    @Override
+    public final void init( FFContext context ) {
+        // NOOP
+    }
+
+    @Override
+    public final void dispose( FFContext context ) {
+        nextTextureId = 0;
+        nextSpriteId = 0;
+        nextShaderId = 0;
+    }
+
+    @Override
+    public final void onViewEvent( ViewEvent event ) {
+        // NOOP
+    }
+
+    @Override
+    public final int createTexture( TextureData data ) {
+        return nextTextureId++;
+    }
+
+    @Override
+    public final void disposeTexture( int textureId ) {
+        // NOOP
+    }
+
+    @Override
+    public final int createSprite( SpriteData data ) {
+        return nextSpriteId++;
+    }
+
+    @Override
+    public final void disposeSprite( int spriteId ) {
+        // NOOP
+    }
+
+    @Override
+    public final int createShader( ShaderAsset shaderAsset ) {
+        return nextShaderId++;
+    }
+
+    @Override
+    public final void disposeShader( int shaderAssetId ) {
+        // NOOP
+    }
+
+    @Override
+    public final int getScreenWidth() {
+        return screenWidth;
+    }
+
+    @Override
+    public final int getScreenHeight() {
+        return screenHeight;
+    }
+
+    @Override
+    public final void startRendering( View view, boolean clear ) {
+        // NOOP
+    }
+
+    @Override
+    public final void renderSprite( SpriteRenderable renderableSprite, float xpos, float ypos ) {
+        // NOOP
+    }
+
+    @Override
+    public final void renderSprite( SpriteRenderable renderableSprite, float xpos, float ypos, float scale ) {
+        // NOOP
+    }
+
+    @Override
+    public final void renderSprite( SpriteRenderable renderableSprite, TransformData transform ) {
+        // NOOP
+    }
+
+    @Override
+    public final void renderShape( ShapeData data ) {
+        // NOOP
+    }
+
+    @Override
+    public final void renderShape( ShapeData data, TransformData transform ) {
+        // NOOP
+    }
+
+    @Override
+    public final void endRendering( View view ) {
+        // NOOP
+    }
+
+    @Override
+    public final void flush( DynArrayRO<View> virtualViews ) {
+        // NOOP
+    }
+
+    @Override
+    public final byte[] getScreenshotPixels( Rectangle area ) {
+        return null;
+    }
+
+}
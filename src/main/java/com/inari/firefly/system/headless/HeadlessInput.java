@@ -0,0 +1,40 @@
+package com.inari.firefly.system.headless;
+
+import com.inari.firefly.system.external.FFInput;
+
+/** A {@link FFInput} implementation for running firefly without any lower level input API. 
+ *  No button is ever pressed or typed.
+ */
+public final class HeadlessInput extends FFInput {
+
+    @Override
+    public final void mapKeyInput( ButtonType buttonType, int keyCode ) {
+        // NOOP
+    }
+
+    @Override
+    public final void mapInputType( ButtonType buttonType, InputType inputType ) {
+        // NOOP
+    }
+
+    @Override
+    public final boolean typed( ButtonType buttonType ) {
+        return false;
+    }
+
+    @Override
+    public final boolean isPressed( ButtonType buttonType ) {
+        return false;
+    }
+
+    @Override
+    public final int getXpos() {
+        return 0;
+    }
+
+    @Override
+    public final int getYpos() {
+        return 0;
+    }
+
+}
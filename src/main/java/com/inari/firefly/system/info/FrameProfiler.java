@@ -0,0 +1,264 @@
+package com.inari.firefly.system.info;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+
+import com.inari.commons.lang.list.DynArray;
+import com.inari.commons.lang.list.DynArrayRO;
+
+/** Measures the time each profiled section (UpdateEventListener, RenderEventListener, Renderer...) consumes per frame.
+ *  <p>
+ *  The time of a section is accumulated within a frame and pushed into a preallocated ring buffer of the last
+ *  n frames on nextFrame(). From this ring buffer the min, average, p99 and max time of each section can be taken
+ *  as snapshot or exported as CSV.
+ *  <p>
+ *  The profiler is disabled by default and the instrumented code only checks isEnabled() before measuring
+ *  so there is no measurable cost when disabled.
+ */
+public final class FrameProfiler {
+
+    public static final int DEFAULT_FRAME_SAMPLES = 300;
+
+    /** Marks a listener that records the time of its parts by itself, like the RenderingSystem does for each Renderer.
+     *  Such a listener is not recorded as a whole so no time is counted twice.
+     */
+    public interface SelfProfiling {}
+
+    private static final double NANOS_PER_MILLI = 1000000d;
+
+    private final int frameSamples;
+    private final IdentityHashMap<Object, Section> sectionMapping = new IdentityHashMap<Object, Section>();
+    private final DynArray<Section> sections = DynArray.create( Section.class, 20, 10 );
+    private final long[] sortBuffer;
+
+    private boolean enabled = false;
+    private long frames = 0;
+
+    public FrameProfiler() {
+        this( DEFAULT_FRAME_SAMPLES );
+    }
+
+    public FrameProfiler( int frameSamples ) {
+        if ( frameSamples <= 0 ) {
+            throw new IllegalArgumentException( "The number of frame samples must be greater then 0" );
+        }
+        this.frameSamples = frameSamples;
+        sortBuffer = new long[ frameSamples ];
+    }
+
+    public final boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Enables or disables the profiler. Enabling a disabled profiler resets all previous measurements */
+    public final FrameProfiler setEnabled( boolean enabled ) {
+        if ( enabled && !this.enabled ) {
+            reset();
+        }
+        this.enabled = enabled;
+        return this;
+    }
+
+    public final int getFrameSamples() {
+        return frameSamples;
+    }
+
+    /** Gives the number of frames that has been profiled since the profiler was enabled or reset */
+    public final long getFrames() {
+        return frames;
+    }
+
+    /** Adds the given time to the section of the given owner within the current frame.
+     *  The section is created on first usage and named by the simple class name of the owner.
+     * @param owner the owner of the section. The instance is used as key
+     * @param nanos the time in nanoseconds to add
+     */
+    public final void record( final Object owner, final long nanos ) {
+        Section section = sectionMapping.get( owner );
+        if ( section == null ) {
+            section = new Section( owner.getClass().getSimpleName(), frameSamples );
+            sectionMapping.put( owner, section );
+            sections.add( section );
+        }
+
+        section.current += nanos;
+    }
+
+    /** Closes the current frame by pushing the accumulated time of all sections into the ring buffers */
+    public final void nextFrame() {
+        if ( !enabled ) {
+            return;
+        }
+
+        for ( int i = 0; i < sections.capacity(); i++ ) {
+            final Section section = sections.get( i );
+            if ( section != null ) {
+                section.push();
+            }
+        }
+        frames++;
+    }
+
+    public final void reset() {
+        for ( int i = 0; i < sections.capacity(); i++ ) {
+            final Section section = sections.get( i );
+            if ( section != null ) {
+                section.reset();
+            }
+        }
+        frames = 0;
+    }
+
+    /** Clears all sections. Use this after the profiled systems or renderers has changed */
+    public final void clear() {
+        sectionMapping.clear();
+        sections.clear();
+        frames = 0;
+    }
+
+    /** Creates a snapshot of the statistics of all sections over the frames in the ring buffer
+     * @return the statistics of all sections that have at least one sample
+     */
+    public final DynArrayRO<SectionStats> snapshot() {
+        final DynArray<SectionStats> result = DynArray.create( SectionStats.class, sections.size() + 1, 10 );
+        for ( int i = 0; i < sections.capacity(); i++ ) {
+            final Section section = sections.get( i );
+            if ( section != null && section.samples > 0 ) {
+                result.add( section.stats( sortBuffer ) );
+            }
+        }
+        return result;
+    }
+
+    /** Gives the statistics of the section with the highest p99 time or null if there is none */
+    public final SectionStats getSlowest() {
+        Section slowest = null;
+        long slowestP99 = -1;
+        for ( int i = 0; i < sections.capacity(); i++ ) {
+            final Section section = sections.get( i );
+            if ( section == null || section.samples == 0 ) {
+                continue;
+            }
+
+            final long p99 = section.stats( sortBuffer ).p99Nanos;
+            if ( p99 > slowestP99 ) {
+                slowestP99 = p99;
+                slowest = section;
+            }
+        }
+
+        return ( slowest != null )? slowest.stats( sortBuffer ) : null;
+    }
+
+    /** Writes the current statistics of all sections as CSV with a header line to the given output.
+     *  Times are in milliseconds.
+     */
+    public final void writeCSV( final Appendable out ) throws IOException {
+        out.append( "section,samples,min_ms,avg_ms,p99_ms,max_ms\n" );
+        final DynArrayRO<SectionStats> stats = snapshot();
+        for ( int i = 0; i < stats.capacity(); i++ ) {
+            final SectionStats s = stats.get( i );
+            if ( s == null ) {
+                continue;
+            }
+
+            out.append( s.name ).append( ',' )
+               .append( String.valueOf( s.samples ) ).append( ',' )
+               .append( toMillis( s.minNanos ) ).append( ',' )
+               .append( toMillis( s.avgNanos ) ).append( ',' )
+               .append( toMillis( s.p99Nanos ) ).append( ',' )
+               .append( toMillis( s.maxNanos ) ).append( '\n' );
+        }
+    }
+
+    static String toMillis( long nanos ) {
+        return String.format( Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI );
+    }
+
+    private static final class Section {
+
+        final String name;
+        final long[] ring;
+        long current = 0;
+        int next = 0;
+        int samples = 0;
+
+        Section( String name, int size ) {
+            this.name = name;
+            ring = new long[ size ];
+        }
+
+        final void push() {
+            ring[ next ] = current;
+            next = ( next + 1 ) % ring.length;
+            if ( samples < ring.length ) {
+                samples++;
+            }
+            current = 0;
+        }
+
+        final void reset() {
+            current = 0;
+            next = 0;
+            samples = 0;
+        }
+
+        final SectionStats stats( final long[] sortBuffer ) {
+            // the ring is filled from index 0, so the first n entries are always the valid samples
+            System.arraycopy( ring, 0, sortBuffer, 0, samples );
+            Arrays.sort( sortBuffer, 0, samples );
+
+            long sum = 0;
+            for ( int i = 0; i < samples; i++ ) {
+                sum += sortBuffer[ i ];
+            }
+
+            final int p99Index = Math.max( 0, (int) Math.ceil( samples * 0.99d ) - 1 );
+            return new SectionStats(
+                name, samples,
+                sortBuffer[ 0 ], sum / samples, sortBuffer[ p99Index ], sortBuffer[ samples - 1 ]
+            );
+        }
+    }
+
+    public static final class SectionStats {
+
+        public final String name;
+        public final int samples;
+        public final long minNanos;
+        public final long avgNanos;
+        public final long p99Nanos;
+        public final long maxNanos;
+
+        SectionStats( String name, int samples, long minNanos, long avgNanos, long p99Nanos, long maxNanos ) {
+            this.name = name;
+            this.samples = samples;
+            this.minNanos = minNanos;
+            this.avgNanos = avgNanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append( "SectionStats [name=" );
+            builder.append( name );
+            builder.append( ", samples=" );
+            builder.append( samples );
+            builder.append( ", min=" );
+            builder.append( toMillis( minNanos ) );
+            builder.append( ", avg=" );
+            builder.append( toMillis( avgNanos ) );
+            builder.append( ", p99=" );
+            builder.append( toMillis( p99Nanos ) );
+            builder.append( ", max=" );
+            builder.append( toMillis( maxNanos ) );
+            builder.append( "]" );
+            return builder.toString();
+        }
+    }
+
+}
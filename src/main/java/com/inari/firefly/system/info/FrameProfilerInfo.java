@@ -0,0 +1,47 @@
+package com.inari.firefly.system.info;
+
+import java.util.Locale;
+
+import com.inari.firefly.system.FFContext;
+import com.inari.firefly.system.external.FFTimer;
+import com.inari.firefly.system.info.FrameProfiler.SectionStats;
+
+/** Shows the currently slowest profiled section of the FrameProfiler with its average and p99 time in milliseconds.
+ *  This doesn't enable the FrameProfiler of the context, so it shows nothing until the FrameProfiler is enabled.
+ */
+public final class FrameProfilerInfo implements SystemInfo {
+
+    private static final int LENGTH = 45;
+
+    private long lastSecondTime = -1;
+
+    @Override
+    public final String name() {
+        return "FrameProfilerInfo";
+    }
+
+    @Override
+    public final int getLength() {
+        return LENGTH;
+    }
+
+    @Override
+    public final void update( FFContext context, StringBuffer buffer, int bufferStartPointer ) {
+        final FrameProfiler profiler = context.getFrameProfiler();
+        final FFTimer timer = context.getTimer();
+        if ( lastSecondTime >= 0 && timer.getTime() - lastSecondTime <= 1000 ) {
+            return;
+        }
+
+        lastSecondTime = timer.getTime();
+        final SectionStats slowest = ( profiler.isEnabled() )? profiler.getSlowest() : null;
+        final String text = ( slowest == null )?
+            "SLOW:-" :
+            String.format( Locale.ROOT, "SLOW:%-16.16s avg:%7.2f p99:%7.2f", slowest.name, slowest.avgNanos / 1000000d, slowest.p99Nanos / 1000000d );
+
+        for ( int i = 0; i < LENGTH; i++ ) {
+            buffer.setCharAt( i + bufferStartPointer, ( i < text.length() )? text.charAt( i ) : ' ' );
+        }
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.inari.firefly.system.snapshot;
+
+import java.io.IOException;
+
+/** Encodes and decodes attribute values of a specific type within a snapshot. Null values are handled by the snapshot
+ *  and never given to a codec. Use SnapshotCodecs.register to add a codec for a value type that is not supported by default.
+ *
+ * @param <T> the value type
+ */
+public interface SnapshotCodec<T> {
+    
+    void write( T value, SnapshotWriter writer ) throws IOException;
+    
+    T read( Class<T> type, SnapshotReader reader ) throws IOException;
+
+}
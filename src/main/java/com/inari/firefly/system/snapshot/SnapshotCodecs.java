@@ -0,0 +1,550 @@
+package com.inari.firefly.system.snapshot;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.inari.commons.geom.BitMask;
+import com.inari.commons.geom.Easing;
+import com.inari.commons.geom.Position;
+import com.inari.commons.geom.PositionF;
+import com.inari.commons.geom.Rectangle;
+import com.inari.commons.graphics.RGBColor;
+import com.inari.commons.lang.aspect.Aspect;
+import com.inari.commons.lang.aspect.AspectGroup;
+import com.inari.commons.lang.aspect.Aspects;
+import com.inari.commons.lang.functional.IntFunction;
+import com.inari.commons.lang.list.DynArray;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.firefly.component.attr.AttributeKey;
+import com.inari.firefly.control.behavior.BCondition;
+import com.inari.firefly.control.behavior.ConditionalSelection;
+import com.inari.firefly.control.state.StateChange;
+import com.inari.firefly.entity.EEntity;
+import com.inari.firefly.graphics.BlendMode;
+import com.inari.firefly.graphics.particle.Particle;
+import com.inari.firefly.graphics.rendering.Renderer;
+import com.inari.firefly.graphics.rendering.RenderingChain.RendererKey;
+import com.inari.firefly.graphics.sprite.SpriteSetAsset.Sprite;
+import com.inari.firefly.graphics.sprite.TextureAtlasAsset.AtlasSprite;
+import com.inari.firefly.physics.animation.AnimationMapping;
+import com.inari.firefly.physics.animation.Frame;
+import com.inari.firefly.physics.animation.easing.EasingData;
+import com.inari.firefly.physics.animation.timeline.IntFrameImpl;
+import com.inari.firefly.physics.collision.CollisionSystem;
+import com.inari.firefly.physics.collision.ContactConstraint;
+import com.inari.firefly.physics.collision.ECollision;
+import com.inari.firefly.system.utils.Trigger;
+
+/** Registry of the SnapshotCodec for attribute value types.
+ *  <p>
+ *  Supported by default are the primitive wrapper types, String, enums, BitSet, IntBag, Position, PositionF, Rectangle,
+ *  RGBColor, BitMask, float[], char[][], the value types of the firefly components and DynArray of any supported type.
+ *  There is no fallback to java serialization, so a snapshot never instantiates a type that is only named within the
+ *  snapshot. Register a SnapshotCodec for all other value types that are used within components, otherwise writing
+ *  or reading a value of such a type fails.
+ *  <p>
+ *  Aspect and Aspects values are written by the Aspect index within the AspectGroup that is registered for the
+ *  AttributeKey, so the Aspects of the group have to be created in the same order before a snapshot is read.
+ *  <p>
+ *  Transient value types are code like Trigger or BCondition and are not part of a snapshot. Attributes of such a
+ *  type are written as not set and have to be set again on the restored components.
+ */
+public final class SnapshotCodecs {
+
+    private static final Map<Class<?>, SnapshotCodec<?>> CODECS = new HashMap<Class<?>, SnapshotCodec<?>>();
+    private static final Map<AttributeKey<?>, AspectGroup> ASPECT_GROUPS = new HashMap<AttributeKey<?>, AspectGroup>();
+    private static final Set<Class<?>> TRANSIENT_TYPES = new HashSet<Class<?>>();
+
+    private static final int PARTICLE_DATA_SIZE = 9;
+
+    private static final SnapshotCodec<Rectangle> CODEC_RECTANGLE = new SnapshotCodec<Rectangle>() {
+        public final void write( Rectangle value, SnapshotWriter writer ) throws IOException {
+            writer.writeZigZagInt( value.x );
+            writer.writeZigZagInt( value.y );
+            writer.writeZigZagInt( value.width );
+            writer.writeZigZagInt( value.height );
+        }
+        public final Rectangle read( Class<Rectangle> type, SnapshotReader reader ) throws IOException {
+            return new Rectangle( reader.readZigZagInt(), reader.readZigZagInt(), reader.readZigZagInt(), reader.readZigZagInt() );
+        }
+    };
+
+    private static final SnapshotCodec<RGBColor> CODEC_RGB_COLOR = new SnapshotCodec<RGBColor>() {
+        public final void write( RGBColor value, SnapshotWriter writer ) throws IOException {
+            writer.writeFloat( value.r );
+            writer.writeFloat( value.g );
+            writer.writeFloat( value.b );
+            writer.writeFloat( value.a );
+        }
+        public final RGBColor read( Class<RGBColor> type, SnapshotReader reader ) throws IOException {
+            return new RGBColor( reader.readFloat(), reader.readFloat(), reader.readFloat(), reader.readFloat() );
+        }
+    };
+
+    static {
+        register( Integer.class, new SnapshotCodec<Integer>() {
+            public final void write( Integer value, SnapshotWriter writer ) throws IOException {
+                writer.writeZigZagInt( value );
+            }
+            public final Integer read( Class<Integer> type, SnapshotReader reader ) throws IOException {
+                return reader.readZigZagInt();
+            }
+        } );
+        register( Float.class, new SnapshotCodec<Float>() {
+            public final void write( Float value, SnapshotWriter writer ) throws IOException {
+                writer.writeFloat( value );
+            }
+            public final Float read( Class<Float> type, SnapshotReader reader ) throws IOException {
+                return reader.readFloat();
+            }
+        } );
+        register( Boolean.class, new SnapshotCodec<Boolean>() {
+            public final void write( Boolean value, SnapshotWriter writer ) throws IOException {
+                writer.writeBoolean( value );
+            }
+            public final Boolean read( Class<Boolean> type, SnapshotReader reader ) throws IOException {
+                return reader.readBoolean();
+            }
+        } );
+        register( Long.class, new SnapshotCodec<Long>() {
+            public final void write( Long value, SnapshotWriter writer ) throws IOException {
+                writer.writeLong( value );
+            }
+            public final Long read( Class<Long> type, SnapshotReader reader ) throws IOException {
+                return reader.readLong();
+            }
+        } );
+        register( Double.class, new SnapshotCodec<Double>() {
+            public final void write( Double value, SnapshotWriter writer ) throws IOException {
+                writer.writeDouble( value );
+            }
+            public final Double read( Class<Double> type, SnapshotReader reader ) throws IOException {
+                return reader.readDouble();
+            }
+        } );
+        register( String.class, new SnapshotCodec<String>() {
+            public final void write( String value, SnapshotWriter writer ) throws IOException {
+                writer.writeString( value );
+            }
+            public final String read( Class<String> type, SnapshotReader reader ) throws IOException {
+                return reader.readString();
+            }
+        } );
+        register( BitSet.class, new SnapshotCodec<BitSet>() {
+            public final void write( BitSet value, SnapshotWriter writer ) throws IOException {
+                final long[] words = value.toLongArray();
+                writer.writeVarInt( words.length );
+                for ( int i = 0; i < words.length; i++ ) {
+                    writer.writeLong( words[ i ] );
+                }
+            }
+            public final BitSet read( Class<BitSet> type, SnapshotReader reader ) throws IOException {
+                final long[] words = new long[ reader.readVarInt() ];
+                for ( int i = 0; i < words.length; i++ ) {
+                    words[ i ] = reader.readLong();
+                }
+                return BitSet.valueOf( words );
+            }
+        } );
+        register( IntBag.class, new SnapshotCodec<IntBag>() {
+            public final void write( IntBag value, SnapshotWriter writer ) throws IOException {
+                writer.writeZigZagInt( value.getNullValue() );
+                writer.writeVarInt( value.size() );
+                for ( int i = 0; i < value.length(); i++ ) {
+                    if ( !value.isEmpty( i ) ) {
+                        writer.writeZigZagInt( value.get( i ) );
+                    }
+                }
+            }
+            public final IntBag read( Class<IntBag> type, SnapshotReader reader ) throws IOException {
+                final int nullValue = reader.readZigZagInt();
+                final int size = reader.readVarInt();
+                final IntBag result = new IntBag( Math.max( size, 1 ), nullValue );
+                for ( int i = 0; i < size; i++ ) {
+                    result.add( reader.readZigZagInt() );
+                }
+                return result;
+            }
+        } );
+        register( Position.class, new SnapshotCodec<Position>() {
+            public final void write( Position value, SnapshotWriter writer ) throws IOException {
+                writer.writeZigZagInt( value.x );
+                writer.writeZigZagInt( value.y );
+            }
+            public final Position read( Class<Position> type, SnapshotReader reader ) throws IOException {
+                return new Position( reader.readZigZagInt(), reader.readZigZagInt() );
+            }
+        } );
+        register( PositionF.class, new SnapshotCodec<PositionF>() {
+            public final void write( PositionF value, SnapshotWriter writer ) throws IOException {
+                writer.writeFloat( value.x );
+                writer.writeFloat( value.y );
+            }
+            public final PositionF read( Class<PositionF> type, SnapshotReader reader ) throws IOException {
+                return new PositionF( reader.readFloat(), reader.readFloat() );
+            }
+        } );
+        register( Rectangle.class, CODEC_RECTANGLE );
+        register( RGBColor.class, CODEC_RGB_COLOR );
+        register( float[].class, new SnapshotCodec<float[]>() {
+            public final void write( float[] value, SnapshotWriter writer ) throws IOException {
+                writer.writeVarInt( value.length );
+                for ( int i = 0; i < value.length; i++ ) {
+                    writer.writeFloat( value[ i ] );
+                }
+            }
+            public final float[] read( Class<float[]> type, SnapshotReader reader ) throws IOException {
+                final float[] result = new float[ reader.readVarInt() ];
+                for ( int i = 0; i < result.length; i++ ) {
+                    result[ i ] = reader.readFloat();
+                }
+                return result;
+            }
+        } );
+        register( char[][].class, new SnapshotCodec<char[][]>() {
+            public final void write( char[][] value, SnapshotWriter writer ) throws IOException {
+                writer.writeVarInt( value.length );
+                for ( int i = 0; i < value.length; i++ ) {
+                    writer.writeString( ( value[ i ] != null )? new String( value[ i ] ) : null );
+                }
+            }
+            public final char[][] read( Class<char[][]> type, SnapshotReader reader ) throws IOException {
+                final char[][] result = new char[ reader.readVarInt() ][];
+                for ( int i = 0; i < result.length; i++ ) {
+                    final String row = reader.readString();
+                    result[ i ] = ( row != null )? row.toCharArray() : null;
+                }
+                return result;
+            }
+        } );
+        // the bits of the region row by row, relative to the region origin
+        register( BitMask.class, new SnapshotCodec<BitMask>() {
+            public final void write( BitMask value, SnapshotWriter writer ) throws IOException {
+                final Rectangle region = value.region();
+                writer.writeZigZagInt( region.x );
+                writer.writeZigZagInt( region.y );
+                writer.writeVarInt( region.width );
+                writer.writeVarInt( region.height );
+                int bits = 0;
+                int count = 0;
+                for ( int y = 0; y < region.height; y++ ) {
+                    for ( int x = 0; x < region.width; x++ ) {
+                        if ( value.getBit( x, y ) ) {
+                            bits |= 1 << count;
+                        }
+                        if ( ++count == 8 ) {
+                            writer.writeByte( bits );
+                            bits = 0;
+                            count = 0;
+                        }
+                    }
+                }
+                if ( count > 0 ) {
+                    writer.writeByte( bits );
+                }
+            }
+            public final BitMask read( Class<BitMask> type, SnapshotReader reader ) throws IOException {
+                final int x = reader.readZigZagInt();
+                final int y = reader.readZigZagInt();
+                final int width = reader.readVarInt();
+                final int height = reader.readVarInt();
+                final BitMask result = new BitMask( 0, 0 );
+                result.reset( x, y, width, height );
+                int bits = 0;
+                for ( int i = 0; i < width * height; i++ ) {
+                    if ( i % 8 == 0 ) {
+                        bits = reader.readByte();
+                    }
+                    if ( ( bits & ( 1 << ( i % 8 ) ) ) != 0 ) {
+                        result.setBit( i % width, i / width );
+                    }
+                }
+                return result;
+            }
+        } );
+        register( RendererKey.class, new SnapshotCodec<RendererKey>() {
+            public final void write( RendererKey value, SnapshotWriter writer ) throws IOException {
+                writer.writeString( value.name );
+                writer.writeString( ( value.rendererType != null )? value.rendererType.getName() : null );
+            }
+            public final RendererKey read( Class<RendererKey> type, SnapshotReader reader ) throws IOException {
+                final String name = reader.readString();
+                final String rendererTypeName = reader.readString();
+                return new RendererKey(
+                    name,
+                    ( rendererTypeName != null )? SnapshotReader.loadClass( rendererTypeName, Renderer.class ) : null
+                );
+            }
+        } );
+        register( EasingData.class, new SnapshotCodec<EasingData>() {
+            public final void write( EasingData value, SnapshotWriter writer ) throws IOException {
+                writer.writeVarInt( value.getEasingType().ordinal() );
+                writer.writeFloat( value.getStartValue() );
+                writer.writeFloat( value.getChangeInValue() );
+                writer.writeLong( value.getDuration() );
+            }
+            public final EasingData read( Class<EasingData> type, SnapshotReader reader ) throws IOException {
+                return new EasingData(
+                    Easing.Type.values()[ reader.readVarInt() ],
+                    reader.readFloat(),
+                    reader.readFloat(),
+                    reader.readLong()
+                );
+            }
+        } );
+        register( Sprite.class, new SnapshotCodec<Sprite>() {
+            public final void write( Sprite value, SnapshotWriter writer ) throws IOException {
+                writer.writeString( value.name );
+                CODEC_RECTANGLE.write( value.textureRegion, writer );
+                writer.writeBoolean( value.flipHorizontal );
+                writer.writeBoolean( value.flipVertical );
+            }
+            public final Sprite read( Class<Sprite> type, SnapshotReader reader ) throws IOException {
+                final String name = reader.readString();
+                final Rectangle region = CODEC_RECTANGLE.read( Rectangle.class, reader );
+                return new Sprite( region.x, region.y, region.width, region.height, reader.readBoolean(), reader.readBoolean(), name );
+            }
+        } );
+        register( AtlasSprite.class, new SnapshotCodec<AtlasSprite>() {
+            public final void write( AtlasSprite value, SnapshotWriter writer ) throws IOException {
+                writer.writeString( value.name );
+                writer.writeString( value.resourceName );
+                CODEC_RECTANGLE.write( value.sourceRegion, writer );
+                writer.writeBoolean( value.flipHorizontal );
+                writer.writeBoolean( value.flipVertical );
+            }
+            public final AtlasSprite read( Class<AtlasSprite> type, SnapshotReader reader ) throws IOException {
+                final String name = reader.readString();
+                final String resourceName = reader.readString();
+                final Rectangle region = CODEC_RECTANGLE.read( Rectangle.class, reader );
+                return new AtlasSprite(
+                    resourceName, region.x, region.y, region.width, region.height,
+                    reader.readBoolean(), reader.readBoolean(), name
+                );
+            }
+        } );
+        register( Frame.IntFrame.class, new SnapshotCodec<Frame.IntFrame>() {
+            public final void write( Frame.IntFrame value, SnapshotWriter writer ) throws IOException {
+                writer.writeZigZagInt( value.value() );
+                writer.writeLong( value.intervalTime() );
+            }
+            public final Frame.IntFrame read( Class<Frame.IntFrame> type, SnapshotReader reader ) throws IOException {
+                return new IntFrameImpl( reader.readZigZagInt(), reader.readLong() );
+            }
+        } );
+        register( Particle.class, new SnapshotCodec<Particle>() {
+            public final void write( Particle value, SnapshotWriter writer ) throws IOException {
+                writer.writeZigZagInt( value.spriteId );
+                writer.writeBoolean( value.tintColor != null );
+                if ( value.tintColor != null ) {
+                    CODEC_RGB_COLOR.write( value.tintColor, writer );
+                }
+                writer.writeVarInt( ( value.blendMode != null )? value.blendMode.ordinal() + 1 : 0 );
+                for ( int i = 0; i < PARTICLE_DATA_SIZE; i++ ) {
+                    writer.writeFloat( value.data[ i ] );
+                }
+            }
+            public final Particle read( Class<Particle> type, SnapshotReader reader ) throws IOException {
+                final int spriteId = reader.readZigZagInt();
+                final RGBColor tintColor = ( reader.readBoolean() )? CODEC_RGB_COLOR.read( RGBColor.class, reader ) : null;
+                final int blendMode = reader.readVarInt();
+                final float[] data = new float[ PARTICLE_DATA_SIZE ];
+                for ( int i = 0; i < PARTICLE_DATA_SIZE; i++ ) {
+                    data[ i ] = reader.readFloat();
+                }
+                return new Particle(
+                    spriteId, tintColor, ( blendMode > 0 )? BlendMode.values()[ blendMode - 1 ] : null,
+                    data[ 0 ], data[ 1 ], data[ 2 ], data[ 3 ], data[ 4 ], data[ 5 ], data[ 6 ], data[ 7 ], data[ 8 ]
+                );
+            }
+        } );
+
+        registerTransient( Trigger.class );
+        registerTransient( BCondition.class );
+        registerTransient( IntFunction.class );
+        registerTransient( StateChange.class );
+        registerTransient( ConditionalSelection.Mapping.class );
+        registerTransient( AnimationMapping.class );
+
+        registerAspectGroup( EEntity.ASPECTS, EEntity.ENTITY_ASPECT_GROUP );
+        registerAspectGroup( ECollision.MATERIAL_TYPE, CollisionSystem.MATERIAL_ASPECT_GROUP );
+        registerAspectGroup( ECollision.CONTACT_TYPE, CollisionSystem.CONTACT_ASPECT_GROUP );
+        registerAspectGroup( ContactConstraint.MATERIAL_TYPE_FILTER, CollisionSystem.MATERIAL_ASPECT_GROUP );
+    }
+
+    private static final SnapshotCodec<Enum<?>> ENUM_CODEC = new SnapshotCodec<Enum<?>>() {
+        public final void write( Enum<?> value, SnapshotWriter writer ) throws IOException {
+            writer.writeVarInt( value.ordinal() );
+        }
+        public final Enum<?> read( Class<Enum<?>> type, SnapshotReader reader ) throws IOException {
+            return type.getEnumConstants()[ reader.readVarInt() ];
+        }
+    };
+
+    private SnapshotCodecs() {}
+
+    /** Registers the SnapshotCodec for the given value type. An already registered codec is replaced */
+    public static final <T> void register( Class<T> type, SnapshotCodec<T> codec ) {
+        synchronized ( CODECS ) {
+            CODECS.put( type, codec );
+        }
+    }
+
+    /** Registers the AspectGroup of the Aspect or Aspects values of the given AttributeKey */
+    public static final void registerAspectGroup( AttributeKey<?> key, AspectGroup aspectGroup ) {
+        synchronized ( CODECS ) {
+            ASPECT_GROUPS.put( key, aspectGroup );
+        }
+    }
+
+    /** Registers a value type that is not part of a snapshot, also as element type of a DynArray */
+    public static final void registerTransient( Class<?> type ) {
+        synchronized ( CODECS ) {
+            TRANSIENT_TYPES.add( type );
+        }
+    }
+
+    /** Gives the SnapshotCodec for values of the given type or null if there is none */
+    public static final SnapshotCodec<?> get( Class<?> type ) {
+        synchronized ( CODECS ) {
+            final SnapshotCodec<?> codec = CODECS.get( type );
+            if ( codec != null ) {
+                return codec;
+            }
+        }
+
+        if ( type.isEnum() ) {
+            return ENUM_CODEC;
+        }
+        return null;
+    }
+
+    static final boolean isTransient( AttributeKey<?> key ) {
+        synchronized ( CODECS ) {
+            if ( key.valueType() == DynArray.class ) {
+                return key.typedValueType() != null && TRANSIENT_TYPES.contains( key.typedValueType() );
+            }
+            return TRANSIENT_TYPES.contains( key.valueType() );
+        }
+    }
+
+    static final SnapshotCodec<?> get( AttributeKey<?> key ) {
+        if ( key.valueType() == Aspect.class || key.valueType() == Aspects.class ) {
+            final AspectGroup aspectGroup;
+            synchronized ( CODECS ) {
+                aspectGroup = ASPECT_GROUPS.get( key );
+            }
+            if ( aspectGroup == null ) {
+                return null;
+            }
+            return ( key.valueType() == Aspect.class )? new AspectCodec( aspectGroup ) : new AspectsCodec( aspectGroup );
+        }
+        if ( key.valueType() == DynArray.class ) {
+            final Class<?> elementType = ( key.typedValueType() != null )? key.typedValueType() : Object.class;
+            final SnapshotCodec<?> elementCodec = get( elementType );
+            return ( elementCodec != null )? new DynArrayCodec( elementType, elementCodec ) : null;
+        }
+        return get( key.valueType() );
+    }
+
+    private static final class AspectCodec implements SnapshotCodec<Aspect> {
+
+        private final AspectGroup aspectGroup;
+
+        AspectCodec( AspectGroup aspectGroup ) {
+            this.aspectGroup = aspectGroup;
+        }
+
+        public final void write( Aspect value, SnapshotWriter writer ) throws IOException {
+            if ( value.aspectGroup() != aspectGroup ) {
+                throw new NotSerializableException( "Aspect of unregistered AspectGroup: " + value );
+            }
+            writer.writeVarInt( value.index() );
+        }
+
+        public final Aspect read( Class<Aspect> type, SnapshotReader reader ) throws IOException {
+            return aspectGroup.getAspect( reader.readVarInt() );
+        }
+    }
+
+    private static final class AspectsCodec implements SnapshotCodec<Aspects> {
+
+        private final AspectGroup aspectGroup;
+
+        AspectsCodec( AspectGroup aspectGroup ) {
+            this.aspectGroup = aspectGroup;
+        }
+
+        public final void write( Aspects value, SnapshotWriter writer ) throws IOException {
+            int size = 0;
+            for ( Aspect aspect : value ) {
+                if ( aspect.aspectGroup() != aspectGroup ) {
+                    throw new NotSerializableException( "Aspect of unregistered AspectGroup: " + aspect );
+                }
+                size++;
+            }
+
+            writer.writeVarInt( size );
+            for ( Aspect aspect : value ) {
+                writer.writeVarInt( aspect.index() );
+            }
+        }
+
+        public final Aspects read( Class<Aspects> type, SnapshotReader reader ) throws IOException {
+            final Aspects result = aspectGroup.createAspects();
+            final int size = reader.readVarInt();
+            for ( int i = 0; i < size; i++ ) {
+                result.set( aspectGroup.getAspect( reader.readVarInt() ) );
+            }
+            return result;
+        }
+    }
+
+    /** Writes the capacity range of a DynArray up to the last element, so that the indices of the elements are kept */
+    private static final class DynArrayCodec implements SnapshotCodec<DynArray<Object>> {
+
+        private final Class<Object> elementType;
+        private final SnapshotCodec<Object> elementCodec;
+
+        @SuppressWarnings( "unchecked" )
+        DynArrayCodec( Class<?> elementType, SnapshotCodec<?> elementCodec ) {
+            this.elementType = (Class<Object>) elementType;
+            this.elementCodec = (SnapshotCodec<Object>) elementCodec;
+        }
+
+        public final void write( DynArray<Object> value, SnapshotWriter writer ) throws IOException {
+            int length = 0;
+            for ( int i = 0; i < value.capacity(); i++ ) {
+                if ( value.get( i ) != null ) {
+                    length = i + 1;
+                }
+            }
+
+            writer.writeVarInt( length );
+            for ( int i = 0; i < length; i++ ) {
+                final Object element = value.get( i );
+                writer.writeBoolean( element != null );
+                if ( element != null ) {
+                    elementCodec.write( element, writer );
+                }
+            }
+        }
+
+        public final DynArray<Object> read( Class<DynArray<Object>> type, SnapshotReader reader ) throws IOException {
+            final int length = reader.readVarInt();
+            final DynArray<Object> result = DynArray.create( elementType, Math.max( length, 1 ), 10 );
+            for ( int i = 0; i < length; i++ ) {
+                if ( reader.readBoolean() ) {
+                    result.set( i, elementCodec.read( elementType, reader ) );
+                }
+            }
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,399 @@
+package com.inari.firefly.system.snapshot;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+import com.inari.commons.lang.list.DynArray;
+import com.inari.firefly.component.Component;
+import com.inari.firefly.component.attr.AttributeKey;
+import com.inari.firefly.component.attr.AttributeMap;
+import com.inari.firefly.component.attr.IndexedAttributeMap;
+
+/** Reads a binary snapshot written by a SnapshotWriter from a ReadableByteChannel.
+ *  <p>
+ *  Use nextSection to step through the sections and next to step through the entities and components of the
+ *  current section. The attributes of a component are read into a given AttributeMap by readAttributes.
+ *  Schema records are handled internally. The AttributeKeys of a schema are resolved by name and component type to
+ *  the registered AttributeKeys, so attributes that were removed from a component since the snapshot was written are
+ *  just ignored by the component. Attributes of which the value type has changed since are read but not given to
+ *  the component.
+ *  <p>
+ *  Types named within a snapshot are loaded without initialization. Component types must be a Component and are
+ *  initialized only after this check, to register their AttributeKeys. Values are only read by a registered
+ *  SnapshotCodec, so a snapshot never instantiates any other type.
+ */
+public final class SnapshotReader {
+
+    public static final int END = 0;
+    public static final int COMPONENT = 1;
+    public static final int ENTITY = 2;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final DynArray<SnapshotSchema> schemas = DynArray.create( SnapshotSchema.class, 20, 10 );
+    private final int version;
+
+    private String sectionType;
+    private SnapshotSchema schema;
+    private int componentId;
+    private boolean active;
+    private boolean pendingRecord = false;
+    private IndexedAttributeMap skipAttributes;
+    private byte[] states = new byte[ 64 ];
+    private byte[] bytes = new byte[ 64 ];
+
+    public SnapshotReader( ReadableByteChannel channel ) throws IOException {
+        this( channel, SnapshotWriter.DEFAULT_BUFFER_SIZE );
+    }
+
+    public SnapshotReader( ReadableByteChannel channel, int bufferSize ) throws IOException {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect( Math.max( bufferSize, 64 ) ).order( ByteOrder.LITTLE_ENDIAN );
+        buffer.limit( 0 );
+
+        if ( readInt() != SnapshotWriter.MAGIC ) {
+            throw new StreamCorruptedException( "Not a firefly snapshot" );
+        }
+        version = readVarInt();
+        if ( version > SnapshotWriter.VERSION ) {
+            throw new StreamCorruptedException( "Unsupported snapshot version: " + version );
+        }
+    }
+
+    public final int getVersion() {
+        return version;
+    }
+
+    /** Steps to the next section.
+     * @return true if there is a next section or false on the end of the snapshot
+     */
+    public final boolean nextSection() throws IOException {
+        if ( sectionType != null ) {
+            skipSection();
+        }
+
+        final int tag = readByte();
+        switch ( tag ) {
+            case SnapshotWriter.TAG_SECTION: {
+                sectionType = readString();
+                return true;
+            }
+            case SnapshotWriter.TAG_END: {
+                return false;
+            }
+            default: {
+                throw new StreamCorruptedException( "Unexpected tag: " + tag );
+            }
+        }
+    }
+
+    /** Gives the type name of the SystemComponentKey of the current section */
+    public final String getSectionType() {
+        return sectionType;
+    }
+
+    /** Reads all entities and components of the current section without building them */
+    public final void skipSection() throws IOException {
+        while ( next() != END ) {
+            // skip
+        }
+    }
+
+    /** Steps to the next entity or component of the current section.
+     * @return ENTITY, COMPONENT or END if the end of the section is reached
+     */
+    public final int next() throws IOException {
+        if ( sectionType == null ) {
+            return END;
+        }
+        if ( pendingRecord ) {
+            if ( skipAttributes == null ) {
+                skipAttributes = new IndexedAttributeMap( null );
+            }
+            readAttributes( skipAttributes );
+            skipAttributes.clear();
+        }
+
+        while ( true ) {
+            final int tag = readByte();
+            switch ( tag ) {
+                case SnapshotWriter.TAG_COMPONENT: {
+                    schema = schemas.get( readVarInt() );
+                    if ( schema == null ) {
+                        throw new StreamCorruptedException( "Component without schema" );
+                    }
+                    componentId = readVarInt();
+                    pendingRecord = true;
+                    return COMPONENT;
+                }
+                case SnapshotWriter.TAG_ENTITY: {
+                    componentId = readVarInt();
+                    active = readBoolean();
+                    return ENTITY;
+                }
+                case SnapshotWriter.TAG_SCHEMA: {
+                    final int schemaId = readVarInt();
+                    final SnapshotSchema newSchema = new SnapshotSchema( schemaId, loadClass( readString(), Component.class ) );
+                    readKeys( newSchema );
+                    schemas.set( schemaId, newSchema );
+                    break;
+                }
+                case SnapshotWriter.TAG_SCHEMA_KEYS: {
+                    readKeys( schemas.get( readVarInt() ) );
+                    break;
+                }
+                case SnapshotWriter.TAG_SECTION_END: {
+                    sectionType = null;
+                    return END;
+                }
+                default: {
+                    throw new StreamCorruptedException( "Unexpected tag: " + tag );
+                }
+            }
+        }
+    }
+
+    /** Gives the id of the current component or entity */
+    public final int getComponentId() {
+        return componentId;
+    }
+
+    /** Gives the type of the current component */
+    public final Class<?> getComponentType() {
+        return schema.type;
+    }
+
+    /** Indicates if the current entity was active */
+    public final boolean isActive() {
+        return active;
+    }
+
+    /** Reads the attributes of the current component into the given AttributeMap */
+    @SuppressWarnings( "unchecked" )
+    public final void readAttributes( AttributeMap attributes ) throws IOException {
+        if ( !pendingRecord ) {
+            throw new IllegalStateException( "No component to read" );
+        }
+        pendingRecord = false;
+
+        final int size = schema.size;
+        if ( states.length < size ) {
+            states = new byte[ size * 2 ];
+        }
+        readMask( size, 1 );
+        readMask( size, 2 );
+
+        for ( int i = 0; i < size; i++ ) {
+            final int state = states[ i ];
+            if ( state == 0 ) {
+                continue;
+            }
+
+            final AttributeKey<Object> key = (AttributeKey<Object>) schema.keys[ i ];
+            final boolean dropped = schema.dropped[ i ];
+            if ( state == 2 ) {
+                if ( !dropped ) {
+                    attributes.put( key, null );
+                }
+                continue;
+            }
+
+            switch ( schema.kinds[ i ] ) {
+                case SnapshotSchema.KIND_INT: {
+                    final int value = readZigZagInt();
+                    if ( !dropped ) {
+                        attributes.put( (AttributeKey<Integer>) schema.keys[ i ], value );
+                    }
+                    break;
+                }
+                case SnapshotSchema.KIND_FLOAT: {
+                    final float value = readFloat();
+                    if ( !dropped ) {
+                        attributes.put( (AttributeKey<Float>) schema.keys[ i ], value );
+                    }
+                    break;
+                }
+                case SnapshotSchema.KIND_BOOLEAN: {
+                    final boolean value = readBoolean();
+                    if ( !dropped ) {
+                        attributes.put( (AttributeKey<Boolean>) schema.keys[ i ], value );
+                    }
+                    break;
+                }
+                case SnapshotSchema.KIND_LONG: {
+                    final long value = readLong();
+                    if ( !dropped ) {
+                        attributes.put( (AttributeKey<Long>) schema.keys[ i ], value );
+                    }
+                    break;
+                }
+                default: {
+                    final SnapshotCodec<Object> codec = (SnapshotCodec<Object>) schema.codecs[ i ];
+                    if ( codec == null ) {
+                        throw new InvalidClassException( key.valueType().getName(), "No SnapshotCodec" );
+                    }
+                    final Object value = codec.read( key.valueType(), this );
+                    if ( !dropped ) {
+                        attributes.put( key, value );
+                    }
+                }
+            }
+        }
+    }
+
+    public final int readByte() throws IOException {
+        ensure( 1 );
+        return buffer.get() & 0xFF;
+    }
+
+    public final boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public final int readInt() throws IOException {
+        ensure( 4 );
+        return buffer.getInt();
+    }
+
+    public final int readVarInt() throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if ( shift > 28 ) {
+                throw new StreamCorruptedException( "Malformed var int" );
+            }
+            b = readByte();
+            value |= ( b & 0x7F ) << shift;
+            shift += 7;
+        } while ( ( b & 0x80 ) != 0 );
+        return value;
+    }
+
+    public final int readZigZagInt() throws IOException {
+        final int value = readVarInt();
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    public final long readLong() throws IOException {
+        ensure( 8 );
+        return buffer.getLong();
+    }
+
+    public final float readFloat() throws IOException {
+        ensure( 4 );
+        return buffer.getFloat();
+    }
+
+    public final double readDouble() throws IOException {
+        ensure( 8 );
+        return buffer.getDouble();
+    }
+
+    public final void readBytes( byte[] bytes, int offset, int length ) throws IOException {
+        while ( length > 0 ) {
+            if ( !buffer.hasRemaining() ) {
+                ensure( 1 );
+            }
+            final int chunk = Math.min( length, buffer.remaining() );
+            buffer.get( bytes, offset, chunk );
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    public final String readString() throws IOException {
+        final int length = readVarInt() - 1;
+        if ( length < 0 ) {
+            return null;
+        }
+
+        if ( bytes.length < length ) {
+            bytes = new byte[ length * 2 ];
+        }
+        readBytes( bytes, 0, length );
+        return new String( bytes, 0, length, SnapshotWriter.UTF_8 );
+    }
+
+    private void ensure( int size ) throws IOException {
+        if ( buffer.remaining() >= size ) {
+            return;
+        }
+
+        buffer.compact();
+        while ( buffer.position() < size ) {
+            if ( channel.read( buffer ) < 0 ) {
+                throw new EOFException( "Unexpected end of snapshot" );
+            }
+        }
+        buffer.flip();
+    }
+
+    private void readMask( int size, int state ) throws IOException {
+        for ( int i = 0; i < size; i += 8 ) {
+            final int mask = readByte();
+            for ( int bit = 0; bit < 8 && i + bit < size; bit++ ) {
+                if ( ( mask & ( 1 << bit ) ) != 0 ) {
+                    states[ i + bit ] = (byte) state;
+                } else if ( state == 1 ) {
+                    states[ i + bit ] = 0;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private void readKeys( SnapshotSchema schema ) throws IOException {
+        if ( schema == null ) {
+            throw new StreamCorruptedException( "Schema keys without schema" );
+        }
+
+        final int count = readVarInt();
+        for ( int i = 0; i < count; i++ ) {
+            final String name = readString();
+            final Class<? extends Component> componentType = initialize( loadClass( readString(), Component.class ) );
+            final Class valueType = loadClass( readString(), Object.class );
+            final String typedValueTypeName = readString();
+            final Class<?> typedValueType = ( typedValueTypeName != null )? loadClass( typedValueTypeName, Object.class ) : null;
+
+            // equal AttributeKeys share the same index, so this resolves to the registered key of the component type
+            final AttributeKey<?> key = new AttributeKey( name, valueType, componentType, typedValueType );
+            final AttributeKey<?> registeredKey = AttributeKey.get( key.index() );
+            if ( registeredKey.valueType() == valueType && registeredKey.typedValueType() == typedValueType ) {
+                schema.add( registeredKey );
+            } else {
+                schema.addDropped( key );
+            }
+        }
+    }
+
+    private static <T> Class<? extends T> initialize( Class<? extends T> type ) throws IOException {
+        try {
+            Class.forName( type.getName(), true, type.getClassLoader() );
+        } catch ( ClassNotFoundException e ) {
+            throw new IOException( "Unknown type within snapshot: " + type.getName(), e );
+        }
+        return type;
+    }
+
+    static <T> Class<? extends T> loadClass( String name, Class<T> baseType ) throws IOException {
+        final Class<?> type;
+        try {
+            // no static initializer of a type named within the snapshot is run
+            type = Class.forName( name, false, SnapshotReader.class.getClassLoader() );
+        } catch ( ClassNotFoundException e ) {
+            throw new IOException( "Unknown type within snapshot: " + name, e );
+        }
+
+        if ( !baseType.isAssignableFrom( type ) ) {
+            throw new InvalidClassException( name, "Not a " + baseType.getSimpleName() );
+        }
+        return type.asSubclass( baseType );
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.inari.firefly.system.snapshot;
+
+import java.util.Arrays;
+
+import com.inari.firefly.component.attr.AttributeKey;
+
+/** The schema of one component type within a snapshot. The schema is the ordered list of AttributeKeys of the type
+ *  with the codec of each key. It is derived from attributeKeys() and extended by any other attribute the
+ *  component gives on toAttributes. On read, keys with a value type that differs from the registered key are dropped.
+ */
+final class SnapshotSchema {
+    
+    static final int KIND_OBJECT = 0;
+    static final int KIND_INT = 1;
+    static final int KIND_FLOAT = 2;
+    static final int KIND_BOOLEAN = 3;
+    static final int KIND_LONG = 4;
+    static final int KIND_TRANSIENT = 5;
+    
+    final int id;
+    final Class<?> type;
+    
+    AttributeKey<?>[] keys = new AttributeKey<?>[ 8 ];
+    SnapshotCodec<?>[] codecs = new SnapshotCodec<?>[ 8 ];
+    int[] kinds = new int[ 8 ];
+    boolean[] dropped = new boolean[ 8 ];
+    int size = 0;
+    // number of keys that are already written to the snapshot
+    int written = -1;
+    
+    // key positions by AttributeKey index, -1 if the key is not part of the schema
+    private int[] positions = new int[ 0 ];
+    
+    SnapshotSchema( int id, Class<?> type ) {
+        this.id = id;
+        this.type = type;
+    }
+    
+    final int position( AttributeKey<?> key ) {
+        final int index = key.index();
+        return ( index < positions.length )? positions[ index ] : -1;
+    }
+    
+    final void add( AttributeKey<?> key ) {
+        add( key, false );
+    }
+    
+    /** Adds a key of which the values are read but not given to the component */
+    final void addDropped( AttributeKey<?> key ) {
+        add( key, true );
+    }
+    
+    private void add( AttributeKey<?> key, boolean drop ) {
+        if ( size == keys.length ) {
+            final int newLength = size * 2;
+            keys = Arrays.copyOf( keys, newLength );
+            codecs = Arrays.copyOf( codecs, newLength );
+            kinds = Arrays.copyOf( kinds, newLength );
+            dropped = Arrays.copyOf( dropped, newLength );
+        }
+        
+        final int index = key.index();
+        if ( index >= positions.length ) {
+            final int length = positions.length;
+            positions = Arrays.copyOf( positions, Math.max( index + 1, AttributeKey.count() ) );
+            Arrays.fill( positions, length, positions.length, -1 );
+        }
+        
+        positions[ index ] = size;
+        keys[ size ] = key;
+        codecs[ size ] = SnapshotCodecs.get( key );
+        kinds[ size ] = kindOf( key );
+        dropped[ size ] = drop;
+        size++;
+    }
+    
+    private static int kindOf( AttributeKey<?> key ) {
+        if ( SnapshotCodecs.isTransient( key ) ) {
+            return KIND_TRANSIENT;
+        }
+        
+        final Class<?> valueType = key.valueType();
+        if ( valueType == Integer.class ) {
+            return KIND_INT;
+        }
+        if ( valueType == Float.class ) {
+            return KIND_FLOAT;
+        }
+        if ( valueType == Boolean.class ) {
+            return KIND_BOOLEAN;
+        }
+        if ( valueType == Long.class ) {
+            return KIND_LONG;
+        }
+        return KIND_OBJECT;
+    }
+
+}
@@ -0,0 +1,295 @@
+package com.inari.firefly.system.snapshot;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import com.inari.firefly.component.Component;
+import com.inari.firefly.component.attr.AttributeKey;
+import com.inari.firefly.component.attr.IndexedAttributeMap;
+import com.inari.firefly.system.component.SystemComponent.SystemComponentKey;
+
+/** Writes a binary snapshot of components to a WritableByteChannel.
+ *  <p>
+ *  The snapshot is a stream of tagged records. A section holds the components of one SystemComponentKey.
+ *  The schema of a component type is written once, before the first component of that type, and the attributes
+ *  of each component are written in schema order behind a presence and a null bit mask. Integer, Float, Boolean
+ *  and Long attributes are written unboxed, all other value types by the SnapshotCodec of the value type.
+ *  Attributes of a transient value type are written as not set.
+ *  <p>
+ *  The components are written one by one through a reused IndexedAttributeMap, so no Attributes are build.
+ *  The writer buffers the output and does not close the channel.
+ */
+public final class SnapshotWriter {
+
+    public static final int MAGIC = 0x46465353;
+    public static final int VERSION = 1;
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    static final int TAG_END = 0;
+    static final int TAG_SECTION = 1;
+    static final int TAG_SECTION_END = 2;
+    static final int TAG_SCHEMA = 3;
+    static final int TAG_SCHEMA_KEYS = 4;
+    static final int TAG_COMPONENT = 5;
+    static final int TAG_ENTITY = 6;
+
+    static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final IndexedAttributeMap attributes = new IndexedAttributeMap( null );
+    private final IdentityHashMap<Class<?>, SnapshotSchema> schemas = new IdentityHashMap<Class<?>, SnapshotSchema>();
+    private byte[] states = new byte[ 64 ];
+
+    public SnapshotWriter( WritableByteChannel channel ) throws IOException {
+        this( channel, DEFAULT_BUFFER_SIZE );
+    }
+
+    public SnapshotWriter( WritableByteChannel channel, int bufferSize ) throws IOException {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect( Math.max( bufferSize, 64 ) ).order( ByteOrder.LITTLE_ENDIAN );
+        writeInt( MAGIC );
+        writeVarInt( VERSION );
+    }
+
+    /** Starts the section of the components of the given type key. Each section must be ended by endSection */
+    public final void beginSection( SystemComponentKey<?> componentKey ) throws IOException {
+        writeByte( TAG_SECTION );
+        writeString( componentKey.type().getName() );
+    }
+
+    public final void endSection() throws IOException {
+        writeByte( TAG_SECTION_END );
+    }
+
+    /** Starts an entity. All components written after this and before the next entity or the end of the section
+     *  belong to this entity.
+     */
+    public final void writeEntity( int entityId, boolean active ) throws IOException {
+        writeByte( TAG_ENTITY );
+        writeVarInt( entityId );
+        writeBoolean( active );
+    }
+
+    /** Writes the attributes of the given component with the given id */
+    public final void writeComponent( int componentId, Component component ) throws IOException {
+        attributes.clear();
+        component.toAttributes( attributes );
+
+        final SnapshotSchema schema = schema( component );
+        writeByte( TAG_COMPONENT );
+        writeVarInt( schema.id );
+        writeVarInt( componentId );
+        writeRecord( schema );
+    }
+
+    /** Ends the snapshot and writes all buffered data to the channel. The channel is not closed */
+    public final void close() throws IOException {
+        writeByte( TAG_END );
+        flush();
+    }
+
+    public final void flush() throws IOException {
+        buffer.flip();
+        while ( buffer.hasRemaining() ) {
+            channel.write( buffer );
+        }
+        buffer.clear();
+    }
+
+    public final void writeByte( int value ) throws IOException {
+        ensure( 1 );
+        buffer.put( (byte) value );
+    }
+
+    public final void writeBoolean( boolean value ) throws IOException {
+        writeByte( ( value )? 1 : 0 );
+    }
+
+    public final void writeInt( int value ) throws IOException {
+        ensure( 4 );
+        buffer.putInt( value );
+    }
+
+    /** Writes a non negative int value with one to five bytes */
+    public final void writeVarInt( int value ) throws IOException {
+        ensure( 5 );
+        while ( ( value & ~0x7F ) != 0 ) {
+            buffer.put( (byte) ( ( value & 0x7F ) | 0x80 ) );
+            value >>>= 7;
+        }
+        buffer.put( (byte) value );
+    }
+
+    /** Writes a int value with one to five bytes where small negative values are also written compact */
+    public final void writeZigZagInt( int value ) throws IOException {
+        writeVarInt( ( value << 1 ) ^ ( value >> 31 ) );
+    }
+
+    public final void writeLong( long value ) throws IOException {
+        ensure( 8 );
+        buffer.putLong( value );
+    }
+
+    public final void writeFloat( float value ) throws IOException {
+        ensure( 4 );
+        buffer.putFloat( value );
+    }
+
+    public final void writeDouble( double value ) throws IOException {
+        ensure( 8 );
+        buffer.putDouble( value );
+    }
+
+    public final void writeBytes( byte[] bytes, int offset, int length ) throws IOException {
+        while ( length > 0 ) {
+            if ( !buffer.hasRemaining() ) {
+                flush();
+            }
+            final int chunk = Math.min( length, buffer.remaining() );
+            buffer.put( bytes, offset, chunk );
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /** Writes a String that may be null as UTF-8 */
+    public final void writeString( String value ) throws IOException {
+        if ( value == null ) {
+            writeVarInt( 0 );
+            return;
+        }
+
+        final byte[] bytes = value.getBytes( UTF_8 );
+        writeVarInt( bytes.length + 1 );
+        writeBytes( bytes, 0, bytes.length );
+    }
+
+    private void ensure( int bytes ) throws IOException {
+        if ( buffer.remaining() < bytes ) {
+            flush();
+        }
+    }
+
+    private SnapshotSchema schema( Component component ) throws IOException {
+        final Class<?> type = component.getClass();
+        SnapshotSchema schema = schemas.get( type );
+        if ( schema == null ) {
+            schema = new SnapshotSchema( schemas.size(), type );
+            schemas.put( type, schema );
+            final Set<AttributeKey<?>> attributeKeys = component.attributeKeys();
+            if ( attributeKeys != null ) {
+                for ( AttributeKey<?> key : attributeKeys ) {
+                    if ( schema.position( key ) < 0 ) {
+                        schema.add( key );
+                    }
+                }
+            }
+        }
+
+        // attributes that are not declared by attributeKeys extend the schema
+        for ( int i = 0; i < attributes.size(); i++ ) {
+            final AttributeKey<?> key = attributes.keyAt( i );
+            if ( schema.position( key ) < 0 ) {
+                schema.add( key );
+            }
+        }
+
+        if ( schema.written < 0 ) {
+            writeByte( TAG_SCHEMA );
+            writeVarInt( schema.id );
+            writeString( type.getName() );
+            writeKeys( schema, 0 );
+        } else if ( schema.written < schema.size ) {
+            writeByte( TAG_SCHEMA_KEYS );
+            writeVarInt( schema.id );
+            writeKeys( schema, schema.written );
+        }
+
+        return schema;
+    }
+
+    private void writeKeys( SnapshotSchema schema, int from ) throws IOException {
+        writeVarInt( schema.size - from );
+        for ( int i = from; i < schema.size; i++ ) {
+            final AttributeKey<?> key = schema.keys[ i ];
+            writeString( key.name() );
+            writeString( key.componentType().getName() );
+            writeString( key.valueType().getName() );
+            writeString( ( key.typedValueType() != null )? key.typedValueType().getName() : null );
+        }
+        schema.written = schema.size;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void writeRecord( SnapshotSchema schema ) throws IOException {
+        final int size = schema.size;
+        if ( states.length < size ) {
+            states = new byte[ size * 2 ];
+        }
+
+        for ( int i = 0; i < size; i++ ) {
+            final AttributeKey<?> key = schema.keys[ i ];
+            if ( schema.kinds[ i ] == SnapshotSchema.KIND_TRANSIENT || !attributes.contains( key ) ) {
+                states[ i ] = 0;
+            } else {
+                states[ i ] = (byte) ( ( attributes.isNull( key ) )? 2 : 1 );
+            }
+        }
+
+        writeMask( size, 1 );
+        writeMask( size, 2 );
+
+        for ( int i = 0; i < size; i++ ) {
+            if ( states[ i ] != 1 ) {
+                continue;
+            }
+
+            final AttributeKey<?> key = schema.keys[ i ];
+            switch ( schema.kinds[ i ] ) {
+                case SnapshotSchema.KIND_INT: {
+                    writeZigZagInt( attributes.getValue( (AttributeKey<Integer>) key, 0 ) );
+                    break;
+                }
+                case SnapshotSchema.KIND_FLOAT: {
+                    writeFloat( attributes.getValue( (AttributeKey<Float>) key, 0f ) );
+                    break;
+                }
+                case SnapshotSchema.KIND_BOOLEAN: {
+                    writeBoolean( attributes.getValue( (AttributeKey<Boolean>) key, false ) );
+                    break;
+                }
+                case SnapshotSchema.KIND_LONG: {
+                    writeLong( attributes.getValue( (AttributeKey<Long>) key, 0L ) );
+                    break;
+                }
+                default: {
+                    final SnapshotCodec<Object> codec = (SnapshotCodec<Object>) schema.codecs[ i ];
+                    if ( codec == null ) {
+                        throw new NotSerializableException( "No SnapshotCodec for: " + key.valueType().getName() );
+                    }
+                    codec.write( attributes.getValue( key ), this );
+                }
+            }
+        }
+    }
+
+    private void writeMask( int size, int state ) throws IOException {
+        for ( int i = 0; i < size; i += 8 ) {
+            int mask = 0;
+            for ( int bit = 0; bit < 8 && i + bit < size; bit++ ) {
+                if ( states[ i + bit ] == state ) {
+                    mask |= 1 << bit;
+                }
+            }
+            writeByte( mask );
+        }
+    }
+
+}
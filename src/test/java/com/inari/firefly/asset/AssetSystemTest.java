@@ -2,20 +2,36 @@ package com.inari.firefly.asset;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.inari.firefly.FFTest;
+import com.inari.firefly.asset.archive.AssetArchive;
+import com.inari.firefly.asset.archive.AssetArchivePacker;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.component.attr.Attributes;
+import com.inari.firefly.component.attr.ComponentAttributeMap;
 import com.inari.firefly.component.build.ComponentBuilder;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.TextureAsset;
+import com.inari.firefly.graphics.sprite.ESprite;
 import com.inari.firefly.system.FFContext;
 import com.inari.firefly.system.utils.Disposable;
 
 public class AssetSystemTest extends FFTest {
     
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
     @Test
     public void testCreation() {
         ffContext.getSystem( AssetSystem.SYSTEM_KEY );
@@ -214,6 +230,168 @@ public class AssetSystemTest extends FFTest {
         );
     }
     
+    @Test
+    public void testReferencesAndCache() {
+        AssetSystem service = ffContext.getSystem( AssetSystem.SYSTEM_KEY );
+        
+        int asset1 = ffContext
+            .getComponentBuilder( Asset.TYPE_KEY, TestAsset.class )
+            .set( Asset.NAME, "asset1" )
+            .build();
+        int asset2 = ffContext
+            .getComponentBuilder( Asset.TYPE_KEY, TestAsset.class )
+            .set( Asset.NAME, "asset2" )
+            .build();
+        ffContext.getSystemComponent( Asset.TYPE_KEY, asset2 ).dependsOn( asset1 );
+        
+        service.loadAsset( "asset2" );
+        assertTrue( service.isLoaded( asset1 ) );
+        assertTrue( service.isLoaded( asset2 ) );
+        assertEquals( 1, service.getDependingAssetIds( asset1 ).size() );
+        assertEquals( asset2, service.getDependingAssetIds( asset1 ).get( 0 ) );
+        
+        // dispose is pending while the depending asset is referenced
+        service.reference( asset2 );
+        service.assets.deactivate( asset1 );
+        assertTrue( service.isLoaded( asset1 ) );
+        assertTrue( service.isLoaded( asset2 ) );
+        
+        service.release( asset2 );
+        assertFalse( service.isLoaded( asset1 ) );
+        assertFalse( service.isLoaded( asset2 ) );
+        
+        // with a cache budget a disposed asset is kept loaded within the cache
+        service.setCacheBudget( 1000 );
+        service.loadAsset( "asset1" );
+        service.assets.deactivate( asset1 );
+        assertTrue( service.isLoaded( asset1 ) );
+        assertTrue( service.isCached( asset1 ) );
+        
+        eventLog.clearLog();
+        service.loadAsset( "asset1" );
+        assertTrue( service.isLoaded( asset1 ) );
+        assertFalse( service.isCached( asset1 ) );
+        assertEquals( "EventLog [events=[]]", eventLog.toString() );
+        
+        service.assets.deactivate( asset1 );
+        service.setCacheBudget( 0 );
+        assertFalse( service.isLoaded( asset1 ) );
+        assertFalse( service.isCached( asset1 ) );
+    }
+    
+    @Test
+    public void testEntityReleasesReferencedAsset() {
+        AssetSystem service = ffContext.getSystem( AssetSystem.SYSTEM_KEY );
+        EntitySystem entitySystem = ffContext.getSystem( EntitySystem.SYSTEM_KEY );
+        
+        int asset1 = ffContext
+            .getComponentBuilder( Asset.TYPE_KEY, TestAsset.class )
+            .set( Asset.NAME, "asset1" )
+            .build();
+        int asset2 = ffContext
+            .getComponentBuilder( Asset.TYPE_KEY, TestAsset.class )
+            .set( Asset.NAME, "asset2" )
+            .build();
+        service.loadAsset( asset1 );
+        service.loadAsset( asset2 );
+        
+        int entityId = ffContext.getEntityBuilder()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ESprite.SPRITE_ASSET_NAME, "asset1" )
+            .activate();
+        assertEquals( 1, ffContext.getSystemComponent( Asset.TYPE_KEY, asset1 ).getReferences() );
+        
+        // the entity changes its sprite Asset while it is active
+        AttributeMap attributes = new ComponentAttributeMap( ffContext );
+        attributes.put( ESprite.SPRITE_ASSET_NAME, "asset2" );
+        ESprite sprite = ffContext.getEntityComponent( entityId, ESprite.TYPE_KEY );
+        sprite.fromAttributes( attributes );
+        assertEquals( asset2, sprite.getSpriteAssetId() );
+        
+        // the deactivation releases the Asset that was referenced on activation
+        entitySystem.deactivateEntity( entityId );
+        assertEquals( 0, ffContext.getSystemComponent( Asset.TYPE_KEY, asset1 ).getReferences() );
+        assertEquals( 0, ffContext.getSystemComponent( Asset.TYPE_KEY, asset2 ).getReferences() );
+        
+        entitySystem.activateEntity( entityId );
+        assertEquals( 0, ffContext.getSystemComponent( Asset.TYPE_KEY, asset1 ).getReferences() );
+        assertEquals( 1, ffContext.getSystemComponent( Asset.TYPE_KEY, asset2 ).getReferences() );
+    }
+    
+    @Test
+    public void testLoadAsync() throws Exception {
+        // one load per update, so each loaded asset but the last is reported as progress
+        ffContext.setProperty( FFContext.Properties.ASSET_LOADS_PER_UPDATE, 1 );
+        AssetSystem service = ffContext.getSystem( AssetSystem.SYSTEM_KEY );
+        
+        ffContext
+            .getComponentBuilder( Asset.TYPE_KEY, TestAsset.class )
+            .set( Asset.NAME, "asset1" )
+            .buildAndNext()
+            .set( Asset.NAME, "asset2" )
+            .buildAndNext()
+            .set( Asset.NAME, "asset3" )
+            .build();
+        
+        final StringBuilder calls = new StringBuilder();
+        final AssetLoadGroup group = service.loadAsync( new AssetLoadCallback() {
+            @Override
+            public void onProgress( AssetLoadGroup group ) {
+                calls.append( "progress:" ).append( group.getLoaded() ).append( "/" ).append( group.getTotal() ).append( " " );
+            }
+            @Override
+            public void onFinished( AssetLoadGroup group ) {
+                assertTrue( group.isDone() );
+                calls.append( "finished:" ).append( group.getLoaded() ).append( "/" ).append( group.getTotal() );
+            }
+        }, "asset1", "asset2", "asset3" );
+        
+        assertEquals( 3, group.getTotal() );
+        assertFalse( group.isDone() );
+        assertFalse( service.isLoaded( "asset1" ) );
+        
+        int updates = 0;
+        while ( !group.isDone() && updates < 1000 ) {
+            Thread.sleep( 1 );
+            firefly.update();
+            updates++;
+        }
+        
+        assertTrue( group.isDone() );
+        assertFalse( group.isFailed() );
+        assertEquals( 3, group.getLoaded() );
+        assertTrue( service.isLoaded( "asset1" ) );
+        assertTrue( service.isLoaded( "asset2" ) );
+        assertTrue( service.isLoaded( "asset3" ) );
+        assertEquals( "progress:1/3 progress:2/3 finished:3/3", calls.toString() );
+    }
+    
+    @Test
+    public void testPrepareFromArchive() throws Exception {
+        AssetSystem service = ffContext.getSystem( AssetSystem.SYSTEM_KEY );
+        
+        File source = folder.newFolder( "assets" );
+        byte[] content = new byte[ 1000 ];
+        Files.write( new File( source, "texture.png" ).toPath(), content );
+        File archiveFile = new File( folder.getRoot(), "assets.ffar" );
+        new AssetArchivePacker( true ).pack( source, archiveFile );
+        service.addArchive( AssetArchive.open( archiveFile ) );
+        
+        int textureId = ffContext
+            .getComponentBuilder( Asset.TYPE_KEY, TextureAsset.class )
+            .set( TextureAsset.NAME, "texture" )
+            .set( TextureAsset.RESOURCE_NAME, "texture.png" )
+            .build();
+        TextureAsset texture = ffContext.getSystemComponent( Asset.TYPE_KEY, textureId, TextureAsset.class );
+        
+        // prepare reads and decompresses the resource, load hands it over to the backend
+        ( (Asset) texture ).prepare( ffContext );
+        assertEquals( 1000, texture.getResourceData().remaining() );
+        service.loadAsset( textureId );
+        assertTrue( texture.isLoaded() );
+        assertNull( texture.getResourceData() );
+    }
+    
     public static class TestAsset extends Asset {
         
         TestAsset( int assetId ) {
@@ -0,0 +1,72 @@
+package com.inari.firefly.asset.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssetArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPackAndRead() throws IOException {
+        File source = folder.newFolder( "assets" );
+        File sub = new File( source, "sprites" );
+        sub.mkdirs();
+
+        StringBuilder text = new StringBuilder();
+        for ( int i = 0; i < 200; i++ ) {
+            text.append( "firefly asset archive " );
+        }
+        byte[] compressible = text.toString().getBytes( "UTF-8" );
+        byte[] random = new byte[ 1000 ];
+        new Random( 1 ).nextBytes( random );
+        Files.write( new File( source, "text.txt" ).toPath(), compressible );
+        Files.write( new File( sub, "image.png" ).toPath(), random );
+
+        File archiveFile = new File( folder.getRoot(), "assets.ffar" );
+        assertEquals( 2, new AssetArchivePacker( true ).pack( source, archiveFile ) );
+        assertTrue( archiveFile.length() < compressible.length + random.length );
+
+        AssetArchive archive = AssetArchive.open( archiveFile );
+        try {
+            assertEquals( 2, archive.getEntryCount() );
+            assertEquals( compressible.length, archive.getSize( "text.txt" ) );
+            assertContent( compressible, archive.getResource( "text.txt" ) );
+            assertContent( random, archive.getResource( "sprites/image.png" ) );
+            assertNull( archive.getResource( "unknown.png" ) );
+            assertEquals( -1, archive.getSize( "unknown.png" ) );
+        } finally {
+            archive.close();
+        }
+    }
+
+    @Test( expected = IOException.class )
+    public void testOpenInvalid() throws IOException {
+        File file = folder.newFile( "invalid.ffar" );
+        Files.write( file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17 } );
+        AssetArchive.open( file );
+    }
+
+    private void assertContent( byte[] expected, ByteBuffer buffer ) {
+        assertTrue( buffer.isReadOnly() );
+        assertEquals( expected.length, buffer.remaining() );
+        byte[] content = new byte[ buffer.remaining() ];
+        buffer.get( content );
+        for ( int i = 0; i < expected.length; i++ ) {
+            assertEquals( expected[ i ], content[ i ] );
+        }
+    }
+
+}
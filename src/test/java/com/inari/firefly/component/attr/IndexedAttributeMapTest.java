@@ -0,0 +1,140 @@
+package com.inari.firefly.component.attr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.sprite.ESprite;
+
+public class IndexedAttributeMapTest {
+
+    @Test
+    public void testPrimitiveAndObjectSlots() {
+        IndexedAttributeMap attrs = new IndexedAttributeMap( null );
+        assertTrue( attrs.isEmpty() );
+        
+        attrs.put( ETransform.VIEW_ID, 2 );
+        attrs.put( ETransform.POSITION, new PositionF( 1, 2 ) );
+        attrs.put( ESprite.SPRITE_ID, null );
+        
+        assertEquals( 3, attrs.size() );
+        assertEquals( 2, attrs.getValue( ETransform.VIEW_ID, -1 ) );
+        assertEquals( Integer.valueOf( 2 ), attrs.getValue( ETransform.VIEW_ID ) );
+        assertTrue( attrs.contains( ESprite.SPRITE_ID ) );
+        assertEquals( -1, attrs.getValue( ESprite.SPRITE_ID, -1 ) );
+        assertFalse( attrs.contains( ETransform.LAYER_ID ) );
+        assertEquals( 
+            "viewId:Integer:ETransform=2, position:PositionF:ETransform=[x=1.0,y=2.0], spriteId:Integer:ESprite=null", 
+            attrs.toString() 
+        );
+        
+        attrs.putUntyped( ETransform.VIEW_ID, null );
+        assertFalse( attrs.contains( ETransform.VIEW_ID ) );
+        assertNull( attrs.getValue( ETransform.VIEW_ID ) );
+        
+        attrs.clear();
+        assertTrue( attrs.isEmpty() );
+        assertNull( attrs.getValue( ETransform.POSITION ) );
+    }
+    
+    @Test
+    public void testPutAll() {
+        ComponentAttributeMap source = new ComponentAttributeMap( null );
+        source.put( ETransform.VIEW_ID, 1 );
+        source.put( ETransform.SCALE_X, 2f );
+        
+        IndexedAttributeMap attrs = new IndexedAttributeMap( null );
+        attrs.putAll( source );
+        assertEquals( source.toString(), attrs.toString() );
+        assertEquals( 2f, attrs.getValue( ETransform.SCALE_X, 0f ), 0f );
+        
+        ComponentAttributeMap target = new ComponentAttributeMap( null );
+        target.putAll( attrs );
+        assertEquals( source.toString(), target.toString() );
+    }
+    
+    @Test
+    public void testPutAllOfOtherAttributeMap() {
+        ForwardingAttributeMap source = new ForwardingAttributeMap();
+        source.put( ETransform.VIEW_ID, 1 );
+        source.put( ETransform.POSITION, new PositionF( 1, 2 ) );
+        
+        IndexedAttributeMap attrs = new IndexedAttributeMap( null );
+        attrs.putAll( source );
+        assertEquals( "viewId:Integer:ETransform=1, position:PositionF:ETransform=[x=1.0,y=2.0]", attrs.toString() );
+        assertEquals( 1, attrs.getValue( ETransform.VIEW_ID, -1 ) );
+        
+        ComponentAttributeMap target = new ComponentAttributeMap( null );
+        target.putAll( source );
+        assertEquals( attrs.toString(), target.toString() );
+    }
+    
+    /** An AttributeMap that is neither an IndexedAttributeMap nor a ComponentAttributeMap */
+    private static final class ForwardingAttributeMap extends BaseAttributeMap {
+        
+        private final ComponentAttributeMap delegate = new ComponentAttributeMap( null );
+        
+        ForwardingAttributeMap() {
+            super( null );
+        }
+
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        public <A> A getValue( AttributeKey<A> key ) {
+            return delegate.getValue( key );
+        }
+
+        public <A> AttributeMap put( AttributeKey<A> key, A value ) {
+            delegate.put( key, value );
+            return this;
+        }
+
+        public AttributeMap putAll( AttributeMap attributes ) {
+            delegate.putAll( attributes );
+            return this;
+        }
+
+        public AttributeMap putUntyped( AttributeKey<?> key, Object value ) {
+            delegate.putUntyped( key, value );
+            return this;
+        }
+
+        public int getValue( AttributeKey<Integer> key, int defaultValue ) {
+            return delegate.getValue( key, defaultValue );
+        }
+
+        public float getValue( AttributeKey<Float> key, float defaultValue ) {
+            return delegate.getValue( key, defaultValue );
+        }
+
+        public boolean getValue( AttributeKey<Boolean> key, boolean defaultValue ) {
+            return delegate.getValue( key, defaultValue );
+        }
+
+        public long getValue( AttributeKey<Long> key, long defaultValue ) {
+            return delegate.getValue( key, defaultValue );
+        }
+
+        public void clear() {
+            delegate.clear();
+        }
+
+        public boolean contains( AttributeKey<?> key ) {
+            return delegate.contains( key );
+        }
+
+        public Set<AttributeKey<?>> keys() {
+            return delegate.keys();
+        }
+    }
+
+}
@@ -1,10 +1,16 @@
 package com.inari.firefly.entity;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 
 import com.inari.commons.geom.PositionF;
+import com.inari.commons.lang.aspect.IAspects;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.commons.lang.list.IntBagRO;
 import com.inari.firefly.FFTest;
 import com.inari.firefly.component.attr.Attributes;
 import com.inari.firefly.graphics.ETransform;
@@ -113,4 +119,131 @@ public class EntitySystemTest extends FFTest {
     
     
 
+    @Test
+    public void testCommandBufferPlayback() {
+        EntitySystem entitySystem = ffContext.getSystem( EntitySystem.SYSTEM_KEY );
+        EntityCommandBuffer commandBuffer = entitySystem.getCommandBuffer();
+        
+        EntityAttributeMap attributes = new EntityAttributeMap( ffContext );
+        attributes.put( ETransform.VIEW_ID, 1 );
+        attributes.put( ETransform.POSITION, new PositionF( 234, 134 ) );
+        commandBuffer
+            .create( attributes, true )
+            .create( attributes, true )
+            .create( attributes, false );
+        
+        assertEquals( "3", String.valueOf( commandBuffer.size() ) );
+        assertEquals( "0", String.valueOf( entitySystem.components.size() ) );
+        
+        entitySystem.playbackCommands();
+        
+        assertTrue( commandBuffer.isEmpty() );
+        assertEquals( "3", String.valueOf( entitySystem.components.size() ) );
+        assertEquals( "2", String.valueOf( entitySystem.activeEntities.cardinality() ) );
+        assertEquals( "1", String.valueOf( entitySystem.inactiveEntities.cardinality() ) );
+        
+        int activeId = entitySystem.activeEntities.nextSetBit( 0 );
+        int inactiveId = entitySystem.inactiveEntities.nextSetBit( 0 );
+        commandBuffer
+            .deactivate( activeId )
+            .activate( inactiveId )
+            .delete( activeId );
+        
+        // nothing changes until the next playback
+        assertTrue( entitySystem.isActive( activeId ) );
+        
+        entitySystem.playbackCommands();
+        
+        assertFalse( entitySystem.isActive( activeId ) );
+        assertFalse( entitySystem.isRestored( activeId ) );
+        assertTrue( entitySystem.isActive( inactiveId ) );
+        assertEquals( "2", String.valueOf( entitySystem.components.size() ) );
+        assertEquals( "2", String.valueOf( entitySystem.activeEntities.cardinality() ) );
+        assertEquals( "0", String.valueOf( entitySystem.inactiveEntities.cardinality() ) );
+    }
+    
+    @Test
+    public void testCommandBufferDeleteAndCreate() {
+        EntitySystem entitySystem = ffContext.getSystem( EntitySystem.SYSTEM_KEY );
+        EntityCommandBuffer commandBuffer = entitySystem.getCommandBuffer();
+        
+        EntityAttributeMap attributes = new EntityAttributeMap( ffContext );
+        attributes.put( ETransform.VIEW_ID, 1 );
+        attributes.put( ETransform.POSITION, new PositionF( 234, 134 ) );
+        commandBuffer.create( attributes, true );
+        entitySystem.playbackCommands();
+        int deletedId = entitySystem.activeEntities.nextSetBit( 0 );
+        
+        // the created entity gets the index of the deleted one
+        commandBuffer
+            .delete( deletedId )
+            .create( attributes, true );
+        entitySystem.playbackCommands();
+        
+        int createdId = entitySystem.activeEntities.nextSetBit( 0 );
+        assertEquals( deletedId, createdId );
+        assertTrue( entitySystem.isActive( createdId ) );
+        assertEquals( "1", String.valueOf( entitySystem.components.size() ) );
+        assertEquals( "1", String.valueOf( entitySystem.activeEntities.cardinality() ) );
+        assertEquals( "0", String.valueOf( entitySystem.inactiveEntities.cardinality() ) );
+    }
+    
+    @Test
+    public void testBatchedActivation() {
+        EntitySystem entitySystem = ffContext.getSystem( EntitySystem.SYSTEM_KEY );
+        BatchCounter counter = new BatchCounter();
+        ffContext.registerListener( EntityActivationEvent.TYPE_KEY, counter );
+        
+        IntBag entityIds = new IntBag( 10, -1 );
+        for ( int i = 0; i < 5; i++ ) {
+            entityIds.add( entitySystem.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( i, i ) )
+            .build() );
+        }
+        
+        // all entities have the same aspects and are delivered within one batch
+        ffContext.activateEntities( entityIds );
+        
+        assertEquals( "5", String.valueOf( entitySystem.activeEntities.cardinality() ) );
+        assertEquals( "5", String.valueOf( counter.activated.size() ) );
+        assertEquals( 1, counter.activationBatches );
+        
+        ffContext.deactivateEntities( entityIds );
+        
+        assertEquals( "0", String.valueOf( entitySystem.activeEntities.cardinality() ) );
+        assertEquals( "5", String.valueOf( counter.deactivated.size() ) );
+        assertEquals( 1, counter.deactivationBatches );
+    }
+    
+    private static final class BatchCounter implements BatchedEntityActivationListener {
+        
+        final IntBag activated = new IntBag( 10, -1 );
+        final IntBag deactivated = new IntBag( 10, -1 );
+        int activationBatches = 0;
+        int deactivationBatches = 0;
+        
+        public boolean match( IAspects aspects ) { return true; }
+        public void entityActivated( int entityId, IAspects aspects ) { fail(); }
+        public void entityDeactivated( int entityId, IAspects aspects ) { fail(); }
+        
+        public void entitiesActivated( IntBagRO entityIds, IAspects aspects ) {
+            activationBatches++;
+            add( activated, entityIds );
+        }
+        
+        public void entitiesDeactivated( IntBagRO entityIds, IAspects aspects ) {
+            deactivationBatches++;
+            add( deactivated, entityIds );
+        }
+        
+        private static void add( IntBag target, IntBagRO entityIds ) {
+            for ( int i = 0; i < entityIds.length(); i++ ) {
+                if ( !entityIds.isEmpty( i ) ) {
+                    target.add( entityIds.get( i ) );
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,134 @@
+package com.inari.firefly.entity.prefab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.inari.firefly.FFTest;
+import com.inari.firefly.control.behavior.BehaviorNode;
+import com.inari.firefly.control.behavior.BehaviorSystem;
+import com.inari.firefly.control.behavior.EBehavoir;
+import com.inari.firefly.control.behavior.TimedLeaf;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.physics.movement.EMovement;
+
+public class EntityPrefabSystemTest extends FFTest {
+
+    @Test
+    public void testBuildCopiesPrefabComponents() {
+        EntityPrefabSystem prefabSystem = ffContext.getSystem( EntityPrefabSystem.SYSTEM_KEY );
+        int prefabId = ffContext.getComponentBuilder( EntityPrefab.TYPE_KEY )
+            .set( EntityPrefab.NAME, "bullet" )
+            .set( EntityPrefab.INITIAL_CREATE_NUMBER, 2 )
+            .set( ETransform.VIEW_ID, 1 )
+            .set( ETransform.POSITION_X, 10f )
+            .set( ETransform.POSITION_Y, 20f )
+            .set( ETransform.ROTATION, 45f )
+            .set( EMovement.VELOCITY_X, 3f )
+            .set( EMovement.ACTIVE, true )
+            .build();
+
+        int entity1 = prefabSystem.buildOne( prefabId );
+        int entity2 = prefabSystem.buildOne( prefabId );
+        int entity3 = prefabSystem.buildOne( prefabId );
+
+        ETransform transform1 = ffContext.getEntityComponent( entity1, ETransform.TYPE_KEY );
+        ETransform transform3 = ffContext.getEntityComponent( entity3, ETransform.TYPE_KEY );
+        assertEquals( 1, transform1.getViewId() );
+        assertEquals( 10f, transform1.getXpos(), 0f );
+        assertEquals( 20f, transform1.getYpos(), 0f );
+        assertEquals( 45f, transform1.getRotation(), 0f );
+        assertEquals( 10f, transform3.getXpos(), 0f );
+
+        EMovement movement2 = ffContext.getEntityComponent( entity2, EMovement.TYPE_KEY );
+        assertEquals( 3f, movement2.getVelocityX(), 0f );
+        assertTrue( movement2.isActive() );
+
+        // the instances are independent copies
+        transform1.setXpos( 100f );
+        assertEquals( 10f, transform3.getXpos(), 0f );
+        assertFalse( transform1 == transform3 );
+    }
+
+    @Test
+    public void testRecycleAndPrewarm() {
+        EntitySystem entitySystem = ffContext.getSystem( EntitySystem.SYSTEM_KEY );
+        EntityPrefabSystem prefabSystem = ffContext.getSystem( EntityPrefabSystem.SYSTEM_KEY );
+        int prefabId = ffContext.getComponentBuilder( EntityPrefab.TYPE_KEY )
+            .set( EntityPrefab.NAME, "particle" )
+            .set( EntityPrefab.POOL_MIN_SIZE, 3 )
+            .set( EntityPrefab.POOL_MAX_SIZE, 4 )
+            .set( ETransform.VIEW_ID, 1 )
+            .set( ETransform.POSITION_X, 10f )
+            .build();
+
+        // the pool is prewarmed to its min size on the next update
+        assertEquals( 0, prefabSystem.getPoolSize( prefabId ) );
+        assertEquals( 3, prefabSystem.getPendingPrewarm() );
+        firefly.update();
+        assertEquals( 3, prefabSystem.getPoolSize( prefabId ) );
+        assertEquals( 0, prefabSystem.getPendingPrewarm() );
+
+        int entityId = prefabSystem.buildOne( prefabId );
+        assertEquals( prefabId, entitySystem.getPrefabId( entityId ) );
+        assertEquals( 2, prefabSystem.getPoolSize( prefabId ) );
+
+        ETransform transform = ffContext.getEntityComponent( entityId, ETransform.TYPE_KEY );
+        transform.setXpos( 500f );
+
+        // deleting gives the component set back to the pool, reset to the prefab defaults
+        entitySystem.delete( entityId );
+        assertEquals( -1, entitySystem.getPrefabId( entityId ) );
+        assertEquals( 3, prefabSystem.getPoolSize( prefabId ) );
+        assertEquals( 10f, transform.getXpos(), 0f );
+
+        int entity2 = prefabSystem.buildOne( prefabId );
+        assertTrue( transform == ffContext.getEntityComponent( entity2, ETransform.TYPE_KEY ) );
+
+        // the pool is bounded by its max size
+        prefabSystem.prewarm( prefabId, 10 );
+        firefly.update();
+        assertEquals( 4, prefabSystem.getPoolSize( prefabId ) );
+        entitySystem.delete( entity2 );
+        assertEquals( 4, prefabSystem.getPoolSize( prefabId ) );
+
+        prefabSystem.trimPools();
+        assertEquals( 3, prefabSystem.getPoolSize( prefabId ) );
+    }
+
+    @Test
+    public void testRecycleResetsRuntimeState() {
+        EntitySystem entitySystem = ffContext.getSystem( EntitySystem.SYSTEM_KEY );
+        EntityPrefabSystem prefabSystem = ffContext.getSystem( EntityPrefabSystem.SYSTEM_KEY );
+        ffContext.getSystem( BehaviorSystem.SYSTEM_KEY );
+        int leafId = ffContext.getComponentBuilder( BehaviorNode.TYPE_KEY, TimedLeaf.class )
+            .set( TimedLeaf.NAME, "wait" )
+            .set( TimedLeaf.ACTION_ID, 1 )
+            .set( TimedLeaf.DURATION, 100000L )
+            .build();
+        int prefabId = ffContext.getComponentBuilder( EntityPrefab.TYPE_KEY )
+            .set( EntityPrefab.NAME, "enemy" )
+            .set( EntityPrefab.POOL_MAX_SIZE, 1 )
+            .set( ETransform.VIEW_ID, 1 )
+            .set( EBehavoir.ROOT_NODE_ID, leafId )
+            .build();
+
+        int entityId = prefabSystem.buildOne( prefabId );
+        ffContext.activateEntity( entityId );
+        EBehavoir behavior = ffContext.getEntityComponent( entityId, EBehavoir.TYPE_KEY );
+        behavior.setNodeMapping( 1, 2 );
+        firefly.update();
+        assertEquals( EBehavoir.ActionState.RUNNING, behavior.getActionState() );
+
+        // the recycled behavior starts over like a new one
+        entitySystem.delete( entityId );
+        assertEquals( 1, prefabSystem.getPoolSize( prefabId ) );
+        assertEquals( leafId, behavior.getRootNodeId() );
+        assertEquals( EBehavoir.ActionState.SUCCESS, behavior.getActionState() );
+        assertEquals( -1, behavior.getSubNodeMapping( 1 ) );
+    }
+
+}
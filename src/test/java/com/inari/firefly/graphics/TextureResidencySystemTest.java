@@ -0,0 +1,148 @@
+package com.inari.firefly.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.inari.commons.geom.Rectangle;
+import com.inari.firefly.FFTest;
+import com.inari.firefly.asset.Asset;
+import com.inari.firefly.asset.AssetSystem;
+import com.inari.firefly.graphics.sprite.ESprite;
+import com.inari.firefly.graphics.sprite.SpriteAsset;
+import com.inari.firefly.graphics.sprite.TextureAtlasAsset;
+import com.inari.firefly.graphics.sprite.TextureAtlasAsset.AtlasSprite;
+
+public class TextureResidencySystemTest extends FFTest {
+
+    @Test
+    public void testEvictAndReload() {
+        AssetSystem assetSystem = ffContext.getSystem( AssetSystem.SYSTEM_KEY );
+        TextureResidencySystem residency = ffContext.getSystem( TextureResidencySystem.SYSTEM_KEY );
+
+        int tex1 = createTexture( "tex1" );
+        int tex2 = createTexture( "tex2" );
+        assetSystem.loadAsset( tex1 );
+        assetSystem.loadAsset( tex2 );
+        assertEquals( 800, residency.getResidentBytes() );
+
+        residency.setBudget( 500 );
+        assertFalse( residency.use( tex1 ) );
+        assertFalse( residency.use( tex2 ) );
+
+        // textures that were rendered within the last frame are not evicted
+        firefly.update();
+        assertTrue( assetSystem.isLoaded( tex1 ) );
+        assertTrue( assetSystem.isLoaded( tex2 ) );
+
+        assertFalse( residency.use( tex2 ) );
+        firefly.update();
+        assertTrue( residency.isEvicted( tex1 ) );
+        assertFalse( assetSystem.isLoaded( tex1 ) );
+        assertTrue( assetSystem.isLoaded( tex2 ) );
+        assertEquals( 400, residency.getResidentBytes() );
+
+        // reloaded on next use
+        assertTrue( residency.use( tex1 ) );
+        assertFalse( residency.isEvicted( tex1 ) );
+        assertTrue( assetSystem.isLoaded( tex1 ) );
+    }
+
+    @Test
+    public void testEvictAndReloadAtlas() {
+        AssetSystem assetSystem = ffContext.getSystem( AssetSystem.SYSTEM_KEY );
+        TextureResidencySystem residency = ffContext.getSystem( TextureResidencySystem.SYSTEM_KEY );
+
+        int atlas = ffContext.getComponentBuilder( Asset.TYPE_KEY, TextureAtlasAsset.class )
+            .set( TextureAtlasAsset.NAME, "atlas" )
+            .set( TextureAtlasAsset.PAGE_WIDTH, 10 )
+            .set( TextureAtlasAsset.PAGE_HEIGHT, 10 )
+            .set( TextureAtlasAsset.PADDING, 0 )
+            .add( TextureAtlasAsset.SPRITE_DATA, new AtlasSprite( "sprite1.png", 0, 0, 10, 10, "sprite1" ) )
+            .add( TextureAtlasAsset.SPRITE_DATA, new AtlasSprite( "sprite2.png", 0, 0, 10, 10, "sprite2" ) )
+            .build();
+        int tex1 = createTexture( "tex1" );
+        assetSystem.loadAsset( atlas );
+        assetSystem.loadAsset( tex1 );
+        // two atlas pages and one texture
+        assertEquals( 1200, residency.getResidentBytes() );
+
+        residency.setBudget( 500 );
+        assertFalse( residency.use( atlas ) );
+        assertFalse( residency.use( tex1 ) );
+        firefly.update();
+
+        assertFalse( residency.use( tex1 ) );
+        firefly.update();
+        assertTrue( residency.isEvicted( atlas ) );
+        assertFalse( assetSystem.isLoaded( atlas ) );
+        assertTrue( assetSystem.isLoaded( tex1 ) );
+        assertEquals( 400, residency.getResidentBytes() );
+
+        // reloaded on next use
+        assertTrue( residency.use( atlas ) );
+        assertFalse( residency.isEvicted( atlas ) );
+        assertTrue( assetSystem.isLoaded( atlas ) );
+        assertEquals( 1200, residency.getResidentBytes() );
+    }
+
+    @Test
+    public void testRefreshAllSpritesOfReloadedTexture() {
+        AssetSystem assetSystem = ffContext.getSystem( AssetSystem.SYSTEM_KEY );
+        TextureResidencySystem residency = ffContext.getSystem( TextureResidencySystem.SYSTEM_KEY );
+
+        int tex1 = createTexture( "tex1" );
+        int sprite1 = ffContext.getComponentBuilder( Asset.TYPE_KEY, SpriteAsset.class )
+            .set( SpriteAsset.NAME, "sprite1" )
+            .set( SpriteAsset.TEXTURE_ASSET_ID, tex1 )
+            .set( SpriteAsset.TEXTURE_REGION, new Rectangle( 0, 0, 5, 5 ) )
+            .build();
+        assetSystem.loadAsset( tex1 );
+        assetSystem.loadAsset( sprite1 );
+
+        // two entities sharing the same sprite Asset
+        ESprite spriteOfEntity1 = createSprite( "sprite1" );
+        ESprite spriteOfEntity2 = createSprite( "sprite1" );
+
+        residency.setBudget( 300 );
+        residency.use( spriteOfEntity1 );
+        firefly.update();
+        firefly.update();
+        assertTrue( residency.isEvicted( tex1 ) );
+        assertFalse( assetSystem.isLoaded( sprite1 ) );
+
+        // the instance ids the entities hold are stale now
+        spriteOfEntity1.setSpriteId( -1 );
+        spriteOfEntity2.setSpriteId( -1 );
+
+        residency.use( spriteOfEntity1 );
+        residency.use( spriteOfEntity2 );
+        assertTrue( assetSystem.isLoaded( sprite1 ) );
+        int spriteId = ffContext.getAssetInstanceId( sprite1 );
+        assertTrue( spriteId >= 0 );
+        assertEquals( spriteId, spriteOfEntity1.getSpriteId() );
+        assertEquals( spriteId, spriteOfEntity2.getSpriteId() );
+    }
+
+    private ESprite createSprite( String spriteAssetName ) {
+        int entityId = ffContext.getEntityBuilder()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ESprite.SPRITE_ASSET_NAME, spriteAssetName )
+            .build();
+        return ffContext.getEntityComponent( entityId, ESprite.TYPE_KEY );
+    }
+
+    private int createTexture( String name ) {
+        int textureId = ffContext.getComponentBuilder( Asset.TYPE_KEY, TextureAsset.class )
+            .set( TextureAsset.NAME, name )
+            .set( TextureAsset.RESOURCE_NAME, name + ".png" )
+            .build();
+        TextureAsset texture = ffContext.getSystemComponent( Asset.TYPE_KEY, textureId, TextureAsset.class );
+        texture.setTextureWidth( 10 );
+        texture.setTextureHeight( 10 );
+        return textureId;
+    }
+
+}
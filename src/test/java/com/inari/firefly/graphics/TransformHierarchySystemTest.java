@@ -0,0 +1,59 @@
+package com.inari.firefly.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.firefly.FFTest;
+import com.inari.firefly.entity.EGroup;
+import com.inari.firefly.system.external.TransformData;
+
+public class TransformHierarchySystemTest extends FFTest {
+
+    @Test
+    public void testWorldTransform() {
+        TransformHierarchySystem hierarchy = ffContext.getSystem( TransformHierarchySystem.SYSTEM_KEY );
+
+        ffContext.getEntityBuilder()
+            .set( ETransform.POSITION, new PositionF( 10, 10 ) )
+            .set( ETransform.SCALE_X, 2f )
+        .activateAndNext()
+            .set( ETransform.POSITION, new PositionF( 5, 0 ) )
+            .set( EGroup.PARENT_ID, 0 )
+        .activateAndNext()
+            .set( ETransform.POSITION, new PositionF( 1, 1 ) )
+            .set( EGroup.PARENT_ID, 1 )
+        .activate();
+
+        TransformData world = hierarchy.getWorldTransform( 2 );
+        assertEquals( 16f, world.getXOffset(), 0f );
+        assertEquals( 11f, world.getYOffset(), 0f );
+        assertEquals( 2f, world.getScaleX(), 0f );
+        assertSame( world, hierarchy.getWorldTransform( 2 ) );
+
+        // a change of the root is propagated to all children
+        ETransform root = ffContext.getEntityComponent( 0, ETransform.TYPE_KEY );
+        root.move( 10, 0 );
+        assertEquals( 26f, hierarchy.getWorldTransform( 2 ).getXOffset(), 0f );
+        assertEquals( 25f, hierarchy.getWorldTransform( 1 ).getXOffset(), 0f );
+
+        // changing the parent
+        EGroup group = ffContext.getEntityComponent( 2, EGroup.TYPE_KEY );
+        group.setParentId( 0 );
+        assertEquals( 21f, hierarchy.getWorldTransform( 2 ).getXOffset(), 0f );
+
+        // a deactivated parent is no longer part of the hierarchy
+        ffContext.deactivateEntity( 0 );
+        assertNull( hierarchy.getWorldTransform( 0 ) );
+        assertEquals( 1f, hierarchy.getWorldTransform( 2 ).getXOffset(), 0f );
+
+        // and is part of it again when reactivated
+        ffContext.activateEntity( 0 );
+        assertEquals( 21f, hierarchy.getWorldTransform( 2 ).getXOffset(), 0f );
+        assertEquals( 25f, hierarchy.getWorldTransform( 1 ).getXOffset(), 0f );
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.inari.firefly.graphics.particle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.firefly.FFTest;
+import com.inari.firefly.TestTimer;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.system.FFContext;
+
+public class ParticleSystemTest extends FFTest {
+
+    @Test
+    public void testEmitAndUpdate() {
+        TestTimer timer = (TestTimer) ffContext.getTimer();
+        ParticleSystem particleSystem = ffContext.getSystem( ParticleSystem.SYSTEM_KEY );
+
+        ffContext.getEntityBuilder()
+            .set( ETransform.POSITION, new PositionF( 10, 20 ) )
+            .set( EParticleEmitter.MAX_PARTICLES, 5 )
+            .set( EParticleEmitter.SPAWN_RATE, 100f )
+            .set( EParticleEmitter.LIFETIME, 0.15f )
+            .set( EParticleEmitter.VELOCITY_X, 100f )
+            .set( EParticleEmitter.GRAVITY_Y, 100f )
+        .activate();
+        EParticleEmitter emitter = ffContext.getEntityComponent( 0, EParticleEmitter.TYPE_KEY );
+        ParticleBuffer particles = emitter.getParticles();
+
+        // 100ms spawns 10 particles but only 5 fit into the buffer
+        timer.setTime( 100 );
+        particleSystem.update( timer );
+        assertEquals( 5, particles.size() );
+        assertEquals( 20f, particles.getXpos( 0 ), 0.001f );
+        assertEquals( 21f, particles.getYpos( 0 ), 0.001f );
+        assertEquals( 10f, particles.getVelocityY( 0 ), 0.001f );
+
+        // all particles reached their lifetime
+        particleSystem.update( timer );
+        assertEquals( 0, particles.size() );
+
+        emitter.setEmitting( false );
+        particleSystem.update( timer );
+        assertEquals( 0, particles.size() );
+    }
+
+    @Test
+    public void testParallelIntegration() {
+        ffContext.setProperty( FFContext.Properties.PARTICLE_UPDATE_THREADS, 4 );
+        TestTimer timer = (TestTimer) ffContext.getTimer();
+        ParticleSystem particleSystem = ffContext.getSystem( ParticleSystem.SYSTEM_KEY );
+
+        // 20000 and 5000 particles with random velocities spawn within the first update
+        ParticleBuffer particles1 = createEmitter( 10, 20, 20000, 9.81f );
+        ParticleBuffer particles2 = createEmitter( -50, 100, 5000, -3f );
+        assertTrue( 25000 >= ParticleSystem.MIN_PARALLEL_PARTICLES );
+
+        timer.setTime( 100 );
+        particleSystem.update( timer );
+        assertEquals( 20000, particles1.size() );
+        assertEquals( 5000, particles2.size() );
+
+        // each particle is integrated exactly once like by the sequential integration from its spawn position
+        assertIntegratedOnce( particles1, 10, 20, 0.1f );
+        assertIntegratedOnce( particles2, -50, 100, 0.1f );
+    }
+
+    private ParticleBuffer createEmitter( float x, float y, int maxParticles, float gravity ) {
+        int entityId = ffContext.getEntityBuilder()
+            .set( ETransform.POSITION, new PositionF( x, y ) )
+            .set( EParticleEmitter.MAX_PARTICLES, maxParticles )
+            .set( EParticleEmitter.SPAWN_RATE, maxParticles * 20f )
+            .set( EParticleEmitter.LIFETIME, 10f )
+            .set( EParticleEmitter.VELOCITY_X, 20f )
+            .set( EParticleEmitter.VELOCITY_Y, -20f )
+            .set( EParticleEmitter.VELOCITY_VARIANCE, 10f )
+            .set( EParticleEmitter.GRAVITY_X, gravity )
+            .set( EParticleEmitter.GRAVITY_Y, gravity )
+        .activate();
+        EParticleEmitter emitter = ffContext.getEntityComponent( entityId, EParticleEmitter.TYPE_KEY );
+        return emitter.getParticles();
+    }
+
+    private void assertIntegratedOnce( ParticleBuffer particles, float x, float y, float delta ) {
+        for ( int i = 0; i < particles.size(); i++ ) {
+            assertEquals( x + particles.getVelocityX( i ) * delta, particles.getXpos( i ), 0f );
+            assertEquals( y + particles.getVelocityY( i ) * delta, particles.getYpos( i ), 0f );
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.inari.firefly.graphics.rendering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.inari.commons.geom.PositionF;
+import com.inari.commons.lang.indexed.IndexedTypeSet;
+import com.inari.firefly.FFTest;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.graphics.ETransform;
+
+public class RenderOrderTest extends FFTest {
+
+    @Test
+    public void testYOrder() {
+        EntitySystem entitySystem = ffContext.getSystem( EntitySystem.SYSTEM_KEY );
+        ffContext.getEntityBuilder()
+            .set( ETransform.POSITION, new PositionF( 0, 30 ) )
+        .activateAndNext()
+            .set( ETransform.POSITION, new PositionF( 0, 10 ) )
+        .activateAndNext()
+            .set( ETransform.POSITION, new PositionF( 0, 20 ) )
+        .activateAndNext()
+            .set( ETransform.POSITION, new PositionF( 0, 10 ) )
+        .activate();
+
+        IndexedTypeSet e0 = entitySystem.getComponents( 0 );
+        IndexedTypeSet e1 = entitySystem.getComponents( 1 );
+        IndexedTypeSet e2 = entitySystem.getComponents( 2 );
+        IndexedTypeSet e3 = entitySystem.getComponents( 3 );
+
+        RenderOrder order = new RenderOrder( RenderOrder.Y_POSITION );
+        order.add( e0 );
+        order.add( e1 );
+        order.add( e2 );
+        order.add( e3 );
+
+        // inserted in order, equal keys in order of insertion
+        assertEquals( 4, order.size() );
+        assertSame( e1, order.get( 0 ) );
+        assertSame( e3, order.get( 1 ) );
+        assertSame( e2, order.get( 2 ) );
+        assertSame( e0, order.get( 3 ) );
+
+        // changed keys are re-ordered on update
+        ffContext.getEntityComponent( 0, ETransform.TYPE_KEY ).setYpos( 0 );
+        ffContext.getEntityComponent( 1, ETransform.TYPE_KEY ).setYpos( 25 );
+        order.update();
+        assertSame( e0, order.get( 0 ) );
+        assertSame( e3, order.get( 1 ) );
+        assertSame( e2, order.get( 2 ) );
+        assertSame( e1, order.get( 3 ) );
+
+        order.remove( e3 );
+        assertEquals( 3, order.size() );
+        assertSame( e2, order.get( 1 ) );
+    }
+
+}
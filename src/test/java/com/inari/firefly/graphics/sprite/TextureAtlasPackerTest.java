@@ -0,0 +1,98 @@
+package com.inari.firefly.graphics.sprite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.inari.commons.geom.Rectangle;
+
+public class TextureAtlasPackerTest {
+
+    @Test
+    public void testPackSinglePage() {
+        TextureAtlasPacker packer = new TextureAtlasPacker( 64, 64, 1 );
+        Rectangle[] regions = new Rectangle[] {
+            new Rectangle( 0, 0, 16, 16 ),
+            new Rectangle( 0, 0, 31, 8 ),
+            new Rectangle( 0, 0, 10, 20 ),
+            new Rectangle( 0, 0, 5, 5 ),
+            new Rectangle( 0, 0, 40, 12 )
+        };
+        Rectangle[] result = new Rectangle[ regions.length ];
+        int[] pages = new int[ regions.length ];
+
+        assertEquals( 1, packer.pack( regions, result, pages ) );
+        assertValid( regions, result, pages, 64, 64 );
+    }
+
+    @Test
+    public void testPackMultiplePages() {
+        TextureAtlasPacker packer = new TextureAtlasPacker( 32, 32, 0 );
+        Rectangle[] regions = new Rectangle[ 9 ];
+        for ( int i = 0; i < regions.length; i++ ) {
+            regions[ i ] = new Rectangle( 0, 0, 16, 16 );
+        }
+        Rectangle[] result = new Rectangle[ regions.length ];
+        int[] pages = new int[ regions.length ];
+
+        assertEquals( 3, packer.pack( regions, result, pages ) );
+        assertValid( regions, result, pages, 32, 32 );
+    }
+
+    @Test
+    public void testPaddingAtPageEdge() {
+        TextureAtlasPacker packer = new TextureAtlasPacker( 64, 64, 2 );
+        Rectangle[] regions = new Rectangle[] {
+            new Rectangle( 0, 0, 64, 64 ),
+            new Rectangle( 0, 0, 31, 31 ),
+            new Rectangle( 0, 0, 31, 31 ),
+            new Rectangle( 0, 0, 31, 31 ),
+            new Rectangle( 0, 0, 31, 31 )
+        };
+        Rectangle[] result = new Rectangle[ regions.length ];
+        int[] pages = new int[ regions.length ];
+
+        // a region fills a page and four regions with padding between them fill the next page
+        assertEquals( 2, packer.pack( regions, result, pages ) );
+        assertValid( regions, result, pages, 64, 64 );
+        assertEquals( 0, pages[ 0 ] );
+        for ( int i = 1; i < regions.length; i++ ) {
+            assertEquals( 1, pages[ i ] );
+        }
+    }
+
+    @Test
+    public void testRegionTooBig() {
+        TextureAtlasPacker packer = new TextureAtlasPacker( 32, 32, 1 );
+        try {
+            packer.pack( new Rectangle[] { new Rectangle( 0, 0, 33, 10 ) }, new Rectangle[ 1 ], new int[ 1 ] );
+            fail( "IllegalArgumentException expected" );
+        } catch ( IllegalArgumentException e ) {
+            assertTrue( e.getMessage().contains( "does not fit" ) );
+        }
+    }
+
+    private void assertValid( Rectangle[] regions, Rectangle[] result, int[] pages, int pageWidth, int pageHeight ) {
+        for ( int i = 0; i < result.length; i++ ) {
+            Rectangle r = result[ i ];
+            assertEquals( regions[ i ].width, r.width );
+            assertEquals( regions[ i ].height, r.height );
+            assertTrue( r.x >= 0 && r.y >= 0 );
+            assertTrue( r.x + r.width <= pageWidth && r.y + r.height <= pageHeight );
+            for ( int j = i + 1; j < result.length; j++ ) {
+                if ( pages[ i ] == pages[ j ] ) {
+                    assertFalse( "Overlap: " + r + " " + result[ j ], overlaps( r, result[ j ] ) );
+                }
+            }
+        }
+    }
+
+    private boolean overlaps( Rectangle r1, Rectangle r2 ) {
+        return r1.x < r2.x + r2.width && r2.x < r1.x + r1.width
+            && r1.y < r2.y + r2.height && r2.y < r1.y + r1.height;
+    }
+
+}
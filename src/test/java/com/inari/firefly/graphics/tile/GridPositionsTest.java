@@ -0,0 +1,55 @@
+package com.inari.firefly.graphics.tile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class GridPositionsTest {
+
+    @Test
+    public void testAddAndRemove() {
+        GridPositions positions = new GridPositions( 2 );
+        assertTrue( positions.add( 1, 2 ) );
+        assertTrue( positions.add( -3, 4 ) );
+        assertTrue( positions.add( 5, -6 ) );
+        assertFalse( positions.add( 1, 2 ) );
+        assertEquals( "GridPositions [1,2, -3,4, 5,-6]", positions.toString() );
+
+        // the last position is moved into the gap
+        assertTrue( positions.remove( 1, 2 ) );
+        assertFalse( positions.remove( 1, 2 ) );
+        assertEquals( "GridPositions [5,-6, -3,4]", positions.toString() );
+        assertTrue( positions.contains( 5, -6 ) );
+        assertFalse( positions.contains( 1, 2 ) );
+
+        positions.clear();
+        assertTrue( positions.isEmpty() );
+        assertFalse( positions.contains( 5, -6 ) );
+    }
+
+    @Test
+    public void testManyPositions() {
+        GridPositions positions = new GridPositions();
+        for ( int y = 0; y < 100; y++ ) {
+            for ( int x = 0; x < 100; x++ ) {
+                positions.add( x, y );
+            }
+        }
+        assertEquals( 10000, positions.size() );
+
+        for ( int y = 0; y < 100; y++ ) {
+            for ( int x = 0; x < 100; x += 2 ) {
+                assertTrue( positions.remove( x, y ) );
+            }
+        }
+        assertEquals( 5000, positions.size() );
+        for ( int y = 0; y < 100; y++ ) {
+            for ( int x = 0; x < 100; x++ ) {
+                assertEquals( x % 2 == 1, positions.contains( x, y ) );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.inari.firefly.graphics.tile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.inari.commons.geom.Rectangle;
+import com.inari.firefly.FFTest;
+
+public class TileGridCursorTest extends FFTest {
+
+    private TileGrid grid1;
+
+    @Before
+    public void init() {
+        super.init();
+        grid1 = new TileGrid( 0 );
+        grid1.setWorldXPos( 5f );
+        grid1.setWorldYPos( 0f );
+        grid1.setCellWidth( 10 );
+        grid1.setCellHeight( 10 );
+        grid1.setWidth( 100 );
+        grid1.setHeight( 3 );
+    }
+
+    @After
+    public void cleanup() {
+        grid1.dispose();
+        super.cleanup();
+    }
+
+    @Test
+    public void testSkipEmptyCells() {
+        grid1.set( 1, 0, 0 );
+        grid1.set( 2, 70, 0 );
+        grid1.set( 3, 99, 2 );
+        grid1.set( 4, 64, 1 );
+        grid1.reset( 64, 1 );
+
+        TileGridCursor cursor = grid1.getCursor( new TileGridCursor() );
+        assertEquals( "1:0,0:5.0,0.0 2:70,0:705.0,0.0 3:99,2:995.0,20.0 ", toString( cursor ) );
+        assertFalse( cursor.next() );
+    }
+
+    @Test
+    public void testWorldClip() {
+        grid1.set( 1, 0, 0 );
+        grid1.set( 2, 2, 1 );
+        grid1.set( 3, 3, 1 );
+        grid1.set( 4, 80, 1 );
+
+        TileGridCursor cursor = new TileGridCursor();
+        grid1.getCursor( new Rectangle( 20, 10, 20, 10 ), cursor );
+        assertEquals( "2:2,1:25.0,10.0 3:3,1:35.0,10.0 ", toString( cursor ) );
+
+        // a cursor can be reused for another clip
+        grid1.getCursor( new Rectangle( 500, 0, 1000, 100 ), cursor );
+        assertTrue( cursor.next() );
+        assertEquals( 4, cursor.getEntityId() );
+        assertFalse( cursor.next() );
+    }
+
+    private String toString( TileGridCursor cursor ) {
+        StringBuilder builder = new StringBuilder();
+        while ( cursor.next() ) {
+            builder
+                .append( cursor.getEntityId() ).append( ":" )
+                .append( cursor.getGridXPos() ).append( "," ).append( cursor.getGridYPos() ).append( ":" )
+                .append( cursor.getWorldXPos() ).append( "," ).append( cursor.getWorldYPos() ).append( " " );
+        }
+        return builder.toString();
+    }
+
+}
@@ -11,10 +11,15 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.inari.commons.StringUtils;
+import com.inari.commons.geom.Position;
+import com.inari.commons.geom.Rectangle;
 import com.inari.firefly.FFTest;
 import com.inari.firefly.component.attr.AttributeMap;
 import com.inari.firefly.component.attr.ComponentAttributeMap;
+import com.inari.firefly.graphics.ETransform;
 import com.inari.firefly.graphics.tile.TileGrid.TileGridIterator;
+import com.inari.firefly.physics.collision.ECollision;
+import com.inari.firefly.physics.collision.TileCollisionShapes;
 public class TileGridTest extends FFTest {
     
     private TileGrid grid1;
@@ -586,4 +591,53 @@ public class TileGridTest extends FFTest {
     
     
 
+    @Test
+    public void testCollisionLayer() {
+        ffContext.getComponentBuilder( TileGrid.TYPE_KEY )
+            .set( TileGrid.CELL_WIDTH, 16 )
+            .set( TileGrid.CELL_HEIGHT, 16 )
+            .set( TileGrid.WIDTH, 3 )
+            .set( TileGrid.HEIGHT, 3 )
+            .set( TileGrid.VIEW_ID, 0 )
+            .set( TileGrid.LAYER_ID, 0 )
+        .build();
+        
+        ffContext.getEntityBuilder()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.LAYER_ID, 0 )
+            .add( ETile.GRID_POSITIONS, new Position( 0, 0 ) )
+            .add( ETile.GRID_POSITIONS, new Position( 1, 1 ) )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, 16, 16 ) )
+        .activateAndNext()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.LAYER_ID, 0 )
+            .add( ETile.GRID_POSITIONS, new Position( 2, 2 ) )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, 16, 16 ) )
+        .activateAndNext()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.LAYER_ID, 0 )
+            .add( ETile.GRID_POSITIONS, new Position( 2, 0 ) )
+        .activate();
+        
+        TileGridSystem tileGridSystem = ffContext.getSystem( TileGridSystem.SYSTEM_KEY );
+        TileGrid tileGrid = tileGridSystem.getTileGrid( 0, 0 );
+        
+        // equal collisions share the same shape, tiles without collision have no shape
+        assertEquals( 1, tileGridSystem.getCollisionShapes().size() );
+        assertEquals(
+            "[[0, -1, -1]" +
+            "[-1, 0, -1]" +
+            "[-1, -1, 0]]",
+            StringUtils.array2DToString( tileGrid.collisionGrid )
+        );
+        assertEquals( 2, tileGrid.get( 2, 0 ) );
+        // no tile has a material type
+        assertTrue( tileGrid.getCollisionMaterialTypes().isEmpty() );
+        
+        tileGrid.reset( 1, 1 );
+        assertEquals( TileCollisionShapes.NO_SHAPE, tileGrid.getCollisionShape( 1, 1 ) );
+        assertEquals( TileCollisionShapes.NO_SHAPE, tileGrid.getCollisionShape( 2, 0 ) );
+        assertEquals( 0, tileGrid.getCollisionShape( 0, 0 ) );
+    }
+    
 }
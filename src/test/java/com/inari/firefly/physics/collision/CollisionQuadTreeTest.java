@@ -1,12 +1,14 @@
 package com.inari.firefly.physics.collision;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
 import com.inari.commons.geom.PositionF;
 import com.inari.commons.geom.Rectangle;
 import com.inari.commons.lang.IntIterator;
+import com.inari.commons.lang.list.IntBag;
 import com.inari.firefly.FFTest;
 import com.inari.firefly.entity.EEntity;
 import com.inari.firefly.entity.EntitySystem;
@@ -88,6 +90,13 @@ public class CollisionQuadTreeTest extends FFTest {
         while ( intIterator.hasNext() ) {
             System.out.println( intIterator.next() );
         }
+        
+        // the read-only query of the parallel contact scan
+        IntBag result = new IntBag( 10, -1 );
+        quadTree.get( new Rectangle( 60, 60, 5, 5 ), result );
+        assertEquals( 2, result.size() );
+        assertTrue( result.contains( entitySystem.getEntityId( entity4 ) ) );
+        assertTrue( result.contains( entitySystem.getEntityId( entity5 ) ) );
     }
     
     private String createEntity( int x, int y, EntitySystem entitySystem ) {
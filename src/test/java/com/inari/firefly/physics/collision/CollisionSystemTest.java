@@ -0,0 +1,117 @@
+package com.inari.firefly.physics.collision;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.inari.commons.geom.Position;
+import com.inari.commons.geom.PositionF;
+import com.inari.commons.geom.Rectangle;
+import com.inari.commons.lang.list.DynArrayRO;
+import com.inari.commons.lang.list.IntBag;
+import com.inari.firefly.FFTest;
+import com.inari.firefly.component.build.ComponentBuilder;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.tile.ETile;
+import com.inari.firefly.graphics.tile.TileGrid;
+import com.inari.firefly.graphics.tile.TileGridSystem;
+import com.inari.firefly.physics.movement.EMovement;
+import com.inari.firefly.physics.movement.MoveEvent;
+import com.inari.firefly.system.FFContext;
+
+public class CollisionSystemTest extends FFTest {
+
+    private static final int GRID_SIZE = 16;
+    private static final int CELL_SIZE = 16;
+
+    @Test
+    public void testParallelScanEqualsSequentialScan() {
+        ffContext.setProperty( FFContext.Properties.COLLISION_SCAN_THREADS, 4 );
+        ffContext.getSystem( TileGridSystem.SYSTEM_KEY );
+        CollisionSystem collisionSystem = ffContext.getSystem( CollisionSystem.SYSTEM_KEY );
+        Rectangle worldArea = new Rectangle( 0, 0, GRID_SIZE * CELL_SIZE, GRID_SIZE * CELL_SIZE );
+
+        ffContext.getComponentBuilder( TileGrid.TYPE_KEY )
+            .set( TileGrid.VIEW_ID, 0 )
+            .set( TileGrid.LAYER_ID, 0 )
+            .set( TileGrid.WIDTH, GRID_SIZE )
+            .set( TileGrid.HEIGHT, GRID_SIZE )
+            .set( TileGrid.CELL_WIDTH, CELL_SIZE )
+            .set( TileGrid.CELL_HEIGHT, CELL_SIZE )
+        .build();
+        ffContext.getComponentBuilder( ContactPool.TYPE_KEY, CollisionQuadTree.class )
+            .set( CollisionQuadTree.VIEW_ID, 0 )
+            .set( CollisionQuadTree.LAYER_ID, 0 )
+            .set( CollisionQuadTree.MAX_ENTRIES_OF_AREA, 10 )
+            .set( CollisionQuadTree.MAX_LEVEL, 4 )
+            .set( CollisionQuadTree.WORLD_AREA, worldArea )
+        .build();
+        int constraintId = ffContext.getComponentBuilder( ContactConstraint.TYPE_KEY )
+            .set( ContactConstraint.NAME, "constraint" )
+            .set( ContactConstraint.LAYER_ID, 0 )
+            .set( ContactConstraint.CONTACT_BOUNDS, new Rectangle( 0, 0, CELL_SIZE, CELL_SIZE ) )
+        .build();
+
+        // solid tiles on a chessboard pattern over the whole grid
+        ComponentBuilder tileBuilder = ffContext.getEntityBuilder()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.LAYER_ID, 0 )
+            .set( ETile.SPRITE_ID, 0 )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, CELL_SIZE, CELL_SIZE ) );
+        for ( int y = 0; y < GRID_SIZE; y++ ) {
+            for ( int x = ( y % 2 ); x < GRID_SIZE; x += 2 ) {
+                tileBuilder.add( ETile.GRID_POSITIONS, new Position( x, y ) );
+            }
+        }
+        tileBuilder.activate();
+
+        IntBag movedEntityIds = new IntBag( 100, -1 );
+        for ( int i = 0; i < 100; i++ ) {
+            movedEntityIds.add( ffContext.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.LAYER_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( ( i * 37 ) % ( worldArea.width - CELL_SIZE ), ( i * 91 ) % ( worldArea.height - CELL_SIZE ) ) )
+                .set( EMovement.VELOCITY_X, 0f )
+                .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, CELL_SIZE, CELL_SIZE ) )
+                .add( ECollision.CONTACT_CONSTRAINT_IDS, constraintId )
+            .activate() );
+        }
+        assertTrue( movedEntityIds.size() >= CollisionSystem.MIN_PARALLEL_SCANS );
+
+        MoveEvent.notify( ffContext, movedEntityIds );
+        String parallel = contactsToString( movedEntityIds, constraintId );
+
+        for ( int i = 0; i < movedEntityIds.length(); i++ ) {
+            collisionSystem.updateContacts( movedEntityIds.get( i ) );
+        }
+        String sequential = contactsToString( movedEntityIds, constraintId );
+
+        assertTrue( parallel.contains( "Contact [" ) );
+        assertEquals( sequential, parallel );
+    }
+
+    // the contacts of each entity sorted, since the order of the pool entries may change with each pool update
+    private String contactsToString( IntBag entityIds, int constraintId ) {
+        StringBuilder builder = new StringBuilder();
+        for ( int i = 0; i < entityIds.length(); i++ ) {
+            int entityId = entityIds.get( i );
+            ECollision collision = ffContext.getEntityComponent( entityId, ECollision.TYPE_KEY );
+            DynArrayRO<Contact> contacts = collision.getContactScan().getContacts( constraintId ).allContacts();
+            List<String> result = new ArrayList<String>();
+            for ( int j = 0; j < contacts.capacity(); j++ ) {
+                if ( contacts.get( j ) != null ) {
+                    result.add( contacts.get( j ).toString() );
+                }
+            }
+            Collections.sort( result );
+            builder.append( entityId ).append( ":" ).append( result ).append( "\n" );
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.inari.firefly.physics.collision;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.inari.commons.geom.Position;
+import com.inari.commons.geom.PositionF;
+import com.inari.commons.geom.Rectangle;
+import com.inari.firefly.FFTest;
+import com.inari.firefly.TestTimer;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.tile.ETile;
+import com.inari.firefly.graphics.tile.TileGrid;
+import com.inari.firefly.physics.movement.EMovement;
+import com.inari.firefly.physics.movement.MovementSystem;
+
+public class RaycastTest extends FFTest {
+
+    @Test
+    public void testRaycast() {
+        ffContext.loadSystem( CollisionSystem.SYSTEM_KEY );
+        CollisionSystem collisionSystem = ffContext.getSystem( CollisionSystem.SYSTEM_KEY );
+
+        ffContext.getComponentBuilder( ContactPool.TYPE_KEY, CollisionQuadTree.class )
+            .set( CollisionQuadTree.VIEW_ID, 0 )
+            .set( CollisionQuadTree.LAYER_ID, 0 )
+            .set( CollisionQuadTree.MAX_ENTRIES_OF_AREA, 4 )
+            .set( CollisionQuadTree.MAX_LEVEL, 4 )
+            .set( CollisionQuadTree.WORLD_AREA, new Rectangle( 0, 0, 200, 200 ) )
+        .build();
+        ffContext.getComponentBuilder( TileGrid.TYPE_KEY )
+            .set( TileGrid.CELL_WIDTH, 16 )
+            .set( TileGrid.CELL_HEIGHT, 16 )
+            .set( TileGrid.WIDTH, 10 )
+            .set( TileGrid.HEIGHT, 10 )
+            .set( TileGrid.VIEW_ID, 0 )
+            .set( TileGrid.LAYER_ID, 0 )
+        .build();
+
+        // a sprite at 40/0 and a tile at 80/0
+        ffContext.getEntityBuilder()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.LAYER_ID, 0 )
+            .set( ETransform.POSITION, new PositionF( 40, 0 ) )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, 10, 10 ) )
+        .activateAndNext()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.LAYER_ID, 0 )
+            .add( ETile.GRID_POSITIONS, new Position( 5, 0 ) )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, 16, 16 ) )
+        .activate();
+
+        RaycastResult result = new RaycastResult();
+        assertTrue( collisionSystem.raycast( 0, 0, 0, 5, 1, 0, 150, -1, result ) );
+        assertEquals( "RaycastResult [hits=[0@40.0]]", result.toString() );
+        assertEquals( 40f, result.getXpos( 0 ), 0f );
+        assertEquals( 5f, result.getYpos( 0 ), 0f );
+
+        assertEquals( 2, collisionSystem.raycastAll( 0, 0, 0, 5, 2, 0, 150, -1, result ) );
+        assertEquals( "RaycastResult [hits=[0@40.0, 1@80.0]]", result.toString() );
+
+        // the tile from below
+        assertTrue( collisionSystem.raycast( 0, 0, 88, 100, 0, -1, 150, -1, result ) );
+        assertEquals( "RaycastResult [hits=[1@84.0]]", result.toString() );
+
+        assertFalse( collisionSystem.segmentcast( 0, 0, 0, 5, 30, 5, -1, result ) );
+        assertTrue( result.isEmpty() );
+
+        result.setIgnoredEntityId( 0 );
+        assertEquals( 1, collisionSystem.segmentcastAll( 0, 0, 0, 5, 100, 5, -1, result ) );
+        assertEquals( "RaycastResult [hits=[1@80.0]]", result.toString() );
+    }
+
+    @Test
+    public void testSweep() {
+        TestTimer timer = (TestTimer) ffContext.getTimer();
+        ffContext.loadSystem( CollisionSystem.SYSTEM_KEY );
+        MovementSystem movementSystem = ffContext.getSystem( MovementSystem.SYSTEM_KEY );
+
+        ffContext.getComponentBuilder( TileGrid.TYPE_KEY )
+            .set( TileGrid.CELL_WIDTH, 16 )
+            .set( TileGrid.CELL_HEIGHT, 16 )
+            .set( TileGrid.WIDTH, 10 )
+            .set( TileGrid.HEIGHT, 10 )
+            .set( TileGrid.VIEW_ID, 0 )
+            .set( TileGrid.LAYER_ID, 0 )
+        .build();
+
+        // two entities that move 100 pixel within one step, only the first with swept collision
+        ffContext.getEntityBuilder()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.LAYER_ID, 0 )
+            .add( ETile.GRID_POSITIONS, new Position( 5, 0 ) )
+            .add( ETile.GRID_POSITIONS, new Position( 5, 2 ) )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, 16, 16 ) )
+        .activateAndNext()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.LAYER_ID, 0 )
+            .set( ETransform.POSITION, new PositionF( 40, 0 ) )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, 10, 10 ) )
+            .set( ECollision.SWEEP, true )
+            .set( EMovement.VELOCITY_X, 100f )
+            .set( EMovement.ON_GROUND, true )
+            .set( EMovement.ACTIVE, true )
+        .activateAndNext()
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ETransform.LAYER_ID, 0 )
+            .set( ETransform.POSITION, new PositionF( 40, 32 ) )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, 10, 10 ) )
+            .set( EMovement.VELOCITY_X, 100f )
+            .set( EMovement.ON_GROUND, true )
+            .set( EMovement.ACTIVE, true )
+        .activate();
+
+        timer.tick();
+        movementSystem.update( timer );
+
+        // the swept entity is stopped one pixel within the tile, the other one passed through
+        ETransform transform1 = ffContext.getEntityComponent( 1, ETransform.TYPE_KEY );
+        ETransform transform2 = ffContext.getEntityComponent( 2, ETransform.TYPE_KEY );
+        assertEquals( 71f, transform1.getXpos(), 0f );
+        assertEquals( 0f, transform1.getYpos(), 0f );
+        assertEquals( 140f, transform2.getXpos(), 0f );
+    }
+
+}
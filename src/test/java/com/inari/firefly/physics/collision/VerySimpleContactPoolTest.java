@@ -9,6 +9,8 @@ import org.junit.Test;
 
 import com.inari.commons.geom.Rectangle;
 import com.inari.commons.lang.IntIterator;
+import com.inari.commons.lang.aspect.Aspect;
+import com.inari.commons.lang.list.IntBag;
 import com.inari.firefly.FFTest;
 import com.inari.firefly.graphics.ETransform;
 import com.inari.firefly.graphics.sprite.ESprite;
@@ -84,5 +86,39 @@ public class VerySimpleContactPoolTest extends FFTest {
         intIterator = contactPool.get( null );
         assertFalse( intIterator.hasNext() );
     }
+    
+    @Test
+    public void testMaterialTypeOfRestingEntity() {
+        CollisionSystem collisionSystem = ffContext.getSystem( CollisionSystem.SYSTEM_KEY );
+        Aspect stone = CollisionSystem.MATERIAL_ASPECT_GROUP.createAspect( "STONE" );
+        Aspect water = CollisionSystem.MATERIAL_ASPECT_GROUP.createAspect( "WATER" );
+        
+        int poolId = ffContext.getComponentBuilder( ContactPool.TYPE_KEY, VerySimpleContactPool.class )
+            .set( ContactPool.VIEW_ID, 1 )
+            .build();
+        int constraintId = ffContext.getComponentBuilder( ContactConstraint.TYPE_KEY )
+            .set( ContactConstraint.MATERIAL_TYPE_FILTER, CollisionSystem.MATERIAL_ASPECT_GROUP.createAspects( water ) )
+            .build();
+        int entityId = ffContext.getEntityBuilder()
+            .set( ETransform.VIEW_ID, 1 )
+            .set( ESprite.SPRITE_ID, 1 )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, 10, 10 ) )
+            .set( ECollision.MATERIAL_TYPE, stone )
+            .activate();
+        
+        ContactPool contactPool = ffContext.getSystemComponent( ContactPool.TYPE_KEY, poolId );
+        ContactConstraint constraint = ffContext.getSystemComponent( ContactConstraint.TYPE_KEY, constraintId );
+        IntBag result = new IntBag( 10, -1 );
+        assertEquals( stone, contactPool.getMaterialType( entityId ) );
+        contactPool.get( null, constraint, result );
+        assertEquals( 0, result.size() );
+        
+        // the entity doesn't move, so the pool is only updated by the CollisionSystem
+        collisionSystem.setMaterialType( entityId, water );
+        assertEquals( water, contactPool.getMaterialType( entityId ) );
+        contactPool.get( null, constraint, result );
+        assertEquals( 1, result.size() );
+        assertEquals( entityId, result.get( 0 ) );
+    }
 
 }
@@ -0,0 +1,46 @@
+package com.inari.firefly.system.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import com.inari.commons.event.EventDispatcher;
+import com.inari.firefly.system.UpdateEvent;
+import com.inari.firefly.system.UpdateEventListener;
+import com.inari.firefly.system.external.FFTimer;
+
+public class HeadlessFireFlyAppTest {
+    
+    @Test
+    public void testSimulate() {
+        HeadlessFireFlyApp app = new HeadlessFireFlyApp( new EventDispatcher(), 10 );
+        UpdateCounter counter = new UpdateCounter();
+        app.getContext().registerListener( UpdateEvent.TYPE_KEY, counter );
+        
+        assertFalse( app.isRenderingEnabled() );
+        
+        int frames = app.simulate( 1000 );
+        
+        assertEquals( 100, frames );
+        assertEquals( 100, counter.updates );
+        assertEquals( 100, app.getSimulatedFrames() );
+        assertEquals( 1000, app.getSimulatedMillis() );
+        assertEquals( 990, app.getTimer().getTime() );
+        assertEquals( 10, app.getTimer().getTimeElapsed() );
+        
+        app.render();
+        app.dispose();
+    }
+    
+    private static final class UpdateCounter implements UpdateEventListener {
+        
+        int updates = 0;
+
+        @Override
+        public void update( FFTimer timer ) {
+            updates++;
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.inari.firefly.system.info;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.inari.commons.lang.list.DynArrayRO;
+import com.inari.firefly.FireFlyMock;
+import com.inari.firefly.system.info.FrameProfiler.SectionStats;
+
+public class FrameProfilerTest {
+
+    @Test
+    public void testDisabled() {
+        FrameProfiler profiler = new FrameProfiler( 10 );
+        assertFalse( profiler.isEnabled() );
+
+        profiler.nextFrame();
+
+        assertEquals( 0, profiler.getFrames() );
+        assertNull( profiler.getSlowest() );
+        assertEquals( 0, profiler.snapshot().size() );
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        FrameProfiler profiler = new FrameProfiler( 100 );
+        profiler.setEnabled( true );
+
+        Section1 section1 = new Section1();
+        Section2 section2 = new Section2();
+        for ( int i = 1; i <= 100; i++ ) {
+            profiler.record( section1, i * 2000 );
+            // recorded twice within a frame
+            profiler.record( section2, 500 );
+            profiler.record( section2, 500 );
+            profiler.nextFrame();
+        }
+
+        assertEquals( 100, profiler.getFrames() );
+        DynArrayRO<SectionStats> snapshot = profiler.snapshot();
+        assertEquals( 2, snapshot.size() );
+        assertEquals(
+            "SectionStats [name=Section1, samples=100, min=0.002, avg=0.101, p99=0.198, max=0.200]",
+            snapshot.get( 0 ).toString()
+        );
+        assertEquals(
+            "SectionStats [name=Section2, samples=100, min=0.001, avg=0.001, p99=0.001, max=0.001]",
+            snapshot.get( 1 ).toString()
+        );
+        assertEquals( "Section1", profiler.getSlowest().name );
+
+        StringBuilder csv = new StringBuilder();
+        profiler.writeCSV( csv );
+        assertEquals(
+            "section,samples,min_ms,avg_ms,p99_ms,max_ms\n" +
+            "Section1,100,0.002,0.101,0.198,0.200\n" +
+            "Section2,100,0.001,0.001,0.001,0.001\n",
+            csv.toString()
+        );
+
+        // ring buffer keeps only the last 100 frames
+        profiler.record( section1, 1000000 );
+        profiler.nextFrame();
+        assertEquals( "1.000", FrameProfiler.toMillis( profiler.snapshot().get( 0 ).maxNanos ) );
+        assertEquals( 100, profiler.snapshot().get( 0 ).samples );
+    }
+
+    @Test
+    public void testRenderersNotCountedTwice() {
+        FireFlyMock firefly = new FireFlyMock();
+        FrameProfiler profiler = firefly.getContext().getFrameProfiler();
+        profiler.setEnabled( true );
+
+        firefly.update();
+        firefly.render();
+        firefly.update();
+
+        // the RenderingSystem records each Renderer by itself and is not recorded as a whole
+        DynArrayRO<SectionStats> snapshot = profiler.snapshot();
+        assertTrue( snapshot.size() > 0 );
+        for ( int i = 0; i < snapshot.capacity(); i++ ) {
+            if ( snapshot.get( i ) != null ) {
+                assertFalse( "RenderingSystem".equals( snapshot.get( i ).name ) );
+            }
+        }
+        firefly.dispose();
+    }
+
+    private static final class Section1 {}
+    private static final class Section2 {}
+
+}
@@ -0,0 +1,261 @@
+package com.inari.firefly.system.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.inari.commons.geom.BitMask;
+import com.inari.commons.geom.PositionF;
+import com.inari.commons.geom.Rectangle;
+import com.inari.commons.graphics.RGBColor;
+import com.inari.commons.lang.IntIterator;
+import com.inari.commons.lang.aspect.Aspect;
+import com.inari.firefly.FFTest;
+import com.inari.firefly.asset.Asset;
+import com.inari.firefly.component.Component;
+import com.inari.firefly.component.ComponentId;
+import com.inari.firefly.component.attr.AttributeKey;
+import com.inari.firefly.component.attr.AttributeMap;
+import com.inari.firefly.component.attr.Attributes;
+import com.inari.firefly.component.attr.IndexedAttributeMap;
+import com.inari.firefly.entity.EEntity;
+import com.inari.firefly.entity.EntitySystem;
+import com.inari.firefly.entity.EntitySystem.Entity;
+import com.inari.firefly.graphics.BlendMode;
+import com.inari.firefly.graphics.ETransform;
+import com.inari.firefly.graphics.TextureAsset;
+import com.inari.firefly.graphics.rendering.RenderingChain.RendererKey;
+import com.inari.firefly.graphics.rendering.SimpleTileGridRenderer;
+import com.inari.firefly.graphics.sprite.ESprite;
+import com.inari.firefly.graphics.tile.TileGrid;
+import com.inari.firefly.graphics.tile.TileGridSystem;
+import com.inari.firefly.physics.collision.CollisionSystem;
+import com.inari.firefly.physics.collision.ECollision;
+
+public class SnapshotTest extends FFTest {
+    
+    private static final Aspect ENTITY_ASPECT = EEntity.ENTITY_ASPECT_GROUP.createAspect( "SNAPSHOT_ENTITY" );
+    private static final Aspect MATERIAL_TYPE = CollisionSystem.MATERIAL_ASPECT_GROUP.createAspect( "SNAPSHOT_MATERIAL" );
+    private static final Aspect CONTACT_TYPE = CollisionSystem.CONTACT_ASPECT_GROUP.createAspect( "SNAPSHOT_CONTACT" );
+
+    @Test
+    public void testRoundTripAgainstAttributes() throws Exception {
+        ffContext.getComponentBuilder( Asset.TYPE_KEY, TextureAsset.class )
+            .set( TextureAsset.NAME, "texture" )
+            .set( TextureAsset.RESOURCE_NAME, "texture.png" )
+            .build();
+        ffContext.getComponentBuilder( Asset.TYPE_KEY, TextureAsset.class )
+            .set( TextureAsset.NAME, "texture2" )
+            .set( TextureAsset.RESOURCE_NAME, "texture2.png" )
+            .set( TextureAsset.MIP_MAP, true )
+            .build();
+        ffContext.getSystem( TileGridSystem.SYSTEM_KEY );
+        ffContext.getComponentBuilder( TileGrid.TYPE_KEY )
+            .set( TileGrid.NAME, "grid" )
+            .set( TileGrid.VIEW_ID, 0 )
+            .set( TileGrid.WIDTH, 10 )
+            .set( TileGrid.HEIGHT, 10 )
+            .set( TileGrid.CELL_WIDTH, 16 )
+            .set( TileGrid.CELL_HEIGHT, 16 )
+            .set( TileGrid.RENDERER_KEY, new RendererKey( "gridRenderer", SimpleTileGridRenderer.class ) )
+            .build();
+        EntitySystem entitySystem = ffContext.getSystem( EntitySystem.SYSTEM_KEY );
+        BitMask collisionMask = new BitMask( 0, 0 );
+        collisionMask.reset( 0, 0, 4, 4 );
+        collisionMask.setBit( 1, 2 );
+        ffContext.getEntityBuilder()
+            .set( EEntity.ENTITY_NAME, "collider" )
+            .set( EEntity.ASPECTS, EEntity.ENTITY_ASPECT_GROUP.createAspects( ENTITY_ASPECT ) )
+            .set( ETransform.VIEW_ID, 0 )
+            .set( ECollision.COLLISION_BOUNDS, new Rectangle( 0, 0, 4, 4 ) )
+            .set( ECollision.COLLISION_MASK, collisionMask )
+            .set( ECollision.MATERIAL_TYPE, MATERIAL_TYPE )
+            .set( ECollision.CONTACT_TYPE, CONTACT_TYPE )
+        .activate();
+        ffContext.getEntityBuilder()
+            .set( EEntity.ENTITY_NAME, "noAspects" )
+            .set( ETransform.VIEW_ID, 0 )
+        .activate();
+        for ( int i = 0; i < 10; i++ ) {
+            int entityId = ffContext.getEntityBuilder()
+                .set( ETransform.VIEW_ID, 0 )
+                .set( ETransform.POSITION, new PositionF( i, -i ) )
+                .set( ETransform.ROTATION, i * 0.5f )
+                .set( ESprite.SPRITE_ID, i )
+                .set( ESprite.TINT_COLOR, new RGBColor( 1f, 0.5f, 0f, 1f ) )
+                .set( ESprite.BLEND_MODE, BlendMode.ADDITIVE )
+            .activate();
+            if ( i % 3 == 0 ) {
+                entitySystem.deactivateEntity( entityId );
+            }
+        }
+        
+        String expected = toAttributeString();
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ffContext.toSnapshot( Channels.newChannel( out ), Asset.TYPE_KEY, TileGrid.TYPE_KEY, Entity.ENTITY_TYPE_KEY );
+        ffContext.fromSnapshot( Channels.newChannel( new ByteArrayInputStream( out.toByteArray() ) ) );
+        
+        assertEquals( expected, toAttributeString() );
+        assertEquals( 8, count( entitySystem.entities() ) );
+        assertEquals( 4, count( entitySystem.entities( false ) ) );
+        
+        assertTrue( ffContext.getEntityComponent( "collider", EEntity.TYPE_KEY ).hasAspect( ENTITY_ASPECT ) );
+        assertTrue( ffContext.getEntityComponent( "noAspects", EEntity.TYPE_KEY ).getAspects().isEmpty() );
+        ECollision collision = ffContext.getEntityComponent( "collider", ECollision.TYPE_KEY );
+        assertTrue( collision.getMaterialType() == MATERIAL_TYPE );
+        assertTrue( collision.getContactType() == CONTACT_TYPE );
+        assertEquals( 4, collision.getCollisionMask().region().width );
+        assertEquals( 4, collision.getCollisionMask().region().height );
+        assertTrue( collision.getCollisionMask().getBit( 1, 2 ) );
+        assertFalse( collision.getCollisionMask().getBit( 2, 1 ) );
+        assertEquals( 
+            new RendererKey( "gridRenderer", SimpleTileGridRenderer.class ), 
+            ffContext.getSystemComponent( TileGrid.TYPE_KEY, "grid" ).getRendererKey() 
+        );
+    }
+    
+    @Test
+    public void testNotASnapshot() throws Exception {
+        try {
+            ffContext.fromSnapshot( Channels.newChannel( new ByteArrayInputStream( new byte[] { 1, 2, 3, 4, 5 } ) ) );
+            fail( "StreamCorruptedException expected" );
+        } catch ( StreamCorruptedException e ) {
+            assertEquals( "Not a firefly snapshot", e.getMessage() );
+        }
+    }
+    
+    @Test
+    public void testNoComponentTypeWithinSnapshot() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotWriter writer = new SnapshotWriter( Channels.newChannel( out ) );
+        writer.writeByte( SnapshotWriter.TAG_SECTION );
+        writer.writeString( "section" );
+        writer.writeByte( SnapshotWriter.TAG_SCHEMA );
+        writer.writeVarInt( 0 );
+        writer.writeString( "java.util.HashMap" );
+        writer.writeVarInt( 0 );
+        writer.close();
+        
+        SnapshotReader reader = new SnapshotReader( Channels.newChannel( new ByteArrayInputStream( out.toByteArray() ) ) );
+        assertTrue( reader.nextSection() );
+        try {
+            reader.next();
+            fail( "InvalidClassException expected" );
+        } catch ( InvalidClassException e ) {
+            assertEquals( "java.util.HashMap; Not a Component", e.getMessage() );
+        }
+    }
+    
+    @Test
+    public void testValueWithoutCodec() throws Exception {
+        SnapshotWriter writer = new SnapshotWriter( Channels.newChannel( new ByteArrayOutputStream() ) );
+        writer.beginSection( Entity.ENTITY_TYPE_KEY );
+        try {
+            writer.writeComponent( 0, new NoCodecComponent() );
+            fail( "NotSerializableException expected" );
+        } catch ( NotSerializableException e ) {
+            assertEquals( "No SnapshotCodec for: " + Thread.class.getName(), e.getMessage() );
+        }
+    }
+    
+    @Test
+    public void testChangedValueType() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotWriter writer = new SnapshotWriter( Channels.newChannel( out ) );
+        writer.writeByte( SnapshotWriter.TAG_SECTION );
+        writer.writeString( "section" );
+        writer.writeByte( SnapshotWriter.TAG_SCHEMA );
+        writer.writeVarInt( 0 );
+        writer.writeString( ETransform.class.getName() );
+        writer.writeVarInt( 2 );
+        // viewId was a Float attribute when the snapshot was written
+        writer.writeString( ETransform.VIEW_ID.name() );
+        writer.writeString( ETransform.class.getName() );
+        writer.writeString( Float.class.getName() );
+        writer.writeString( null );
+        writer.writeString( ETransform.LAYER_ID.name() );
+        writer.writeString( ETransform.class.getName() );
+        writer.writeString( Integer.class.getName() );
+        writer.writeString( null );
+        writer.writeByte( SnapshotWriter.TAG_COMPONENT );
+        writer.writeVarInt( 0 );
+        writer.writeVarInt( 0 );
+        writer.writeByte( 3 );
+        writer.writeByte( 0 );
+        writer.writeFloat( 1.5f );
+        writer.writeZigZagInt( 2 );
+        writer.writeByte( SnapshotWriter.TAG_SECTION_END );
+        writer.close();
+        
+        SnapshotReader reader = new SnapshotReader( Channels.newChannel( new ByteArrayInputStream( out.toByteArray() ) ) );
+        assertTrue( reader.nextSection() );
+        assertEquals( SnapshotReader.COMPONENT, reader.next() );
+        IndexedAttributeMap attributes = new IndexedAttributeMap( null );
+        reader.readAttributes( attributes );
+        
+        assertFalse( attributes.contains( ETransform.VIEW_ID ) );
+        assertEquals( -1, attributes.getValue( ETransform.VIEW_ID, -1 ).intValue() );
+        assertEquals( 2, attributes.getValue( ETransform.LAYER_ID, -1 ).intValue() );
+        assertEquals( SnapshotReader.END, reader.next() );
+    }
+    
+    private int count( IntIterator iterator ) {
+        int count = 0;
+        while ( iterator.hasNext() ) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+    
+    // the attributes of all assets and entities without component ids, that may differ after rebuild
+    private String toAttributeString() {
+        Attributes attributes = new Attributes();
+        ffContext.toAttributes( attributes, Asset.TYPE_KEY, TileGrid.TYPE_KEY, Entity.ENTITY_TYPE_KEY );
+        List<String> result = new ArrayList<String>();
+        for ( AttributeMap attrs : attributes ) {
+            if ( attrs.getComponentId().index() < 0 ) {
+                continue;
+            }
+            result.add( attrs.getComponentId().typeKey() + "::" + attrs );
+        }
+        Collections.sort( result );
+        return result.toString();
+    }
+    
+    private static final class NoCodecComponent implements Component {
+        
+        private static final AttributeKey<Thread> THREAD = AttributeKey.create( "thread", Thread.class, NoCodecComponent.class );
+        
+        public final ComponentId componentId() {
+            return null;
+        }
+
+        public final Set<AttributeKey<?>> attributeKeys() {
+            return Collections.<AttributeKey<?>>singleton( THREAD );
+        }
+
+        public final void fromAttributes( AttributeMap attributes ) {
+        }
+
+        public final void toAttributes( AttributeMap attributes ) {
+            attributes.put( THREAD, Thread.currentThread() );
+        }
+    }
+
+}